@@ -0,0 +1,146 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.bench;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.hsqldb.DatabaseManager;
+import org.hsqldb.DatabaseURL;
+import org.hsqldb.Session;
+import org.hsqldb.lib.InOutUtil;
+import org.hsqldb.persist.HsqlProperties;
+import org.hsqldb.result.Result;
+
+/**
+ * Utility methods shared by the benchmarks.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {}
+
+    /**
+     * Returns a session for a new in-process mem: database.
+     */
+    static Session newMemSession(String name) {
+        return DatabaseManager.newSession(DatabaseURL.S_MEM, name, "SA", "",
+                                          new HsqlProperties(), null, 0);
+    }
+
+    /**
+     * Executes a statement with the session and throws any error.
+     */
+    static Result execute(Session session, String sql) {
+
+        Result result = session.executeDirectStatement(sql);
+
+        if (result.isError()) {
+            throw result.getException();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns a new empty directory in the temporary directory.
+     */
+    static File newDirectory(String prefix) throws IOException {
+
+        File dir = File.createTempFile(prefix, "");
+
+        dir.delete();
+
+        if (!dir.mkdirs()) {
+            throw new IOException("cannot create directory " + dir);
+        }
+
+        return dir;
+    }
+
+    /**
+     * Copies the files, but not the subdirectories, in the source directory
+     * to the target directory.
+     */
+    static void copyDirectory(File source, File target) throws IOException {
+
+        File[] files = source.listFiles();
+
+        for (int i = 0; i < files.length; i++) {
+            if (files[i].isDirectory()) {
+                continue;
+            }
+
+            FileInputStream  in  = new FileInputStream(files[i]);
+            FileOutputStream out = new FileOutputStream(new File(target,
+                files[i].getName()));
+
+            try {
+                InOutUtil.copy(in, out);
+            } finally {
+                in.close();
+                out.close();
+            }
+        }
+    }
+
+    static void deleteDirectory(File dir) {
+
+        File[] files = dir.listFiles();
+
+        if (files != null) {
+            for (int i = 0; i < files.length; i++) {
+                if (files[i].isDirectory()) {
+                    deleteDirectory(files[i]);
+                } else {
+                    files[i].delete();
+                }
+            }
+        }
+
+        dir.delete();
+    }
+
+    /**
+     * Returns the URL of a file: database in the directory, with the given
+     * connection properties.
+     */
+    static String getFileURL(File dir, String properties) {
+        return "jdbc:hsqldb:file:" + new File(dir, "db").getPath()
+               + ";hsqldb.lock_file=false" + properties;
+    }
+}
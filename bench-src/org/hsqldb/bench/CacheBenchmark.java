@@ -0,0 +1,144 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.bench;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Random primary key lookups in a CACHED table. With the small cache most
+ * lookups miss and read the row from the .data file. With the large cache
+ * all rows stay in memory after warmup.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CacheBenchmark {
+
+    static final int rowCount = 100000;
+
+    //
+    @Param({
+        "1000", "200000"
+    })
+    int cacheRows;
+
+    //
+    File              dir;
+    Connection        connection;
+    PreparedStatement select;
+    Random            random;
+
+    @Setup
+    public void setup() throws Exception {
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+
+        dir = BenchmarkSupport.newDirectory("cachebench");
+
+        String url = BenchmarkSupport.getFileURL(dir,
+            ";hsqldb.default_table_type=cached;hsqldb.cache_rows="
+            + cacheRows + ";hsqldb.cache_size=100000");
+
+        connection = DriverManager.getConnection(url, "SA", "");
+
+        Statement st = connection.createStatement();
+
+        st.execute(
+            "CREATE TABLE T (ID INT PRIMARY KEY, V VARCHAR(100))");
+
+        PreparedStatement insert =
+            connection.prepareStatement("INSERT INTO T VALUES (?, ?)");
+
+        for (int i = 0; i < rowCount; i++) {
+            insert.setInt(1, i);
+            insert.setString(2, "value " + i);
+            insert.addBatch();
+
+            if (i % 1000 == 999) {
+                insert.executeBatch();
+            }
+        }
+
+        insert.close();
+
+        // write the rows to the .data file and empty the cache
+        st.execute("CHECKPOINT");
+        st.close();
+
+        select = connection.prepareStatement("SELECT V FROM T WHERE ID = ?");
+        random = new Random(0);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+
+        connection.createStatement().execute("SHUTDOWN");
+        connection.close();
+        BenchmarkSupport.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    public String lookup() throws SQLException {
+
+        select.setInt(1, random.nextInt(rowCount));
+
+        ResultSet rs    = select.executeQuery();
+        String    value = rs.next() ? rs.getString(1)
+                                    : null;
+
+        rs.close();
+
+        return value;
+    }
+}
@@ -0,0 +1,179 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.hsqldb.Row;
+import org.hsqldb.Session;
+import org.hsqldb.Table;
+import org.hsqldb.index.IndexAVL;
+import org.hsqldb.map.ValuePool;
+import org.hsqldb.navigator.RowIterator;
+import org.hsqldb.persist.PersistentStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Inserts into and lookups in the primary key IndexAVL of a MEMORY table,
+ * without SQL parsing or execution.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IndexAVLBenchmark {
+
+    static final int insertBatchSize = 10000;
+
+    //
+    @Param({
+        "10000", "1000000"
+    })
+    int rowCount;
+
+    //
+    Session         session;
+    PersistentStore store;
+    IndexAVL        index;
+    PersistentStore insertStore;
+    Integer[]       insertKeys;
+    Random          random;
+
+    @Setup
+    public void setup() {
+
+        session = BenchmarkSupport.newMemSession("indexbench"
+                + System.identityHashCode(this));
+
+        BenchmarkSupport.execute(session,
+                                 "CREATE TABLE T (ID INT PRIMARY KEY, V INT)");
+        BenchmarkSupport.execute(session,
+                                 "CREATE TABLE U (ID INT PRIMARY KEY, V INT)");
+
+        Table table = session.database.schemaManager.getUserTable("T",
+            "PUBLIC");
+        Table insertTable =
+            session.database.schemaManager.getUserTable("U", "PUBLIC");
+
+        store       = table.getRowStore(session);
+        index       = (IndexAVL) table.getPrimaryIndex();
+        insertStore = insertTable.getRowStore(session);
+        random      = new Random(0);
+
+        // even keys only, so that lookups can also miss
+        for (int i = 0; i < rowCount; i++) {
+            addRow(store, ValuePool.getInt(i * 2));
+        }
+
+        insertKeys = new Integer[insertBatchSize];
+
+        for (int i = 0; i < insertBatchSize; i++) {
+            insertKeys[i] = ValuePool.getInt(random.nextInt());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkSupport.execute(session, "SHUTDOWN");
+    }
+
+    @TearDown(Level.Invocation)
+    public void clearInserted() {
+        insertStore.removeAll();
+    }
+
+    private void addRow(PersistentStore rowStore, Integer key) {
+
+        Row row = (Row) rowStore.getNewCachedObject(session, new Object[] {
+            key, key
+        }, false);
+
+        rowStore.indexRow(session, row);
+    }
+
+    @Benchmark
+    public Row lookupHit() {
+
+        Object[] data = new Object[] {
+            ValuePool.getInt(random.nextInt(rowCount) * 2), null
+        };
+        RowIterator it = index.findFirstRow(session, store, data);
+
+        it.next();
+
+        return it.getCurrentRow();
+    }
+
+    @Benchmark
+    public Row lookupMiss() {
+
+        Object[] data = new Object[] {
+            ValuePool.getInt(random.nextInt(rowCount) * 2 + 1), null
+        };
+        RowIterator it = index.findFirstRow(session, store, data);
+
+        it.next();
+
+        return it.getCurrentRow();
+    }
+
+    /**
+     * Inserts a batch of random keys into an empty index. Duplicate keys
+     * are skipped.
+     */
+    @Benchmark
+    @OperationsPerInvocation(insertBatchSize)
+    public long insert() {
+
+        for (int i = 0; i < insertBatchSize; i++) {
+            try {
+                addRow(insertStore, insertKeys[i]);
+            } catch (RuntimeException e) {}
+        }
+
+        return insertStore.elementCount();
+    }
+}
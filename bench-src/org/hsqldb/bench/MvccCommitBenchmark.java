@@ -0,0 +1,146 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.bench;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Concurrent short update transactions, each on its own row, through the
+ * transaction manager selected by the hsqldb.tx property.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class MvccCommitBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class DatabaseState {
+
+        static final int rowCount = 64;
+
+        //
+        @Param({
+            "mvcc", "locks"
+        })
+        String txMode;
+
+        //
+        String        url;
+        Connection    connection;
+        AtomicInteger nextId = new AtomicInteger();
+
+        @Setup
+        public void setup() throws Exception {
+
+            Class.forName("org.hsqldb.jdbc.JDBCDriver");
+
+            url = "jdbc:hsqldb:mem:mvccbench" + System.identityHashCode(this)
+                  + ";hsqldb.tx=" + txMode;
+            connection = DriverManager.getConnection(url, "SA", "");
+
+            Statement st = connection.createStatement();
+
+            st.execute("CREATE TABLE T (ID INT PRIMARY KEY, V BIGINT)");
+
+            for (int i = 0; i < rowCount; i++) {
+                st.execute("INSERT INTO T VALUES (" + i + ", 0)");
+            }
+
+            st.close();
+        }
+
+        @TearDown
+        public void tearDown() throws SQLException {
+
+            connection.createStatement().execute("SHUTDOWN");
+            connection.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+
+        Connection        connection;
+        PreparedStatement update;
+        int               id;
+
+        @Setup
+        public void setup(DatabaseState db) throws SQLException {
+
+            connection = DriverManager.getConnection(db.url, "SA", "");
+
+            connection.setAutoCommit(false);
+
+            update = connection.prepareStatement(
+                "UPDATE T SET V = V + 1 WHERE ID = ?");
+            id = db.nextId.getAndIncrement() % DatabaseState.rowCount;
+        }
+
+        @TearDown
+        public void tearDown() throws SQLException {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public int updateCommit(ClientState client) throws SQLException {
+
+        client.update.setInt(1, client.id);
+
+        int count = client.update.executeUpdate();
+
+        client.connection.commit();
+
+        return count;
+    }
+}
@@ -0,0 +1,159 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.bench;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.hsqldb.server.Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Round trips over the HSQL protocol to an in-process Server: a single
+ * row query and a query that fetches many rows.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NetworkBenchmark {
+
+    static final int rowCount = 1000;
+
+    //
+    @Param({
+        "9101"
+    })
+    int port;
+
+    //
+    Server            server;
+    Connection        connection;
+    PreparedStatement pointSelect;
+    PreparedStatement rangeSelect;
+    Random            random;
+
+    @Setup
+    public void setup() throws Exception {
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+
+        server = new Server();
+
+        server.setDatabaseName(0, "bench");
+        server.setDatabasePath(0, "mem:bench");
+        server.setPort(port);
+        server.setSilent(true);
+        server.setLogWriter(null);
+        server.setNoSystemExit(true);
+        server.start();
+
+        connection = DriverManager.getConnection(
+            "jdbc:hsqldb:hsql://localhost:" + port + "/bench", "SA", "");
+
+        Statement st = connection.createStatement();
+
+        st.execute("CREATE TABLE T (ID INT PRIMARY KEY, V VARCHAR(100))");
+
+        PreparedStatement insert =
+            connection.prepareStatement("INSERT INTO T VALUES (?, ?)");
+
+        for (int i = 0; i < rowCount; i++) {
+            insert.setInt(1, i);
+            insert.setString(2, "value " + i);
+            insert.addBatch();
+        }
+
+        insert.executeBatch();
+        insert.close();
+        st.close();
+
+        pointSelect =
+            connection.prepareStatement("SELECT V FROM T WHERE ID = ?");
+        rangeSelect = connection.prepareStatement("SELECT ID, V FROM T");
+        random      = new Random(0);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+
+        connection.createStatement().execute("SHUTDOWN");
+        connection.close();
+        server.stop();
+    }
+
+    @Benchmark
+    public String pointQuery() throws SQLException {
+
+        pointSelect.setInt(1, random.nextInt(rowCount));
+
+        ResultSet rs    = pointSelect.executeQuery();
+        String    value = rs.next() ? rs.getString(1)
+                                    : null;
+
+        rs.close();
+
+        return value;
+    }
+
+    @Benchmark
+    public int fetchAll() throws SQLException {
+
+        ResultSet rs    = rangeSelect.executeQuery();
+        int       count = 0;
+
+        while (rs.next()) {
+            count += rs.getInt(1);
+        }
+
+        rs.close();
+
+        return count;
+    }
+}
@@ -0,0 +1,131 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hsqldb.Scanner;
+import org.hsqldb.Session;
+import org.hsqldb.Statement;
+import org.hsqldb.Tokens;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Tokenizing with the Scanner, and compiling with the parser, of typical
+ * statements.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParserBenchmark {
+
+    static final String[] statements = new String[] {
+        "SELECT ID, NAME FROM CUSTOMER WHERE ID = ?",
+        "INSERT INTO CUSTOMER (ID, NAME, BALANCE) VALUES (?, ?, ?)",
+        "UPDATE CUSTOMER SET BALANCE = BALANCE + ? WHERE ID = ?",
+        "SELECT C.NAME, SUM(O.AMOUNT) FROM CUSTOMER C JOIN ORDERS O "
+        + "ON C.ID = O.CUSTOMER_ID WHERE O.AMOUNT > 100 "
+        + "GROUP BY C.NAME HAVING COUNT(*) > 2 ORDER BY 2 DESC LIMIT 10"
+    };
+
+    //
+    @Param({
+        "0", "1", "2", "3"
+    })
+    int statementIndex;
+
+    //
+    Session session;
+    Scanner scanner;
+    String  sql;
+
+    @Setup
+    public void setup() {
+
+        session = BenchmarkSupport.newMemSession("parserbench"
+                + System.identityHashCode(this));
+
+        BenchmarkSupport.execute(
+            session,
+            "CREATE TABLE CUSTOMER (ID INT PRIMARY KEY, NAME VARCHAR(100), "
+            + "BALANCE DECIMAL(18,2))");
+        BenchmarkSupport.execute(
+            session,
+            "CREATE TABLE ORDERS (ID INT PRIMARY KEY, CUSTOMER_ID INT, "
+            + "AMOUNT DECIMAL(18,2))");
+
+        scanner = new Scanner();
+        sql     = statements[statementIndex];
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkSupport.execute(session, "SHUTDOWN");
+    }
+
+    @Benchmark
+    public int scan() {
+
+        int count = 0;
+
+        scanner.reset(session, sql);
+
+        for (;;) {
+            scanner.scanNext();
+
+            if (scanner.getTokenType() == Tokens.X_ENDPARSE) {
+                break;
+            }
+
+            count++;
+        }
+
+        return count;
+    }
+
+    @Benchmark
+    public Statement compile() {
+        return session.compileStatement(sql);
+    }
+}
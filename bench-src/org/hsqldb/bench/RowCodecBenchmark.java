@@ -0,0 +1,114 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.bench;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.hsqldb.map.ValuePool;
+import org.hsqldb.rowio.RowInputBinary;
+import org.hsqldb.rowio.RowOutputBinary;
+import org.hsqldb.types.TimestampData;
+import org.hsqldb.types.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Encoding and decoding of a row with RowOutputBinary and RowInputBinary,
+ * as used for CACHED tables and the .data file.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RowCodecBenchmark {
+
+    static final Type[] types = new Type[] {
+        Type.SQL_INTEGER, Type.SQL_BIGINT, Type.SQL_VARCHAR_DEFAULT,
+        Type.SQL_DECIMAL_DEFAULT, Type.SQL_TIMESTAMP, Type.SQL_DOUBLE,
+        Type.SQL_BOOLEAN
+    };
+
+    //
+    Object[]        data;
+    RowOutputBinary out;
+    RowInputBinary  in;
+    int             size;
+
+    @Setup
+    public void setup() {
+
+        data = new Object[] {
+            ValuePool.getInt(123456), ValuePool.getLong(1234567890123L),
+            "the quick brown fox jumps over the lazy dog",
+            new BigDecimal("12345.6789"),
+            new TimestampData(1500000000L), new Double(3.25), Boolean.TRUE
+        };
+        out = new RowOutputBinary(256, 1);
+
+        encode();
+
+        size = out.size();
+
+        byte[] bytes = new byte[size];
+
+        System.arraycopy(out.getBuffer(), 0, bytes, 0, size);
+
+        in = new RowInputBinary(bytes);
+    }
+
+    @Benchmark
+    public int encode() {
+
+        out.reset();
+        out.writeSize(0);
+        out.writeData(types.length, types, data, null, null);
+
+        return out.size();
+    }
+
+    @Benchmark
+    public Object[] decode() {
+
+        in.resetRow(0, size);
+
+        return in.readData(types);
+    }
+}
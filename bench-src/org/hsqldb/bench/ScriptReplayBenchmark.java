@@ -0,0 +1,142 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.bench;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Opening a database whose .log file has not been applied, so that
+ * ScriptRunner replays all the logged statements.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ScriptReplayBenchmark {
+
+    @Param({
+        "100000"
+    })
+    int logRows;
+
+    //
+    File       templateDir;
+    File       dir;
+    Connection connection;
+
+    /**
+     * Creates the template database. SHUTDOWN IMMEDIATELY leaves all the
+     * inserts in the .log file.
+     */
+    @Setup
+    public void setup() throws Exception {
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+
+        templateDir = BenchmarkSupport.newDirectory("replaybench");
+
+        Connection c = DriverManager.getConnection(
+            BenchmarkSupport.getFileURL(templateDir, ""), "SA", "");
+        Statement st = c.createStatement();
+
+        st.execute("SET FILES LOG SIZE 0");
+        st.execute("CREATE TABLE T (ID INT PRIMARY KEY, V VARCHAR(100))");
+        st.execute("CHECKPOINT");
+
+        PreparedStatement insert =
+            c.prepareStatement("INSERT INTO T VALUES (?, ?)");
+
+        for (int i = 0; i < logRows; i++) {
+            insert.setInt(1, i);
+            insert.setString(2, "value " + i);
+            insert.execute();
+        }
+
+        st.execute("SHUTDOWN IMMEDIATELY");
+        c.close();
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkSupport.deleteDirectory(templateDir);
+    }
+
+    @Setup(Level.Invocation)
+    public void copyTemplate() throws Exception {
+
+        dir = BenchmarkSupport.newDirectory("replaybench");
+
+        BenchmarkSupport.copyDirectory(templateDir, dir);
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeCopy() throws SQLException {
+
+        if (connection != null) {
+            connection.createStatement().execute("SHUTDOWN IMMEDIATELY");
+            connection.close();
+
+            connection = null;
+        }
+
+        BenchmarkSupport.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    public Connection replay() throws SQLException {
+
+        connection = DriverManager.getConnection(
+            BenchmarkSupport.getFileURL(dir, ""), "SA", "");
+
+        return connection;
+    }
+}
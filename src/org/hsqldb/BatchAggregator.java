@@ -0,0 +1,1156 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.hsqldb.RangeVariable.RangeIteratorMain;
+import org.hsqldb.RangeVariable.RangeVariableConditions;
+import org.hsqldb.error.Error;
+import org.hsqldb.error.ErrorCode;
+import org.hsqldb.lib.HsqlArrayList;
+import org.hsqldb.lib.HsqlDeque;
+import org.hsqldb.lib.IntKeyIntValueHashMap;
+import org.hsqldb.map.ValuePool;
+import org.hsqldb.navigator.RowSetNavigatorData;
+import org.hsqldb.types.Type;
+
+/**
+ * Batch execution of aggregate queries over a single table.<p>
+ *
+ * Rows are read from the range iterator in batches of BATCH_SIZE. The
+ * columns referenced by the WHERE condition and by the aggregate functions
+ * are decoded once per batch into primitive vectors for INTEGER, BIGINT and
+ * DOUBLE columns. The conjuncts of the WHERE condition then narrow a
+ * selection vector of row positions and COUNT, SUM, AVG, MIN and MAX are
+ * computed over the selected positions in tight loops.<p>
+ *
+ * Used only for queries with a single range variable, plain column
+ * references as grouping columns and aggregate arguments, and a WHERE
+ * condition that is a conjunction of comparisons between a column and a
+ * literal or a dynamic parameter, or IS [NOT] NULL tests on columns. Index
+ * conditions are still used by the iterator. The results are identical to
+ * the row by row execution.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+final class BatchAggregator {
+
+    static final int BATCH_SIZE = 1024;
+
+    //
+    private final RangeVariable           range;
+    private final RangeVariableConditions conditions;
+    private final Expression              filterCondition;
+    private final Filter[]                filters;
+
+    //
+    private final boolean isGrouped;
+    private final int     indexStartAggregates;
+    private final int     indexLimitExpressions;
+    private final int     indexLimitData;
+    private final int[]   groupColumns;
+
+    //
+    private final ExpressionAggregate[] aggregates;
+    private final int[]                 aggregateColumns;
+    private final int[]                 aggregateSlots;
+
+    //
+    private final int[] vectorColumns;
+    private final int[] vectorClasses;
+
+    private BatchAggregator(RangeVariable range,
+                            RangeVariableConditions conditions,
+                            Filter[] filters, boolean isGrouped,
+                            int indexStartAggregates,
+                            int indexLimitExpressions, int indexLimitData,
+                            int[] groupColumns,
+                            ExpressionAggregate[] aggregates,
+                            int[] aggregateColumns, int[] aggregateSlots,
+                            int[] vectorColumns, int[] vectorClasses) {
+
+        this.range                 = range;
+        this.conditions            = conditions;
+        this.filterCondition       = conditions.nonIndexCondition;
+        this.filters               = filters;
+        this.isGrouped             = isGrouped;
+        this.indexStartAggregates  = indexStartAggregates;
+        this.indexLimitExpressions = indexLimitExpressions;
+        this.indexLimitData        = indexLimitData;
+        this.groupColumns          = groupColumns;
+        this.aggregates            = aggregates;
+        this.aggregateColumns      = aggregateColumns;
+        this.aggregateSlots        = aggregateSlots;
+        this.vectorColumns         = vectorColumns;
+        this.vectorClasses         = vectorClasses;
+    }
+
+    /**
+     * Returns a BatchAggregator for the resolved query, or null if the query
+     * cannot be executed in batches.
+     */
+    static BatchAggregator newBatchAggregator(RangeVariable[] rangeVariables,
+            Expression[] exprColumns, boolean[] aggregateCheck,
+            boolean isGrouped, int indexStartAggregates,
+            int indexLimitExpressions, int indexLimitData) {
+
+        if (rangeVariables.length != 1) {
+            return null;
+        }
+
+        RangeVariable range = rangeVariables[0];
+
+        if (range.isLeftJoin || range.isRightJoin
+                || range.whereConditions.length != 1
+                || range.joinConditions.length != 1) {
+            return null;
+        }
+
+        // without outer joins, the WHERE condition of a single table is
+        // usually held in the join conditions
+        RangeVariableConditions conditions = range.joinConditions[0];
+
+        if (conditions.nonIndexCondition == null) {
+            conditions = range.whereConditions[0];
+        } else if (range.whereConditions[0].nonIndexCondition != null) {
+            return null;
+        }
+
+        IntKeyIntValueHashMap slotMap       = new IntKeyIntValueHashMap();
+        HsqlArrayList         slotClassList = new HsqlArrayList();
+        int[]                 groupColumns  = new int[indexStartAggregates];
+
+        for (int i = 0; i < indexStartAggregates; i++) {
+            if (aggregateCheck[i]) {
+                groupColumns[i] = -1;
+
+                continue;
+            }
+
+            int column = getColumnIndex(range, exprColumns[i]);
+
+            if (column < 0) {
+                return null;
+            }
+
+            groupColumns[i] = column;
+        }
+
+        int count = indexLimitExpressions - indexStartAggregates;
+        ExpressionAggregate[] aggregates = new ExpressionAggregate[count];
+        int[]                 aggregateColumns = new int[count];
+        int[]                 aggregateSlots   = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            Expression e = exprColumns[indexStartAggregates + i];
+
+            if (e.getClass() != ExpressionAggregate.class) {
+                return null;
+            }
+
+            ExpressionAggregate aggregate = (ExpressionAggregate) e;
+
+            if (aggregate.isDistinctAggregate || aggregate.hasCondition()) {
+                return null;
+            }
+
+            Expression argument = aggregate.nodes[Expression.LEFT];
+
+            aggregates[i]     = aggregate;
+            aggregateSlots[i] = -1;
+
+            if (argument.opType == OpTypes.ASTERISK) {
+                if (aggregate.opType != OpTypes.COUNT) {
+                    return null;
+                }
+
+                aggregateColumns[i] = -1;
+
+                continue;
+            }
+
+            int column = getColumnIndex(range, argument);
+
+            if (column < 0) {
+                return null;
+            }
+
+            int numericClass =
+                ExpressionCompiler.getNumericClass(argument.dataType);
+
+            switch (aggregate.opType) {
+
+                case OpTypes.SUM :
+                case OpTypes.AVG :
+                    if (numericClass == ExpressionCompiler.CLASS_NONE) {
+                        return null;
+                    }
+                    break;
+
+                case OpTypes.COUNT :
+                    numericClass = ExpressionCompiler.CLASS_NONE;
+                    break;
+
+                case OpTypes.MIN :
+                case OpTypes.MAX :
+
+                    // LOB and array comparisons need the session
+                    if (argument.dataType.isLobType()
+                            || argument.dataType.isArrayType()) {
+                        return null;
+                    }
+                    break;
+
+                default :
+                    return null;
+            }
+
+            aggregateColumns[i] = column;
+
+            if (numericClass != ExpressionCompiler.CLASS_NONE) {
+                aggregateSlots[i] = getSlot(slotMap, slotClassList, column,
+                                            numericClass);
+            }
+        }
+
+        Expression    condition = conditions.nonIndexCondition;
+        HsqlArrayList list      = new HsqlArrayList();
+
+        if (condition != null) {
+            addConjuncts(condition, list);
+        }
+
+        Filter[] filters = new Filter[list.size()];
+
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = getFilter(range, (Expression) list.get(i), slotMap,
+                                   slotClassList);
+
+            if (filters[i] == null) {
+                return null;
+            }
+        }
+
+        int[] vectorColumns = new int[slotClassList.size()];
+        int[] vectorClasses = new int[slotClassList.size()];
+
+        for (int i = 0; i < vectorClasses.length; i++) {
+            int[] pair = (int[]) slotClassList.get(i);
+
+            vectorColumns[i] = pair[0];
+            vectorClasses[i] = pair[1];
+        }
+
+        return new BatchAggregator(range, conditions, filters, isGrouped,
+                                   indexStartAggregates,
+                                   indexLimitExpressions, indexLimitData,
+                                   groupColumns, aggregates,
+                                   aggregateColumns, aggregateSlots,
+                                   vectorColumns, vectorClasses);
+    }
+
+    /**
+     * Returns false if the conditions of the range variable have changed
+     * since this object was created.
+     */
+    boolean isValid() {
+        if (range.whereConditions.length != 1
+                || range.joinConditions.length != 1) {
+            return false;
+        }
+
+        RangeVariableConditions where = range.whereConditions[0];
+        RangeVariableConditions join  = range.joinConditions[0];
+
+        if (conditions == where) {
+            return where.nonIndexCondition == filterCondition
+                   && join.nonIndexCondition == null;
+        }
+
+        return conditions == join
+               && join.nonIndexCondition == filterCondition
+               && where.nonIndexCondition == null;
+    }
+
+    /**
+     * Reads all the rows of the iterator and adds the aggregating values
+     * to the navigator, in the same form as the row by row execution in
+     * QuerySpecification.buildResult().<p>
+     *
+     * When the parallel degree of the session is larger than 1, the rows
+     * are still read and checked for visibility by the iterator on the
+     * session thread, while the batches are filtered and, for queries
+     * without GROUP BY, aggregated into partial results on the shared
+     * query executor. The partial results are merged in the order of the
+     * batches. With partial sums, the rounding of SUM and AVG over DOUBLE
+     * values can differ from the serial execution in the last digits.<p>
+     *
+     * The Session is not thread safe and is not used on the worker threads.
+     * The literals and dynamic parameters of the filters are read on the
+     * session thread before the first batch, and the filters and partial
+     * aggregates are computed with a null session. The types that are
+     * compared there are limited to those that do not use the session.
+     */
+    void aggregate(Session session, RangeIteratorMain it,
+                   RowSetNavigatorData navigator) {
+
+        it.isBatchFiltered = true;
+
+        try {
+            Object[] arguments = getArguments(session);
+            int      degree    = session.getParallelDegree();
+
+            if (degree > 1) {
+                aggregateParallel(session, arguments, it, navigator, degree);
+            } else {
+                aggregateSerial(session, arguments, it, navigator);
+            }
+        } finally {
+            it.isBatchFiltered = false;
+        }
+    }
+
+    /**
+     * Returns the value each filter compares the column with, or null.
+     */
+    private Object[] getArguments(Session session) {
+
+        Object[] arguments = new Object[filters.length];
+
+        for (int i = 0; i < filters.length; i++) {
+            arguments[i] = filters[i].getArgument(session);
+        }
+
+        return arguments;
+    }
+
+    private void aggregateSerial(Session session, Object[] arguments,
+                                 RangeIteratorMain it,
+                                 RowSetNavigatorData navigator) {
+
+        Batch batch = new Batch(vectorColumns.length);
+
+        while (batch.read(it) > 0) {
+            filterBatch(arguments, batch);
+            addBatch(session, batch, navigator);
+
+            if (batch.rowCount < BATCH_SIZE) {
+                break;
+            }
+        }
+    }
+
+    private void aggregateParallel(Session session, Object[] arguments,
+                                   RangeIteratorMain it,
+                                   RowSetNavigatorData navigator,
+                                   int degree) {
+
+        ExecutorService executor  = DatabaseManager.getQueryExecutor();
+        HsqlDeque       pending   = new HsqlDeque();
+        HsqlArrayList   freeList  = new HsqlArrayList();
+        boolean         completed = false;
+
+        try {
+            while (true) {
+                Batch batch = freeList.isEmpty()
+                              ? new Batch(vectorColumns.length)
+                              : (Batch) freeList.remove(freeList.size()
+                                  - 1);
+
+                if (batch.read(it) == 0) {
+                    break;
+                }
+
+                if (batch.rowCount < BATCH_SIZE && pending.isEmpty()) {
+                    filterBatch(arguments, batch);
+                    addBatch(session, batch, navigator);
+
+                    break;
+                }
+
+                if (pending.size() == degree) {
+                    BatchTask task = (BatchTask) pending.removeFirst();
+
+                    task.complete();
+                    addBatch(session, task.batch, navigator);
+                    freeList.add(task.batch);
+                }
+
+                BatchTask task = new BatchTask(arguments, batch);
+
+                task.future = executor.submit(task);
+
+                pending.add(task);
+
+                if (batch.rowCount < BATCH_SIZE) {
+                    break;
+                }
+            }
+
+            while (!pending.isEmpty()) {
+                BatchTask task = (BatchTask) pending.removeFirst();
+
+                task.complete();
+                addBatch(session, task.batch, navigator);
+            }
+
+            completed = true;
+        } finally {
+            if (!completed) {
+                while (!pending.isEmpty()) {
+                    BatchTask task = (BatchTask) pending.removeFirst();
+
+                    task.future.cancel(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes the vectors of the batch and sets its selection to the rows
+     * that satisfy all the filters.
+     */
+    private void filterBatch(Object[] arguments, Batch batch) {
+
+        Object[][] rows = batch.rows;
+        int        size = batch.rowCount;
+
+        for (int slot = 0; slot < vectorColumns.length; slot++) {
+            int column = vectorColumns[slot];
+
+            if (vectorClasses[slot] == ExpressionCompiler.CLASS_DOUBLE) {
+                double[] values = batch.doubleVectors[slot];
+
+                for (int i = 0; i < size; i++) {
+                    Object value = rows[i][column];
+
+                    if (value != null) {
+                        values[i] = ((Number) value).doubleValue();
+                    }
+                }
+            } else {
+                long[] values = batch.longVectors[slot];
+
+                for (int i = 0; i < size; i++) {
+                    Object value = rows[i][column];
+
+                    if (value != null) {
+                        values[i] = ((Number) value).longValue();
+                    }
+                }
+            }
+        }
+
+        int[] selection = batch.selection;
+
+        for (int i = 0; i < size; i++) {
+            selection[i] = i;
+        }
+
+        for (int i = 0; i < filters.length && size > 0; i++) {
+            size = filters[i].filter(batch, arguments[i], size);
+        }
+
+        batch.size = size;
+    }
+
+    /**
+     * Adds the selected rows of the batch to the aggregates in the given
+     * array, starting at offset.
+     */
+    private void aggregateBatch(Session session, Batch batch, Object[] data,
+                                int offset) {
+
+        for (int i = 0; i < aggregates.length; i++) {
+            int         slot     = aggregateSlots[i];
+            SetFunction function = (SetFunction) data[offset + i];
+
+            if (function == null) {
+                function         = newSetFunction(session, aggregates[i]);
+                data[offset + i] = function;
+            }
+
+            long[]   longValues   = null;
+            double[] doubleValues = null;
+
+            if (slot >= 0) {
+                if (vectorClasses[slot] == ExpressionCompiler.CLASS_DOUBLE) {
+                    doubleValues = batch.doubleVectors[slot];
+                } else {
+                    longValues = batch.longVectors[slot];
+                }
+            }
+
+            function.addBatch(session, batch.rows, aggregateColumns[i],
+                              longValues, doubleValues, batch.selection,
+                              batch.size);
+        }
+    }
+
+    /**
+     * Adds a filtered batch, or its partial aggregates, to the navigator.
+     */
+    private void addBatch(Session session, Batch batch,
+                          RowSetNavigatorData navigator) {
+
+        if (batch.size == 0) {
+            return;
+        }
+
+        session.sessionContext.rownum += batch.size;
+
+        if (isGrouped) {
+            addGroupedRows(session, batch, batch.size, navigator);
+
+            return;
+        }
+
+        Object[] data      = getGroupRow(batch.rows[batch.selection[0]]);
+        Object[] groupData = navigator.getGroupData(data);
+
+        if (groupData != null) {
+            data = groupData;
+        }
+
+        if (batch.partial == null) {
+            aggregateBatch(session, batch, data, indexStartAggregates);
+        } else {
+            for (int i = 0; i < aggregates.length; i++) {
+                int         index    = indexStartAggregates + i;
+                SetFunction function = (SetFunction) data[index];
+                SetFunction partial  = (SetFunction) batch.partial[i];
+
+                if (function == null) {
+                    data[index] = partial;
+                } else {
+                    function.merge(session, partial);
+                }
+            }
+
+            batch.partial = null;
+        }
+
+        if (groupData == null) {
+            navigator.add(data);
+        }
+    }
+
+    private void addGroupedRows(Session session, Batch batch, int size,
+                                RowSetNavigatorData navigator) {
+
+        Object[][] rows      = batch.rows;
+        int[]      selection = batch.selection;
+
+        for (int i = 0; i < size; i++) {
+            Object[] row       = rows[selection[i]];
+            Object[] data      = getGroupRow(row);
+            Object[] groupData = navigator.getGroupData(data);
+
+            if (groupData != null) {
+                data = groupData;
+            }
+
+            for (int j = 0; j < aggregates.length; j++) {
+                int         index    = indexStartAggregates + j;
+                int         column   = aggregateColumns[j];
+                SetFunction function = (SetFunction) data[index];
+
+                if (function == null) {
+                    function    = newSetFunction(session, aggregates[j]);
+                    data[index] = function;
+                }
+
+                function.add(session, column < 0 ? ValuePool.INTEGER_1
+                                                 : row[column]);
+            }
+
+            if (groupData == null) {
+                navigator.add(data);
+            } else {
+                navigator.update(groupData, data);
+            }
+        }
+    }
+
+    private Object[] getGroupRow(Object[] row) {
+
+        Object[] data = new Object[indexLimitData];
+
+        for (int i = 0; i < indexStartAggregates; i++) {
+            if (groupColumns[i] >= 0) {
+                data[i] = row[groupColumns[i]];
+            }
+        }
+
+        return data;
+    }
+
+    private static SetFunction newSetFunction(Session session,
+            ExpressionAggregate aggregate) {
+        return new SetFunction(session, aggregate.opType,
+                               aggregate.nodes[Expression.LEFT].dataType,
+                               aggregate.dataType,
+                               aggregate.isDistinctAggregate,
+                               aggregate.arrayType);
+    }
+
+    private static int getColumnIndex(RangeVariable range, Expression e) {
+
+        if (e.opType != OpTypes.COLUMN) {
+            return -1;
+        }
+
+        ExpressionColumn column = (ExpressionColumn) e;
+
+        if (column.rangeVariable != range || column.column == null
+                || column.dataType != column.column.dataType) {
+            return -1;
+        }
+
+        return column.columnIndex;
+    }
+
+    private static int getSlot(IntKeyIntValueHashMap slotMap,
+                               HsqlArrayList slotClassList, int column,
+                               int numericClass) {
+
+        int slot = slotMap.get(column, -1);
+
+        if (slot < 0) {
+            slot = slotClassList.size();
+
+            slotMap.put(column, slot);
+            slotClassList.add(new int[] {
+                column, numericClass
+            });
+        }
+
+        return slot;
+    }
+
+    private static void addConjuncts(Expression e, HsqlArrayList list) {
+
+        if (e.opType == OpTypes.AND && e instanceof ExpressionLogical) {
+            addConjuncts(e.nodes[Expression.LEFT], list);
+            addConjuncts(e.nodes[Expression.RIGHT], list);
+        } else {
+            list.add(e);
+        }
+    }
+
+    private static Filter getFilter(RangeVariable range, Expression e,
+                                    IntKeyIntValueHashMap slotMap,
+                                    HsqlArrayList slotClassList) {
+
+        if (!(e instanceof ExpressionLogical)) {
+            return null;
+        }
+
+        switch (e.opType) {
+
+            case OpTypes.IS_NULL :
+            case OpTypes.IS_NOT_NULL : {
+                int column = getColumnIndex(range, e.nodes[Expression.LEFT]);
+
+                if (column < 0) {
+                    return null;
+                }
+
+                return new FilterIsNull(column,
+                                        e.opType == OpTypes.IS_NOT_NULL);
+            }
+            case OpTypes.NOT : {
+                Expression arg = e.nodes[Expression.LEFT];
+
+                if (arg.opType != OpTypes.IS_NULL
+                        || !(arg instanceof ExpressionLogical)) {
+                    return null;
+                }
+
+                int column = getColumnIndex(range,
+                                            arg.nodes[Expression.LEFT]);
+
+                if (column < 0) {
+                    return null;
+                }
+
+                return new FilterIsNull(column, true);
+            }
+            case OpTypes.EQUAL :
+            case OpTypes.NOT_EQUAL :
+            case OpTypes.GREATER :
+            case OpTypes.GREATER_EQUAL :
+            case OpTypes.SMALLER :
+            case OpTypes.SMALLER_EQUAL :
+                break;
+
+            default :
+                return null;
+        }
+
+        if (e.exprSubType == OpTypes.ANY_QUANTIFIED
+                || e.exprSubType == OpTypes.ALL_QUANTIFIED) {
+            return null;
+        }
+
+        Expression columnNode = e.nodes[Expression.LEFT];
+        Expression valueNode  = e.nodes[Expression.RIGHT];
+        int        opType     = e.opType;
+        int        column     = getColumnIndex(range, columnNode);
+
+        if (column < 0) {
+            columnNode = e.nodes[Expression.RIGHT];
+            valueNode  = e.nodes[Expression.LEFT];
+            opType     = getSwappedOpType(opType);
+            column     = getColumnIndex(range, columnNode);
+
+            if (column < 0) {
+                return null;
+            }
+        }
+
+        if (valueNode.opType != OpTypes.VALUE
+                && valueNode.opType != OpTypes.DYNAMIC_PARAM) {
+            return null;
+        }
+
+        if (valueNode.opType == OpTypes.DYNAMIC_PARAM
+                && !(valueNode instanceof ExpressionColumn)) {
+            return null;
+        }
+
+        int columnClass = ExpressionCompiler.getNumericClass(
+            columnNode.dataType);
+        int valueClass =
+            ExpressionCompiler.getNumericClass(valueNode.dataType);
+
+        if (columnClass != ExpressionCompiler.CLASS_NONE
+                && valueClass != ExpressionCompiler.CLASS_NONE) {
+            if ((columnClass == ExpressionCompiler.CLASS_DOUBLE)
+                    != (valueClass == ExpressionCompiler.CLASS_DOUBLE)) {
+                return null;
+            }
+
+            ExpressionCompiler.NumericValue value;
+
+            if (valueNode.opType == OpTypes.VALUE) {
+                value = new ExpressionCompiler.NumericConstant(
+                    (Number) valueNode.valueData);
+            } else {
+                value = new ExpressionCompiler.NumericParameter(
+                    valueNode.parameterIndex);
+            }
+
+            int slot = getSlot(slotMap, slotClassList, column, columnClass);
+
+            if (columnClass == ExpressionCompiler.CLASS_DOUBLE) {
+                return new FilterCompareDouble(column, opType, slot, value);
+            } else {
+                return new FilterCompareLong(column, opType, slot, value);
+            }
+        }
+
+        // other types are compared as objects, as in ExpressionLogical,
+        // excluding those with comparisons that use the session
+        Type type = columnNode.dataType;
+
+        if (type.isCharacterType() || type.isLobType() || type.isArrayType()
+                || !type.equals(valueNode.dataType)) {
+            return null;
+        }
+
+        return new FilterCompareObject(column, opType, type,
+                                       valueNode.opType == OpTypes.VALUE,
+                                       valueNode.valueData,
+                                       valueNode.parameterIndex);
+    }
+
+    private static int getSwappedOpType(int opType) {
+
+        switch (opType) {
+
+            case OpTypes.GREATER :
+                return OpTypes.SMALLER;
+
+            case OpTypes.GREATER_EQUAL :
+                return OpTypes.SMALLER_EQUAL;
+
+            case OpTypes.SMALLER :
+                return OpTypes.GREATER;
+
+            case OpTypes.SMALLER_EQUAL :
+                return OpTypes.GREATER_EQUAL;
+
+            default :
+                return opType;
+        }
+    }
+
+    static boolean isTrue(int opType, int result) {
+
+        switch (opType) {
+
+            case OpTypes.EQUAL :
+                return result == 0;
+
+            case OpTypes.NOT_EQUAL :
+                return result != 0;
+
+            case OpTypes.GREATER :
+                return result > 0;
+
+            case OpTypes.GREATER_EQUAL :
+                return result >= 0;
+
+            case OpTypes.SMALLER :
+                return result < 0;
+
+            case OpTypes.SMALLER_EQUAL :
+                return result <= 0;
+
+            default :
+                throw Error.runtimeError(ErrorCode.U_S0500,
+                                         "BatchAggregator");
+        }
+    }
+
+    /**
+     * Per execution buffers for a batch of rows.
+     */
+    static final class Batch {
+
+        final Object[][] rows      = new Object[BATCH_SIZE][];
+        final int[]      selection = new int[BATCH_SIZE];
+        final long[][]   longVectors;
+        final double[][] doubleVectors;
+        int              rowCount;
+        int              size;
+        Object[]         partial;
+
+        Batch(int vectorCount) {
+
+            longVectors   = new long[vectorCount][];
+            doubleVectors = new double[vectorCount][];
+
+            for (int i = 0; i < vectorCount; i++) {
+                longVectors[i]   = new long[BATCH_SIZE];
+                doubleVectors[i] = new double[BATCH_SIZE];
+            }
+        }
+
+        int read(RangeIteratorMain it) {
+
+            int count = 0;
+
+            while (count < BATCH_SIZE && it.next()) {
+                rows[count++] = it.getCurrent();
+            }
+
+            for (int i = count; i < rowCount; i++) {
+                rows[i] = null;
+            }
+
+            rowCount = count;
+            size     = 0;
+            partial  = null;
+
+            return count;
+        }
+    }
+
+    /**
+     * Filters a batch and, for queries without GROUP BY, computes its
+     * partial aggregates on a worker thread. The session is not used; a
+     * null session is passed to the aggregates so that any use fails.
+     */
+    final class BatchTask implements Runnable {
+
+        final Object[] arguments;
+        final Batch    batch;
+        Future<?>      future;
+
+        BatchTask(Object[] arguments, Batch batch) {
+            this.arguments = arguments;
+            this.batch     = batch;
+        }
+
+        public void run() {
+
+            filterBatch(arguments, batch);
+
+            if (!isGrouped && batch.size > 0) {
+                Object[] partial = new Object[aggregates.length];
+
+                aggregateBatch(null, batch, partial, 0);
+
+                batch.partial = partial;
+            }
+        }
+
+        void complete() {
+
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                Throwable t = e.getCause();
+
+                if (t instanceof RuntimeException) {
+                    throw (RuntimeException) t;
+                }
+
+                if (t instanceof java.lang.Error) {
+                    throw (java.lang.Error) t;
+                }
+
+                throw Error.error(ErrorCode.GENERAL_ERROR, t);
+            } catch (InterruptedException e) {
+                throw Error.error(ErrorCode.GENERAL_ERROR, e);
+            }
+        }
+    }
+
+    /**
+     * A conjunct of the WHERE condition. Removes the rows that do not
+     * satisfy the condition from the selection and returns the new size.
+     * The argument is the value returned by getArgument() on the session
+     * thread; a null argument for a comparison selects no rows.
+     */
+    abstract static class Filter {
+
+        final int column;
+
+        Filter(int column) {
+            this.column = column;
+        }
+
+        Object getArgument(Session session) {
+            return null;
+        }
+
+        abstract int filter(Batch batch, Object argument, int size);
+    }
+
+    static final class FilterIsNull extends Filter {
+
+        final boolean isNot;
+
+        FilterIsNull(int column, boolean isNot) {
+
+            super(column);
+
+            this.isNot = isNot;
+        }
+
+        int filter(Batch batch, Object argument, int size) {
+
+            Object[][] rows      = batch.rows;
+            int[]      selection = batch.selection;
+            int        count     = 0;
+
+            for (int i = 0; i < size; i++) {
+                int position = selection[i];
+
+                if ((rows[position][column] == null) != isNot) {
+                    selection[count++] = position;
+                }
+            }
+
+            return count;
+        }
+    }
+
+    static final class FilterCompareLong extends Filter {
+
+        final int                             opType;
+        final int                             slot;
+        final ExpressionCompiler.NumericValue value;
+
+        FilterCompareLong(int column, int opType, int slot,
+                          ExpressionCompiler.NumericValue value) {
+
+            super(column);
+
+            this.opType = opType;
+            this.slot   = slot;
+            this.value  = value;
+        }
+
+        Object getArgument(Session session) {
+            return value.isNull(session) ? null
+                                         : Long.valueOf(value.getLong(session));
+        }
+
+        int filter(Batch batch, Object argument, int size) {
+
+            if (argument == null) {
+                return 0;
+            }
+
+            long       b         = ((Long) argument).longValue();
+            long[]     values    = batch.longVectors[slot];
+            Object[][] rows      = batch.rows;
+            int[]      selection = batch.selection;
+            int        count     = 0;
+
+            for (int i = 0; i < size; i++) {
+                int position = selection[i];
+
+                if (rows[position][column] == null) {
+                    continue;
+                }
+
+                long a = values[position];
+
+                if (isTrue(opType, a > b ? 1
+                                         : b > a ? -1
+                                                 : 0)) {
+                    selection[count++] = position;
+                }
+            }
+
+            return count;
+        }
+    }
+
+    static final class FilterCompareDouble extends Filter {
+
+        final int                             opType;
+        final int                             slot;
+        final ExpressionCompiler.NumericValue value;
+
+        FilterCompareDouble(int column, int opType, int slot,
+                            ExpressionCompiler.NumericValue value) {
+
+            super(column);
+
+            this.opType = opType;
+            this.slot   = slot;
+            this.value  = value;
+        }
+
+        Object getArgument(Session session) {
+            return value.isNull(session) ? null
+                                         : Double.valueOf(
+                                             value.getDouble(session));
+        }
+
+        int filter(Batch batch, Object argument, int size) {
+
+            if (argument == null) {
+                return 0;
+            }
+
+            double     b         = ((Double) argument).doubleValue();
+            double[]   values    = batch.doubleVectors[slot];
+            Object[][] rows      = batch.rows;
+            int[]      selection = batch.selection;
+            int        count     = 0;
+
+            for (int i = 0; i < size; i++) {
+                int position = selection[i];
+
+                if (rows[position][column] == null) {
+                    continue;
+                }
+
+                if (isTrue(opType,
+                           ExpressionCompiler.compareDouble(values[position],
+                               b))) {
+                    selection[count++] = position;
+                }
+            }
+
+            return count;
+        }
+    }
+
+    static final class FilterCompareObject extends Filter {
+
+        final int     opType;
+        final Type    type;
+        final boolean isConstant;
+        final Object  constant;
+        final int     parameterIndex;
+
+        FilterCompareObject(int column, int opType, Type type,
+                            boolean isConstant, Object constant,
+                            int parameterIndex) {
+
+            super(column);
+
+            this.opType         = opType;
+            this.type           = type;
+            this.isConstant     = isConstant;
+            this.constant       = constant;
+            this.parameterIndex = parameterIndex;
+        }
+
+        Object getArgument(Session session) {
+            return isConstant ? constant
+                              : session.sessionContext
+                                  .dynamicArguments[parameterIndex];
+        }
+
+        int filter(Batch batch, Object argument, int size) {
+
+            Object b = argument;
+
+            if (b == null) {
+                return 0;
+            }
+
+            Object[][] rows      = batch.rows;
+            int[]      selection = batch.selection;
+            int        count     = 0;
+
+            for (int i = 0; i < size; i++) {
+                int    position = selection[i];
+                Object a        = rows[position][column];
+
+                if (a == null) {
+                    continue;
+                }
+
+                if (isTrue(opType, type.compare(null, a, b, opType))) {
+                    selection[count++] = position;
+                }
+            }
+
+            return count;
+        }
+    }
+}
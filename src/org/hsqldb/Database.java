@@ -122,6 +122,8 @@ public class Database {
     public boolean                sqlSyntaxOra           = false;
     public boolean                sqlSyntaxPgs           = false;
     public int                    recoveryMode           = 0;
+    public boolean                compileExpressions     = false;
+    public boolean                batchExecution         = false;
     private boolean               isReferentialIntegrity = true;
     public HsqlDatabaseProperties databaseProperties;
     private final boolean         shutdownOnNoConnection;
@@ -151,6 +153,11 @@ public class Database {
     public CheckpointRunner checkpointRunner;
     public TimeoutRunner    timeoutRunner;
 
+    //
+    public DatabaseMetrics     metrics;
+    DatabaseMetricsBean        metricsBean;
+    public StatementStatistics statementStats;
+
     //
     Result updateZeroResult = Result.updateZeroResult;
 
@@ -190,7 +197,9 @@ public class Database {
             filesReadOnly = true;
         }
 
-        logger = new Logger(this);
+        metrics        = new DatabaseMetrics(this);
+        statementStats = new StatementStatistics();
+        logger         = new Logger(this);
         shutdownOnNoConnection =
             urlProperties.isPropertyTrue(HsqlDatabaseProperties.url_shutdown);
         recoveryMode = urlProperties.getIntegerProperty(
@@ -242,6 +251,10 @@ public class Database {
 
             checkpointRunner = new CheckpointRunner();
             timeoutRunner    = new TimeoutRunner();
+
+            if (logger.isMetricsJmx()) {
+                metricsBean = DatabaseMetricsBean.register(this);
+            }
         } catch (Throwable e) {
             logger.close(Database.CLOSEMODE_IMMEDIATELY);
             logger.releaseLock();
@@ -278,6 +291,10 @@ public class Database {
             timeoutRunner.stop();
         }
 
+        if (metricsBean != null) {
+            metricsBean.unregister();
+        }
+
         lobManager       = null;
         granteeManager   = null;
         userManager      = null;
@@ -287,6 +304,7 @@ public class Database {
         dbInfo           = null;
         checkpointRunner = null;
         timeoutRunner    = null;
+        metricsBean      = null;
     }
 
     public void createObjectStructures() {
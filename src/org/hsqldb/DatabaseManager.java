@@ -32,6 +32,12 @@
 package org.hsqldb;
 
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
@@ -57,7 +63,7 @@ import org.hsqldb.persist.HsqlProperties;
  * Maintains a reference to the timer used for file locks and logging.<p>
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.4
+ * @version 2.3.5
  * @since 1.7.2
  */
 public class DatabaseManager {
@@ -525,6 +531,85 @@ public class DatabaseManager {
         return timer;
     }
 
+    // Trigger and query executors
+    private static final String queryThreadsProperty = "hsqldb.query_threads";
+    private static ThreadPoolExecutor triggerExecutor;
+    private static ThreadPoolExecutor queryExecutor;
+
+    /**
+     * Returns the executor shared by all queued Java triggers of all
+     * databases in the JVM. The number of threads is not bounded. As at most
+     * one run is submitted per trigger, each trigger with queued rows gets a
+     * thread of its own and a trigger that blocks cannot hold up the others.
+     * Idle daemon threads are reused and end after 60 seconds.
+     */
+    public static synchronized ExecutorService getTriggerExecutor() {
+
+        if (triggerExecutor == null) {
+            triggerExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60,
+                    TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                    newThreadFactory("HSQLDB Trigger"));
+        }
+
+        return triggerExecutor;
+    }
+
+    /**
+     * Returns the executor shared by the parallel queries of all databases
+     * in the JVM. The number of daemon worker threads defaults to the number
+     * of available processors and can be set with the system property
+     * hsqldb.query_threads.
+     */
+    public static synchronized ExecutorService getQueryExecutor() {
+
+        if (queryExecutor == null) {
+            queryExecutor = newExecutor(queryThreadsProperty, "HSQLDB Query");
+        }
+
+        return queryExecutor;
+    }
+
+    private static ThreadPoolExecutor newExecutor(String property,
+            final String threadName) {
+
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        try {
+            String prop = System.getProperty(property);
+
+            if (prop != null) {
+                threads = Integer.parseInt(prop);
+            }
+        } catch (Exception e) {}
+
+        if (threads < 1) {
+            threads = 1;
+        }
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+            60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+            newThreadFactory(threadName));
+
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    private static ThreadFactory newThreadFactory(final String threadName) {
+
+        return new ThreadFactory() {
+
+            public Thread newThread(Runnable r) {
+
+                Thread t = new Thread(r, threadName);
+
+                t.setDaemon(true);
+
+                return t;
+            }
+        };
+    }
+
     // converts file path to database lookup key, converting any
     // thrown exception to an HsqlException in the process
     private static String filePathToKey(String path) {
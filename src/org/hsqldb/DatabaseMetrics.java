@@ -0,0 +1,270 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.hsqldb.persist.DataFileCache;
+
+/**
+ * Runtime counters and latency histograms of a database. The values are
+ * cumulative from the time the Database object is created and are reported
+ * in the INFORMATION_SCHEMA.SYSTEM_METRICS table and, when the
+ * hsqldb.metrics_jmx property is true, by a JMX MBean.<p>
+ *
+ * Counters are updated without locks. Each counter is placed in its own
+ * cache line to avoid contention between threads that update different
+ * counters.<p>
+ *
+ * Latencies are recorded in microseconds in buckets with power of two
+ * limits. The percentiles are therefore accurate to a factor of two.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public final class DatabaseMetrics {
+
+    // counters
+    public static final int CACHE_HITS             = 0;
+    public static final int CACHE_MISSES           = 1;
+    public static final int CACHE_EVICTIONS        = 2;
+    public static final int CACHE_BYTES_READ       = 3;
+    public static final int CACHE_BYTES_WRITTEN    = 4;
+    public static final int LOG_WRITES             = 5;
+    public static final int TX_COMMITS             = 6;
+    public static final int TX_ROLLBACKS           = 7;
+    public static final int TX_CONFLICTS           = 8;
+    public static final int STATEMENT_CACHE_HITS   = 9;
+    public static final int STATEMENT_CACHE_MISSES = 10;
+    public static final int SERVER_REQUESTS        = 11;
+
+    // gauges, computed when read
+    public static final int CACHE_ROWS           = 0;
+    public static final int CACHE_BYTES          = 1;
+    public static final int STATEMENT_CACHE_SIZE = 2;
+    public static final int SESSIONS             = 3;
+
+    // histograms
+    public static final int LOG_SYNC_TIME       = 0;
+    public static final int CHECKPOINT_TIME     = 1;
+    public static final int CACHE_SAVE_TIME     = 2;
+    public static final int LOCK_WAIT_TIME      = 3;
+    public static final int SERVER_REQUEST_TIME = 4;
+
+    //
+    public static final String[] counterNames = {
+        "CACHE_HITS", "CACHE_MISSES", "CACHE_EVICTIONS", "CACHE_BYTES_READ",
+        "CACHE_BYTES_WRITTEN", "LOG_WRITES", "TX_COMMITS", "TX_ROLLBACKS",
+        "TX_CONFLICTS", "STATEMENT_CACHE_HITS", "STATEMENT_CACHE_MISSES",
+        "SERVER_REQUESTS"
+    };
+    public static final String[] gaugeNames = {
+        "CACHE_ROWS", "CACHE_BYTES", "STATEMENT_CACHE_SIZE", "SESSIONS"
+    };
+    public static final String[] histogramNames = {
+        "LOG_SYNC_TIME", "CHECKPOINT_TIME", "CACHE_SAVE_TIME",
+        "LOCK_WAIT_TIME", "SERVER_REQUEST_TIME"
+    };
+
+    // longs per counter, for 64 byte cache lines
+    private static final int counterStride = 8;
+
+    //
+    private final Database        database;
+    private final AtomicLongArray counters;
+    private final Histogram[]     histograms;
+
+    DatabaseMetrics(Database database) {
+
+        this.database = database;
+        counters = new AtomicLongArray(counterNames.length * counterStride);
+        histograms    = new Histogram[histogramNames.length];
+
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    public void add(int counter) {
+        counters.incrementAndGet(counter * counterStride);
+    }
+
+    public void add(int counter, long value) {
+        counters.addAndGet(counter * counterStride, value);
+    }
+
+    /**
+     * Records an elapsed time, given in nanoseconds.
+     */
+    public void addTime(int histogram, long nanos) {
+        histograms[histogram].add(nanos / 1000);
+    }
+
+    public long getCounter(int counter) {
+        return counters.get(counter * counterStride);
+    }
+
+    public Histogram getHistogram(int histogram) {
+        return histograms[histogram];
+    }
+
+    public long getGauge(int gauge) {
+
+        switch (gauge) {
+
+            case CACHE_ROWS :
+            case CACHE_BYTES : {
+                if (!database.logger.hasCache()) {
+                    return 0;
+                }
+
+                DataFileCache cache = database.logger.getCache();
+
+                return gauge == CACHE_ROWS ? cache.getCachedObjectCount()
+                                           : cache.getTotalCachedBlockSize();
+            }
+            case STATEMENT_CACHE_SIZE : {
+                if (database.sessionManager == null) {
+                    return 0;
+                }
+
+                Session[] sessions = database.sessionManager.getAllSessions();
+                long      count    = 0;
+
+                for (int i = 0; i < sessions.length; i++) {
+                    count += sessions[i].statementManager.size();
+                }
+
+                return count;
+            }
+            case SESSIONS : {
+                if (database.sessionManager == null) {
+                    return 0;
+                }
+
+                return database.sessionManager.getAllSessions().length;
+            }
+            default :
+                return 0;
+        }
+    }
+
+    /**
+     * Count, total, maximum and distribution of recorded values in
+     * microseconds.
+     */
+    public static final class Histogram {
+
+        static final int bucketCount = 40;
+
+        //
+        private final AtomicLongArray buckets;
+        private final AtomicLong      count = new AtomicLong();
+        private final AtomicLong      total = new AtomicLong();
+        private final AtomicLong      max   = new AtomicLong();
+
+        Histogram() {
+            buckets = new AtomicLongArray(bucketCount);
+        }
+
+        /**
+         * Bucket 0 holds 0, bucket n holds values up to 2^n - 1.
+         */
+        void add(long micros) {
+
+            if (micros < 0) {
+                micros = 0;
+            }
+
+            int bucket = 64 - Long.numberOfLeadingZeros(micros);
+
+            if (bucket >= bucketCount) {
+                bucket = bucketCount - 1;
+            }
+
+            buckets.incrementAndGet(bucket);
+            count.incrementAndGet();
+            total.addAndGet(micros);
+
+            for (;;) {
+                long current = max.get();
+
+                if (micros <= current || max.compareAndSet(current, micros)) {
+                    break;
+                }
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getTotal() {
+            return total.get();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Returns the upper limit of the bucket that holds the given
+         * percentile, or the maximum if it is smaller.
+         */
+        public long getPercentile(int percent) {
+
+            long size = count.get();
+
+            if (size == 0) {
+                return 0;
+            }
+
+            long target = (size * percent + 99) / 100;
+            long sum    = 0;
+
+            for (int i = 0; i < bucketCount; i++) {
+                sum += buckets.get(i);
+
+                if (sum >= target) {
+                    long limit = i == 0 ? 0
+                                        : (1L << i) - 1;
+
+                    return Math.min(limit, max.get());
+                }
+            }
+
+            return max.get();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import org.hsqldb.lib.HashMap;
+
+/**
+ * Publishes the DatabaseMetrics of a database as read-only attributes of an
+ * MBean registered with the platform MBeanServer, with the name
+ * org.hsqldb:type=Database,uri="&lt;database uri&gt;".<p>
+ *
+ * Each counter and gauge is an attribute. Each histogram is published as
+ * five attributes with the suffixes _COUNT, _TOTAL_MICROS, _MAX_MICROS,
+ * _P50_MICROS and _P99_MICROS.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+final class DatabaseMetricsBean implements DynamicMBean {
+
+    static final String[] histogramSuffixes = {
+        "_COUNT", "_TOTAL_MICROS", "_MAX_MICROS", "_P50_MICROS", "_P99_MICROS"
+    };
+
+    // attribute types
+    static final int COUNTER   = 0;
+    static final int GAUGE     = 1;
+    static final int HISTOGRAM = 2;
+
+    //
+    private final DatabaseMetrics metrics;
+    private final ObjectName      objectName;
+    private final MBeanInfo       info;
+
+    /** Map: attribute name => int[] {type, index, suffix index} */
+    private final HashMap attributeMap = new HashMap();
+
+    private DatabaseMetricsBean(Database database,
+                                ObjectName name) {
+
+        this.metrics    = database.metrics;
+        this.objectName = name;
+
+        int count = DatabaseMetrics.counterNames.length
+                    + DatabaseMetrics.gaugeNames.length
+                    + DatabaseMetrics.histogramNames.length
+                      * histogramSuffixes.length;
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[count];
+        int                  position   = 0;
+
+        for (int i = 0; i < DatabaseMetrics.counterNames.length; i++) {
+            attributes[position++] =
+                addAttribute(DatabaseMetrics.counterNames[i], COUNTER, i, 0,
+                             "counter");
+        }
+
+        for (int i = 0; i < DatabaseMetrics.gaugeNames.length; i++) {
+            attributes[position++] =
+                addAttribute(DatabaseMetrics.gaugeNames[i], GAUGE, i, 0,
+                             "gauge");
+        }
+
+        for (int i = 0; i < DatabaseMetrics.histogramNames.length; i++) {
+            for (int j = 0; j < histogramSuffixes.length; j++) {
+                attributes[position++] = addAttribute(
+                    DatabaseMetrics.histogramNames[i] + histogramSuffixes[j],
+                    HISTOGRAM, i, j, "histogram");
+            }
+        }
+
+        info = new MBeanInfo(getClass().getName(),
+                             "HyperSQL database metrics " + database.getURI(),
+                             attributes, null, new MBeanOperationInfo[0],
+                             null);
+    }
+
+    private MBeanAttributeInfo addAttribute(String name, int type, int index,
+            int suffix, String description) {
+
+        attributeMap.put(name, new int[] {
+            type, index, suffix
+        });
+
+        return new MBeanAttributeInfo(name, "java.lang.Long", description,
+                                      true, false, false);
+    }
+
+    /**
+     * Registers an MBean for the database. Returns null and logs a warning
+     * if registration fails.
+     */
+    static DatabaseMetricsBean register(Database database) {
+
+        try {
+            ObjectName name = new ObjectName("org.hsqldb:type=Database,uri="
+                                             + ObjectName.quote(
+                                                 database.getURI()));
+            DatabaseMetricsBean bean = new DatabaseMetricsBean(database,
+                name);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+            server.registerMBean(bean, name);
+
+            return bean;
+        } catch (Throwable t) {
+            database.logger.logWarningEvent("JMX registration failed", t);
+
+            return null;
+        }
+    }
+
+    void unregister() {
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+                objectName);
+        } catch (Throwable t) {}
+    }
+
+    public Object getAttribute(String attribute)
+    throws AttributeNotFoundException {
+
+        int[] key = (int[]) attributeMap.get(attribute);
+
+        if (key == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        long value;
+
+        switch (key[0]) {
+
+            case COUNTER :
+                value = metrics.getCounter(key[1]);
+                break;
+
+            case GAUGE :
+                value = metrics.getGauge(key[1]);
+                break;
+
+            default : {
+                DatabaseMetrics.Histogram histogram =
+                    metrics.getHistogram(key[1]);
+
+                switch (key[2]) {
+
+                    case 0 :
+                        value = histogram.getCount();
+                        break;
+
+                    case 1 :
+                        value = histogram.getTotal();
+                        break;
+
+                    case 2 :
+                        value = histogram.getMax();
+                        break;
+
+                    case 3 :
+                        value = histogram.getPercentile(50);
+                        break;
+
+                    default :
+                        value = histogram.getPercentile(99);
+                        break;
+                }
+            }
+        }
+
+        return Long.valueOf(value);
+    }
+
+    public AttributeList getAttributes(String[] attributes) {
+
+        AttributeList list = new AttributeList();
+
+        for (int i = 0; i < attributes.length; i++) {
+            try {
+                list.add(new Attribute(attributes[i],
+                                       getAttribute(attributes[i])));
+            } catch (AttributeNotFoundException e) {}
+        }
+
+        return list;
+    }
+
+    public void setAttribute(Attribute attribute)
+    throws AttributeNotFoundException {
+        throw new AttributeNotFoundException(attribute.getName());
+    }
+
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    public Object invoke(String actionName, Object[] params,
+                         String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    public MBeanInfo getMBeanInfo() {
+        return info;
+    }
+}
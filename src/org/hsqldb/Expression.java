@@ -142,6 +142,13 @@ public class Expression implements Cloneable {
         sequenceExpressionSet.add(OpTypes.SEQUENCE);
     }
 
+    static final OrderedIntHashSet windowFunctionSet =
+        new OrderedIntHashSet();
+
+    static {
+        windowFunctionSet.add(OpTypes.WINDOW);
+    }
+
     static final OrderedIntHashSet emptyExpressionSet =
         new OrderedIntHashSet();
 
@@ -0,0 +1,818 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb;
+
+import org.hsqldb.error.Error;
+import org.hsqldb.error.ErrorCode;
+import org.hsqldb.map.ValuePool;
+import org.hsqldb.navigator.RangeIterator;
+import org.hsqldb.types.Type;
+import org.hsqldb.types.Types;
+
+/**
+ * Compiles resolved condition and value expressions of a query into trees of
+ * specialised evaluator objects.<p>
+ *
+ * Comparisons and arithmetic between INTEGER, BIGINT and DOUBLE operands
+ * (columns, literals and dynamic parameters) are evaluated on primitive
+ * values without creating intermediate objects or dispatching through
+ * Type.compare(). AND, OR, NOT and IS [NOT] NULL over such operands are
+ * evaluated with three-valued logic on int constants. Any other expression
+ * is evaluated by the original Expression object.<p>
+ *
+ * The evaluators are stateless and can be shared by all sessions that
+ * execute the compiled statement. The results are identical to those of
+ * the interpreted Expression tree.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+final class ExpressionCompiler {
+
+    static final int FALSE   = 0;
+    static final int TRUE    = 1;
+    static final int UNKNOWN = 2;
+
+    //
+    static final int CLASS_NONE    = 0;
+    static final int CLASS_INTEGER = 1;
+    static final int CLASS_BIGINT  = 2;
+    static final int CLASS_DOUBLE  = 3;
+
+    private ExpressionCompiler() {}
+
+    /**
+     * Returns a compiled condition, or null if no part of the expression
+     * can be specialised.
+     */
+    static Condition compileCondition(Expression e) {
+
+        if (e == null) {
+            return null;
+        }
+
+        Condition condition = compileConditionNode(e);
+
+        return condition.isSpecialised() ? condition
+                                         : null;
+    }
+
+    /**
+     * Returns a compiled value for an arithmetic expression, or null if the
+     * expression is not arithmetic over numeric operands.
+     */
+    static Value compileValue(Expression e) {
+
+        if (!(e instanceof ExpressionArithmetic)) {
+            return null;
+        }
+
+        NumericValue value = compileNumeric(e);
+
+        if (value == null) {
+            return null;
+        }
+
+        return new ValueNumeric(value, getNumericClass(e.dataType));
+    }
+
+    static int getNumericClass(Type type) {
+
+        if (type == null) {
+            return CLASS_NONE;
+        }
+
+        switch (type.typeCode) {
+
+            case Types.TINYINT :
+            case Types.SQL_SMALLINT :
+            case Types.SQL_INTEGER :
+                return CLASS_INTEGER;
+
+            case Types.SQL_BIGINT :
+                return CLASS_BIGINT;
+
+            case Types.SQL_REAL :
+            case Types.SQL_FLOAT :
+            case Types.SQL_DOUBLE :
+                return CLASS_DOUBLE;
+
+            default :
+                return CLASS_NONE;
+        }
+    }
+
+    static int compareDouble(double a, double b) {
+
+        if (Double.isNaN(a)) {
+            return Double.isNaN(b) ? 0
+                                   : -1;
+        }
+
+        if (Double.isNaN(b)) {
+            return 1;
+        }
+
+        return Double.compare(a, b);
+    }
+
+    private static Condition compileConditionNode(Expression e) {
+
+        switch (e.opType) {
+
+            case OpTypes.AND :
+            case OpTypes.OR : {
+                if (!(e instanceof ExpressionLogical)) {
+                    break;
+                }
+
+                Condition left =
+                    compileConditionNode(e.nodes[Expression.LEFT]);
+                Condition right =
+                    compileConditionNode(e.nodes[Expression.RIGHT]);
+
+                return e.opType == OpTypes.AND
+                       ? (Condition) new ConditionAnd(left, right)
+                       : (Condition) new ConditionOr(left, right);
+            }
+            case OpTypes.NOT : {
+                if (!(e instanceof ExpressionLogical)) {
+                    break;
+                }
+
+                return new ConditionNot(
+                    compileConditionNode(e.nodes[Expression.LEFT]));
+            }
+            case OpTypes.IS_NULL :
+            case OpTypes.IS_NOT_NULL : {
+                if (!(e instanceof ExpressionLogical)) {
+                    break;
+                }
+
+                ColumnReference column =
+                    compileColumn(e.nodes[Expression.LEFT]);
+
+                if (column == null) {
+                    break;
+                }
+
+                return new ConditionIsNull(column,
+                                           e.opType == OpTypes.IS_NOT_NULL);
+            }
+            case OpTypes.EQUAL :
+            case OpTypes.NOT_EQUAL :
+            case OpTypes.GREATER :
+            case OpTypes.GREATER_EQUAL :
+            case OpTypes.SMALLER :
+            case OpTypes.SMALLER_EQUAL : {
+                if (!(e instanceof ExpressionLogical)) {
+                    break;
+                }
+
+                if (e.exprSubType == OpTypes.ANY_QUANTIFIED
+                        || e.exprSubType == OpTypes.ALL_QUANTIFIED) {
+                    break;
+                }
+
+                Expression leftNode  = e.nodes[Expression.LEFT];
+                Expression rightNode = e.nodes[Expression.RIGHT];
+                int        leftClass = getNumericClass(leftNode.dataType);
+                int rightClass       = getNumericClass(rightNode.dataType);
+
+                if (leftClass == CLASS_NONE || rightClass == CLASS_NONE) {
+                    break;
+                }
+
+                if ((leftClass == CLASS_DOUBLE)
+                        != (rightClass == CLASS_DOUBLE)) {
+                    break;
+                }
+
+                NumericValue left  = compileNumeric(leftNode);
+                NumericValue right = compileNumeric(rightNode);
+
+                if (left == null || right == null) {
+                    break;
+                }
+
+                if (leftClass == CLASS_DOUBLE) {
+                    return new ConditionCompareDouble(e.opType, left, right);
+                } else {
+                    return new ConditionCompareLong(e.opType, left, right);
+                }
+            }
+            default :
+        }
+
+        return new ConditionExpression(e);
+    }
+
+    private static ColumnReference compileColumn(Expression e) {
+
+        switch (e.opType) {
+
+            case OpTypes.COLUMN : {
+                ExpressionColumn column = (ExpressionColumn) e;
+
+                if (column.rangeVariable == null || column.column == null
+                        || column.dataType != column.column.dataType) {
+                    return null;
+                }
+
+                return new ColumnReference(column, -1, column.columnIndex);
+            }
+            case OpTypes.SIMPLE_COLUMN :
+                return new ColumnReference(null, e.rangePosition,
+                                           e.columnIndex);
+
+            default :
+                return null;
+        }
+    }
+
+    private static NumericValue compileNumeric(Expression e) {
+
+        int numericClass = getNumericClass(e.dataType);
+
+        if (numericClass == CLASS_NONE) {
+            return null;
+        }
+
+        switch (e.opType) {
+
+            case OpTypes.VALUE :
+                return new NumericConstant((Number) e.valueData);
+
+            case OpTypes.COLUMN :
+            case OpTypes.SIMPLE_COLUMN : {
+                ColumnReference column = compileColumn(e);
+
+                if (column == null) {
+                    return null;
+                }
+
+                return new NumericColumn(column);
+            }
+            case OpTypes.DYNAMIC_PARAM :
+                if (!(e instanceof ExpressionColumn)) {
+                    return null;
+                }
+
+                return new NumericParameter(e.parameterIndex);
+
+            case OpTypes.ADD :
+            case OpTypes.SUBTRACT :
+            case OpTypes.MULTIPLY : {
+                if (!(e instanceof ExpressionArithmetic)) {
+                    return null;
+                }
+
+                Expression leftNode  = e.nodes[Expression.LEFT];
+                Expression rightNode = e.nodes[Expression.RIGHT];
+                int        leftClass = getNumericClass(leftNode.dataType);
+                int rightClass       = getNumericClass(rightNode.dataType);
+
+                if (leftClass == CLASS_NONE || rightClass == CLASS_NONE) {
+                    return null;
+                }
+
+                if (numericClass != CLASS_DOUBLE
+                        && (leftClass == CLASS_DOUBLE
+                            || rightClass == CLASS_DOUBLE)) {
+                    return null;
+                }
+
+                NumericValue left  = compileNumeric(leftNode);
+                NumericValue right = compileNumeric(rightNode);
+
+                if (left == null || right == null) {
+                    return null;
+                }
+
+                return new NumericArithmetic(e.opType, numericClass, left,
+                                             right);
+            }
+            default :
+                return null;
+        }
+    }
+
+    /**
+     * A compiled boolean expression. Returns TRUE, FALSE or UNKNOWN.
+     */
+    abstract static class Condition {
+
+        abstract int test(Session session);
+
+        abstract boolean isSpecialised();
+
+        boolean testCondition(Session session) {
+            return test(session) == TRUE;
+        }
+    }
+
+    /**
+     * A compiled value expression.
+     */
+    abstract static class Value {
+
+        abstract Object getValue(Session session);
+    }
+
+    /**
+     * A numeric operand. getLong() and getDouble() are called only when
+     * isNull() returns false.
+     */
+    abstract static class NumericValue {
+
+        abstract boolean isNull(Session session);
+
+        abstract long getLong(Session session);
+
+        abstract double getDouble(Session session);
+    }
+
+    /**
+     * For COLUMN, the range position is read from the range variable of the
+     * expression at evaluation time, as the range variable can be replaced
+     * after compilation.
+     */
+    static final class ColumnReference {
+
+        final ExpressionColumn column;
+        final int              rangePosition;
+        final int              columnIndex;
+
+        ColumnReference(ExpressionColumn column, int rangePosition,
+                        int columnIndex) {
+
+            this.column        = column;
+            this.rangePosition = rangePosition;
+            this.columnIndex   = columnIndex;
+        }
+
+        Object getField(Session session) {
+
+            RangeIterator[] iterators = session.sessionContext.rangeIterators;
+            int position = column == null ? rangePosition
+                                          : column.rangeVariable.rangePosition;
+
+            return iterators[position].getField(columnIndex);
+        }
+    }
+
+    static final class ConditionExpression extends Condition {
+
+        final Expression expression;
+
+        ConditionExpression(Expression expression) {
+            this.expression = expression;
+        }
+
+        int test(Session session) {
+
+            Object value = expression.getValue(session);
+
+            if (value == null) {
+                return UNKNOWN;
+            }
+
+            return ((Boolean) value).booleanValue() ? TRUE
+                                                    : FALSE;
+        }
+
+        boolean isSpecialised() {
+            return false;
+        }
+
+        boolean testCondition(Session session) {
+            return expression.testCondition(session);
+        }
+    }
+
+    static final class ConditionAnd extends Condition {
+
+        final Condition left;
+        final Condition right;
+
+        ConditionAnd(Condition left, Condition right) {
+            this.left  = left;
+            this.right = right;
+        }
+
+        int test(Session session) {
+
+            int r1 = left.test(session);
+
+            if (r1 == FALSE) {
+                return FALSE;
+            }
+
+            int r2 = right.test(session);
+
+            if (r2 == FALSE) {
+                return FALSE;
+            }
+
+            return r1 == UNKNOWN || r2 == UNKNOWN ? UNKNOWN
+                                                  : TRUE;
+        }
+
+        boolean isSpecialised() {
+            return left.isSpecialised() || right.isSpecialised();
+        }
+    }
+
+    static final class ConditionOr extends Condition {
+
+        final Condition left;
+        final Condition right;
+
+        ConditionOr(Condition left, Condition right) {
+            this.left  = left;
+            this.right = right;
+        }
+
+        int test(Session session) {
+
+            int r1 = left.test(session);
+
+            if (r1 == TRUE) {
+                return TRUE;
+            }
+
+            int r2 = right.test(session);
+
+            if (r2 == TRUE) {
+                return TRUE;
+            }
+
+            return r1 == UNKNOWN || r2 == UNKNOWN ? UNKNOWN
+                                                  : FALSE;
+        }
+
+        boolean isSpecialised() {
+            return left.isSpecialised() || right.isSpecialised();
+        }
+    }
+
+    static final class ConditionNot extends Condition {
+
+        final Condition operand;
+
+        ConditionNot(Condition operand) {
+            this.operand = operand;
+        }
+
+        int test(Session session) {
+
+            int r = operand.test(session);
+
+            return r == UNKNOWN ? UNKNOWN
+                                : r == TRUE ? FALSE
+                                            : TRUE;
+        }
+
+        boolean isSpecialised() {
+            return operand.isSpecialised();
+        }
+    }
+
+    static final class ConditionIsNull extends Condition {
+
+        final ColumnReference column;
+        final boolean         isNot;
+
+        ConditionIsNull(ColumnReference column, boolean isNot) {
+            this.column = column;
+            this.isNot  = isNot;
+        }
+
+        int test(Session session) {
+            return (column.getField(session) == null) != isNot ? TRUE
+                                                                : FALSE;
+        }
+
+        boolean isSpecialised() {
+            return true;
+        }
+    }
+
+    abstract static class ConditionCompare extends Condition {
+
+        final int          opType;
+        final NumericValue left;
+        final NumericValue right;
+
+        ConditionCompare(int opType, NumericValue left, NumericValue right) {
+            this.opType = opType;
+            this.left   = left;
+            this.right  = right;
+        }
+
+        abstract int compare(Session session);
+
+        int test(Session session) {
+
+            if (left.isNull(session) || right.isNull(session)) {
+                return UNKNOWN;
+            }
+
+            int     result = compare(session);
+            boolean value;
+
+            switch (opType) {
+
+                case OpTypes.EQUAL :
+                    value = result == 0;
+                    break;
+
+                case OpTypes.NOT_EQUAL :
+                    value = result != 0;
+                    break;
+
+                case OpTypes.GREATER :
+                    value = result > 0;
+                    break;
+
+                case OpTypes.GREATER_EQUAL :
+                    value = result >= 0;
+                    break;
+
+                case OpTypes.SMALLER :
+                    value = result < 0;
+                    break;
+
+                case OpTypes.SMALLER_EQUAL :
+                    value = result <= 0;
+                    break;
+
+                default :
+                    throw Error.runtimeError(ErrorCode.U_S0500,
+                                             "ExpressionCompiler");
+            }
+
+            return value ? TRUE
+                         : FALSE;
+        }
+
+        boolean isSpecialised() {
+            return true;
+        }
+    }
+
+    static final class ConditionCompareLong extends ConditionCompare {
+
+        ConditionCompareLong(int opType, NumericValue left,
+                             NumericValue right) {
+            super(opType, left, right);
+        }
+
+        int compare(Session session) {
+
+            long a = left.getLong(session);
+            long b = right.getLong(session);
+
+            return a > b ? 1
+                         : b > a ? -1
+                                 : 0;
+        }
+    }
+
+    static final class ConditionCompareDouble extends ConditionCompare {
+
+        ConditionCompareDouble(int opType, NumericValue left,
+                               NumericValue right) {
+            super(opType, left, right);
+        }
+
+        int compare(Session session) {
+            return compareDouble(left.getDouble(session),
+                                 right.getDouble(session));
+        }
+    }
+
+    static final class NumericConstant extends NumericValue {
+
+        final boolean isNull;
+        final long    longValue;
+        final double  doubleValue;
+
+        NumericConstant(Number value) {
+
+            isNull = value == null;
+
+            if (isNull) {
+                longValue   = 0;
+                doubleValue = 0;
+            } else {
+                longValue   = value.longValue();
+                doubleValue = value.doubleValue();
+            }
+        }
+
+        boolean isNull(Session session) {
+            return isNull;
+        }
+
+        long getLong(Session session) {
+            return longValue;
+        }
+
+        double getDouble(Session session) {
+            return doubleValue;
+        }
+    }
+
+    static final class NumericColumn extends NumericValue {
+
+        final ColumnReference column;
+
+        NumericColumn(ColumnReference column) {
+            this.column = column;
+        }
+
+        boolean isNull(Session session) {
+            return column.getField(session) == null;
+        }
+
+        long getLong(Session session) {
+            return ((Number) column.getField(session)).longValue();
+        }
+
+        double getDouble(Session session) {
+            return ((Number) column.getField(session)).doubleValue();
+        }
+    }
+
+    static final class NumericParameter extends NumericValue {
+
+        final int parameterIndex;
+
+        NumericParameter(int parameterIndex) {
+            this.parameterIndex = parameterIndex;
+        }
+
+        boolean isNull(Session session) {
+            return session.sessionContext.dynamicArguments[parameterIndex]
+                   == null;
+        }
+
+        long getLong(Session session) {
+            return ((Number) session.sessionContext
+                .dynamicArguments[parameterIndex]).longValue();
+        }
+
+        double getDouble(Session session) {
+            return ((Number) session.sessionContext
+                .dynamicArguments[parameterIndex]).doubleValue();
+        }
+    }
+
+    /**
+     * Arithmetic with the same overflow behaviour as NumberType: INTEGER
+     * results wrap around as int values and BIGINT results as long values.
+     */
+    static final class NumericArithmetic extends NumericValue {
+
+        final int          opType;
+        final int          numericClass;
+        final NumericValue left;
+        final NumericValue right;
+
+        NumericArithmetic(int opType, int numericClass, NumericValue left,
+                          NumericValue right) {
+
+            this.opType       = opType;
+            this.numericClass = numericClass;
+            this.left         = left;
+            this.right        = right;
+        }
+
+        boolean isNull(Session session) {
+            return left.isNull(session) || right.isNull(session);
+        }
+
+        long getLong(Session session) {
+
+            if (numericClass == CLASS_DOUBLE) {
+                return (long) getDouble(session);
+            }
+
+            long a = left.getLong(session);
+            long b = right.getLong(session);
+
+            if (numericClass == CLASS_INTEGER) {
+                int ai = (int) a;
+                int bi = (int) b;
+
+                switch (opType) {
+
+                    case OpTypes.ADD :
+                        return ai + bi;
+
+                    case OpTypes.SUBTRACT :
+                        return ai - bi;
+
+                    default :
+                        return ai * bi;
+                }
+            }
+
+            switch (opType) {
+
+                case OpTypes.ADD :
+                    return a + b;
+
+                case OpTypes.SUBTRACT :
+                    return a - b;
+
+                default :
+                    return a * b;
+            }
+        }
+
+        double getDouble(Session session) {
+
+            if (numericClass != CLASS_DOUBLE) {
+                return getLong(session);
+            }
+
+            double a = left.getDouble(session);
+            double b = right.getDouble(session);
+
+            switch (opType) {
+
+                case OpTypes.ADD :
+                    return a + b;
+
+                case OpTypes.SUBTRACT :
+                    return a - b;
+
+                default :
+                    return a * b;
+            }
+        }
+    }
+
+    static final class ValueNumeric extends Value {
+
+        final NumericValue value;
+        final int          numericClass;
+
+        ValueNumeric(NumericValue value, int numericClass) {
+            this.value        = value;
+            this.numericClass = numericClass;
+        }
+
+        Object getValue(Session session) {
+
+            if (value.isNull(session)) {
+                return null;
+            }
+
+            switch (numericClass) {
+
+                case CLASS_INTEGER :
+                    return ValuePool.getInt((int) value.getLong(session));
+
+                case CLASS_BIGINT :
+                    return ValuePool.getLong(value.getLong(session));
+
+                default :
+                    return ValuePool.getDouble(
+                        Double.doubleToLongBits(value.getDouble(session)));
+            }
+        }
+    }
+}
@@ -0,0 +1,597 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb;
+
+import java.util.Comparator;
+
+import org.hsqldb.error.Error;
+import org.hsqldb.error.ErrorCode;
+import org.hsqldb.lib.ArraySort;
+import org.hsqldb.lib.HsqlArrayList;
+import org.hsqldb.map.ValuePool;
+import org.hsqldb.navigator.RowSetNavigatorData;
+import org.hsqldb.types.Type;
+
+/**
+ * Implementation of window functions, the aggregate functions and the
+ * ROW_NUMBER, RANK and DENSE_RANK functions followed by an OVER clause.<p>
+ *
+ * The nodes are the argument of an aggregate function, followed by the
+ * PARTITION BY expressions and the ORDER BY expressions. The values are
+ * computed by the QuerySpecification after all the rows of the result have
+ * been built and are stored in a hidden column of the result.<p>
+ *
+ * The rows are sorted once on the partition and order values, then each
+ * partition is read in a single pass. Frames that start at UNBOUNDED
+ * PRECEDING are computed incrementally, other frames are recomputed for
+ * each row.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public class ExpressionWindow extends Expression {
+
+    static final int UNBOUNDED_PRECEDING = 0;
+    static final int PRECEDING           = 1;
+    static final int CURRENT_ROW         = 2;
+    static final int FOLLOWING           = 3;
+    static final int UNBOUNDED_FOLLOWING = 4;
+
+    //
+    private int     argCount;
+    private int     partitionCount;
+    private int     orderCount;
+    private boolean isRows;
+    private boolean hasFrame;
+    private int     startBound = UNBOUNDED_PRECEDING;
+    private int     endBound   = CURRENT_ROW;
+    private int     startOffset;
+    private int     endOffset;
+
+    /**
+     * Creates a window function. The type is an aggregate function type,
+     * or one of ROWNUM, RANK or DENSE_RANK.
+     */
+    ExpressionWindow(int type, Expression e, HsqlArrayList partitionList,
+                     SortAndSlice sort) {
+
+        super(OpTypes.WINDOW);
+
+        exprSubType    = type;
+        argCount       = e == null ? 0
+                                   : 1;
+        partitionCount = partitionList.size();
+        orderCount     = sort == null ? 0
+                                      : sort.getOrderLength();
+        nodes          = new Expression[argCount + partitionCount + orderCount];
+
+        if (e != null) {
+            nodes[LEFT] = e;
+        }
+
+        for (int i = 0; i < partitionCount; i++) {
+            nodes[argCount + i] = (Expression) partitionList.get(i);
+        }
+
+        for (int i = 0; i < orderCount; i++) {
+            nodes[argCount + partitionCount + i] =
+                (Expression) sort.getExpressionList().get(i);
+        }
+    }
+
+    /**
+     * Sets a ROWS or RANGE frame. Offsets are used only with PRECEDING and
+     * FOLLOWING.
+     */
+    void setFrame(boolean rows, int start, int startOffset, int end,
+                  int endOffset) {
+
+        this.isRows      = rows;
+        this.hasFrame    = true;
+        this.startBound  = start;
+        this.startOffset = startOffset;
+        this.endBound    = end;
+        this.endOffset   = endOffset;
+    }
+
+    boolean isAggregateFunction() {
+        return argCount == 1;
+    }
+
+    /**
+     * Sets the result column that holds the computed value.
+     */
+    void setColumnIndex(int colIndex, int rangePosition) {
+
+        this.columnIndex   = colIndex;
+        this.rangePosition = rangePosition;
+    }
+
+    public Object getValue(Session session) {
+        return session.sessionContext.rangeIterators[rangePosition].getField(
+            columnIndex);
+    }
+
+    public void resolveTypes(Session session, Expression parent) {
+
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] != null) {
+                nodes[i].resolveTypes(session, this);
+
+                if (nodes[i].isUnresolvedParam()) {
+                    throw Error.error(ErrorCode.X_42567);
+                }
+            }
+        }
+
+        if (argCount == 0) {
+            dataType = Type.SQL_BIGINT;
+
+            return;
+        }
+
+        if (nodes[LEFT].getDegree() > 1) {
+            throw Error.error(ErrorCode.X_42564);
+        }
+
+        dataType = SetFunction.getType(session, exprSubType,
+                                       nodes[LEFT].dataType);
+    }
+
+    public boolean equals(Expression other) {
+
+        if (other instanceof ExpressionWindow) {
+            ExpressionWindow o = (ExpressionWindow) other;
+
+            return super.equals(other) && argCount == o.argCount
+                   && partitionCount == o.partitionCount
+                   && isRows == o.isRows && startBound == o.startBound
+                   && endBound == o.endBound
+                   && startOffset == o.startOffset
+                   && endOffset == o.endOffset;
+        }
+
+        return false;
+    }
+
+    public String getSQL() {
+
+        StringBuffer sb = new StringBuffer(64);
+
+        switch (exprSubType) {
+
+            case OpTypes.ROWNUM :
+                sb.append(Tokens.T_ROW_NUMBER).append("()");
+                break;
+
+            case OpTypes.RANK :
+                sb.append(Tokens.T_RANK).append("()");
+                break;
+
+            case OpTypes.DENSE_RANK :
+                sb.append(Tokens.T_DENSE_RANK).append("()");
+                break;
+
+            default :
+                sb.append(getFunctionName()).append('(');
+
+                if (nodes[LEFT].opType == OpTypes.ASTERISK) {
+                    sb.append('*');
+                } else {
+                    sb.append(nodes[LEFT].getSQL());
+                }
+
+                sb.append(')');
+        }
+
+        sb.append(' ').append(Tokens.T_OVER).append(' ').append('(');
+
+        for (int i = 0; i < partitionCount; i++) {
+            if (i == 0) {
+                sb.append(Tokens.T_PARTITION).append(' ');
+                sb.append(Tokens.T_BY).append(' ');
+            } else {
+                sb.append(',');
+            }
+
+            sb.append(nodes[argCount + i].getSQL());
+        }
+
+        for (int i = 0; i < orderCount; i++) {
+            ExpressionOrderBy o =
+                (ExpressionOrderBy) nodes[argCount + partitionCount + i];
+
+            if (i == 0) {
+                if (partitionCount > 0) {
+                    sb.append(' ');
+                }
+
+                sb.append(Tokens.T_ORDER).append(' ');
+                sb.append(Tokens.T_BY).append(' ');
+            } else {
+                sb.append(',');
+            }
+
+            sb.append(o.getLeftNode().getSQL());
+
+            if (o.isDescending()) {
+                sb.append(' ').append(Tokens.T_DESC);
+            }
+        }
+
+        if (hasFrame) {
+            sb.append(' ').append(isRows ? Tokens.T_ROWS
+                                         : Tokens.T_RANGE);
+            sb.append(' ').append(Tokens.T_BETWEEN).append(' ');
+            sb.append(getBoundSQL(startBound, startOffset));
+            sb.append(' ').append(Tokens.T_AND).append(' ');
+            sb.append(getBoundSQL(endBound, endOffset));
+        }
+
+        sb.append(')');
+
+        return sb.toString();
+    }
+
+    private String getFunctionName() {
+
+        switch (exprSubType) {
+
+            case OpTypes.COUNT :
+                return Tokens.T_COUNT;
+
+            case OpTypes.SUM :
+                return Tokens.T_SUM;
+
+            case OpTypes.MIN :
+                return Tokens.T_MIN;
+
+            case OpTypes.MAX :
+                return Tokens.T_MAX;
+
+            case OpTypes.AVG :
+                return Tokens.T_AVG;
+
+            case OpTypes.EVERY :
+                return Tokens.T_EVERY;
+
+            case OpTypes.SOME :
+                return Tokens.T_SOME;
+
+            case OpTypes.STDDEV_POP :
+                return Tokens.T_STDDEV_POP;
+
+            case OpTypes.STDDEV_SAMP :
+                return Tokens.T_STDDEV_SAMP;
+
+            case OpTypes.VAR_POP :
+                return Tokens.T_VAR_POP;
+
+            case OpTypes.VAR_SAMP :
+                return Tokens.T_VAR_SAMP;
+
+            default :
+                throw Error.runtimeError(ErrorCode.U_S0500,
+                                         "ExpressionWindow");
+        }
+    }
+
+    private static String getBoundSQL(int bound, int offset) {
+
+        switch (bound) {
+
+            case UNBOUNDED_PRECEDING :
+                return Tokens.T_UNBOUNDED + ' ' + Tokens.T_PRECEDING;
+
+            case PRECEDING :
+                return offset + " " + Tokens.T_PRECEDING;
+
+            case CURRENT_ROW :
+                return Tokens.T_CURRENT + ' ' + Tokens.T_ROW;
+
+            case FOLLOWING :
+                return offset + " " + Tokens.T_FOLLOWING;
+
+            case UNBOUNDED_FOLLOWING :
+                return Tokens.T_UNBOUNDED + ' ' + Tokens.T_FOLLOWING;
+
+            default :
+                throw Error.runtimeError(ErrorCode.U_S0500,
+                                         "ExpressionWindow");
+        }
+    }
+
+    protected String describe(Session session, int blanks) {
+
+        StringBuffer sb = new StringBuffer(64);
+
+        sb.append('\n');
+
+        for (int i = 0; i < blanks; i++) {
+            sb.append(' ');
+        }
+
+        sb.append(getSQL());
+
+        return sb.toString();
+    }
+
+    /**
+     * Computes the value of the function for all the rows of the navigator
+     * and stores it in the result column of each row.
+     */
+    void setWindowValues(Session session, RowSetNavigatorData navigator) {
+
+        int      size    = navigator.getSize();
+        int      degree  = nodes.length;
+        Object[] entries = new Object[size];
+
+        navigator.reset();
+        session.sessionContext.setRangeIterator(navigator);
+
+        for (int i = 0; navigator.next(); i++) {
+            Object[] entry = new Object[degree + 2];
+
+            for (int j = 0; j < degree; j++) {
+                entry[j] = nodes[j].opType == OpTypes.ASTERISK
+                           ? ValuePool.INTEGER_1
+                           : nodes[j].getValue(session);
+            }
+
+            entry[degree]     = navigator.getCurrent();
+            entry[degree + 1] = ValuePool.getInt(i);
+            entries[i]        = entry;
+        }
+
+        session.sessionContext.unsetRangeIterator(navigator);
+        navigator.reset();
+
+        if (partitionCount + orderCount > 0) {
+            ArraySort.sort(entries, 0, size, new WindowComparator(session));
+        }
+
+        int orderStart = argCount + partitionCount;
+
+        for (int start = 0; start < size; ) {
+            int end = start + 1;
+
+            while (end < size
+                    && compareKeys(session, entries[start], entries[end],
+                                   argCount, orderStart) == 0) {
+                end++;
+            }
+
+            setPartitionValues(session, entries, start, end);
+
+            start = end;
+        }
+    }
+
+    private void setPartitionValues(Session session, Object[] entries,
+                                    int start, int end) {
+
+        int peerStart = start;
+        int peerEnd   = start;
+
+        switch (exprSubType) {
+
+            case OpTypes.ROWNUM :
+            case OpTypes.RANK :
+            case OpTypes.DENSE_RANK : {
+                long rank      = 0;
+                long denseRank = 0;
+
+                for (int i = start; i < end; i++) {
+                    if (i == peerEnd) {
+                        peerEnd = getPeerEnd(session, entries, i, end);
+                        rank    = i - start + 1;
+
+                        denseRank++;
+                    }
+
+                    long value = exprSubType == OpTypes.ROWNUM
+                                 ? i - start + 1
+                                 : exprSubType == OpTypes.RANK ? rank
+                                                               : denseRank;
+
+                    setValue(entries[i], ValuePool.getLong(value));
+                }
+
+                return;
+            }
+        }
+
+        SetFunction function = null;
+        int         added    = start;
+
+        for (int i = start; i < end; i++) {
+            if (i == peerEnd) {
+                peerStart = i;
+                peerEnd   = getPeerEnd(session, entries, i, end);
+            }
+
+            int frameStart;
+            int frameEnd;
+
+            switch (startBound) {
+
+                case UNBOUNDED_PRECEDING :
+                    frameStart = start;
+                    break;
+
+                case PRECEDING :
+                    frameStart = i - startOffset;
+                    break;
+
+                case CURRENT_ROW :
+                    frameStart = isRows ? i
+                                        : peerStart;
+                    break;
+
+                case FOLLOWING :
+                    frameStart = i + startOffset;
+                    break;
+
+                default :
+                    throw Error.runtimeError(ErrorCode.U_S0500,
+                                             "ExpressionWindow");
+            }
+
+            switch (endBound) {
+
+                case PRECEDING :
+                    frameEnd = i - endOffset + 1;
+                    break;
+
+                case CURRENT_ROW :
+                    frameEnd = isRows ? i + 1
+                                      : peerEnd;
+                    break;
+
+                case FOLLOWING :
+                    frameEnd = i + endOffset + 1;
+                    break;
+
+                case UNBOUNDED_FOLLOWING :
+                    frameEnd = end;
+                    break;
+
+                default :
+                    throw Error.runtimeError(ErrorCode.U_S0500,
+                                             "ExpressionWindow");
+            }
+
+            frameStart = Math.max(frameStart, start);
+            frameEnd   = Math.min(frameEnd, end);
+
+            if (startBound != UNBOUNDED_PRECEDING || function == null) {
+                function = new SetFunction(session, exprSubType,
+                                           nodes[LEFT].dataType, dataType,
+                                           false, null);
+                added    = frameStart;
+            }
+
+            for (; added < frameEnd; added++) {
+                Object value = ((Object[]) entries[added])[LEFT];
+
+                if (value != null) {
+                    function.add(session, value);
+                }
+            }
+
+            setValue(entries[i], function.getValue(session));
+        }
+    }
+
+    private int getPeerEnd(Session session, Object[] entries, int position,
+                           int end) {
+
+        int orderStart = argCount + partitionCount;
+        int peerEnd    = position + 1;
+
+        while (peerEnd < end
+                && compareKeys(session, entries[position], entries[peerEnd],
+                               orderStart, nodes.length) == 0) {
+            peerEnd++;
+        }
+
+        return peerEnd;
+    }
+
+    private void setValue(Object entry, Object value) {
+
+        Object[] data = (Object[]) ((Object[]) entry)[nodes.length];
+
+        data[columnIndex] = value;
+    }
+
+    private int compareKeys(Session session, Object a, Object b, int start,
+                            int limit) {
+
+        Object[] dataA = (Object[]) a;
+        Object[] dataB = (Object[]) b;
+
+        for (int j = start; j < limit; j++) {
+            int i = nodes[j].dataType.compare(session, dataA[j], dataB[j]);
+
+            if (i != 0) {
+                return i;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Orders the rows on the PARTITION BY values, then the ORDER BY values
+     * with their DESC and NULLS LAST settings, then the original position.
+     */
+    private class WindowComparator implements Comparator<Object[]> {
+
+        private final Session session;
+
+        WindowComparator(Session session) {
+            this.session = session;
+        }
+
+        public int compare(Object[] dataA, Object[] dataB) {
+
+            int orderStart = argCount + partitionCount;
+
+            for (int j = argCount; j < nodes.length; j++) {
+                int i = nodes[j].dataType.compare(session, dataA[j],
+                                                  dataB[j]);
+
+                if (i != 0) {
+                    if (j >= orderStart) {
+                        ExpressionOrderBy o = (ExpressionOrderBy) nodes[j];
+                        boolean nulls = dataA[j] == null || dataB[j] == null;
+
+                        if (o.isDescending() && !nulls) {
+                            i = -i;
+                        }
+
+                        if (o.isNullsLast() && nulls) {
+                            i = -i;
+                        }
+                    }
+
+                    return i;
+                }
+            }
+
+            return ((Integer) dataA[nodes.length + 1]).compareTo(
+                (Integer) dataB[nodes.length + 1]);
+        }
+    }
+}
@@ -157,9 +157,13 @@ public class HsqlDateTime {
     private static java.util.Date sysDate = new java.util.Date();
 
     public static String getSystemTimeString() {
+        return getSystemTimeString(System.currentTimeMillis());
+    }
+
+    public static String getSystemTimeString(long millis) {
 
         synchronized (sdftsSys) {
-            sysDate.setTime(System.currentTimeMillis());
+            sysDate.setTime(millis);
 
             return sdftsSys.format(sysDate);
         }
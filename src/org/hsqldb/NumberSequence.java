@@ -46,7 +46,7 @@ import org.hsqldb.types.Types;
  * Maintains a sequence of numbers.
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version  2.3.4
+ * @version  2.3.5
  * @since 1.7.2
  */
 public final class NumberSequence implements SchemaObject {
@@ -75,6 +75,12 @@ public final class NumberSequence implements SchemaObject {
     private boolean isAlways;
     private boolean restartValueDefault;
 
+    // number of values reserved by each session
+    private int cacheSize;
+
+    // changed when values reserved by sessions are no longer valid
+    private volatile long cacheVersion;
+
     public NumberSequence(HsqlName name, Type type) {
         setDefaults(name, type);
     }
@@ -202,6 +208,11 @@ public final class NumberSequence implements SchemaObject {
             sb.append(' ').append(Tokens.T_CYCLE);
         }
 
+        if (cacheSize != 0) {
+            sb.append(' ').append(Tokens.T_CACHE).append(' ');
+            sb.append(cacheSize);
+        }
+
         if (name == null) {
             sb.append(Tokens.T_CLOSEBRACKET);
         }
@@ -247,6 +258,11 @@ public final class NumberSequence implements SchemaObject {
                 sb.append(' ').append(Tokens.T_CYCLE);
             }
 
+            if (cacheSize != 0) {
+                sb.append(' ').append(Tokens.T_CACHE).append(' ');
+                sb.append(cacheSize);
+            }
+
             if (name == null) {
                 sb.append(Tokens.T_CLOSEBRACKET);
             }
@@ -322,6 +338,14 @@ public final class NumberSequence implements SchemaObject {
         return isAlways;
     }
 
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    long getCacheVersion() {
+        return cacheVersion;
+    }
+
     public synchronized boolean hasDefaultMinMax() {
 
         long min;
@@ -416,6 +440,8 @@ public final class NumberSequence implements SchemaObject {
         checkInTypeRange(value);
 
         currValue = lastValue = value;
+
+        cacheVersion++;
     }
 
     synchronized void setStartValueNoCheck(long value) {
@@ -424,6 +450,8 @@ public final class NumberSequence implements SchemaObject {
 
         startValue = value;
         currValue  = lastValue = startValue;
+
+        cacheVersion++;
     }
 
     synchronized void setStartValueDefault() {
@@ -452,6 +480,17 @@ public final class NumberSequence implements SchemaObject {
         isAlways = value;
     }
 
+    synchronized void setCacheSize(long value) {
+
+        if (value < 0 || value > Short.MAX_VALUE) {
+            throw Error.error(ErrorCode.X_42597);
+        }
+
+        cacheSize = (int) value;
+
+        cacheVersion++;
+    }
+
     private long getDefaultMinOrMax(boolean isMax) {
 
         long min;
@@ -540,6 +579,8 @@ public final class NumberSequence implements SchemaObject {
         if (restartValueDefault) {
             currValue           = lastValue = startValue;
             restartValueDefault = false;
+
+            cacheVersion++;
         }
 
         if (minValue >= maxValue || startValue < minValue
@@ -561,6 +602,7 @@ public final class NumberSequence implements SchemaObject {
         copy.maxValue   = maxValue;
         copy.isCycle    = isCycle;
         copy.isAlways   = isAlways;
+        copy.cacheSize  = cacheSize;
 
         return copy;
     }
@@ -577,6 +619,9 @@ public final class NumberSequence implements SchemaObject {
         maxValue   = other.maxValue;
         isCycle    = other.isCycle;
         isAlways   = other.isAlways;
+        cacheSize  = other.cacheSize;
+
+        cacheVersion++;
     }
 
     /**
@@ -590,6 +635,8 @@ public final class NumberSequence implements SchemaObject {
             return value;
         }
 
+        cacheVersion++;
+
         if (increment > 0) {
             if (value > currValue) {
                 currValue += ((value - currValue + increment) / increment)
@@ -619,6 +666,8 @@ public final class NumberSequence implements SchemaObject {
             return value;
         }
 
+        cacheVersion++;
+
         if (increment > 0) {
             if (value > currValue) {
                 currValue = value + increment;
@@ -633,8 +682,11 @@ public final class NumberSequence implements SchemaObject {
     }
 
     synchronized Object getValueObject() {
+        return getValueObject(getValue());
+    }
+
+    Object getValueObject(long value) {
 
-        long   value = getValue();
         Object result;
 
         switch (dataType.typeCode) {
@@ -700,6 +752,25 @@ public final class NumberSequence implements SchemaObject {
         return result;
     }
 
+    /**
+     * Reserves the next values for a session and returns the count, which is
+     * smaller than the array length only when the limit is reached. The
+     * current value moves past all the reserved values, so the logged or
+     * scripted RESTART WITH value excludes the values held by any session.
+     */
+    synchronized int getValues(long[] values) {
+
+        int count = 0;
+
+        values[count++] = getValue();
+
+        while (count < values.length && !limitReached) {
+            values[count++] = getValue();
+        }
+
+        return count;
+    }
+
     /**
      * reset to start value
      */
@@ -707,6 +778,8 @@ public final class NumberSequence implements SchemaObject {
 
         // no change if called before getValue() or called twice
         lastValue = currValue = startValue;
+
+        cacheVersion++;
     }
 
     /**
@@ -738,5 +811,7 @@ public final class NumberSequence implements SchemaObject {
         }
 
         startValue = currValue = lastValue = value;
+
+        cacheVersion++;
     }
 }
@@ -35,7 +35,7 @@ package org.hsqldb;
  * Enumerate expression operation types<p>
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.4
+ * @version 2.3.5
  * @since 1.9.0
  */
 public interface OpTypes {
@@ -133,5 +133,8 @@ public interface OpTypes {
         USER_AGGREGATE             = 94,
         ARRAY_ACCESS               = 95,
         ARRAY_SUBQUERY             = 96,
-        GROUPING                   = 98;
+        WINDOW                     = 97,
+        GROUPING                   = 98,
+        RANK                       = 99,    // window functions
+        DENSE_RANK                 = 100;
 }
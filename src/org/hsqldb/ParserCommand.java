@@ -50,7 +50,7 @@ import org.hsqldb.types.Types;
  * Parser for session and management statements
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.4
+ * @version 2.3.5
  * @since 1.9.0
  */
 public class ParserCommand extends ParserDDL {
@@ -966,6 +966,10 @@ public class ParserCommand extends ParserDDL {
                         newType = TableBase.CACHED_TABLE;
                         break;
 
+                    case Tokens.OFFHEAP :
+                        newType = TableBase.OFFHEAP_TABLE;
+                        break;
+
                     default :
                         throw unexpectedToken();
                 }
@@ -974,6 +978,7 @@ public class ParserCommand extends ParserDDL {
 
                     case TableBase.MEMORY_TABLE :
                     case TableBase.CACHED_TABLE :
+                    case TableBase.OFFHEAP_TABLE :
                     case TableBase.TEXT_TABLE :
                         break;
 
@@ -2058,6 +2063,16 @@ public class ParserCommand extends ParserDDL {
                 return new StatementSession(
                     StatementTypes.SET_SESSION_RESULT_MEMORY_ROWS, args);
             }
+            case Tokens.PARALLEL : {
+                read();
+                readThis(Tokens.DEGREE);
+
+                Integer  degree = readIntegerObject();
+                Object[] args   = new Object[]{ degree };
+
+                return new StatementSession(
+                    StatementTypes.SET_SESSION_PARALLEL_DEGREE, args);
+            }
             case Tokens.FEATURE : {
                 read();
 
@@ -2297,12 +2312,6 @@ public class ParserCommand extends ParserDDL {
             files = Boolean.FALSE;
         }
 
-        if (scriptMode) {
-            if (!blockingMode) {
-                throw unexpectedToken(Tokens.T_NOT);
-            }
-        }
-
         HsqlName[] names =
             blockingMode ? database.schemaManager.getCatalogAndBaseTableNames()
                          : HsqlName.emptyArray;
@@ -2381,10 +2390,16 @@ public class ParserCommand extends ParserDDL {
         return cs;
     }
 
+    /**
+     * Without write table names, the checkpoint does not block other
+     * sessions.
+     */
     public static Statement getAutoCheckpointStatement(Database database) {
 
-        HsqlName[] names =
-            database.schemaManager.getCatalogAndBaseTableNames();
+        HsqlName[] names = database.logger.isNonBlockingCheckpoint()
+                           ? HsqlName.emptyArray
+                           : database.schemaManager
+                               .getCatalogAndBaseTableNames();
         Object[] args = new Object[]{ Boolean.FALSE };
         Statement cs = new StatementCommand(StatementTypes.DATABASE_CHECKPOINT,
                                             args, null, names);
@@ -2409,17 +2424,36 @@ public class ParserCommand extends ParserDDL {
     private Statement compileExplainPlan() {
 
         Statement cs;
+        boolean   analyze = false;
 
         read();
-        readThis(Tokens.PLAN);
-        readThis(Tokens.FOR);
+
+        if (readIfThis(Tokens.T_ANALYZE)) {
+            analyze = true;
+        } else {
+            readThis(Tokens.PLAN);
+            readThis(Tokens.FOR);
+        }
 
         cs = compilePart(ResultProperties.defaultPropsValue);
 
-        cs.setDescribe();
+        if (analyze) {
+            if (cs.getParametersMetaData().getColumnCount() > 0) {
+                throw Error.error(ErrorCode.X_42575);
+            }
+
+            // avoids recompilation, which would discard the statistics
+            cs.setCompileTimestamp(
+                database.txManager.getGlobalChangeTimestamp());
+        } else {
+            cs.setDescribe();
+        }
+
+        Object[] args = new Object[] {
+            cs, Boolean.valueOf(analyze)
+        };
 
-        return new StatementCommand(StatementTypes.EXPLAIN_PLAN,
-                                    new Object[]{ cs });
+        return new StatementCommand(StatementTypes.EXPLAIN_PLAN, args);
     }
 
     private StatementCommand compileTableSource(Table t) {
@@ -56,7 +56,7 @@ import org.hsqldb.types.UserTypeModifier;
  * Parser for DDL statements
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.4
+ * @version 2.3.5
  * @since 1.9.0
  */
 public class ParserDDL extends ParserRoutine {
@@ -131,6 +131,14 @@ public class ParserDDL extends ParserRoutine {
                 tableType = TableBase.CACHED_TABLE;
                 break;
 
+            case Tokens.OFFHEAP :
+                read();
+                readThis(Tokens.TABLE);
+
+                isTable   = true;
+                tableType = TableBase.OFFHEAP_TABLE;
+                break;
+
             case Tokens.TEXT :
                 read();
                 readThis(Tokens.TABLE);
@@ -1314,6 +1322,7 @@ public class ParserDDL extends ParserRoutine {
 
         Table    table;
         HsqlName indexHsqlName;
+        boolean  hash = false;
 
         read();
 
@@ -1323,7 +1332,9 @@ public class ParserDDL extends ParserRoutine {
 
         if (database.sqlSyntaxMys) {
             if (readIfThis(Tokens.USING)) {
-                if (!readIfThis("HASH")) {
+                if (readIfThis("HASH")) {
+                    hash = true;
+                } else {
                     readThis("BTREE");
                 }
             }
@@ -1347,13 +1358,15 @@ public class ParserDDL extends ParserRoutine {
 
         int[] indexColumns = readColumnList(table, true);
 
-        if (database.sqlSyntaxMys) {
-            if (readIfThis(Tokens.USING)) {
-                if (!readIfThis("HASH")) {
-                    readThis("BTREE");
-                }
+        if (readIfThis(Tokens.USING)) {
+            if (readIfThis("HASH")) {
+                hash = true;
+            } else {
+                readThis("BTREE");
             }
+        }
 
+        if (database.sqlSyntaxMys) {
             if (readIfThis(Tokens.COMMENT)) {
                 String comment = readQuotedString();
 
@@ -1364,7 +1377,7 @@ public class ParserDDL extends ParserRoutine {
         String   sql  = getLastPart();
         Object[] args = new Object[] {
             table, indexColumns, indexHsqlName, Boolean.valueOf(unique), null,
-            ifNotExists
+            ifNotExists, Boolean.valueOf(hash)
         };
 
         return new StatementSchema(sql, StatementTypes.CREATE_INDEX, args,
@@ -2069,7 +2082,6 @@ public class ParserDDL extends ParserRoutine {
                     }
                     default :
                         rewind(position);
-                        read();
                         break;
                 }
 
@@ -2375,6 +2387,8 @@ public class ParserDDL extends ParserRoutine {
                                 sequence.setDefaultMinValue();
                             } else if (token.tokenType == Tokens.CYCLE) {
                                 sequence.setCycle(false);
+                            } else if (token.tokenType == Tokens.CACHE) {
+                                sequence.setCacheSize(0);
                             } else {
                                 throw unexpectedToken();
                             }
@@ -2421,6 +2435,19 @@ public class ParserDDL extends ParserRoutine {
                             sequence.setCycle(true);
                             break;
 
+                        case Tokens.CACHE : {
+                            if (!set.add(token.tokenType)) {
+                                throw unexpectedToken();
+                            }
+
+                            read();
+
+                            long value = readBigint();
+
+                            sequence.setCacheSize(value);
+
+                            break;
+                        }
                         default :
                             throw unexpectedToken();
                     }
@@ -2123,9 +2123,149 @@ public class ParserDQL extends ParserBase {
         readThis(Tokens.CLOSEBRACKET);
         readFilterClause(expr);
 
+        if (token.tokenType == Tokens.OVER) {
+            if (!(expr instanceof ExpressionAggregate)
+                    || expr.isDistinctAggregate
+                    || ((ExpressionAggregate) expr).hasCondition()) {
+                throw unsupportedFeature();
+            }
+
+            expr = readWindowSpecification(expr.getType(),
+                                           expr.getLeftNode());
+        }
+
         return expr;
     }
 
+    /**
+     * Reads the OVER clause of a window function.
+     */
+    private Expression readWindowSpecification(int type, Expression e) {
+
+        HsqlArrayList partitionList = new HsqlArrayList();
+        SortAndSlice  sort          = null;
+
+        readThis(Tokens.OVER);
+        readThis(Tokens.OPENBRACKET);
+
+        if (token.tokenType == Tokens.PARTITION) {
+            read();
+            readThis(Tokens.BY);
+
+            while (true) {
+                partitionList.add(XreadValueExpression());
+
+                if (token.tokenType == Tokens.COMMA) {
+                    read();
+
+                    continue;
+                }
+
+                break;
+            }
+        }
+
+        if (token.tokenType == Tokens.ORDER) {
+            read();
+            readThis(Tokens.BY);
+
+            sort = XreadOrderBy();
+        }
+
+        ExpressionWindow window = new ExpressionWindow(type, e,
+            partitionList, sort);
+
+        if (token.tokenType == Tokens.ROWS
+                || token.tokenType == Tokens.RANGE) {
+            if (e == null) {
+                throw unexpectedToken();
+            }
+
+            boolean rows        = token.tokenType == Tokens.ROWS;
+            int[]   startBound  = new int[2];
+            int[]   endBound    = new int[] {
+                ExpressionWindow.CURRENT_ROW, 0
+            };
+
+            read();
+
+            if (token.tokenType == Tokens.BETWEEN) {
+                read();
+                readWindowFrameBound(rows, startBound);
+                readThis(Tokens.AND);
+                readWindowFrameBound(rows, endBound);
+            } else {
+                readWindowFrameBound(rows, startBound);
+            }
+
+            if (startBound[0] == ExpressionWindow.UNBOUNDED_FOLLOWING
+                    || endBound[0] == ExpressionWindow.UNBOUNDED_PRECEDING
+                    || startBound[0] > endBound[0]) {
+                throw Error.error(ErrorCode.X_42581);
+            }
+
+            window.setFrame(rows, startBound[0], startBound[1], endBound[0],
+                            endBound[1]);
+        }
+
+        readThis(Tokens.CLOSEBRACKET);
+
+        return window;
+    }
+
+    /**
+     * Reads a frame bound into the bound kind and the offset
+     */
+    private void readWindowFrameBound(boolean rows, int[] bound) {
+
+        switch (token.tokenType) {
+
+            case Tokens.UNBOUNDED :
+                read();
+
+                if (token.tokenType == Tokens.PRECEDING) {
+                    bound[0] = ExpressionWindow.UNBOUNDED_PRECEDING;
+                } else if (token.tokenType == Tokens.FOLLOWING) {
+                    bound[0] = ExpressionWindow.UNBOUNDED_FOLLOWING;
+                } else {
+                    throw unexpectedToken();
+                }
+
+                read();
+
+                return;
+
+            case Tokens.CURRENT :
+                read();
+                readThis(Tokens.ROW);
+
+                bound[0] = ExpressionWindow.CURRENT_ROW;
+
+                return;
+
+            default :
+                if (!rows) {
+                    throw unsupportedFeature();
+                }
+
+                bound[1] = readInteger();
+
+                if (bound[1] < 0) {
+                    throw Error.error(ErrorCode.X_42581);
+                }
+
+                if (token.tokenType == Tokens.PRECEDING) {
+                    bound[0] = ExpressionWindow.PRECEDING;
+                } else if (token.tokenType == Tokens.FOLLOWING) {
+                    bound[0] = ExpressionWindow.FOLLOWING;
+                } else {
+                    throw unexpectedToken();
+                }
+
+                read();
+        }
+    }
+
     private void readFilterClause(Expression e) {
 
         int position = getPosition();
@@ -2841,8 +2981,18 @@ public class ParserDQL extends ParserBase {
                 if (token.tokenType == Tokens.OPENBRACKET) {
                     read();
                     readThis(Tokens.CLOSEBRACKET);
+
+                    int overPosition = getPosition();
+
                     readThis(Tokens.OVER);
                     readThis(Tokens.OPENBRACKET);
+
+                    if (token.tokenType != Tokens.CLOSEBRACKET) {
+                        rewind(overPosition);
+
+                        return readWindowSpecification(OpTypes.ROWNUM, null);
+                    }
+
                     readThis(Tokens.CLOSEBRACKET);
                 } else {
                     rewind(position);
@@ -2852,6 +3002,18 @@ public class ParserDQL extends ParserBase {
 
                 return new ExpressionColumn(OpTypes.ROWNUM);
             }
+            case Tokens.RANK :
+            case Tokens.DENSE_RANK : {
+                int type = token.tokenType == Tokens.RANK
+                           ? OpTypes.RANK
+                           : OpTypes.DENSE_RANK;
+
+                read();
+                readThis(Tokens.OPENBRACKET);
+                readThis(Tokens.CLOSEBRACKET);
+
+                return readWindowSpecification(type, null);
+            }
             case Tokens.ROWNUM : {
                 read();
 
@@ -1863,6 +1863,8 @@ public class ParserTable extends ParserDML {
                         sequence.setDefaultMinValue();
                     } else if (token.tokenType == Tokens.CYCLE) {
                         sequence.setCycle(false);
+                    } else if (token.tokenType == Tokens.CACHE) {
+                        sequence.setCacheSize(0);
                     } else {
                         throw unexpectedToken();
                     }
@@ -1899,23 +1901,32 @@ public class ParserTable extends ParserDML {
 
                     break;
                 }
+                case Tokens.CACHE : {
+                    set.add(token.tokenType);
+                    read();
+
+                    long value = readBigint();
+
+                    sequence.setCacheSize(value);
+
+                    break;
+                }
                 default :
                     if ((database.sqlSyntaxOra || database.sqlSyntaxDb2)
                             && isSimpleName()) {
-                        if (token.tokenString.equals("NOCACHE")
-                                || token.tokenString.equals("NOCYCLE")
-                                || token.tokenString.equals("NOMAXVALUE")
-                                || token.tokenString.equals("NOMINVALUE")
-                                || token.tokenString.equals("NOORDER")
-                                || token.tokenString.equals("ORDER")) {
+                        if (token.tokenString.equals("NOCACHE")) {
                             read();
+                            sequence.setCacheSize(0);
 
                             break;
                         }
 
-                        if (token.tokenString.equals("CACHE")) {
+                        if (token.tokenString.equals("NOCYCLE")
+                                || token.tokenString.equals("NOMAXVALUE")
+                                || token.tokenString.equals("NOMINVALUE")
+                                || token.tokenString.equals("NOORDER")
+                                || token.tokenString.equals("ORDER")) {
                             read();
-                            readBigint();
 
                             break;
                         }
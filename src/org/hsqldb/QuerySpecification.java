@@ -35,6 +35,7 @@ import org.hsqldb.HsqlNameManager.HsqlName;
 import org.hsqldb.HsqlNameManager.SimpleName;
 import org.hsqldb.ParserDQL.CompileContext;
 import org.hsqldb.RangeGroup.RangeGroupSimple;
+import org.hsqldb.RangeVariable.RangeIteratorMain;
 import org.hsqldb.RangeVariable.RangeIteratorRight;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
@@ -87,6 +88,8 @@ public class QuerySpecification extends QueryExpression {
     Expression            rowExpression;
     Expression[]          exprColumns;
     HsqlArrayList         exprColumnList;
+    ExpressionCompiler.Value[] compiledColumns;
+    BatchAggregator       batchAggregator;
     private int           groupByColumnCount;    // columns in 'group by'
     private int           havingColumnCount;     // columns in 'having' (0 or 1)
     public int            indexLimitVisible;
@@ -95,6 +98,7 @@ public class QuerySpecification extends QueryExpression {
     public int            indexStartOrderBy;
     public int            indexStartAggregates;
     private int           indexLimitExpressions;
+    private int           indexLimitWindowColumns;
     public int            indexLimitData;
     private boolean       hasRowID;
     private boolean       isSimpleCount;
@@ -114,6 +118,10 @@ public class QuerySpecification extends QueryExpression {
     //
     private boolean[] aggregateCheck;
 
+    //
+    Expression[]      windowExpressions;
+    private boolean[] windowCheck;
+
     //
     private OrderedHashSet tempSet = new OrderedHashSet();
 
@@ -346,6 +354,7 @@ public class QuerySpecification extends QueryExpression {
 
         resolveExpressionTypes(session);
         resolveAggregates();
+        resolveWindows();
 
         for (int i = 0; i < unionColumnTypes.length; i++) {
             unionColumnTypes[i] = Type.getAggregateType(unionColumnTypes[i],
@@ -378,6 +387,7 @@ public class QuerySpecification extends QueryExpression {
         }
 
         resolveGroups();
+        replaceWindowColumns();
 
         for (int i = 0; i < unionColumnTypes.length; i++) {
             Type type = unionColumnTypes[i];
@@ -428,12 +438,24 @@ public class QuerySpecification extends QueryExpression {
         setAggregateConditions(session);
         sortAndSlice.setSortRange(this);
 
+        if (windowExpressions != null && sortAndSlice.skipFullResult) {
+            sortAndSlice.skipFullResult = false;
+        }
+
         for (int i = 0; i < rangeVariables.length; i++) {
             rangeVariables[i].resolveRangeTableTypes(session, rangeVariables);
         }
 
         setResultNullability();
 
+        if (session.database.compileExpressions) {
+            compileExpressions();
+        }
+
+        if (session.database.batchExecution) {
+            setBatchAggregator();
+        }
+
         rangeVariableList = null;
         tempSet           = null;
         compileContext    = null;
@@ -441,9 +463,52 @@ public class QuerySpecification extends QueryExpression {
         isResolved        = true;
     }
 
+    /**
+     * Compiles the row conditions of the range variables and the arithmetic
+     * select list expressions into specialised evaluators.
+     */
+    private void compileExpressions() {
+
+        for (int i = 0; i < rangeVariables.length; i++) {
+            rangeVariables[i].compileConditions();
+        }
+
+        ExpressionCompiler.Value[] values = null;
+
+        for (int i = 0; i < indexStartAggregates; i++) {
+            ExpressionCompiler.Value value =
+                ExpressionCompiler.compileValue(exprColumns[i]);
+
+            if (value != null) {
+                if (values == null) {
+                    values = new ExpressionCompiler.Value[indexStartAggregates];
+                }
+
+                values[i] = value;
+            }
+        }
+
+        compiledColumns = values;
+    }
+
+    /**
+     * Sets up batch execution for aggregate queries that qualify.
+     */
+    private void setBatchAggregator() {
+
+        if (!isAggregated || isSimpleDistinct || isSimpleCount || hasRowID
+                || sortAndSlice.isGenerated || windowExpressions != null) {
+            return;
+        }
+
+        batchAggregator = BatchAggregator.newBatchAggregator(rangeVariables,
+                exprColumns, aggregateCheck, isGrouped, indexStartAggregates,
+                indexLimitExpressions, indexLimitData);
+    }
+
     public void addExtraConditions(Expression e) {
 
-        if (isAggregated || isGrouped) {
+        if (isAggregated || isGrouped || windowExpressions != null) {
             return;
         }
 
@@ -1023,6 +1088,209 @@ public class QuerySpecification extends QueryExpression {
         }
     }
 
+    /**
+     * Collects the window functions in the select list and ORDER BY.
+     * Allocates hidden columns after the aggregates for the row values
+     * used by these columns, followed by one column for each window function
+     * value.
+     */
+    private void resolveWindows() {
+
+        indexLimitWindowColumns = indexLimitExpressions;
+
+        checkNoWindows(queryCondition);
+        checkNoWindows(havingCondition);
+
+        for (int i = 0; i < rangeVariables.length; i++) {
+            checkNoWindows(rangeVariables[i].getJoinCondition());
+        }
+
+        for (int i = indexLimitRowId; i < indexStartOrderBy; i++) {
+            checkNoWindows(exprColumns[i]);
+        }
+
+        OrderedHashSet windowSet = null;
+        OrderedHashSet columnSet = null;
+
+        for (int i = 0; i < indexStartAggregates; i++) {
+            if (i >= indexLimitRowId && i < indexStartOrderBy) {
+                continue;
+            }
+
+            OrderedHashSet set = exprColumns[i].collectAllExpressions(null,
+                Expression.windowFunctionSet,
+                Expression.subqueryExpressionSet);
+
+            if (set == null) {
+                continue;
+            }
+
+            if (exprColumns[i].collectAllSubqueries(null) != null) {
+                throw Error.error(ErrorCode.X_0A501, Tokens.T_OVER);
+            }
+
+            if (windowCheck == null) {
+                windowCheck = new boolean[indexStartAggregates];
+                windowSet   = new OrderedHashSet();
+                columnSet   = new OrderedHashSet();
+            }
+
+            windowCheck[i] = true;
+
+            windowSet.addAll(set);
+
+            columnSet = exprColumns[i].collectAllExpressions(columnSet,
+                    Expression.columnExpressionSet,
+                    Expression.subqueryAggregateExpressionSet);
+        }
+
+        if (windowSet == null) {
+            return;
+        }
+
+        windowExpressions = new Expression[windowSet.size()];
+
+        windowSet.toArray(windowExpressions);
+
+        for (int i = 0; i < windowExpressions.length; i++) {
+            Expression e = windowExpressions[i];
+
+            for (int j = 0; j < e.nodes.length; j++) {
+                checkNoWindows(e.nodes[j]);
+            }
+        }
+
+        HsqlArrayList columnList = new HsqlArrayList();
+
+        for (int i = 0; i < columnSet.size(); i++) {
+            Expression    e     = (Expression) columnSet.get(i);
+            RangeVariable range = e.getRangeVariable();
+
+            for (int j = 0; j < rangeVariables.length; j++) {
+                if (range == rangeVariables[j]) {
+                    columnList.add(e);
+
+                    break;
+                }
+            }
+        }
+
+        indexLimitWindowColumns = indexLimitExpressions + columnList.size();
+        indexLimitData = indexLimitWindowColumns + windowExpressions.length;
+        exprColumns = (Expression[]) ArrayUtil.resizeArray(exprColumns,
+                indexLimitData);
+
+        for (int i = 0; i < columnList.size(); i++) {
+            exprColumns[indexLimitExpressions + i] =
+                (Expression) columnList.get(i);
+        }
+
+        for (int i = 0; i < windowExpressions.length; i++) {
+            exprColumns[indexLimitWindowColumns + i] = windowExpressions[i];
+        }
+
+        for (int i = 0; i < indexStartAggregates; i++) {
+            if (windowCheck[i]) {
+                setWindowColumnIndexes(exprColumns[i], windowSet);
+            }
+        }
+    }
+
+    /**
+     * Equal window functions in different columns share the same value.
+     */
+    private void setWindowColumnIndexes(Expression e,
+                                        OrderedHashSet windowSet) {
+
+        if (e.getType() == OpTypes.WINDOW) {
+            int index = windowSet.getIndex(e);
+
+            ((ExpressionWindow) e).setColumnIndex(
+                indexLimitWindowColumns + index, resultRangePosition);
+
+            return;
+        }
+
+        for (int i = 0; i < e.nodes.length; i++) {
+            if (e.nodes[i] != null) {
+                setWindowColumnIndexes(e.nodes[i], windowSet);
+            }
+        }
+    }
+
+    private static void checkNoWindows(Expression e) {
+
+        if (e == null) {
+            return;
+        }
+
+        OrderedHashSet set = e.collectAllExpressions(null,
+            Expression.windowFunctionSet, Expression.subqueryExpressionSet);
+
+        if (set != null) {
+            throw Error.error(ErrorCode.X_42581, Tokens.T_OVER);
+        }
+    }
+
+    /**
+     * Replaces the column references in the columns that contain window
+     * functions with references to the hidden columns. Called after the
+     * aggregates have been replaced.
+     */
+    private void replaceWindowColumns() {
+
+        if (windowExpressions == null) {
+            return;
+        }
+
+        OrderedHashSet expressions       = new OrderedHashSet();
+        HsqlArrayList  columnExpressions = new HsqlArrayList();
+
+        for (int i = indexLimitExpressions; i < indexLimitWindowColumns;
+                i++) {
+            Expression e = exprColumns[i];
+
+            expressions.add(e);
+            columnExpressions.add(new ExpressionColumn(e, i,
+                    resultRangePosition));
+        }
+
+        for (int i = 0; i < indexStartAggregates; i++) {
+            if (windowCheck[i]) {
+                exprColumns[i] = exprColumns[i].replaceExpressions(expressions,
+                        columnExpressions);
+            }
+        }
+    }
+
+    /**
+     * Computes the window functions after all the rows of the result have
+     * been built, then the columns that contain them.
+     */
+    private void setWindowValues(Session session,
+                                 RowSetNavigatorData navigator) {
+
+        for (int i = 0; i < windowExpressions.length; i++) {
+            ((ExpressionWindow) windowExpressions[i]).setWindowValues(session,
+                    navigator);
+        }
+
+        session.sessionContext.setRangeIterator(navigator);
+
+        while (navigator.next()) {
+            Object[] data = navigator.getCurrent();
+
+            for (int i = 0; i < indexStartAggregates; i++) {
+                if (windowCheck[i]) {
+                    data[i] = exprColumns[i].getValue(session);
+                }
+            }
+        }
+
+        session.sessionContext.unsetRangeIterator(navigator);
+        navigator.reset();
+    }
+
     private void setRangeVariableConditions(Session session) {
 
         RangeVariableResolver rangeResolver =
@@ -1119,7 +1387,7 @@ public class QuerySpecification extends QueryExpression {
 
     private void setAggregateConditions(Session session) {
 
-        if (!isAggregated) {
+        if (!isAggregated || windowExpressions != null) {
             return;
         }
 
@@ -1483,6 +1751,28 @@ public class QuerySpecification extends QueryExpression {
         return r;
     }
 
+    /**
+     * Aggregates the rows with the BatchAggregator when the query qualifies
+     * for batch execution. Returns false if the rows must be processed one
+     * by one.
+     */
+    private boolean buildBatchResult(Session session,
+                                     RangeIterator[] rangeIterators,
+                                     RowSetNavigatorData navigator,
+                                     int skipCount, int limitCount) {
+
+        if (batchAggregator == null || skipCount != 0 || limitCount == 0
+                || !batchAggregator.isValid()) {
+            return false;
+        }
+
+        batchAggregator.aggregate(session,
+                                  (RangeIteratorMain) rangeIterators[0],
+                                  navigator);
+
+        return true;
+    }
+
     private Result buildResult(Session session, int[] limits) {
 
         RowSetNavigatorData navigator = new RowSetNavigatorData(session, this);
@@ -1541,7 +1831,10 @@ public class QuerySpecification extends QueryExpression {
 
         session.sessionContext.rownum = 1;
 
-        for (int currentIndex = 0; ; ) {
+        boolean isBatchResult = buildBatchResult(session, rangeIterators,
+            navigator, skipCount, limitCount);
+
+        for (int currentIndex = 0; !isBatchResult; ) {
             if (currentIndex < fullJoinIndex) {
 
                 // finished current span
@@ -1594,11 +1887,21 @@ public class QuerySpecification extends QueryExpression {
             for (int i = 0; i < indexStartAggregates; i++) {
                 if (isAggregated && aggregateCheck[i]) {
                     continue;
+                } else if (windowCheck != null && windowCheck[i]) {
+                    continue;
+                } else if (compiledColumns != null
+                           && compiledColumns[i] != null) {
+                    data[i] = compiledColumns[i].getValue(session);
                 } else {
                     data[i] = exprColumns[i].getValue(session);
                 }
             }
 
+            for (int i = indexLimitExpressions;
+                    i < indexLimitWindowColumns; i++) {
+                data[i] = exprColumns[i].getValue(session);
+            }
+
             for (int i = indexLimitVisible; i < indexLimitRowId; i++) {
                 if (i == indexLimitVisible) {
                     data[i] = Long.valueOf(it.getRowId());
@@ -1648,7 +1951,7 @@ public class QuerySpecification extends QueryExpression {
             int rowCount = navigator.getSize();
 
             if (rowCount == session.resultMaxMemoryRows && !isAggregated
-                    && !isSingleMemoryTable) {
+                    && !isSingleMemoryTable && windowExpressions == null) {
                 navigator = new RowSetNavigatorDataTable(session, this,
                         navigator);
 
@@ -1673,6 +1976,10 @@ public class QuerySpecification extends QueryExpression {
         }
 
         if (!resultGrouped && !isAggregated) {
+            if (windowExpressions != null) {
+                setWindowValues(session, navigator);
+            }
+
             return result;
         }
 
@@ -1681,11 +1988,17 @@ public class QuerySpecification extends QueryExpression {
                 Object[] data = new Object[exprColumns.length];
 
                 for (int i = 0; i < indexStartAggregates; i++) {
-                    if (!aggregateCheck[i]) {
+                    if (!aggregateCheck[i]
+                            && (windowCheck == null || !windowCheck[i])) {
                         data[i] = exprColumns[i].getValue(session);
                     }
                 }
 
+                for (int i = indexLimitExpressions;
+                        i < indexLimitWindowColumns; i++) {
+                    data[i] = exprColumns[i].getValue(session);
+                }
+
                 navigator.add(data);
             }
 
@@ -1702,7 +2015,8 @@ public class QuerySpecification extends QueryExpression {
                 }
 
                 for (int i = 0; i < indexStartAggregates; i++) {
-                    if (aggregateCheck[i]) {
+                    if (aggregateCheck[i]
+                            && (windowCheck == null || !windowCheck[i])) {
                         data[i] = exprColumns[i].getValue(session);
                     }
                 }
@@ -1726,6 +2040,10 @@ public class QuerySpecification extends QueryExpression {
             navigator.reset();
         }
 
+        if (windowExpressions != null) {
+            setWindowValues(session, navigator);
+        }
+
         return result;
     }
 
@@ -2135,7 +2453,7 @@ public class QuerySpecification extends QueryExpression {
             isMergeable = false;
         }
 
-        if (isAggregated) {
+        if (isAggregated || windowExpressions != null) {
             isMergeable = false;
         }
 
@@ -2157,7 +2475,8 @@ public class QuerySpecification extends QueryExpression {
 
         isUpdatable = false;
 
-        if (isGrouped || isDistinctSelect || isAggregated) {
+        if (isGrouped || isDistinctSelect || isAggregated
+                || windowExpressions != null) {
             return;
         }
 
@@ -2326,7 +2645,7 @@ public class QuerySpecification extends QueryExpression {
 
             rangeVariables[0].resetConditions();
 
-            for (int i = 0; i < indexLimitExpressions; i++) {
+            for (int i = 0; i < indexLimitWindowColumns; i++) {
                 Expression e = exprColumns[i];
 
                 exprColumns[i] = e.replaceColumnReferences(rangeVar,
@@ -2493,11 +2812,20 @@ public class QuerySpecification extends QueryExpression {
     public void replaceColumnReferences(RangeVariable range,
                                         Expression[] list) {
 
+        compiledColumns = null;
+        batchAggregator = null;
+
         for (int i = 0; i < indexStartAggregates; i++) {
             exprColumns[i] = exprColumns[i].replaceColumnReferences(range,
                     list);
         }
 
+        for (int i = indexLimitExpressions; i < indexLimitWindowColumns;
+                i++) {
+            exprColumns[i] = exprColumns[i].replaceColumnReferences(range,
+                    list);
+        }
+
         if (queryCondition != null) {
             queryCondition = queryCondition.replaceColumnReferences(range,
                     list);
@@ -2520,6 +2848,11 @@ public class QuerySpecification extends QueryExpression {
             exprColumns[i].replaceRangeVariables(ranges, newRanges);
         }
 
+        for (int i = indexLimitExpressions; i < indexLimitWindowColumns;
+                i++) {
+            exprColumns[i].replaceRangeVariables(ranges, newRanges);
+        }
+
         if (queryCondition != null) {
             queryCondition.replaceRangeVariables(ranges, newRanges);
         }
@@ -2536,11 +2869,20 @@ public class QuerySpecification extends QueryExpression {
     public void replaceExpressions(OrderedHashSet expressions,
                                    HsqlList replacements) {
 
+        compiledColumns = null;
+        batchAggregator = null;
+
         for (int i = 0; i < indexStartAggregates; i++) {
             exprColumns[i] = exprColumns[i].replaceExpressions(expressions,
                     replacements);
         }
 
+        for (int i = indexLimitExpressions; i < indexLimitWindowColumns;
+                i++) {
+            exprColumns[i] = exprColumns[i].replaceExpressions(expressions,
+                    replacements);
+        }
+
         if (queryCondition != null) {
             queryCondition = queryCondition.replaceExpressions(expressions,
                     replacements);
@@ -54,7 +54,7 @@ import org.hsqldb.types.Type;
  * Metadata for range variables, including conditions.
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.4
+ * @version 2.3.5
  * @since 1.9.0
  */
 public class RangeVariable {
@@ -852,6 +852,20 @@ public class RangeVariable {
         }
     }
 
+    /**
+     * Compiles the non-index conditions for faster evaluation.
+     */
+    void compileConditions() {
+
+        for (int i = 0; i < joinConditions.length; i++) {
+            joinConditions[i].compileConditions();
+        }
+
+        for (int i = 0; i < whereConditions.length; i++) {
+            whereConditions[i].compileConditions();
+        }
+    }
+
     void moveConditionsToInner(Session session, RangeVariable[] ranges) {
 
         Expression[]  colExpr;
@@ -1017,6 +1031,27 @@ public class RangeVariable {
         sb.append(b).append("cardinality=");
         sb.append(rangeTable.getRowStore(session).elementCount()).append("\n");
 
+        RangeStatistics stats = session.sessionContext.getRangeStatistics(this);
+
+        if (stats != null) {
+            sb.append(b).append("actual=[probes=").append(stats.probes);
+            sb.append(", rows read=").append(stats.rowsRead);
+            sb.append(", rows returned=").append(stats.rowsReturned);
+            sb.append(", time=").append(stats.time / 1000000).append('.');
+
+            long fraction = (stats.time / 1000) % 1000;
+
+            if (fraction < 100) {
+                sb.append('0');
+            }
+
+            if (fraction < 10) {
+                sb.append('0');
+            }
+
+            sb.append(fraction).append(" ms]\n");
+        }
+
         boolean fullScan = !conditions[0].hasIndexCondition();
 
         sb.append(b);
@@ -1196,12 +1231,18 @@ public class RangeVariable {
         RangeVariableConditions[] joinConditions;
         int                       condIndex = 0;
 
+        // non-index conditions are applied by BatchAggregator
+        boolean isBatchFiltered;
+
         //
         OrderedLongHashSet lookup;
 
         //
         Object[] currentJoinData = null;
 
+        // only set when the statement is run by EXPLAIN ANALYZE
+        RangeStatistics stats;
+
         RangeIteratorMain() {
             super();
         }
@@ -1225,6 +1266,8 @@ public class RangeVariable {
             if (rangeVar.whereConditions[0].hasIndexCondition()) {
                 conditions = rangeVar.whereConditions;
             }
+
+            stats = session.sessionContext.getRangeStatistics(rangeVar);
         }
 
         public boolean isBeforeFirst() {
@@ -1233,6 +1276,24 @@ public class RangeVariable {
 
         public boolean next() {
 
+            if (stats == null) {
+                return nextRow();
+            }
+
+            long    start  = System.nanoTime();
+            boolean result = nextRow();
+
+            stats.time += System.nanoTime() - start;
+
+            if (result) {
+                stats.rowsReturned++;
+            }
+
+            return result;
+        }
+
+        private boolean nextRow() {
+
             if (session.abortTransaction) {
                 throw Error.error(ErrorCode.X_40000);
             }
@@ -1284,6 +1345,10 @@ public class RangeVariable {
          */
         protected void initialiseIterator() {
 
+            if (stats != null) {
+                stats.probes++;
+            }
+
             if (condIndex == 0) {
                 hasLeftOuterRow = rangeVar.isLeftJoin;
             }
@@ -1442,6 +1507,10 @@ public class RangeVariable {
                     break;
                 }
 
+                if (stats != null) {
+                    stats.rowsRead++;
+                }
+
                 if (conditions[condIndex].terminalCondition != null) {
                     if (!conditions[condIndex].terminalCondition.testCondition(
                             session)) {
@@ -1460,16 +1529,18 @@ public class RangeVariable {
                     }
                 }
 
-                if (joinConditions[condIndex].nonIndexCondition != null) {
-                    if (!joinConditions[condIndex].nonIndexCondition
-                            .testCondition(session)) {
+                if (joinConditions[condIndex].nonIndexCondition != null
+                        && !isBatchFiltered) {
+                    if (!joinConditions[condIndex].testNonIndexCondition(
+                            session)) {
                         continue;
                     }
                 }
 
-                if (whereConditions[condIndex].nonIndexCondition != null) {
-                    if (!whereConditions[condIndex].nonIndexCondition
-                            .testCondition(session)) {
+                if (whereConditions[condIndex].nonIndexCondition != null
+                        && !isBatchFiltered) {
+                    if (!whereConditions[condIndex].testNonIndexCondition(
+                            session)) {
                         hasLeftOuterRow = false;
 
                         addFoundRow();
@@ -1498,8 +1569,8 @@ public class RangeVariable {
             if (hasLeftOuterRow && condIndex == conditions.length - 1) {
                 result =
                     (whereConditions[condIndex].nonIndexCondition == null
-                     || whereConditions[condIndex].nonIndexCondition
-                         .testCondition(session));
+                     || whereConditions[condIndex].testNonIndexCondition(
+                         session));
                 hasLeftOuterRow = false;
             }
 
@@ -1516,6 +1587,20 @@ public class RangeVariable {
         }
     }
 
+    /**
+     * Counts and elapsed time collected for a range variable while its
+     * statement is executed by EXPLAIN ANALYZE. The time is the time spent
+     * in the iterators of the range variable, excluding the inner ranges of
+     * a join.
+     */
+    public static class RangeStatistics {
+
+        long probes;
+        long rowsRead;
+        long rowsReturned;
+        long time;
+    }
+
     public static class RangeIteratorRight extends RangeIteratorMain {
 
         private RangeIteratorRight(Session session, RangeVariable rangeVar,
@@ -1570,8 +1655,8 @@ public class RangeVariable {
                 }
 
                 if (conditions[condIndex].nonIndexCondition != null
-                        && !conditions[condIndex].nonIndexCondition
-                            .testCondition(session)) {
+                        && !conditions[condIndex].testNonIndexCondition(
+                            session)) {
                     continue;
                 }
 
@@ -1600,8 +1685,8 @@ public class RangeVariable {
 
             if (result) {
                 if (conditions[condIndex].nonIndexCondition != null
-                        && !conditions[condIndex].nonIndexCondition
-                            .testCondition(session)) {
+                        && !conditions[condIndex].testNonIndexCondition(
+                            session)) {
                     result = false;
                 }
             }
@@ -1799,6 +1884,7 @@ public class RangeVariable {
         Expression          excludeConditions;
         Expression          nonIndexCondition;
         Expression          terminalCondition;
+        ExpressionCompiler.Condition compiledCondition;
         int                 opType;
         int                 opTypeEnd;
         boolean             isFalse;
@@ -1821,6 +1907,24 @@ public class RangeVariable {
             return indexedColumnCount > 0;
         }
 
+        /**
+         * Tests the non-index condition, using the compiled form when it
+         * exists.
+         */
+        boolean testNonIndexCondition(Session session) {
+
+            if (compiledCondition != null) {
+                return compiledCondition.testCondition(session);
+            }
+
+            return nonIndexCondition.testCondition(session);
+        }
+
+        void compileConditions() {
+            compiledCondition =
+                ExpressionCompiler.compileCondition(nonIndexCondition);
+        }
+
         boolean hasIndex() {
             return hasIndex;
         }
@@ -1839,6 +1943,7 @@ public class RangeVariable {
 
             nonIndexCondition =
                 ExpressionLogical.andExpressions(nonIndexCondition, e);
+            compiledCondition = null;
 
             if (Expression.EXPR_FALSE.equals(nonIndexCondition)) {
                 isFalse = true;
@@ -2179,6 +2284,7 @@ public class RangeVariable {
             if (nonIndexCondition != null) {
                 nonIndexCondition =
                     nonIndexCondition.replaceColumnReferences(range, list);
+                compiledCondition = null;
             }
 
             if (terminalCondition != null) {
@@ -2226,6 +2332,7 @@ public class RangeVariable {
                 nonIndexCondition =
                     nonIndexCondition.replaceExpressions(expressions,
                         replacements);
+                compiledCondition = null;
             }
 
             if (terminalCondition != null) {
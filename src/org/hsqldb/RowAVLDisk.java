@@ -77,6 +77,7 @@ import org.hsqldb.error.ErrorCode;
 import org.hsqldb.index.NodeAVL;
 import org.hsqldb.index.NodeAVLDisk;
 import org.hsqldb.lib.LongLookup;
+import org.hsqldb.persist.DataFileCache;
 import org.hsqldb.persist.PersistentStore;
 import org.hsqldb.rowio.RowInputInterface;
 import org.hsqldb.rowio.RowOutputInterface;
@@ -95,7 +96,7 @@ import org.hsqldb.rowio.RowOutputInterface;
  *
  * @author Fred Toussi (fredt@users dot sourceforge dot net)
  * @author Thomas Mueller (Hypersonic SQL Group)
- * @version 2.3.4
+ * @version 2.3.5
  * @since Hypersonic SQL
  */
 public class RowAVLDisk extends RowAVL {
@@ -180,9 +181,29 @@ public class RowAVLDisk extends RowAVL {
      * Sets flag for Node data change.
      */
     public synchronized void setNodesChanged() {
+
+        if (!hasNodesChanged && !hasDataChanged) {
+            setRowChanged();
+        }
+
         hasNodesChanged = true;
     }
 
+    /**
+     * Adds a row in the cache of a CACHED table that has changed since it
+     * was read or saved to the count of changed rows kept by the cache.
+     */
+    private void setRowChanged() {
+
+        if (isInMemory && table.store != null) {
+            DataFileCache cache = table.store.getCache();
+
+            if (cache != null) {
+                cache.setRowChanged();
+            }
+        }
+    }
+
     public void updateAccessCount(int count) {
         accessCount = count;
     }
@@ -223,6 +244,10 @@ public class RowAVLDisk extends RowAVL {
 
     public synchronized void setChanged(boolean flag) {
 
+        if (flag && !hasNodesChanged && !hasDataChanged) {
+            setRowChanged();
+        }
+
         hasNodesChanged = flag;
         hasDataChanged  = flag;
         isNew           = flag;
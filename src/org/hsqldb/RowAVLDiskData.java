@@ -48,7 +48,7 @@ import org.hsqldb.persist.RowStoreAVLDiskData;
  *
  * @author Bob Preston (sqlbob@users dot sourceforge.net)
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.4
+ * @version 2.3.5
  * @version 1.7.0
  */
 public class RowAVLDiskData extends RowAVL {
@@ -89,6 +89,24 @@ public class RowAVLDiskData extends RowAVL {
         this.store     = store;
     }
 
+    /**
+     *  Constructor for rows loaded from a text source that has already been
+     *  split and parsed. The data is null for rows that are parsed on
+     *  demand.
+     */
+    public RowAVLDiskData(RowStoreAVLDiskData store, TableBase t, long pos,
+                          int size, Object[] data) {
+
+        super(t, data);
+
+        setNewNodes(store);
+
+        position       = pos;
+        storageSize    = size;
+        hasDataChanged = false;
+        this.store     = store;
+    }
+
     public void setData(Object[] data) {
         this.rowData = data;
     }
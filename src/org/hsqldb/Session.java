@@ -144,6 +144,7 @@ public class Session implements SessionInterface {
     boolean               isProcessingLog;
     public SessionContext sessionContext;
     int                   resultMaxMemoryRows;
+    int                   parallelDegree = 1;
 
     //
     public SessionData sessionData;
@@ -559,6 +560,7 @@ public class Session implements SessionInterface {
 
 //            tempActionHistory.add("commit aborts " + actionTimestamp);
             rollbackNoCheck(false);
+            database.metrics.add(DatabaseMetrics.TX_CONFLICTS);
 
             throw Error.error(ErrorCode.X_40001);
         }
@@ -585,9 +587,12 @@ public class Session implements SessionInterface {
 
                 // tempActionHistory.add("commit aborts " + actionTimestamp);
                 rollbackNoCheck(chain);
+                database.metrics.add(DatabaseMetrics.TX_CONFLICTS);
 
                 throw Error.error(ErrorCode.X_40001);
             }
+
+            database.metrics.add(DatabaseMetrics.TX_COMMITS);
         }
 
         endTransaction(true, chain);
@@ -621,6 +626,7 @@ public class Session implements SessionInterface {
 
         if (isTransaction) {
             database.txManager.rollback(this);
+            database.metrics.add(DatabaseMetrics.TX_ROLLBACKS);
         }
 
         endTransaction(false, chain);
@@ -687,6 +693,7 @@ public class Session implements SessionInterface {
         setZoneSeconds(sessionTimeZoneSeconds);
 
         sessionMaxRows = 0;
+        parallelDegree = 1;
         ignoreCase     = database.sqlIgnoreCase;
 
         setIsolation(isolationLevelDefault);
@@ -919,6 +926,35 @@ public class Session implements SessionInterface {
         return connectTime;
     }
 
+    // requests received by a Server connection
+    private long serverRequestCount;
+    private long serverRequestTime;
+
+    /**
+     * Records a request received by a Server connection for this session,
+     * with its elapsed time in nanoseconds.
+     */
+    public void addServerRequest(long nanos) {
+
+        serverRequestCount++;
+
+        serverRequestTime += nanos;
+
+        database.metrics.add(DatabaseMetrics.SERVER_REQUESTS);
+        database.metrics.addTime(DatabaseMetrics.SERVER_REQUEST_TIME, nanos);
+    }
+
+    public long getServerRequestCount() {
+        return serverRequestCount;
+    }
+
+    /**
+     * Total time of Server requests in microseconds.
+     */
+    public long getServerRequestTime() {
+        return serverRequestTime / 1000;
+    }
+
     /**
      * Count of actions in current transaction.
      *
@@ -1283,6 +1319,24 @@ public class Session implements SessionInterface {
     public Result executeCompiledStatement(Statement cs, Object[] pvals,
                                            int timeout) {
 
+        if (sessionContext.depth > 0
+                || !database.logger.isStatementStats()) {
+            return executeStatement(cs, pvals, timeout);
+        }
+
+        // the database is no longer referenced after SHUTDOWN
+        StatementStatistics stats = database.statementStats;
+        long                start = System.nanoTime();
+        Result              r     = executeStatement(cs, pvals, timeout);
+
+        stats.record(cs, r, System.nanoTime() - start);
+
+        return r;
+    }
+
+    private Result executeStatement(Statement cs, Object[] pvals,
+                                    int timeout) {
+
         Result r;
 
         if (abortTransaction) {
@@ -1357,18 +1411,7 @@ public class Session implements SessionInterface {
             }
 
             timeoutManager.startTimeout(timeout);
-
-            while (true) {
-                try {
-                    latch.await();
-                } catch (InterruptedException e) {
-                    Thread.interrupted();
-
-                    continue;
-                }
-
-                break;
-            }
+            awaitLatch();
 
             if (abortAction) {
                 r = Result.newErrorResult(Error.error(ErrorCode.X_40502));
@@ -1406,17 +1449,7 @@ public class Session implements SessionInterface {
             if (redoAction) {
                 redoAction = false;
 
-                while (true) {
-                    try {
-                        latch.await();
-                    } catch (InterruptedException e) {
-                        Thread.interrupted();
-
-                        continue;
-                    }
-
-                    break;
-                }
+                awaitLatch();
             } else {
                 break repeatLoop;
             }
@@ -1448,9 +1481,37 @@ public class Session implements SessionInterface {
         return r;
     }
 
+    /**
+     * Waits until the transaction manager releases the latch. The time spent
+     * waiting for locks held by other sessions is recorded in the metrics.
+     */
+    private void awaitLatch() {
+
+        long startTime = latch.getCount() > 0 ? System.nanoTime()
+                                              : 0;
+
+        while (true) {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.interrupted();
+
+                continue;
+            }
+
+            break;
+        }
+
+        if (startTime != 0) {
+            database.metrics.addTime(DatabaseMetrics.LOCK_WAIT_TIME,
+                                     System.nanoTime() - startTime);
+        }
+    }
+
     private Result handleAbortTransaction() {
 
         rollbackNoCheck(false);
+        database.metrics.add(DatabaseMetrics.TX_CONFLICTS);
 
         sessionContext.currentStatement = null;
 
@@ -1483,6 +1544,12 @@ public class Session implements SessionInterface {
 
         RowSetNavigator nav = cmd.initialiseNavigator();
 
+        if (nav.getSize() > 1 && sessionContext.depth == 0
+                && cs instanceof StatementInsert
+                && ((StatementInsert) cs).isBatchInsert()) {
+            return executeCompiledBatchInsert(cs, nav, cmd.queryTimeout);
+        }
+
         updateCounts = new int[nav.getSize()];
 
         Result generatedResult = null;
@@ -1538,6 +1605,106 @@ public class Session implements SessionInterface {
                 error);
     }
 
+    /**
+     * Executes all the parameter sets of a batch for a simple INSERT
+     * statement as a single action.<p>
+     *
+     * If the action fails, it has been rolled back and the batch is executed
+     * again one parameter set at a time, using the rows already built with
+     * their identity and sequence values, to report the update counts up to
+     * the failing row. If the transaction is rolled back (40001) outside
+     * autocommit mode, the earlier work of the transaction is lost as it is
+     * when a single row fails, and the update counts up to the failing row
+     * are returned without executing the batch again.
+     */
+    private Result executeCompiledBatchInsert(Statement cs,
+            RowSetNavigator nav, int timeout) {
+
+        int        size          = nav.getSize();
+        Object[][] parameterSets = new Object[size][];
+
+        for (int i = 0; nav.next(); i++) {
+            parameterSets[i] = nav.getCurrent();
+        }
+
+        nav.beforeFirst();
+
+        Result in;
+
+        sessionContext.batchArguments = parameterSets;
+        sessionContext.batchRows      = null;
+        sessionContext.batchRowIndex  = 0;
+
+        try {
+            in = executeCompiledStatement(cs, ValuePool.emptyObjectArray,
+                                          timeout);
+        } finally {
+            sessionContext.batchArguments = null;
+        }
+
+        Object[][] rows       = sessionContext.batchRows;
+        int        errorIndex = sessionContext.batchRowIndex;
+
+        sessionContext.batchRows = null;
+
+        if (in.mode != ResultConstants.ERROR) {
+            int[] updateCounts = new int[size];
+
+            ArrayUtil.fillArray(updateCounts, 1);
+
+            return Result.newBatchedExecuteResponse(updateCounts, null, null);
+        }
+
+        if (in.getErrorCode() == -ErrorCode.X_40001
+                && !sessionContext.isAutoCommit.booleanValue()) {
+            int[] updateCounts = new int[rows == null ? 0 : errorIndex];
+
+            ArrayUtil.fillArray(updateCounts, 1);
+
+            return Result.newBatchedExecuteResponse(updateCounts, null, in);
+        }
+
+        return executeBatchInsertRows(cs, parameterSets, rows, timeout);
+    }
+
+    /**
+     * Executes the parameter sets of a failed batch one at a time. The rows
+     * that were built for the batch are inserted instead of new rows.
+     */
+    private Result executeBatchInsertRows(Statement cs,
+                                          Object[][] parameterSets,
+                                          Object[][] rows, int timeout) {
+
+        int[]  updateCounts = new int[parameterSets.length];
+        int    count        = 0;
+        Result error        = null;
+
+        sessionContext.batchRows = rows;
+
+        try {
+            for (; count < parameterSets.length; count++) {
+                sessionContext.batchRowIndex = count;
+
+                Result in = executeCompiledStatement(cs, parameterSets[count],
+                                                     timeout);
+
+                if (in.mode == ResultConstants.ERROR) {
+                    updateCounts = ArrayUtil.arraySlice(updateCounts, 0,
+                                                        count);
+                    error = in;
+
+                    break;
+                }
+
+                updateCounts[count] = in.getUpdateCount();
+            }
+        } finally {
+            sessionContext.batchRows = null;
+        }
+
+        return Result.newBatchedExecuteResponse(updateCounts, null, error);
+    }
+
     private Result executeDirectBatchStatement(Result cmd) {
 
         int[] updateCounts;
@@ -1928,6 +2095,25 @@ public class Session implements SessionInterface {
         sessionData.allocateLobForResult(result, inputStream);
     }
 
+    /**
+     * Used by Server connections for LOB operations. A large request for the
+     * bytes of a LOB returns a response that reads the bytes from the LOB
+     * store while it is written to the connection.
+     */
+    public synchronized Result executeLOBOperation(ResultLob cmd) {
+
+        if (isClosed) {
+            return Result.newErrorResult(Error.error(ErrorCode.X_08503));
+        }
+
+        if (cmd.getSubType() == ResultLob.LobResultTypes.REQUEST_GET_BYTES) {
+            return database.lobManager.getBytesStream(cmd.getLobID(),
+                    cmd.getOffset(), (int) cmd.getBlockLength());
+        }
+
+        return execute(cmd);
+    }
+
     Result performLOBOperation(ResultLob cmd) {
 
         long id        = cmd.getLobID();
@@ -2059,6 +2245,23 @@ public class Session implements SessionInterface {
         }
     }
 
+    public int getParallelDegree() {
+        return parallelDegree;
+    }
+
+    /**
+     * Sets the maximum number of worker threads used by a query. With the
+     * default 1, queries are executed on the session thread only.
+     */
+    public void setParallelDegree(int degree) {
+
+        if (degree < 1) {
+            degree = 1;
+        }
+
+        parallelDegree = degree;
+    }
+
     // warnings
     HsqlDeque sqlWarnings;
 
@@ -2229,7 +2432,9 @@ public class Session implements SessionInterface {
         for (int i = 0, size = map.size(); i < size; i++) {
             NumberSequence sequence = (NumberSequence) it.next();
 
-            database.logger.writeSequenceStatement(this, sequence);
+            if (sessionData.isSequenceLogRequired(sequence)) {
+                database.logger.writeSequenceStatement(this, sequence);
+            }
         }
 
         sessionData.sequenceUpdateMap.clear();
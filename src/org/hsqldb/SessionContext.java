@@ -33,9 +33,11 @@ package org.hsqldb;
 
 import org.hsqldb.RangeGroup.RangeGroupSimple;
 import org.hsqldb.RangeVariable.RangeIteratorBase;
+import org.hsqldb.RangeVariable.RangeStatistics;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
 import org.hsqldb.lib.ArrayUtil;
+import org.hsqldb.lib.HashMap;
 import org.hsqldb.lib.HashMappedList;
 import org.hsqldb.lib.HashSet;
 import org.hsqldb.lib.HsqlArrayList;
@@ -75,6 +77,9 @@ public class SessionContext {
     Object[]              routineVariables     = ValuePool.emptyObjectArray;
     Result[]              routineCursors       = Result.emptyArray;
     Object[]              dynamicArguments     = ValuePool.emptyObjectArray;
+    Object[][]            batchArguments       = null;
+    Object[][]            batchRows            = null;
+    int                   batchRowIndex;
     Object[][]            triggerArguments     = null;
     public int            depth;
     Boolean               isInRoutine;
@@ -87,6 +92,9 @@ public class SessionContext {
     // range variable data
     RangeIterator[] rangeIterators;
 
+    // RangeVariable -> RangeStatistics, set only during EXPLAIN ANALYZE
+    HashMap rangeStatistics;
+
     // session tables
     HashMappedList sessionTables;
     HashMappedList popSessionTables;
@@ -298,6 +306,27 @@ public class SessionContext {
         rangeIterators[position] = iterator;
     }
 
+    /**
+     * Returns the statistics object for the range variable when EXPLAIN
+     * ANALYZE is in progress, otherwise null.
+     */
+    RangeStatistics getRangeStatistics(RangeVariable range) {
+
+        if (rangeStatistics == null) {
+            return null;
+        }
+
+        RangeStatistics stats = (RangeStatistics) rangeStatistics.get(range);
+
+        if (stats == null) {
+            stats = new RangeStatistics();
+
+            rangeStatistics.put(range, stats);
+        }
+
+        return stats;
+    }
+
     public RangeIterator getRangeIterator(int position) {
 
         RangeIterator[] ranges = rangeIterators;
@@ -84,6 +84,7 @@ public class SessionData {
     // SEQUENCE
     HashMap sequenceMap;
     HashMap sequenceUpdateMap;
+    HashMap sequenceCacheMap;
 
     public SessionData(Database database, Session session) {
 
@@ -687,7 +688,11 @@ public class SessionData {
         Object   value = sequenceMap.get(key);
 
         if (value == null) {
-            value = sequence.getValueObject();
+            if (sequence.getCacheSize() > 1) {
+                value = getCachedSequenceValue(sequence);
+            } else {
+                value = sequence.getValueObject();
+            }
 
             sequenceMap.put(key, value);
             sequenceUpdateMap.put(sequence, value);
@@ -700,4 +705,75 @@ public class SessionData {
         return sequenceUpdateMap == null ? null
                                          : sequenceUpdateMap.get(sequence);
     }
+
+    /**
+     * Returns the next value from the block reserved by this session. A new
+     * block is reserved when the block is used up or the sequence has been
+     * altered. Also used for identity columns, which take a new value for
+     * each row rather than one value per statement.
+     */
+    Object getCachedSequenceValue(NumberSequence sequence) {
+
+        if (sequenceCacheMap == null) {
+            sequenceCacheMap = new HashMap();
+        }
+
+        SequenceCache cache = (SequenceCache) sequenceCacheMap.get(sequence);
+
+        if (cache == null) {
+            cache = new SequenceCache();
+
+            sequenceCacheMap.put(sequence, cache);
+        }
+
+        int  size    = sequence.getCacheSize();
+        long version = sequence.getCacheVersion();
+
+        if (cache.position == cache.count || cache.version != version
+                || cache.values.length != size) {
+            if (cache.values.length != size) {
+                cache.values = new long[size];
+            }
+
+            cache.version       = version;
+            cache.count         = sequence.getValues(cache.values);
+            cache.position      = 0;
+            cache.isLogRequired = true;
+        }
+
+        return sequence.getValueObject(cache.values[cache.position++]);
+    }
+
+    /**
+     * Returns true if the current value of the sequence must be logged. With
+     * CACHE, it is logged only after this session has reserved a new block.
+     */
+    boolean isSequenceLogRequired(NumberSequence sequence) {
+
+        if (sequenceCacheMap == null) {
+            return true;
+        }
+
+        SequenceCache cache = (SequenceCache) sequenceCacheMap.get(sequence);
+
+        if (cache == null) {
+            return true;
+        }
+
+        boolean result = cache.isLogRequired
+                         || sequence.getCacheSize() <= 1;
+
+        cache.isLogRequired = false;
+
+        return result;
+    }
+
+    private static class SequenceCache {
+
+        long[]  values = new long[0];
+        int     position;
+        int     count;
+        long    version;
+        boolean isLogRequired;
+    }
 }
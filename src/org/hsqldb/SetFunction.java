@@ -289,6 +289,261 @@ public class SetFunction {
         }
     }
 
+    /**
+     * Batch form of add(), used by BatchAggregator. Adds the values of a
+     * column at the selected positions of a batch of rows. For INTEGER,
+     * BIGINT and DOUBLE columns the decoded values are passed in longValues
+     * or doubleValues and are used for sums and comparisons. The column is
+     * -1 for COUNT(*).
+     */
+    void addBatch(Session session, Object[][] rows, int column,
+                  long[] longValues, double[] doubleValues, int[] selection,
+                  int size) {
+
+        if (column < 0) {
+            count += size;
+
+            return;
+        }
+
+        if (!isDistinct) {
+            switch (setType) {
+
+                case OpTypes.COUNT : {
+                    long added = 0;
+
+                    for (int i = 0; i < size; i++) {
+                        if (rows[selection[i]][column] == null) {
+                            hasNull = true;
+                        } else {
+                            added++;
+                        }
+                    }
+
+                    count += added;
+
+                    return;
+                }
+                case OpTypes.AVG :
+                case OpTypes.SUM : {
+                    switch (typeCode) {
+
+                        case Types.TINYINT :
+                        case Types.SQL_SMALLINT :
+                        case Types.SQL_INTEGER : {
+                            if (longValues == null) {
+                                break;
+                            }
+
+                            long sum   = 0;
+                            long added = 0;
+
+                            for (int i = 0; i < size; i++) {
+                                int position = selection[i];
+
+                                if (rows[position][column] == null) {
+                                    hasNull = true;
+                                } else {
+                                    sum += longValues[position];
+
+                                    added++;
+                                }
+                            }
+
+                            currentLong += sum;
+                            count       += added;
+
+                            return;
+                        }
+                        case Types.SQL_BIGINT : {
+                            if (longValues == null) {
+                                break;
+                            }
+
+                            for (int i = 0; i < size; i++) {
+                                int position = selection[i];
+
+                                if (rows[position][column] == null) {
+                                    hasNull = true;
+                                } else {
+                                    addLong(longValues[position]);
+
+                                    count++;
+                                }
+                            }
+
+                            return;
+                        }
+                        case Types.SQL_REAL :
+                        case Types.SQL_FLOAT :
+                        case Types.SQL_DOUBLE : {
+                            if (doubleValues == null) {
+                                break;
+                            }
+
+                            // added in row order to keep the rounding of add()
+                            double sum   = currentDouble;
+                            long   added = 0;
+
+                            for (int i = 0; i < size; i++) {
+                                int position = selection[i];
+
+                                if (rows[position][column] == null) {
+                                    hasNull = true;
+                                } else {
+                                    sum += doubleValues[position];
+
+                                    added++;
+                                }
+                            }
+
+                            currentDouble = sum;
+                            count         += added;
+
+                            return;
+                        }
+                    }
+
+                    break;
+                }
+                case OpTypes.MIN :
+                case OpTypes.MAX : {
+                    boolean isMin   = setType == OpTypes.MIN;
+                    int     extreme = -1;
+                    long    added   = 0;
+
+                    for (int i = 0; i < size; i++) {
+                        int    position = selection[i];
+                        Object item     = rows[position][column];
+
+                        if (item == null) {
+                            hasNull = true;
+
+                            continue;
+                        }
+
+                        added++;
+
+                        if (extreme < 0) {
+                            extreme = position;
+
+                            continue;
+                        }
+
+                        int result;
+
+                        if (longValues != null) {
+                            long a = longValues[extreme];
+                            long b = longValues[position];
+
+                            result = a > b ? 1
+                                           : b > a ? -1
+                                                   : 0;
+                        } else if (doubleValues != null) {
+                            result = ExpressionCompiler.compareDouble(
+                                doubleValues[extreme], doubleValues[position]);
+                        } else {
+                            result = type.compare(session,
+                                                  rows[extreme][column], item);
+                        }
+
+                        if (isMin ? result > 0
+                                  : result < 0) {
+                            extreme = position;
+                        }
+                    }
+
+                    if (extreme < 0) {
+                        return;
+                    }
+
+                    count += added;
+
+                    Object item = rows[extreme][column];
+
+                    if (currentValue == null) {
+                        currentValue = item;
+                    } else {
+                        int result = type.compare(session, currentValue, item);
+
+                        if (isMin ? result > 0
+                                  : result < 0) {
+                            currentValue = item;
+                        }
+                    }
+
+                    return;
+                }
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            add(session, rows[selection[i]][column]);
+        }
+    }
+
+    /**
+     * Adds the partial result of another SetFunction for the same COUNT,
+     * SUM, AVG, MIN or MAX aggregate, computed over a different set of rows.
+     */
+    void merge(Session session, SetFunction other) {
+
+        if (isDistinct || other.setType != setType) {
+            throw Error.runtimeError(ErrorCode.U_S0500, "SetFunction");
+        }
+
+        hasNull |= other.hasNull;
+
+        if (other.count == 0) {
+            return;
+        }
+
+        count += other.count;
+
+        switch (setType) {
+
+            case OpTypes.COUNT :
+                return;
+
+            case OpTypes.AVG :
+            case OpTypes.SUM :
+                currentLong   += other.currentLong;
+                currentDouble += other.currentDouble;
+                hi            += other.hi;
+                lo            += other.lo;
+
+                if (other.currentBigDecimal != null) {
+                    currentBigDecimal = currentBigDecimal == null
+                                        ? other.currentBigDecimal
+                                        : currentBigDecimal.add(
+                                            other.currentBigDecimal);
+                }
+
+                return;
+
+            case OpTypes.MIN :
+            case OpTypes.MAX : {
+                if (currentValue == null) {
+                    currentValue = other.currentValue;
+
+                    return;
+                }
+
+                int result = type.compare(session, currentValue,
+                                          other.currentValue);
+
+                if (setType == OpTypes.MIN ? result > 0
+                                           : result < 0) {
+                    currentValue = other.currentValue;
+                }
+
+                return;
+            }
+            default :
+                throw Error.runtimeError(ErrorCode.U_S0500, "SetFunction");
+        }
+    }
+
     Object getValue(Session session) {
 
         if (hasNull) {
@@ -441,7 +441,8 @@ public final class SortAndSlice {
         if (qe instanceof QuerySpecification) {
             QuerySpecification select = (QuerySpecification) qe;
 
-            if (!select.isDistinctSelect && !select.isGrouped) {
+            if (!select.isDistinctSelect && !select.isGrouped
+                    && select.windowExpressions == null) {
                 simpleLimit = true;
             }
 
@@ -35,10 +35,12 @@ import org.hsqldb.HsqlNameManager.HsqlName;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
 import org.hsqldb.index.Index;
+import org.hsqldb.lib.HashMap;
 import org.hsqldb.lib.HashMappedList;
 import org.hsqldb.lib.Iterator;
 import org.hsqldb.lib.OrderedHashSet;
 import org.hsqldb.lib.java.JavaSystem;
+import org.hsqldb.map.ValuePool;
 import org.hsqldb.persist.DataFileCache;
 import org.hsqldb.persist.DataSpaceManager;
 import org.hsqldb.persist.HsqlDatabaseProperties;
@@ -95,7 +97,12 @@ public class StatementCommand extends Statement {
                 break;
 
             case StatementTypes.DATABASE_CHECKPOINT :
-                group    = StatementTypes.X_HSQLDB_DATABASE_OPERATION;
+                group = StatementTypes.X_HSQLDB_DATABASE_OPERATION;
+
+                if (writeNames.length == 0) {
+                    group = StatementTypes.X_HSQLDB_NONBLOCK_OPERATION;
+                }
+
                 isLogged = false;
                 break;
 
@@ -255,6 +262,70 @@ public class StatementCommand extends Statement {
         return result;
     }
 
+    /**
+     * Executes the statement with statistics collection for its range
+     * variables, then returns the plan with the actual counts. The cache
+     * counters are database wide and include the work of other sessions.
+     */
+    private Result getExplainAnalyzeResult(Session session,
+                                           Statement statement) {
+
+        DatabaseMetrics metrics    = session.database.metrics;
+        long            hits       =
+            metrics.getCounter(DatabaseMetrics.CACHE_HITS);
+        long            misses     =
+            metrics.getCounter(DatabaseMetrics.CACHE_MISSES);
+        long            bytesRead  =
+            metrics.getCounter(DatabaseMetrics.CACHE_BYTES_READ);
+        long            resultRows = 0;
+        long            time;
+        String          plan;
+
+        session.sessionContext.rangeStatistics = new HashMap();
+
+        try {
+            time = System.nanoTime();
+
+            Result r = session.executeCompiledStatement(statement,
+                ValuePool.emptyObjectArray, 0);
+
+            time = System.nanoTime() - time;
+
+            if (r.isError()) {
+                return r;
+            }
+
+            if (r.isData()) {
+                resultRows = r.getNavigator().getSize();
+            } else if (r.isUpdateCount()) {
+                resultRows = r.getUpdateCount();
+            }
+
+            plan = statement.describe(session);
+        } finally {
+            session.sessionContext.rangeStatistics = null;
+        }
+
+        StringBuffer sb = new StringBuffer(plan);
+
+        sb.append("\nactual=[\n");
+        sb.append("execution time=").append(time / 1000).append(
+            " microseconds\n");
+        sb.append("result rows=").append(resultRows).append('\n');
+        sb.append("cache hits=").append(
+            metrics.getCounter(DatabaseMetrics.CACHE_HITS) - hits).append(
+            '\n');
+        sb.append("cache misses=").append(
+            metrics.getCounter(DatabaseMetrics.CACHE_MISSES) - misses).append(
+            '\n');
+        sb.append("bytes read=").append(
+            metrics.getCounter(DatabaseMetrics.CACHE_BYTES_READ)
+            - bytesRead).append('\n');
+        sb.append("]\n");
+
+        return Result.newSingleColumnStringResult("OPERATION", sb.toString());
+    }
+
     Result getResult(Session session) {
 
         if (this.isExplain) {
@@ -269,6 +340,11 @@ public class StatementCommand extends Statement {
             }
             case StatementTypes.EXPLAIN_PLAN : {
                 Statement statement = (Statement) arguments[0];
+                boolean   analyze   = ((Boolean) arguments[1]).booleanValue();
+
+                if (analyze) {
+                    return getExplainAnalyzeResult(session, statement);
+                }
 
                 return Result.newSingleColumnStringResult("OPERATION",
                         statement.describe(session));
@@ -295,8 +371,9 @@ public class StatementCommand extends Statement {
                         throw Error.error(ErrorCode.ACCESS_IS_DENIED);
                     }
 
-                    session.database.logger.backup(path, script, blocking,
-                                                   compressed, files);
+                    session.database.logger.backup(session, path, script,
+                                                   blocking, compressed,
+                                                   files);
 
                     return Result.updateZeroResult;
                 } catch (HsqlException e) {
@@ -309,7 +386,14 @@ public class StatementCommand extends Statement {
                 try {
                     session.checkAdmin();
                     session.checkDDLWrite();
-                    session.database.logger.checkpoint(session, defrag, true);
+
+                    if (group == StatementTypes.X_HSQLDB_NONBLOCK_OPERATION) {
+                        session.database.logger.checkpointNonBlocking(
+                            session);
+                    } else {
+                        session.database.logger.checkpoint(session, defrag,
+                                                           true);
+                    }
 
                     return Result.updateZeroResult;
                 } catch (HsqlException e) {
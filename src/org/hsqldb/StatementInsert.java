@@ -31,7 +31,12 @@
 
 package org.hsqldb;
 
+import java.util.Comparator;
+
 import org.hsqldb.ParserDQL.CompileContext;
+import org.hsqldb.index.Index;
+import org.hsqldb.lib.ArraySort;
+import org.hsqldb.lib.ArrayUtil;
 import org.hsqldb.navigator.RowIterator;
 import org.hsqldb.navigator.RowSetNavigator;
 import org.hsqldb.navigator.RowSetNavigatorClient;
@@ -46,7 +51,7 @@ import org.hsqldb.types.Type;
  * Implementation of Statement for INSERT statements.<p>
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.4
+ * @version 2.3.5
  * @since 1.9.0
  */
 public class StatementInsert extends StatementDML {
@@ -147,9 +152,27 @@ public class StatementInsert extends StatementDML {
         }
 
         if (isSimpleInsert) {
-            Type[] colTypes = baseTable.getColumnTypes();
-            Object[] data = getInsertData(session, colTypes,
-                                          insertExpression.nodes[0].nodes);
+            SessionContext context = session.sessionContext;
+
+            if (context.batchArguments != null) {
+                return getBatchResult(session, context.batchArguments);
+            }
+
+            Object[] data = null;
+
+            // row already built by a failed batch, with its sequence values
+            if (context.batchRows != null) {
+                data = context.batchRows[context.batchRowIndex];
+            }
+
+            if (data == null) {
+                Type[] colTypes = baseTable.getColumnTypes();
+
+                data = getInsertData(session, colTypes,
+                                     insertExpression.nodes[0].nodes);
+            } else {
+                data = data.clone();
+            }
 
             return insertSingleRow(session, store, data);
         }
@@ -271,6 +294,103 @@ public class StatementInsert extends StatementDML {
         return resultOut;
     }
 
+    /**
+     * Returns true if a JDBC batch of parameter sets for this statement can
+     * be inserted as a single action with getBatchResult(). Tables with
+     * foreign keys are excluded as insertRowSet() checks the references
+     * after all the rows have been inserted, which would allow a row to
+     * reference a later row of the batch.
+     */
+    boolean isBatchInsert() {
+
+        if (!isSimpleInsert || subqueries.length > 0) {
+            return false;
+        }
+
+        if (baseTable.fkConstraints.length > 0) {
+            return false;
+        }
+
+        for (int i = 0; i < baseTable.triggerLists.length; i++) {
+            if (baseTable.triggerLists[i].length > 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Inserts the rows for all the parameter sets of a batch. All the rows
+     * are built and converted before any row is inserted. When the table
+     * has a primary key and no identity column, the rows are inserted in
+     * primary key order.<p>
+     *
+     * The rows, including their identity and sequence values, are kept in
+     * the SessionContext with the index of the failing parameter set, so
+     * that a failed batch can be executed again without generating new
+     * values.
+     */
+    Result getBatchResult(final Session session, Object[][] parameterSets) {
+
+        SessionContext context  = session.sessionContext;
+        Type[]         colTypes = baseTable.getColumnTypes();
+        Object[][]     rows     = new Object[parameterSets.length][];
+
+        context.batchRows = rows;
+
+        for (int i = 0; i < parameterSets.length; i++) {
+            context.batchRowIndex = i;
+
+            context.setDynamicArguments(parameterSets[i]);
+
+            rows[i] = getInsertData(session, colTypes,
+                                    insertExpression.nodes[0].nodes);
+        }
+
+        Object[][] sortedRows = rows;
+
+        if (baseTable.hasPrimaryKey() && baseTable.identityColumn == -1) {
+            final Index index = baseTable.getPrimaryIndex();
+
+            sortedRows = rows.clone();
+
+            ArraySort.sort(sortedRows, 0, sortedRows.length,
+                           new Comparator<Object[]>() {
+
+                public int compare(Object[] a, Object[] b) {
+                    return index.compareRow(session, a, b);
+                }
+            });
+        }
+
+        RowSetNavigatorClient newData = new RowSetNavigatorClient(0);
+
+        newData.setData(sortedRows);
+
+        try {
+            insertRowSet(session, null, newData);
+        } catch (HsqlException e) {
+            int position = newData.getRowNumber();
+
+            context.batchRowIndex = 0;
+
+            if (position >= 0 && position < sortedRows.length) {
+                context.batchRowIndex = ArrayUtil.find(rows,
+                                                       sortedRows[position]);
+            }
+
+            throw e;
+        }
+
+        int count = newData.getSize();
+
+        context.diagnosticsVariables[ExpressionColumn.idx_row_count] =
+            Integer.valueOf(count);
+
+        return new Result(ResultConstants.UPDATECOUNT, count);
+    }
+
     RowSetNavigator getInsertSelectNavigator(Session session) {
 
         Type[] colTypes  = baseTable.getColumnTypes();
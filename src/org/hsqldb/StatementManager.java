@@ -123,6 +123,13 @@ public final class StatementManager {
         next_cs_id = 0;
     }
 
+    /**
+     * Returns the number of registered statements.
+     */
+    synchronized int size() {
+        return csidMap.size();
+    }
+
     /**
      * Retrieves the next compiled statement identifier in the sequence.
      *
@@ -365,6 +372,10 @@ public final class StatementManager {
             cs.setCursorPropertiesRequest(props);
 
             csid = registerStatement(csid, cs);
+
+            database.metrics.add(DatabaseMetrics.STATEMENT_CACHE_MISSES);
+        } else {
+            database.metrics.add(DatabaseMetrics.STATEMENT_CACHE_HITS);
         }
 
         int useCount = useMap.get(csid, 0) + 1;
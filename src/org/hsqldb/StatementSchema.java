@@ -51,7 +51,7 @@ import org.hsqldb.types.Type;
  * Implementation of Statement for DDL statements.<p>
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.4
+ * @version 2.3.5
  * @since 1.9.0
  */
 public class StatementSchema extends Statement {
@@ -1220,7 +1220,7 @@ public class StatementSchema extends Statement {
                             Constraint c = (Constraint) tempIndexes.get(i);
 
                             tableWorks.addIndex(c.getMainColumns(),
-                                                c.getName(), false);
+                                                c.getName(), false, false);
                         }
 
                         table = tableWorks.getTable();
@@ -1336,6 +1336,7 @@ public class StatementSchema extends Statement {
                 boolean       unique;
                 RoutineSchema routineSchema;
                 Boolean       ifNotExists;
+                boolean       hash;
 
                 table         = (Table) arguments[0];
                 indexColumns  = (int[]) arguments[1];
@@ -1343,6 +1344,13 @@ public class StatementSchema extends Statement {
                 unique        = ((Boolean) arguments[3]).booleanValue();
                 routineSchema = (RoutineSchema) arguments[4];
                 ifNotExists   = (Boolean) arguments[5];
+                hash          = ((Boolean) arguments[6]).booleanValue();
+
+                // MySQL accepts USING HASH for all tables
+                if (hash && session.database.sqlSyntaxMys
+                        && table.getTableType() != TableBase.MEMORY_TABLE) {
+                    hash = false;
+                }
 
                 /*
                         Index index        = table.getIndexForColumns(indexColumns);
@@ -1368,7 +1376,7 @@ public class StatementSchema extends Statement {
                 try {
                     TableWorks tableWorks = new TableWorks(session, table);
 
-                    tableWorks.addIndex(indexColumns, name, unique);
+                    tableWorks.addIndex(indexColumns, name, unique, hash);
 
                     break;
                 } catch (HsqlException e) {
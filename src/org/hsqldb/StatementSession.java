@@ -234,6 +234,7 @@ public class StatementSession extends Statement {
             case StatementTypes.SET_SESSION_FEATURE :
             case StatementTypes.SET_SESSION_RESULT_MAX_ROWS :
             case StatementTypes.SET_SESSION_RESULT_MEMORY_ROWS :
+            case StatementTypes.SET_SESSION_PARALLEL_DEGREE :
             case StatementTypes.SET_TRANSFORM_GROUP :
                 group = StatementTypes.X_HSQLDB_SESSION;
                 break;
@@ -721,6 +722,13 @@ public class StatementSession extends Statement {
 
                 return Result.updateZeroResult;
             }
+            case StatementTypes.SET_SESSION_PARALLEL_DEGREE : {
+                int degree = ((Integer) arguments[0]).intValue();
+
+                session.setParallelDegree(degree);
+
+                return Result.updateZeroResult;
+            }
             case StatementTypes.SET_SESSION_SQL_IGNORECASE : {
                 try {
                     boolean mode = ((Boolean) arguments[0]).booleanValue();
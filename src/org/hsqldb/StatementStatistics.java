@@ -0,0 +1,190 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb;
+
+import org.hsqldb.lib.HashMap;
+import org.hsqldb.lib.Iterator;
+import org.hsqldb.result.Result;
+
+/**
+ * Aggregated execution statistics of top level SQL statements, keyed on the
+ * text of the statement. The statistics are collected when the
+ * hsqldb.statement_stats property is true and reported in the
+ * INFORMATION_SCHEMA.SYSTEM_STATEMENTSTATS table.<p>
+ *
+ * The number of distinct statements is limited. When the limit is reached,
+ * the entry with the smallest number of calls is discarded to make room for
+ * a new statement. Of entries with the same number of calls, the one that
+ * was called least recently is discarded.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public final class StatementStatistics {
+
+    public static final int maxStatements = 1000;
+
+    //
+    private final HashMap entries = new HashMap();
+    private long          callCount;
+
+    /**
+     * Adds the outcome of one execution of a statement.
+     *
+     * @param cs the executed statement
+     * @param r the result of execution
+     * @param nanos the elapsed time of execution
+     */
+    public void record(Statement cs, Result r, long nanos) {
+
+        String sql = cs.getSQL();
+
+        if (sql == null) {
+            return;
+        }
+
+        long    micros  = nanos / 1000;
+        boolean isError = r.isError();
+        long    rows    = 0;
+
+        if (r.isData()) {
+            rows = r.getNavigator().getSize();
+        } else if (r.isUpdateCount()) {
+            rows = r.getUpdateCount();
+        }
+
+        synchronized (this) {
+            Entry entry = (Entry) entries.get(sql);
+
+            if (entry == null) {
+                if (entries.size() >= maxStatements) {
+                    removeLeastCalled();
+                }
+
+                entry = new Entry(sql);
+
+                entries.put(sql, entry);
+            }
+
+            entry.calls++;
+
+            entry.lastCall = ++callCount;
+
+            entry.totalTime += micros;
+
+            if (entry.calls == 1 || micros < entry.minTime) {
+                entry.minTime = micros;
+            }
+
+            if (micros > entry.maxTime) {
+                entry.maxTime = micros;
+            }
+
+            entry.rows += rows;
+
+            if (isError) {
+                entry.errors++;
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the current entries.
+     */
+    public synchronized Entry[] getEntries() {
+
+        Entry[]  array = new Entry[entries.size()];
+        Iterator it    = entries.values().iterator();
+
+        for (int i = 0; it.hasNext(); i++) {
+            array[i] = new Entry((Entry) it.next());
+        }
+
+        return array;
+    }
+
+    public synchronized void clear() {
+
+        entries.clear();
+
+        callCount = 0;
+    }
+
+    private void removeLeastCalled() {
+
+        Entry    least = null;
+        Iterator it    = entries.values().iterator();
+
+        while (it.hasNext()) {
+            Entry entry = (Entry) it.next();
+
+            if (least == null || entry.calls < least.calls
+                    || (entry.calls == least.calls
+                        && entry.lastCall < least.lastCall)) {
+                least = entry;
+            }
+        }
+
+        if (least != null) {
+            entries.remove(least.sql);
+        }
+    }
+
+    public static final class Entry {
+
+        public final String sql;
+        public long         calls;
+        public long         totalTime;
+        public long         minTime;
+        public long         maxTime;
+        public long         rows;
+        public long         errors;
+        long                lastCall;
+
+        Entry(String sql) {
+            this.sql = sql;
+        }
+
+        Entry(Entry other) {
+
+            sql       = other.sql;
+            calls     = other.calls;
+            totalTime = other.totalTime;
+            minTime   = other.minTime;
+            maxTime   = other.maxTime;
+            rows      = other.rows;
+            errors    = other.errors;
+            lastCall  = other.lastCall;
+        }
+    }
+}
@@ -231,6 +231,7 @@ public interface StatementTypes {
     int ROLLBACK_SAVEPOINT             = 1118;
     int DECLARE_SESSION_TABLE          = 1119;
     int ALTER_SESSION                  = 1120;
+    int SET_SESSION_PARALLEL_DEGREE    = 1162;
 
     // hsqldb schema
     int ALTER_INDEX                  = 1121;
@@ -62,7 +62,7 @@ import org.hsqldb.types.Type;
  * Holds the data structures and methods for creation of a named database table.
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.4
+ * @version 2.3.5
  * @since 1.6.1
  */
 public class Table extends TableBase implements SchemaObject {
@@ -144,6 +144,7 @@ public class Table extends TableBase implements SchemaObject {
 
             // fall through
             case MEMORY_TABLE :
+            case OFFHEAP_TABLE :
                 persistenceScope = SCOPE_FULL;
                 isSchemaBased    = true;
                 isLogged         = !database.isFilesReadOnly();
@@ -357,6 +358,8 @@ public class Table extends TableBase implements SchemaObject {
             sb.append(Tokens.T_TEXT).append(' ');
         } else if (isCached()) {
             sb.append(Tokens.T_CACHED).append(' ');
+        } else if (tableType == TableBase.OFFHEAP_TABLE) {
+            sb.append(Tokens.T_OFFHEAP).append(' ');
         } else {
             sb.append(Tokens.T_MEMORY).append(' ');
         }
@@ -722,6 +725,9 @@ public class Table extends TableBase implements SchemaObject {
             case TableBase.CACHED_TABLE :
                 return Tokens.T_CACHED;
 
+            case TableBase.OFFHEAP_TABLE :
+                return Tokens.T_OFFHEAP;
+
             case TableBase.TEXT_TABLE :
                 return Tokens.T_TEXT;
 
@@ -750,6 +756,7 @@ public class Table extends TableBase implements SchemaObject {
 
             case TableBase.MEMORY_TABLE :
             case TableBase.CACHED_TABLE :
+            case TableBase.OFFHEAP_TABLE :
             case TableBase.TEXT_TABLE :
                 return true;
 
@@ -796,10 +803,10 @@ public class Table extends TableBase implements SchemaObject {
 
     /**
      * returns false if the table has to be recreated in order to add / drop
-     * indexes. Only CACHED tables return false.
+     * indexes. Only CACHED and OFFHEAP tables return false.
      */
     final boolean isIndexingMutable() {
-        return !isCached;
+        return !isCached && tableType != TableBase.OFFHEAP_TABLE;
     }
 
     /**
@@ -1304,6 +1311,11 @@ public class Table extends TableBase implements SchemaObject {
                                                    idx.isForward());
 
             newIdx.setClustered(idx.isClustered());
+
+            if (idx.isHashed() && tn.tableType == TableBase.MEMORY_TABLE) {
+                newIdx.setHashed(session, null);
+            }
+
             tn.addIndexStructure(newIdx);
         }
 
@@ -2573,6 +2585,26 @@ public class Table extends TableBase implements SchemaObject {
             return Index.emptyUseArray;
         }
 
+        // hash index covering all the equality columns, or a unique one
+        if (opType == OpTypes.EQUAL && !ordered) {
+            for (int i = 0, count = indexList.length; i < count; i++) {
+                Index currentIndex = getIndex(i);
+
+                if (!currentIndex.isHashed()) {
+                    continue;
+                }
+
+                int matchCount =
+                    set.getStartMatchCount(currentIndex.getColumns());
+
+                if (matchCount == currentIndex.getColumnCount()
+                        && (matchCount == set.size()
+                            || currentIndex.isUnique())) {
+                    return currentIndex.asArray();
+                }
+            }
+        }
+
         for (int i = 0, count = indexList.length; i < count; i++) {
             Index currentIndex = getIndex(i);
             int[] indexcols    = currentIndex.getColumns();
@@ -2906,7 +2938,14 @@ public class Table extends TableBase implements SchemaObject {
 
             if (identitySequence.getName() == null) {
                 if (id == null) {
-                    id = (Number) identitySequence.getValueObject();
+                    if (session != null
+                            && identitySequence.getCacheSize() > 1) {
+                        id = (Number) session.sessionData
+                            .getCachedSequenceValue(identitySequence);
+                    } else {
+                        id = (Number) identitySequence.getValueObject();
+                    }
+
                     data[identityColumn] = id;
                 } else {
                     identitySequence.userUpdate(id.longValue());
@@ -66,6 +66,7 @@ public class TableBase implements Cloneable {
     public static final int SYSTEM_TABLE      = 12;
     public static final int CHANGE_SET_TABLE  = 13;
     public static final int MODULE_TABLE      = 14;
+    public static final int OFFHEAP_TABLE     = 15;
 
     //
     public static final int SCOPE_ROUTINE     = 20;
@@ -35,6 +35,7 @@ import org.hsqldb.HsqlNameManager.HsqlName;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
 import org.hsqldb.index.Index;
+import org.hsqldb.index.IndexAVLMemory;
 import org.hsqldb.lib.ArrayUtil;
 import org.hsqldb.lib.HsqlArrayList;
 import org.hsqldb.lib.OrderedHashSet;
@@ -574,6 +575,11 @@ public class TableWorks {
         indexes[position] = newIndex;
 
         store.reindex(session, newIndex);
+
+        if (index.isHashed()) {
+            newIndex.setHashed(session, store);
+        }
+
         database.schemaManager.recompileDependentObjects(table);
     }
 
@@ -590,14 +596,26 @@ public class TableWorks {
      * @param col int[]
      * @param name HsqlName
      * @param unique boolean
+     * @param hash boolean
      * @return new index
      */
-    Index addIndex(int[] col, HsqlName name, boolean unique) {
+    Index addIndex(int[] col, HsqlName name, boolean unique, boolean hash) {
 
         Index newIndex;
 
         checkModifyTable(false);
 
+        if (hash) {
+            if (table.getTableType() != TableBase.MEMORY_TABLE) {
+                throw Error.error(ErrorCode.X_0A501, "HASH");
+            }
+
+            Type[] colTypes = new Type[col.length];
+
+            ArrayUtil.projectRow(table.getColumnTypes(), col, colTypes);
+            IndexAVLMemory.checkHashTypes(colTypes);
+        }
+
         if (session.isProcessingScript() || table.isEmpty(session)
                 || table.isIndexingMutable()) {
             newIndex = table.createIndex(session, name, col, null, null,
@@ -618,6 +636,12 @@ public class TableWorks {
             updateConstraints(table, emptySet);
         }
 
+        if (hash) {
+            newIndex.setHashed(session,
+                               database.persistentStoreCollection.getStore(
+                                   table));
+        }
+
         database.schemaManager.addSchemaObject(newIndex);
         database.schemaManager.recompileDependentObjects(table);
 
@@ -1270,6 +1294,9 @@ public class TableWorks {
             case TableBase.MEMORY_TABLE :
                 break;
 
+            case TableBase.OFFHEAP_TABLE :
+                break;
+
             default :
                 return false;
         }
@@ -31,13 +31,23 @@
 
 package org.hsqldb;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
+import org.hsqldb.lib.HsqlArrayList;
+import org.hsqldb.lib.HsqlDeque;
 import org.hsqldb.lib.StringConverter;
 import org.hsqldb.persist.PersistentStore;
+import org.hsqldb.persist.RowStoreAVLDiskData;
 import org.hsqldb.persist.TextCache;
 import org.hsqldb.persist.TextFileReader;
+import org.hsqldb.persist.TextFileSettings;
 import org.hsqldb.rowio.RowInputInterface;
+import org.hsqldb.rowio.RowInputText;
+import org.hsqldb.types.Type;
 
 /**
  * Subclass of Table to handle TEXT data source. <p>
@@ -47,7 +57,7 @@ import org.hsqldb.rowio.RowInputInterface;
  *
  * @author Bob Preston (sqlbob@users dot sourceforge.net)
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.4
+ * @version 2.3.5
  */
 public class TextTable extends Table {
 
@@ -55,6 +65,12 @@ public class TextTable extends Table {
     boolean isReversed  = false;
     boolean isConnected = false;
 
+    // number of source lines parsed by each task when loading in parallel
+    static final int LOAD_BATCH_SIZE = 1024;
+
+    // line of the source at which a parallel load failed
+    private long loadErrorLine;
+
 //    TextCache cache;
 
     /**
@@ -102,6 +118,9 @@ public class TextTable extends Table {
         TextCache      cache    = null;
         TextFileReader reader   = null;
         boolean        readOnly = isReadOnly || database.isReadOnly();
+
+        loadErrorLine = 0;
+
         String securePath = database.logger.getSecurePath(dataSource, false,
             true);
 
@@ -131,6 +150,10 @@ public class TextTable extends Table {
             long linenumber = reader == null ? 0
                                              : reader.getLineNumber();
 
+            if (loadErrorLine > 0) {
+                linenumber = loadErrorLine;
+            }
+
             clearAllData(session);
 
             if (cache != null) {
@@ -152,6 +175,23 @@ public class TextTable extends Table {
 
     private void readDataIntoTable(Session session, PersistentStore store,
                                    TextFileReader reader) {
+
+        TextFileSettings settings =
+            ((TextCache) store.getCache()).getTextFileSettings();
+
+        if (settings.isLazyLoad && isLazyLoadable()) {
+            readDataLazy(session, (RowStoreAVLDiskData) store, reader);
+
+            return;
+        }
+
+        if (settings.loadThreads > 1) {
+            readDataParallel(session, (RowStoreAVLDiskData) store, reader,
+                             settings.loadThreads);
+
+            return;
+        }
+
         while (true) {
             RowInputInterface rowIn = reader.readObject();
 
@@ -173,6 +213,210 @@ public class TextTable extends Table {
         }
     }
 
+    /**
+     * Rows are parsed only when they are accessed. Possible when the only
+     * index is the one on the position of rows in the source and the
+     * rows need no constraint checks or identity values when loaded.
+     */
+    private boolean isLazyLoadable() {
+
+        if (getIndexCount() != 1 || hasPrimaryKey() || hasIdentityColumn()) {
+            return false;
+        }
+
+        for (int i = 0; i < columnCount; i++) {
+            if (colNotNull[i] || colTypes[i].isDomainType()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void readDataLazy(Session session, RowStoreAVLDiskData store,
+                              TextFileReader reader) {
+
+        while (true) {
+            RowInputInterface rowIn = reader.readObject();
+
+            if (rowIn == null) {
+                break;
+            }
+
+            Row row = (Row) store.get(rowIn.getFilePosition(),
+                                      rowIn.getSize(), null);
+
+            store.indexRow(session, row);
+        }
+    }
+
+    /**
+     * The reader splits the source into lines, as quoted values can span
+     * several lines. Batches of lines are parsed by the query executor and
+     * the rows are added in source order to the primary index. The other
+     * indexes are built when all the rows have been added.
+     */
+    private void readDataParallel(Session session, RowStoreAVLDiskData store,
+                                  TextFileReader reader, int degree) {
+
+        ExecutorService executor  = DatabaseManager.getQueryExecutor();
+        TextCache       cache     = (TextCache) store.getCache();
+        HsqlDeque       pending   = new HsqlDeque();
+        HsqlArrayList   freeList  = new HsqlArrayList();
+        boolean         completed = false;
+
+        try {
+            while (true) {
+                LoadTask task = freeList.isEmpty()
+                                ? new LoadTask(cache.getRowInputInstance())
+                                : (LoadTask) freeList.remove(freeList.size()
+                                    - 1);
+
+                if (task.read(reader) == 0) {
+                    break;
+                }
+
+                if (pending.size() == degree) {
+                    LoadTask done = (LoadTask) pending.removeFirst();
+
+                    done.complete();
+                    indexLoadedRows(session, store, done);
+                    freeList.add(done);
+                }
+
+                task.future = executor.submit(task);
+
+                pending.add(task);
+
+                if (task.rowCount < LOAD_BATCH_SIZE) {
+                    break;
+                }
+            }
+
+            while (!pending.isEmpty()) {
+                LoadTask done = (LoadTask) pending.removeFirst();
+
+                done.complete();
+                indexLoadedRows(session, store, done);
+            }
+
+            store.indexRows(session);
+
+            completed = true;
+        } finally {
+            if (!completed) {
+                while (!pending.isEmpty()) {
+                    LoadTask task = (LoadTask) pending.removeFirst();
+
+                    task.future.cancel(false);
+                }
+            }
+        }
+    }
+
+    private void indexLoadedRows(Session session, RowStoreAVLDiskData store,
+                                 LoadTask task) {
+
+        int i = 0;
+
+        try {
+            for (; i < task.rowCount; i++) {
+                Object[] data = task.data[i];
+                Row row = (Row) store.get(task.positions[i], task.sizes[i],
+                                          data);
+
+                task.data[i] = null;
+
+                systemUpdateIdentityValue(data);
+                enforceRowConstraints(session, data);
+                store.indexRowPrimary(session, row);
+            }
+        } catch (RuntimeException e) {
+            loadErrorLine = task.lineNumbers[i];
+
+            throw e;
+        }
+    }
+
+    /**
+     * A batch of source lines, parsed into row data on a worker thread.
+     */
+    final class LoadTask implements Runnable {
+
+        final RowInputText rowIn;
+        final String[]     lines       = new String[LOAD_BATCH_SIZE];
+        final long[]       positions   = new long[LOAD_BATCH_SIZE];
+        final int[]        sizes       = new int[LOAD_BATCH_SIZE];
+        final long[]       lineNumbers = new long[LOAD_BATCH_SIZE];
+        final Object[][]   data        = new Object[LOAD_BATCH_SIZE][];
+        int                rowCount;
+        int                parsedCount;
+        Future<?>          future;
+
+        LoadTask(RowInputText rowIn) {
+            this.rowIn = rowIn;
+        }
+
+        int read(TextFileReader reader) {
+
+            rowCount    = 0;
+            parsedCount = 0;
+
+            while (rowCount < LOAD_BATCH_SIZE) {
+                RowInputText in = (RowInputText) reader.readObject();
+
+                if (in == null) {
+                    break;
+                }
+
+                lines[rowCount]       = in.getSource();
+                positions[rowCount]   = in.getFilePosition();
+                sizes[rowCount]       = in.getSize();
+                lineNumbers[rowCount] = in.getLineNumber();
+
+                rowCount++;
+            }
+
+            return rowCount;
+        }
+
+        public void run() {
+
+            Type[] types = getColumnTypes();
+
+            for (; parsedCount < rowCount; parsedCount++) {
+                rowIn.setSource(lines[parsedCount], positions[parsedCount],
+                                sizes[parsedCount]);
+
+                data[parsedCount]  = rowIn.readData(types);
+                lines[parsedCount] = null;
+            }
+        }
+
+        void complete() {
+
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                Throwable t = e.getCause();
+
+                loadErrorLine = lineNumbers[parsedCount];
+
+                if (t instanceof RuntimeException) {
+                    throw (RuntimeException) t;
+                }
+
+                if (t instanceof java.lang.Error) {
+                    throw (java.lang.Error) t;
+                }
+
+                throw Error.error(ErrorCode.GENERAL_ERROR, t);
+            } catch (InterruptedException e) {
+                throw Error.error(ErrorCode.GENERAL_ERROR, e);
+            }
+        }
+    }
+
     /**
      * disconnects from the data source
      */
@@ -658,6 +658,7 @@ public class Tokens {
     // other tokens
     static final String        T_ALIAS                = "ALIAS";
     static final String        T_AGGREGATE            = "AGGREGATE";
+    static final String        T_ANALYZE              = "ANALYZE";
     public static final String T_AUTHENTICATION       = "AUTHENTICATION";
     static final String        T_AUTO_INCREMENT       = "AUTO_INCREMENT";
     static final String        T_AUTOCOMMIT           = "AUTOCOMMIT";
@@ -747,8 +748,10 @@ public class Tokens {
     static final String        T_NVL2                 = "NVL2";
     static final String        T_OCTETLENGTH          = "OCTETLENGTH";
     static final String        T_OFF                  = "OFF";
+    public static final String T_OFFHEAP              = "OFFHEAP";
     public static final String T_OTHER                = "OTHER";
     public static final String T_ORA                  = "ORA";
+    static final String        T_PARALLEL             = "PARALLEL";
     public static final String T_PASSWORD             = "PASSWORD";
     public static final String T_PERFORM              = "PERFORM";
     static final String        T_PLAN                 = "PLAN";
@@ -1632,6 +1635,8 @@ public class Tokens {
     static final int USE            = 668;
     static final int VARCHAR2       = 669;
     static final int WRITE_DELAY    = 670;
+    static final int PARALLEL       = 671;
+    static final int OFFHEAP        = 672;
 
     //
     static final int        ACOS                       = 701;
@@ -2283,6 +2288,7 @@ public class Tokens {
         commandSet.put(T_DEFERRABLE, DEFERRABLE);
         commandSet.put(T_DEFAULTS, DEFAULTS);
         commandSet.put(T_DEFINER, DEFINER);
+        commandSet.put(T_DEGREE, DEGREE);
         commandSet.put(T_DEFRAG, DEFRAG);
         commandSet.put(T_DELAY, DELAY);
         commandSet.put(T_DESC, DESC);
@@ -2374,12 +2380,14 @@ public class Tokens {
         commandSet.put(T_OBJECT, OBJECT);
         commandSet.put(T_OCTETS, OCTETS);
         commandSet.put(T_OFF, OFF);
+        commandSet.put(T_OFFHEAP, OFFHEAP);
         commandSet.put(T_OPTION, OPTION);
         commandSet.put(T_ORDINALITY, ORDINALITY);
         commandSet.put(T_OTHERS, OTHERS);
         commandSet.put(T_OVERRIDING, OVERRIDING);
         commandSet.put(T_P_FACTOR, P);
         commandSet.put(T_PAD, PAD);
+        commandSet.put(T_PARALLEL, PARALLEL);
         commandSet.put(T_PARTIAL, PARTIAL);
         commandSet.put(T_PASSWORD, PASSWORD);
         commandSet.put(T_PERFORM, PERFORM);
@@ -83,6 +83,12 @@ public interface TransactionManager {
 
     void beginTransaction(Session session);
 
+    /**
+     * gives a session that is in a transaction a new snapshot and runs the
+     * action while no other transaction can commit
+     */
+    void beginSnapshot(Session session, Runnable action);
+
     // functional unit - accessibility of rows
     boolean canRead(Session session, PersistentStore store, Row row, int mode,
                     int[] colMap);
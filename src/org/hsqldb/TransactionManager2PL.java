@@ -348,6 +348,15 @@ implements TransactionManager {
         }
     }
 
+    public void beginSnapshot(Session session, Runnable action) {
+
+        session.actionTimestamp      = getNextGlobalChangeTimestamp();
+        session.actionStartTimestamp = session.actionTimestamp;
+        session.transactionTimestamp = session.actionTimestamp;
+
+        action.run();
+    }
+
     public void removeTransactionInfo(long id) {}
 
     public void resetSession(Session session, Session targetSession,
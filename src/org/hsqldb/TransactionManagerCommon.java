@@ -45,6 +45,8 @@ import org.hsqldb.lib.LongDeque;
 import org.hsqldb.lib.LongKeyHashMap;
 import org.hsqldb.lib.MultiValueHashMap;
 import org.hsqldb.lib.OrderedHashSet;
+import org.hsqldb.persist.CachedObject;
+import org.hsqldb.persist.RowStoreAVLOffHeap;
 
 /**
  * Shared code for TransactionManager classes
@@ -92,6 +94,38 @@ class TransactionManagerCommon {
         catalogNameList = new HsqlName[]{ database.getCatalogName() };
     }
 
+    /**
+     * Returns true if the row actions of the table are kept in rowActionMap
+     */
+    static boolean hasRowActionMap(TableBase table) {
+
+        switch (table.tableType) {
+
+            case TableBase.CACHED_TABLE :
+            case TableBase.OFFHEAP_TABLE :
+                return true;
+
+            default :
+                return false;
+        }
+    }
+
+    /**
+     * Returns the key of the row in rowActionMap. The rows of OFFHEAP tables
+     * are stored separately from CACHED rows and the key is tagged to avoid
+     * duplicates.
+     */
+    static long getRowActionKey(CachedObject object) {
+
+        long key = object.getPos();
+
+        if (((Row) object).getTable().tableType == TableBase.OFFHEAP_TABLE) {
+            key |= RowStoreAVLOffHeap.rowActionKeyFlag;
+        }
+
+        return key;
+    }
+
     void setTransactionControl(Session session, int mode) {
 
         TransactionManagerCommon manager = null;
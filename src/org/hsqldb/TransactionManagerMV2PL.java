@@ -44,7 +44,7 @@ import org.hsqldb.persist.PersistentStore;
  * Manages rows involved in transactions
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.4
+ * @version 2.3.5
  * @since 2.0.0
  */
 public class TransactionManagerMV2PL extends TransactionManagerCommon
@@ -286,6 +286,7 @@ implements TransactionManager {
             switch (table.tableType) {
 
                 case TableBase.CACHED_TABLE :
+                case TableBase.OFFHEAP_TABLE :
                     action = RowAction.addDeleteAction(session, table, row,
                                                        colMap);
 
@@ -380,8 +381,8 @@ implements TransactionManager {
 
         Row row = (Row) object;
 
-        if (row.getTable().tableType == TableBase.CACHED_TABLE) {
-            rowActionMap.put(object.getPos(), row.rowAction);
+        if (hasRowActionMap(row.getTable())) {
+            rowActionMap.put(getRowActionKey(object), row.rowAction);
         }
     }
 
@@ -398,8 +399,9 @@ implements TransactionManager {
 
         Row row = (Row) object;
 
-        if (row.getTable().tableType == TableBase.CACHED_TABLE) {
-            RowAction rowact = (RowAction) rowActionMap.get(row.getPos());
+        if (hasRowActionMap(row.getTable())) {
+            RowAction rowact =
+                (RowAction) rowActionMap.get(getRowActionKey(row));
 
             row.rowAction = rowact;
         }
@@ -414,7 +416,7 @@ implements TransactionManager {
             return;
         }
 
-        rowActionMap.remove(object.getPos());
+        rowActionMap.remove(getRowActionKey(object));
     }
 
     public void removeTransactionInfo(long id) {
@@ -577,6 +579,35 @@ implements TransactionManager {
         }
     }
 
+    /**
+     * The transaction timestamp of the session is replaced with a new one,
+     * so that all the transactions committed before the action are visible
+     * to the session and none of those committed after the action.
+     */
+    public void beginSnapshot(Session session, Runnable action) {
+
+        writeLock.lock();
+
+        try {
+            long timestamp = getNextGlobalChangeTimestamp();
+            int index =
+                liveTransactionTimestamps.indexOf(session.transactionTimestamp);
+
+            if (index >= 0) {
+                liveTransactionTimestamps.remove(index);
+                liveTransactionTimestamps.addLast(timestamp);
+            }
+
+            session.actionTimestamp      = timestamp;
+            session.actionStartTimestamp = timestamp;
+            session.transactionTimestamp = timestamp;
+
+            action.run();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
     public void resetSession(Session session, Session targetSession,
                              int mode) {
         super.resetSession(session, targetSession, mode);
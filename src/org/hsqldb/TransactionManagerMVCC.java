@@ -595,8 +595,9 @@ implements TransactionManager {
 
         Row row = (Row) object;
 
-        if (row.getTable().tableType == TableBase.CACHED_TABLE) {
-            RowAction action = (RowAction) rowActionMap.get(object.getPos());
+        if (hasRowActionMap(row.getTable())) {
+            RowAction action =
+                (RowAction) rowActionMap.get(getRowActionKey(object));
 
             if (action != null) {
                 HsqlException e = Error.error(ErrorCode.X_40501,
@@ -607,7 +608,7 @@ implements TransactionManager {
                 throw e;
             }
 
-            rowActionMap.put(object.getPos(), row.rowAction);
+            rowActionMap.put(getRowActionKey(object), row.rowAction);
         }
     }
 
@@ -624,8 +625,9 @@ implements TransactionManager {
 
         Row row = (Row) object;
 
-        if (row.getTable().tableType == TableBase.CACHED_TABLE) {
-            RowAction rowact = (RowAction) rowActionMap.get(row.getPos());
+        if (hasRowActionMap(row.getTable())) {
+            RowAction rowact =
+                (RowAction) rowActionMap.get(getRowActionKey(row));
 
             row.rowAction = rowact;
         }
@@ -635,7 +637,7 @@ implements TransactionManager {
      * remove the transaction info
      */
     public void removeTransactionInfo(CachedObject object) {
-        rowActionMap.remove(object.getPos());
+        rowActionMap.remove(getRowActionKey(object));
     }
 
     public void removeTransactionInfo(long id) {
@@ -810,13 +812,15 @@ implements TransactionManager {
         synchronized (row) {
             switch (table.tableType) {
 
-                case TableBase.CACHED_TABLE : {
+                case TableBase.CACHED_TABLE :
+                case TableBase.OFFHEAP_TABLE : {
                     rowActionMap.getWriteLock().lock();
 
                     try {
 
                         /* using rowActionMap as source */
-                        action = (RowAction) rowActionMap.get(row.getPos());
+                        action = (RowAction) rowActionMap.get(
+                            getRowActionKey(row));
 
                         if (action == null) {
                             action = RowAction.addDeleteAction(session, table,
@@ -985,6 +989,35 @@ implements TransactionManager {
         return true;
     }
 
+    /**
+     * The transaction timestamp of the session is replaced with a new one,
+     * so that all the transactions committed before the action are visible
+     * to the session and none of those committed after the action.
+     */
+    public void beginSnapshot(Session session, Runnable action) {
+
+        writeLock.lock();
+
+        try {
+            long timestamp = getNextGlobalChangeTimestamp();
+            int index =
+                liveTransactionTimestamps.indexOf(session.transactionTimestamp);
+
+            if (index >= 0) {
+                liveTransactionTimestamps.remove(index);
+                liveTransactionTimestamps.addLast(timestamp);
+            }
+
+            session.actionTimestamp      = timestamp;
+            session.actionStartTimestamp = timestamp;
+            session.transactionTimestamp = timestamp;
+
+            action.run();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
     public void resetSession(Session session, Session targetSession,
                              int mode) {
         super.resetSession(session, targetSession, mode);
@@ -0,0 +1,64 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+package org.hsqldb;
+
+/**
+ * An optional extension of the Trigger interface for triggers declared with
+ * a QUEUE size. When the trigger class implements this interface, the queued
+ * rows are delivered in groups, in the order they were queued, with one call
+ * to fireBatch() per group instead of one call to fire() per row.<p>
+ *
+ * The two arrays have the same length. Each pair of elements has the same
+ * contents as the oldRow and newRow arguments of Trigger.fire() and either
+ * element can be null depending on the type of the trigger.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public interface TriggerBatch extends Trigger {
+
+    /**
+     * The method invoked with a group of queued triggered actions.
+     *
+     * @param type the type as one of the int values defined in the Trigger
+     *   interface
+     * @param trigName the name of the trigger
+     * @param tabName the name of the table upon which the triggered action is
+     *   occurring
+     * @param oldRows the old rows
+     * @param newRows the new rows
+     */
+    void fireBatch(int type, String trigName, String tabName,
+                   Object[][] oldRows, Object[][] newRows);
+}
@@ -31,10 +31,14 @@
 
 package org.hsqldb;
 
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.hsqldb.HsqlNameManager.HsqlName;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
-import org.hsqldb.lib.HsqlDeque;
+import org.hsqldb.lib.ArrayUtil;
 import org.hsqldb.lib.OrderedHashSet;
 import org.hsqldb.lib.StringConverter;
 import org.hsqldb.rights.Grantee;
@@ -46,6 +50,7 @@ import org.hsqldb.rights.Grantee;
 // fredt@users 20040430 - changes by mattshaw@users to allow termination of the
 // trigger thread -
 // fredt@users - updated for v. 2.x
+// queued triggers run on the shared executor instead of a thread per trigger
 
 /**
  *  Represents an HSQLDB Trigger definition. <p>
@@ -56,7 +61,7 @@ import org.hsqldb.rights.Grantee;
  *  Realisations Ltd
  *
  * @author Peter Hudson (peterhudson@users dot sourceforge.net)
- * @version  2.0.1
+ * @version  2.3.5
  * @since hsqldb 1.61
  */
 public class TriggerDef implements Runnable, SchemaObject {
@@ -73,6 +78,7 @@ public class TriggerDef implements Runnable, SchemaObject {
     //
     static final int NUM_TRIGGER_OPS = 3;                      // {ins,del,upd}
     static final int NUM_TRIGS       = NUM_TRIGGER_OPS * 3;    // {b}{fer}, {a},{fer, fes}
+    static final int MAX_BATCH_SIZE  = 256;                    // rows per executor run
 
     //
     static final TriggerDef[] emptyArray = new TriggerDef[]{};
@@ -98,13 +104,16 @@ public class TriggerDef implements Runnable, SchemaObject {
     Trigger          trigger;
     String           triggerClassName;
     int              triggerType;
-    Thread           thread;
+    ClassLoader      contextClassLoader;
 
-    //protected boolean busy;               // firing trigger in progress
-    protected HsqlDeque        pendingQueue;                   // row triggers pending
-    protected int              rowsQueued;                     // rows in pendingQueue
-    protected boolean          valid     = true;               // parsing valid
-    protected volatile boolean keepGoing = true;
+    //
+    protected ConcurrentLinkedQueue<TriggerData> pendingQueue;    // row triggers pending
+    protected AtomicInteger        rowsQueued;                 // rows in pendingQueue
+    protected AtomicBoolean        scheduled;                  // run() submitted
+    protected volatile TriggerData lastQueued;                 // tail of pendingQueue
+    protected volatile int         waitingProducers;           // blocked in pushPair
+    protected boolean              valid     = true;           // parsing valid
+    protected volatile boolean     keepGoing = true;
 
     TriggerDef() {}
 
@@ -118,6 +127,9 @@ public class TriggerDef implements Runnable, SchemaObject {
      *  is run in the Trigger's own thread.
      *  (fredt@users)
      *
+     *  Changes in 2.3.5 run the queued rows on a thread of the executor
+     *  shared by all triggers instead of a dedicated thread per trigger.
+     *
      * @param  name The trigger object's HsqlName
      * @param  when whether the trigger fires
      *      before, after or instead of the triggering event
@@ -148,8 +160,9 @@ public class TriggerDef implements Runnable, SchemaObject {
         this.triggerClassName = triggerClassName;
         this.nowait           = noWait;
         this.maxRowsQueued    = queueSize;
-        rowsQueued            = 0;
-        pendingQueue          = new HsqlDeque();
+        rowsQueued            = new AtomicInteger();
+        scheduled             = new AtomicBoolean();
+        pendingQueue          = new ConcurrentLinkedQueue<TriggerData>();
 
         Class cl = null;
 
@@ -532,130 +545,271 @@ public class TriggerDef implements Runnable, SchemaObject {
     /**
      *  run method declaration <P>
      *
-     *  the trigger JSP is run in its own thread here. Its job is simply to
-     *  wait until it is told by the main thread that it should fire the
-     *  trigger.
+     *  Fires the trigger for the rows queued so far. Only one run() is
+     *  submitted to the executor at a time for each trigger, so the rows are
+     *  fired in the order they were queued. A run() fires at most
+     *  MAX_BATCH_SIZE rows, then resubmits itself if more rows are pending,
+     *  so that a busy trigger does not hold an executor thread indefinitely.
+     *  Exceptions thrown by the trigger are reported in the event log.
      */
     public void run() {
 
-        while (keepGoing) {
+        Thread      currentThread = Thread.currentThread();
+        ClassLoader oldLoader     = currentThread.getContextClassLoader();
+
+        try {
+            currentThread.setContextClassLoader(contextClassLoader);
+            fireQueued();
+        } catch (Throwable t) {
+            logFailure(t, 0);
+        } finally {
+            try {
+                currentThread.setContextClassLoader(oldLoader);
+            } catch (Throwable t) {}
+
+            scheduled.set(false);
+        }
+
+        if (keepGoing && !pendingQueue.isEmpty()) {
+            schedule();
+        }
+    }
+
+    private void fireQueued() {
+
+        int batchSize = maxRowsQueued < MAX_BATCH_SIZE ? maxRowsQueued
+                                                       : MAX_BATCH_SIZE;
+        Object[][] oldRows = null;
+        Object[][] newRows = null;
+        int        count   = 0;
+
+        if (trigger instanceof TriggerBatch) {
+            oldRows = new Object[batchSize][];
+            newRows = new Object[batchSize][];
+        }
+
+        while (keepGoing && count < batchSize) {
             TriggerData triggerData = popPair();
 
-            if (triggerData != null) {
-                if (triggerData.username != null) {
+            if (triggerData == null) {
+                break;
+            }
+
+            if (triggerData.username == null) {
+                continue;
+            }
+
+            if (oldRows == null) {
+                try {
                     trigger.fire(this.triggerType, name.name,
                                  table.getName().name, triggerData.oldRow,
                                  triggerData.newRow);
+                } catch (Throwable t) {
+                    logFailure(t, 1);
                 }
+            } else {
+                oldRows[count] = triggerData.oldRow;
+                newRows[count] = triggerData.newRow;
             }
+
+            count++;
         }
 
-        try {
-            thread.setContextClassLoader(null);
-        } catch (Throwable t) {}
+        if (oldRows != null && count > 0) {
+            if (count < batchSize) {
+                oldRows = (Object[][]) ArrayUtil.resizeArray(oldRows, count);
+                newRows = (Object[][]) ArrayUtil.resizeArray(newRows, count);
+            }
+
+            try {
+                ((TriggerBatch) trigger).fireBatch(this.triggerType,
+                                                   name.name,
+                                                   table.getName().name,
+                                                   oldRows, newRows);
+            } catch (Throwable t) {
+                logFailure(t, count);
+            }
+        }
+    }
+
+    private void logFailure(Throwable t, int rowCount) {
+
+        String message = "queued trigger "
+                         + name.getSchemaQualifiedStatementName()
+                         + " failed, rows not processed: " + rowCount;
+
+        table.database.logger.logSevereEvent(message, t);
     }
 
     /**
-     * start the thread if this is threaded
+     * record the context class loader of the creating thread for use in
+     * executor threads if this is threaded
      */
     public synchronized void start() {
 
         if (maxRowsQueued != 0) {
-            thread = new Thread(this);
-
-            thread.start();
+            contextClassLoader =
+                Thread.currentThread().getContextClassLoader();
         }
     }
 
     /**
-     * signal the thread to stop
+     * signal the queued rows to be discarded
      */
-    public synchronized void terminate() {
+    public void terminate() {
 
         keepGoing = false;
 
-        notify();
+        if (maxRowsQueued == 0) {
+            return;
+        }
+
+        pendingQueue.clear();
+        rowsQueued.set(0);
+
+        lastQueued = null;
+
+        synchronized (this) {
+            notifyAll();
+        }
     }
 
     /**
      *  pop2 method declaration <P>
      *
-     *  The consumer (trigger) thread waits for an event to be queued <P>
-     *
-     *  <B>Note: </B> This push/pop pairing assumes a single producer thread
-     *  and a single consumer thread _only_.
+     *  Removes the next queued event, or returns null if none is queued.
+     *  Wakes up the producers that wait for space on the queue.
      *
      * @return  Description of the Return Value
      */
-    synchronized TriggerData popPair() {
+    TriggerData popPair() {
 
-        if (rowsQueued == 0) {
-            try {
-                wait();    // this releases the lock monitor
-            } catch (InterruptedException e) {
+        TriggerData triggerData = pendingQueue.poll();
 
-                /* ignore and resume */
-            }
+        if (triggerData == null) {
+            return null;
         }
 
-        rowsQueued--;
-
-        notify();    // notify push's wait
+        triggerData.take();
+        rowsQueued.decrementAndGet();
 
-        if (pendingQueue.size() == 0) {
-            return null;
-        } else {
-            return (TriggerData) pendingQueue.removeFirst();
+        if (waitingProducers > 0) {
+            synchronized (this) {
+                notifyAll();    // notify push's wait
+            }
         }
+
+        return triggerData;
     }
 
     /**
      *  The main thread tells the trigger thread to fire by this call.
      *  If this Trigger is not threaded then the fire method is called
      *  immediately and executed by the main thread. Otherwise, the row
-     *  data objects are added to the queue to be used by the Trigger thread.
+     *  data objects are added to the queue and the trigger is submitted to
+     *  the shared executor if it is not already submitted. A place on the
+     *  queue is reserved before the row is added, so the queue never holds
+     *  more than maxRowsQueued rows.
      *
      * @param  row1
      * @param  row2
      */
-    synchronized void pushPair(Session session, Object[] row1, Object[] row2) {
+    void pushPair(Session session, Object[] row1, Object[] row2) {
 
         if (maxRowsQueued == 0) {
-            session.getInternalConnection();
+            synchronized (this) {
+                session.getInternalConnection();
 
-            try {
-                trigger.fire(triggerType, name.name, table.getName().name,
-                             row1, row2);
-            } finally {
-                session.releaseInternalConnection();
+                try {
+                    trigger.fire(triggerType, name.name, table.getName().name,
+                                 row1, row2);
+                } finally {
+                    session.releaseInternalConnection();
+                }
             }
 
             return;
         }
 
-        if (rowsQueued >= maxRowsQueued) {
+        if (!keepGoing) {
+            return;
+        }
+
+        String username = session.getUsername();
+
+        while (true) {
+            int queued = rowsQueued.get();
+
+            if (queued < maxRowsQueued) {
+                if (rowsQueued.compareAndSet(queued, queued + 1)) {
+                    break;
+                }
+
+                continue;
+            }
+
             if (nowait) {
-                pendingQueue.removeLast();    // overwrite last
-            } else {
-                try {
-                    wait();
-                } catch (InterruptedException e) {
+                TriggerData last = lastQueued;
 
-                    /* ignore and resume */
+                if (last != null && last.replace(row1, row2, username)) {
+                    return;    // overwrite last
                 }
 
-                rowsQueued++;
+                // the last row has just been taken or is not yet linked
+                Thread.yield();
+            } else {
+                waitForSpace();
+            }
+
+            if (!keepGoing) {
+                return;
+            }
+        }
+
+        TriggerData triggerData = new TriggerData(row1, row2, username);
+
+        pendingQueue.add(triggerData);
+
+        lastQueued = triggerData;
+
+        schedule();
+    }
+
+    private void waitForSpace() {
+
+        synchronized (this) {
+            waitingProducers++;
+
+            try {
+                while (keepGoing && rowsQueued.get() >= maxRowsQueued) {
+                    try {
+                        wait();    // this releases the lock monitor
+                    } catch (InterruptedException e) {
+
+                        /* ignore and resume */
+                    }
+                }
+            } finally {
+                waitingProducers--;
             }
-        } else {
-            rowsQueued++;
         }
+    }
+
+    private void schedule() {
+
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                DatabaseManager.getTriggerExecutor().execute(this);
+            } catch (RuntimeException e) {
+                scheduled.set(false);
 
-        pendingQueue.add(new TriggerData(session, row1, row2));
-        notify();    // notify pop's wait
+                throw e;
+            }
+        }
     }
 
     public boolean isBusy() {
-        return rowsQueued != 0;
+        return rowsQueued != null && rowsQueued.get() != 0;
     }
 
     public Table getTable() {
@@ -677,12 +831,36 @@ public class TriggerDef implements Runnable, SchemaObject {
         public Object[] oldRow;
         public Object[] newRow;
         public String   username;
+        private boolean taken;
+
+        public TriggerData(Object[] oldRow, Object[] newRow,
+                           String username) {
+
+            this.oldRow   = oldRow;
+            this.newRow   = newRow;
+            this.username = username;
+        }
+
+        /**
+         * Replaces the contents if the object has not been removed from the
+         * queue yet.
+         */
+        synchronized boolean replace(Object[] oldRow, Object[] newRow,
+                                     String username) {
 
-        public TriggerData(Session session, Object[] oldRow, Object[] newRow) {
+            if (taken) {
+                return false;
+            }
 
             this.oldRow   = oldRow;
             this.newRow   = newRow;
-            this.username = session.getUsername();
+            this.username = username;
+
+            return true;
+        }
+
+        synchronized void take() {
+            taken = true;
         }
     }
 
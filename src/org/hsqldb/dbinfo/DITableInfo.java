@@ -45,7 +45,7 @@ import org.hsqldb.resources.ResourceBundleHandler;
  * Current version has been reduced in scope.<p>
  *
  * @author campbell-burnet@users
- * @version 2.2.7
+ * @version 2.3.5
  * @since 1.7.2
  */
 final class DITableInfo {
@@ -180,6 +180,9 @@ final class DITableInfo {
             case TableBase.CACHED_TABLE :
                 return "CACHED";
 
+            case TableBase.OFFHEAP_TABLE :
+                return "OFFHEAP";
+
             case TableBase.TEMP_TEXT_TABLE :
             case TableBase.TEXT_TABLE :
                 return "TEXT";
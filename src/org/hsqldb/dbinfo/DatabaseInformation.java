@@ -89,79 +89,81 @@ public class DatabaseInformation {
     protected static final int SYSTEM_TABLESTATS            = 24;
     protected static final int SYSTEM_TEXTTABLES            = 25;
     protected static final int SYSTEM_SYNONYMS              = 26;
+    protected static final int SYSTEM_METRICS               = 27;
+    protected static final int SYSTEM_STATEMENTSTATS        = 28;
 
     // SQL 200n tables
-    protected static final int ADMINISTRABLE_ROLE_AUTHORIZATIONS = 27;
-    protected static final int APPLICABLE_ROLES                  = 28;
-    protected static final int ASSERTIONS                        = 29;
-    protected static final int AUTHORIZATIONS                    = 30;
-    protected static final int CHARACTER_SETS                    = 31;
-    protected static final int CHECK_CONSTRAINT_ROUTINE_USAGE    = 32;
-    protected static final int CHECK_CONSTRAINTS                 = 33;
-    protected static final int COLLATIONS                        = 34;
-    protected static final int COLUMN_COLUMN_USAGE               = 35;
-    protected static final int COLUMN_DOMAIN_USAGE               = 36;
-    protected static final int COLUMN_PRIVILEGES                 = 37;
-    protected static final int COLUMN_UDT_USAGE                  = 38;
-    protected static final int COLUMNS                           = 39;
-    protected static final int CONSTRAINT_COLUMN_USAGE           = 40;
-    protected static final int CONSTRAINT_TABLE_USAGE            = 41;
-    protected static final int DATA_TYPE_PRIVILEGES              = 42;
-    protected static final int DOMAIN_CONSTRAINTS                = 43;
-    protected static final int DOMAINS                           = 44;
-    protected static final int ELEMENT_TYPES                     = 45;
-    protected static final int ENABLED_ROLES                     = 46;
-    protected static final int INFORMATION_SCHEMA_CATALOG_NAME   = 47;
-    protected static final int JAR_JAR_USAGE                     = 48;
-    protected static final int JARS                              = 49;
-    protected static final int KEY_COLUMN_USAGE                  = 50;
-    protected static final int METHOD_SPECIFICATIONS             = 51;
-    protected static final int MODULE_COLUMN_USAGE               = 52;
-    protected static final int MODULE_PRIVILEGES                 = 53;
-    protected static final int MODULE_TABLE_USAGE                = 54;
-    protected static final int MODULES                           = 55;
-    protected static final int PARAMETERS                        = 56;
-    protected static final int REFERENTIAL_CONSTRAINTS           = 57;
-    protected static final int ROLE_AUTHORIZATION_DESCRIPTORS    = 58;
-    protected static final int ROLE_COLUMN_GRANTS                = 59;
-    protected static final int ROLE_MODULE_GRANTS                = 60;
-    protected static final int ROLE_ROUTINE_GRANTS               = 61;
-    protected static final int ROLE_TABLE_GRANTS                 = 62;
-    protected static final int ROLE_UDT_GRANTS                   = 63;
-    protected static final int ROLE_USAGE_GRANTS                 = 64;
-    protected static final int ROUTINE_COLUMN_USAGE              = 65;
-    protected static final int ROUTINE_JAR_USAGE                 = 66;
-    protected static final int ROUTINE_PRIVILEGES                = 67;
-    protected static final int ROUTINE_ROUTINE_USAGE             = 68;
-    protected static final int ROUTINE_SEQUENCE_USAGE            = 69;
-    protected static final int ROUTINE_TABLE_USAGE               = 70;
-    protected static final int ROUTINES                          = 71;
-    protected static final int SCHEMATA                          = 72;
-    protected static final int SEQUENCES                         = 73;
-    protected static final int SQL_FEATURES                      = 74;
-    protected static final int SQL_IMPLEMENTATION_INFO           = 75;
-    protected static final int SQL_PACKAGES                      = 76;
-    protected static final int SQL_PARTS                         = 77;
-    protected static final int SQL_SIZING                        = 78;
-    protected static final int SQL_SIZING_PROFILES               = 79;
-    protected static final int TABLE_CONSTRAINTS                 = 80;
-    protected static final int TABLE_PRIVILEGES                  = 81;
-    protected static final int TABLES                            = 82;
-    protected static final int TRANSLATIONS                      = 83;
-    protected static final int TRIGGER_COLUMN_USAGE              = 84;
-    protected static final int TRIGGER_ROUTINE_USAGE             = 85;
-    protected static final int TRIGGER_SEQUENCE_USAGE            = 86;
-    protected static final int TRIGGER_TABLE_USAGE               = 87;
-    protected static final int TRIGGERED_UPDATE_COLUMNS          = 88;
-    protected static final int TRIGGERS                          = 89;
-    protected static final int TYPE_JAR_USAGE                    = 90;
-    protected static final int UDT_PRIVILEGES                    = 91;
-    protected static final int USAGE_PRIVILEGES                  = 92;
-    protected static final int USER_DEFINED_TYPES                = 93;
-    protected static final int VIEW_COLUMN_USAGE                 = 94;
-    protected static final int VIEW_ROUTINE_USAGE                = 95;
-    protected static final int VIEW_TABLE_USAGE                  = 96;
-    protected static final int VIEWS                             = 97;
+    protected static final int ADMINISTRABLE_ROLE_AUTHORIZATIONS = 29;
+    protected static final int APPLICABLE_ROLES                  = 30;
+    protected static final int ASSERTIONS                        = 31;
+    protected static final int AUTHORIZATIONS                    = 32;
+    protected static final int CHARACTER_SETS                    = 33;
+    protected static final int CHECK_CONSTRAINT_ROUTINE_USAGE    = 34;
+    protected static final int CHECK_CONSTRAINTS                 = 35;
+    protected static final int COLLATIONS                        = 36;
+    protected static final int COLUMN_COLUMN_USAGE               = 37;
+    protected static final int COLUMN_DOMAIN_USAGE               = 38;
+    protected static final int COLUMN_PRIVILEGES                 = 39;
+    protected static final int COLUMN_UDT_USAGE                  = 40;
+    protected static final int COLUMNS                           = 41;
+    protected static final int CONSTRAINT_COLUMN_USAGE           = 42;
+    protected static final int CONSTRAINT_TABLE_USAGE            = 43;
+    protected static final int DATA_TYPE_PRIVILEGES              = 44;
+    protected static final int DOMAIN_CONSTRAINTS                = 45;
+    protected static final int DOMAINS                           = 46;
+    protected static final int ELEMENT_TYPES                     = 47;
+    protected static final int ENABLED_ROLES                     = 48;
+    protected static final int INFORMATION_SCHEMA_CATALOG_NAME   = 49;
+    protected static final int JAR_JAR_USAGE                     = 50;
+    protected static final int JARS                              = 51;
+    protected static final int KEY_COLUMN_USAGE                  = 52;
+    protected static final int METHOD_SPECIFICATIONS             = 53;
+    protected static final int MODULE_COLUMN_USAGE               = 54;
+    protected static final int MODULE_PRIVILEGES                 = 55;
+    protected static final int MODULE_TABLE_USAGE                = 56;
+    protected static final int MODULES                           = 57;
+    protected static final int PARAMETERS                        = 58;
+    protected static final int REFERENTIAL_CONSTRAINTS           = 59;
+    protected static final int ROLE_AUTHORIZATION_DESCRIPTORS    = 60;
+    protected static final int ROLE_COLUMN_GRANTS                = 61;
+    protected static final int ROLE_MODULE_GRANTS                = 62;
+    protected static final int ROLE_ROUTINE_GRANTS               = 63;
+    protected static final int ROLE_TABLE_GRANTS                 = 64;
+    protected static final int ROLE_UDT_GRANTS                   = 65;
+    protected static final int ROLE_USAGE_GRANTS                 = 66;
+    protected static final int ROUTINE_COLUMN_USAGE              = 67;
+    protected static final int ROUTINE_JAR_USAGE                 = 68;
+    protected static final int ROUTINE_PRIVILEGES                = 69;
+    protected static final int ROUTINE_ROUTINE_USAGE             = 70;
+    protected static final int ROUTINE_SEQUENCE_USAGE            = 71;
+    protected static final int ROUTINE_TABLE_USAGE               = 72;
+    protected static final int ROUTINES                          = 73;
+    protected static final int SCHEMATA                          = 74;
+    protected static final int SEQUENCES                         = 75;
+    protected static final int SQL_FEATURES                      = 76;
+    protected static final int SQL_IMPLEMENTATION_INFO           = 77;
+    protected static final int SQL_PACKAGES                      = 78;
+    protected static final int SQL_PARTS                         = 79;
+    protected static final int SQL_SIZING                        = 80;
+    protected static final int SQL_SIZING_PROFILES               = 81;
+    protected static final int TABLE_CONSTRAINTS                 = 82;
+    protected static final int TABLE_PRIVILEGES                  = 83;
+    protected static final int TABLES                            = 84;
+    protected static final int TRANSLATIONS                      = 85;
+    protected static final int TRIGGER_COLUMN_USAGE              = 86;
+    protected static final int TRIGGER_ROUTINE_USAGE             = 87;
+    protected static final int TRIGGER_SEQUENCE_USAGE            = 88;
+    protected static final int TRIGGER_TABLE_USAGE               = 89;
+    protected static final int TRIGGERED_UPDATE_COLUMNS          = 90;
+    protected static final int TRIGGERS                          = 91;
+    protected static final int TYPE_JAR_USAGE                    = 92;
+    protected static final int UDT_PRIVILEGES                    = 93;
+    protected static final int USAGE_PRIVILEGES                  = 94;
+    protected static final int USER_DEFINED_TYPES                = 95;
+    protected static final int VIEW_COLUMN_USAGE                 = 96;
+    protected static final int VIEW_ROUTINE_USAGE                = 97;
+    protected static final int VIEW_TABLE_USAGE                  = 98;
+    protected static final int VIEWS                             = 99;
 
 
     /** system table names strictly in order of their ids */
@@ -195,6 +197,8 @@ public class DatabaseInformation {
         "SYSTEM_TABLESTATS",                                     //
         "SYSTEM_TEXTTABLES",                                     //
         "SYSTEM_SYNONYMS",                                       //
+        "SYSTEM_METRICS",                                        //
+        "SYSTEM_STATEMENTSTATS",                                 //
 
         // SQL 200n
         "ADMINISTRABLE_ROLE_AUTHORIZATIONS",                     //
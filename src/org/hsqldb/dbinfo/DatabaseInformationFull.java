@@ -41,6 +41,7 @@ import java.security.PrivilegedAction;
 import org.hsqldb.ColumnSchema;
 import org.hsqldb.Constraint;
 import org.hsqldb.Database;
+import org.hsqldb.DatabaseMetrics;
 import org.hsqldb.Expression;
 import org.hsqldb.ExpressionColumn;
 import org.hsqldb.HsqlException;
@@ -56,6 +57,7 @@ import org.hsqldb.SchemaObjectSet;
 import org.hsqldb.Session;
 import org.hsqldb.SqlInvariants;
 import org.hsqldb.Statement;
+import org.hsqldb.StatementStatistics;
 import org.hsqldb.Table;
 import org.hsqldb.TableBase;
 import org.hsqldb.TextTable;
@@ -202,6 +204,12 @@ extends org.hsqldb.dbinfo.DatabaseInformationMain {
             case SYSTEM_SYNONYMS :
                 return SYSTEM_SYNONYMS(session, store);
 
+            case SYSTEM_METRICS :
+                return SYSTEM_METRICS(session, store);
+
+            case SYSTEM_STATEMENTSTATS :
+                return SYSTEM_STATEMENTSTATS(session, store);
+
             case SYSTEM_TABLESTATS :
                 return SYSTEM_TABLESTATS(session, store);
 
@@ -1290,6 +1298,218 @@ extends org.hsqldb.dbinfo.DatabaseInformationMain {
         return t;
     }
 
+    /**
+     * Retrieves a <code>Table</code> object describing the runtime metrics of
+     * this database, with one row for each metric. Metrics with the scope
+     * DATABASE are cumulative from the time the database was opened. Server
+     * request metrics are also reported for each session connected through
+     * a Server, with the scope SESSION followed by the session id. <p>
+     *
+     * <pre class="SqlCodeExample">
+     * METRIC_NAME  VARCHAR   name of the metric
+     * METRIC_SCOPE VARCHAR   DATABASE or SESSION n
+     * METRIC_TYPE  VARCHAR   COUNTER, GAUGE or HISTOGRAM
+     * METRIC_VALUE BIGINT    the value, or the count of recorded times
+     * TOTAL_MICROS BIGINT    total of recorded times
+     * MAX_MICROS   BIGINT    maximum recorded time
+     * P50_MICROS   BIGINT    median recorded time, to a power of two
+     * P99_MICROS   BIGINT    99th percentile, to a power of two
+     * </pre> <p>
+     *
+     * Only users with the DBA role see the rows of this table.
+     *
+     * @return a <code>Table</code> object describing the runtime metrics
+     */
+    Table SYSTEM_METRICS(Session session, PersistentStore store) {
+
+        Table t = sysTables[SYSTEM_METRICS];
+
+        if (t == null) {
+            t = createBlankTable(sysTableHsqlNames[SYSTEM_METRICS]);
+
+            addColumn(t, "METRIC_NAME", SQL_IDENTIFIER);     // not null
+            addColumn(t, "METRIC_SCOPE", CHARACTER_DATA);    // not null
+            addColumn(t, "METRIC_TYPE", CHARACTER_DATA);
+            addColumn(t, "METRIC_VALUE", CARDINAL_NUMBER);
+            addColumn(t, "TOTAL_MICROS", CARDINAL_NUMBER);
+            addColumn(t, "MAX_MICROS", CARDINAL_NUMBER);
+            addColumn(t, "P50_MICROS", CARDINAL_NUMBER);
+            addColumn(t, "P99_MICROS", CARDINAL_NUMBER);
+
+            HsqlName name = HsqlNameManager.newInfoSchemaObjectName(
+                sysTableHsqlNames[SYSTEM_METRICS].name, false,
+                SchemaObject.INDEX);
+
+            t.createPrimaryKeyConstraint(name, new int[] {
+                0, 1
+            }, true);
+
+            return t;
+        }
+
+        // column number mappings
+        final int iname   = 0;
+        final int iscope  = 1;
+        final int itype   = 2;
+        final int ivalue  = 3;
+        final int itotal  = 4;
+        final int imax    = 5;
+        final int ip50    = 6;
+        final int ip99    = 7;
+        final String scope = "DATABASE";
+
+        //
+        DatabaseMetrics metrics = database.metrics;
+        Object[]        row;
+
+        if (!session.isAdmin()) {
+            return t;
+        }
+
+        for (int i = 0; i < DatabaseMetrics.counterNames.length; i++) {
+            row         = t.getEmptyRowData();
+            row[iname]  = DatabaseMetrics.counterNames[i];
+            row[iscope] = scope;
+            row[itype]  = "COUNTER";
+            row[ivalue] = ValuePool.getLong(metrics.getCounter(i));
+
+            t.insertSys(session, store, row);
+        }
+
+        for (int i = 0; i < DatabaseMetrics.gaugeNames.length; i++) {
+            row         = t.getEmptyRowData();
+            row[iname]  = DatabaseMetrics.gaugeNames[i];
+            row[iscope] = scope;
+            row[itype]  = "GAUGE";
+            row[ivalue] = ValuePool.getLong(metrics.getGauge(i));
+
+            t.insertSys(session, store, row);
+        }
+
+        for (int i = 0; i < DatabaseMetrics.histogramNames.length; i++) {
+            DatabaseMetrics.Histogram histogram = metrics.getHistogram(i);
+
+            row         = t.getEmptyRowData();
+            row[iname]  = DatabaseMetrics.histogramNames[i];
+            row[iscope] = scope;
+            row[itype]  = "HISTOGRAM";
+            row[ivalue] = ValuePool.getLong(histogram.getCount());
+            row[itotal] = ValuePool.getLong(histogram.getTotal());
+            row[imax]   = ValuePool.getLong(histogram.getMax());
+            row[ip50]   = ValuePool.getLong(histogram.getPercentile(50));
+            row[ip99]   = ValuePool.getLong(histogram.getPercentile(99));
+
+            t.insertSys(session, store, row);
+        }
+
+        Session[] sessions = database.sessionManager.getAllSessions();
+
+        for (int i = 0; i < sessions.length; i++) {
+            Session s = sessions[i];
+
+            if (s.isClosed() || s.getServerRequestCount() == 0) {
+                continue;
+            }
+
+            row         = t.getEmptyRowData();
+            row[iname] =
+                DatabaseMetrics.counterNames[DatabaseMetrics.SERVER_REQUESTS];
+            row[iscope] = "SESSION " + s.getId();
+            row[itype]  = "COUNTER";
+            row[ivalue] = ValuePool.getLong(s.getServerRequestCount());
+            row[itotal] = ValuePool.getLong(s.getServerRequestTime());
+
+            t.insertSys(session, store, row);
+        }
+
+        return t;
+    }
+
+    /**
+     * Retrieves a <code>Table</code> object describing the aggregated
+     * execution statistics of the SQL statements executed in this database,
+     * with one row for each distinct statement text. Statistics are collected
+     * only when the hsqldb.statement_stats property is true. <p>
+     *
+     * <pre class="SqlCodeExample">
+     * SQL          VARCHAR   the text of the statement
+     * CALLS        BIGINT    number of executions
+     * TOTAL_MICROS BIGINT    total execution time
+     * MIN_MICROS   BIGINT    minimum execution time
+     * MAX_MICROS   BIGINT    maximum execution time
+     * MEAN_MICROS  BIGINT    mean execution time
+     * ROWS         BIGINT    total of returned or updated rows
+     * ERRORS       BIGINT    number of executions that returned an error
+     * </pre> <p>
+     *
+     * Only users with the DBA role see the rows of this table.
+     *
+     * @return a <code>Table</code> object describing the statement statistics
+     */
+    Table SYSTEM_STATEMENTSTATS(Session session, PersistentStore store) {
+
+        Table t = sysTables[SYSTEM_STATEMENTSTATS];
+
+        if (t == null) {
+            t = createBlankTable(sysTableHsqlNames[SYSTEM_STATEMENTSTATS]);
+
+            addColumn(t, "SQL", CHARACTER_DATA);    // not null
+            addColumn(t, "CALLS", CARDINAL_NUMBER);
+            addColumn(t, "TOTAL_MICROS", CARDINAL_NUMBER);
+            addColumn(t, "MIN_MICROS", CARDINAL_NUMBER);
+            addColumn(t, "MAX_MICROS", CARDINAL_NUMBER);
+            addColumn(t, "MEAN_MICROS", CARDINAL_NUMBER);
+            addColumn(t, "ROWS", CARDINAL_NUMBER);
+            addColumn(t, "ERRORS", CARDINAL_NUMBER);
+
+            HsqlName name = HsqlNameManager.newInfoSchemaObjectName(
+                sysTableHsqlNames[SYSTEM_STATEMENTSTATS].name, false,
+                SchemaObject.INDEX);
+
+            t.createPrimaryKeyConstraint(name, new int[]{ 0 }, true);
+
+            return t;
+        }
+
+        // column number mappings
+        final int isql    = 0;
+        final int icalls  = 1;
+        final int itotal  = 2;
+        final int imin    = 3;
+        final int imax    = 4;
+        final int imean   = 5;
+        final int irows   = 6;
+        final int ierrors = 7;
+
+        //
+        Object[] row;
+
+        if (!session.isAdmin()) {
+            return t;
+        }
+
+        StatementStatistics.Entry[] entries =
+            database.statementStats.getEntries();
+
+        for (int i = 0; i < entries.length; i++) {
+            StatementStatistics.Entry entry = entries[i];
+
+            row          = t.getEmptyRowData();
+            row[isql]    = entry.sql;
+            row[icalls]  = ValuePool.getLong(entry.calls);
+            row[itotal]  = ValuePool.getLong(entry.totalTime);
+            row[imin]    = ValuePool.getLong(entry.minTime);
+            row[imax]    = ValuePool.getLong(entry.maxTime);
+            row[imean]   = ValuePool.getLong(entry.totalTime / entry.calls);
+            row[irows]   = ValuePool.getLong(entry.rows);
+            row[ierrors] = ValuePool.getLong(entry.errors);
+
+            t.insertSys(session, store, row);
+        }
+
+        return t;
+    }
+
     /**
      * Retrieves a <code>Table</code> object describing the TEXT TABLE objects
      * defined within this database. The table contains one row for each row
@@ -1506,6 +1726,7 @@ extends org.hsqldb.dbinfo.DatabaseInformationMain {
 
                 case TableBase.MEMORY_TABLE :
                 case TableBase.CACHED_TABLE :
+                case TableBase.OFFHEAP_TABLE :
                 case TableBase.TEXT_TABLE :
                     break;
 
@@ -143,7 +143,7 @@ import org.hsqldb.types.Types;
  * (fredt@users) <p>
  * @author Campbell Burnet (campbell-burnet@users dot sourceforge.net)
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.3
+ * @version 2.3.5
  * @since 1.7.2
  */
 class DatabaseInformationMain extends DatabaseInformation {
@@ -191,6 +191,8 @@ class DatabaseInformationMain extends DatabaseInformation {
             nonCachedTablesSet.add("SYSTEM_SEQUENCES");
             nonCachedTablesSet.add("SYSTEM_INDEXSTATS");
             nonCachedTablesSet.add("SYSTEM_TABLESTATS");
+            nonCachedTablesSet.add("SYSTEM_METRICS");
+            nonCachedTablesSet.add("SYSTEM_STATEMENTSTATS");
         }
     }
 
@@ -42,7 +42,7 @@ import org.hsqldb.types.Type;
 /**
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.2.9
+ * @version 2.3.5
  * @since 1.9.0
  */
 public interface Index extends SchemaObject {
@@ -135,6 +135,16 @@ public interface Index extends SchemaObject {
 
     boolean isClustered();
 
+    /**
+     * Returns true if the index has a hash table for equality lookups.
+     */
+    boolean isHashed();
+
+    /**
+     * Adds a hash table for equality lookups to a MEMORY table index.
+     */
+    void setHashed(Session session, PersistentStore store);
+
     /**
      * Returns the node count.
      */
@@ -108,7 +108,7 @@ import org.hsqldb.types.Type;
  *
  * @author Thomas Mueller (Hypersonic SQL Group)
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.3
+ * @version 2.3.5
  * @since Hypersonic SQL
  */
 public class IndexAVL implements Index {
@@ -243,6 +243,11 @@ public class IndexAVL implements Index {
         sb.append(((Table) table).getName().getSchemaQualifiedStatementName());
         sb.append(((Table) table).getColumnListSQL(colIndex, colIndex.length));
 
+        if (isHashed()) {
+            sb.append(' ').append(Tokens.T_USING).append(' ');
+            sb.append("HASH");
+        }
+
         return sb.toString();
     }
 
@@ -367,6 +372,14 @@ public class IndexAVL implements Index {
         return isClustered;
     }
 
+    public boolean isHashed() {
+        return false;
+    }
+
+    public void setHashed(Session session, PersistentStore store) {
+        throw Error.error(ErrorCode.X_0A501, "HASH");
+    }
+
     /**
      * Returns the node count.
      */
@@ -788,8 +801,12 @@ public class IndexAVL implements Index {
                                     Row existingRow, boolean useRowId,
                                     int start) {
 
-        Object[] a = newRow.getData();
-        Object[] b = existingRow.getData();
+        // rows of text tables may not be in memory when only the row id is
+        // compared
+        Object[] a = start < colIndex.length ? newRow.getData()
+                                             : null;
+        Object[] b = start < colIndex.length ? existingRow.getData()
+                                             : null;
 
         for (int j = start; j < colIndex.length; j++) {
             int i = colTypes[j].compare(session, a[colIndex[j]],
@@ -73,6 +73,7 @@ package org.hsqldb.index;
 import org.hsqldb.Constraint;
 import org.hsqldb.HsqlNameManager;
 import org.hsqldb.HsqlNameManager.HsqlName;
+import org.hsqldb.OpTypes;
 import org.hsqldb.Row;
 import org.hsqldb.RowAVL;
 import org.hsqldb.Session;
@@ -88,13 +89,38 @@ import org.hsqldb.types.Type;
  *
  *  New class derived from Hypersonic SQL code and enhanced in HSQLDB. <p>
  *
+ * An index created with USING HASH is layered. The AVL tree is kept and a
+ * NodeHashTable of the distinct keys is added on top. Only equality lookups
+ * on all the index columns use the hash table. Range scans, ordered access,
+ * unique checks and MVCC visibility all use the tree, so the index behaves
+ * exactly like a tree index apart from the cost of lookups.<p>
+ *
+ * The costs of this design are:<p>
+ * <ul>
+ * <li>Memory: the tree nodes are kept, and the hash table adds one int and
+ * one reference per slot. The table is at most half full and does not
+ * shrink until all rows are removed.</li>
+ * <li>Insert: the tree insert is followed by a hash probe.</li>
+ * <li>Delete: the hash entry is moved to the next node with the same key,
+ * which needs a walk to the neighbouring nodes in the tree.</li>
+ * <li>Lookup: after the probe, the tree is walked back to the first node
+ * with the key and forward to the first row visible to the session. With
+ * many duplicate keys this is linear in the number of duplicates.</li>
+ * </ul><p>
+ *
+ * A tree-less hash index would need its own unique checks, MVCC chains and
+ * ordered access for the optimiser. It is not implemented.<p>
+ *
  * @author Thomas Mueller (Hypersonic SQL Group)
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 1.9.0
+ * @version 2.3.5
  * @since Hypersonic SQL
  */
 public class IndexAVLMemory extends IndexAVL {
 
+    // hash table of keys for an index created with USING HASH
+    private NodeHashTable hashTable;
+
     /**
      * Constructor declaration
      *
@@ -120,11 +146,76 @@ public class IndexAVLMemory extends IndexAVL {
               unique, constraint, forward);
     }
 
+    /**
+     * Throws if an index on columns of the given types cannot be created
+     * with USING HASH.
+     */
+    public static void checkHashTypes(Type[] types) {
+        NodeHashTable.checkTypes(types);
+    }
+
+    public boolean isHashed() {
+        return hashTable != null;
+    }
+
+    /**
+     * Adds a hash table for equality lookups on all the index columns and
+     * fills it with the existing rows. The store is null if the index is not
+     * yet in use.
+     */
+    public void setHashed(Session session, PersistentStore store) {
+
+        NodeHashTable.checkTypes(colTypes);
+
+        NodeHashTable newTable = new NodeHashTable(this);
+
+        if (store != null) {
+            store.writeLock();
+
+            try {
+                NodeAVL x = getAccessor(store);
+
+                if (x != null) {
+                    while (x.nLeft != null) {
+                        x = x.nLeft;
+                    }
+                }
+
+                while (x != null) {
+                    newTable.add(session, x);
+
+                    x = next(store, x);
+                }
+            } finally {
+                store.writeUnlock();
+            }
+        }
+
+        hashTable = newTable;
+    }
+
     /**
      * Insert a node into the index
      */
     public void insert(Session session, PersistentStore store, Row row) {
 
+        if (hashTable == null) {
+            insertNode(session, store, row);
+
+            return;
+        }
+
+        // the accessor is cleared when all rows are removed from the store
+        if (getAccessor(store) == null) {
+            hashTable.clear();
+        }
+
+        insertNode(session, store, row);
+        hashTable.add(session, ((RowAVL) row).getNode(position));
+    }
+
+    private void insertNode(Session session, PersistentStore store, Row row) {
+
         NodeAVL        n;
         NodeAVL        x;
         boolean        isleft        = true;
@@ -201,6 +292,96 @@ public class IndexAVLMemory extends IndexAVL {
         balance(store, x, isleft);
     }
 
+    public void delete(Session session, PersistentStore store, Row row) {
+
+        if (hashTable != null) {
+            NodeAVL x = ((RowAVL) row).getNode(position);
+
+            if (x != null) {
+                hashTable.remove(session, x, next(store, x), last(store, x));
+            }
+        }
+
+        super.delete(session, store, row);
+    }
+
+    /**
+     * With a hash table, equality lookups on all the index columns probe the
+     * table for a node with the key, then move to the first such node that
+     * can be read by the session.
+     */
+    NodeAVL findNode(Session session, PersistentStore store, Object[] rowdata,
+                     int[] rowColMap, int fieldCount, int compareType,
+                     int readMode, boolean reversed) {
+
+        if (hashTable == null || compareType != OpTypes.EQUAL || reversed
+                || fieldCount != colIndex.length
+                || !hashTable.isHashable(rowdata, rowColMap)) {
+            return super.findNode(session, store, rowdata, rowColMap,
+                                  fieldCount, compareType, readMode,
+                                  reversed);
+        }
+
+        store.readLock();
+
+        try {
+            if (getAccessor(store) == null) {
+                return null;
+            }
+
+            NodeAVL result = hashTable.get(session, rowdata, rowColMap);
+
+            if (result == null) {
+                return null;
+            }
+
+            while (true) {
+                NodeAVL prev = last(store, result);
+
+                if (prev == null
+                        || compareRowNonUnique(
+                            session, prev.row.getData(), rowdata, rowColMap,
+                            fieldCount) != 0) {
+                    break;
+                }
+
+                result = prev;
+            }
+
+            if (session == null) {
+                return result;
+            }
+
+            while (result != null) {
+                Row currentRow = result.row;
+
+                if (session.database.txManager.canRead(session, store,
+                                                       currentRow, readMode,
+                                                       colIndex)) {
+                    break;
+                }
+
+                result = next(store, result);
+
+                if (result == null) {
+                    break;
+                }
+
+                if (compareRowNonUnique(
+                        session, result.row.getData(), rowdata, rowColMap,
+                        fieldCount) != 0) {
+                    result = null;
+
+                    break;
+                }
+            }
+
+            return result;
+        } finally {
+            store.readUnlock();
+        }
+    }
+
     void delete(PersistentStore store, NodeAVL x) {
 
         if (x == null) {
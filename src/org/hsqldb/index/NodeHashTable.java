@@ -0,0 +1,416 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+
+package org.hsqldb.index;
+
+import org.hsqldb.Session;
+import org.hsqldb.error.Error;
+import org.hsqldb.error.ErrorCode;
+import org.hsqldb.types.BinaryData;
+import org.hsqldb.types.Type;
+import org.hsqldb.types.Types;
+
+/**
+ * Open addressing hash table used by an IndexAVLMemory created with
+ * USING HASH. For each distinct key in the index, the table holds the first
+ * node in index order with that key, so equality lookups avoid the tree
+ * descent while range scans and ordered access still use the tree.<p>
+ *
+ * Linear probing is used, with backward shift on removal. Hash values are
+ * computed consistently with the equality rules of the column types; rows
+ * with a null key are not entered in the table.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+final class NodeHashTable {
+
+    static final int initialCapacity = 64;
+
+    //
+    private final IndexAVLMemory index;
+    private final Type[]         colTypes;
+    private final int[]          colIndex;
+    private int[]                hashes;
+    private NodeAVL[]            nodes;
+    private int                  mask;
+    private int                  size;
+
+    NodeHashTable(IndexAVLMemory index) {
+
+        this.index = index;
+        colTypes   = index.colTypes;
+        colIndex   = index.colIndex;
+
+        clear();
+    }
+
+    /**
+     * Throws if a column type has no hash function consistent with its
+     * comparison.
+     */
+    static void checkTypes(Type[] types) {
+
+        for (int i = 0; i < types.length; i++) {
+            switch (types[i].typeCode) {
+
+                case Types.TINYINT :
+                case Types.SQL_SMALLINT :
+                case Types.SQL_INTEGER :
+                case Types.SQL_BIGINT :
+                case Types.SQL_BOOLEAN :
+                case Types.SQL_BINARY :
+                case Types.SQL_VARBINARY :
+                    break;
+
+                case Types.SQL_CHAR :
+                case Types.SQL_VARCHAR :
+                    if (types[i].getCollation().isLanguageCollation()) {
+                        throw Error.error(ErrorCode.X_0A501,
+                                          types[i].getCollation().getName()
+                                              .statementName);
+                    }
+                    break;
+
+                default :
+                    throw Error.error(ErrorCode.X_0A501,
+                                      types[i].getNameString());
+            }
+        }
+    }
+
+    void clear() {
+
+        hashes = new int[initialCapacity];
+        nodes  = new NodeAVL[initialCapacity];
+        mask   = initialCapacity - 1;
+        size   = 0;
+    }
+
+    /**
+     * Returns a node with the key, or null if there is no such row. The key
+     * must be hashable.
+     */
+    NodeAVL get(Session session, Object[] rowData, int[] rowColMap) {
+
+        int slot = find(session, rowData, rowColMap,
+                        getHash(rowData, rowColMap));
+
+        return nodes[slot];
+    }
+
+    /**
+     * Adds a node that has been inserted in the index, if its row is the
+     * first with its key.
+     */
+    void add(Session session, NodeAVL node) {
+
+        Object[] rowData = node.row.getData();
+
+        if (!isHashable(rowData, colIndex)) {
+            return;
+        }
+
+        int     hash     = getHash(rowData, colIndex);
+        int     slot     = find(session, rowData, colIndex, hash);
+        NodeAVL existing = nodes[slot];
+
+        if (existing == null) {
+            hashes[slot] = hash;
+            nodes[slot]  = node;
+
+            size++;
+
+            if (size * 2 > nodes.length) {
+                resize(nodes.length * 2);
+            }
+        } else if (node.row.getPos() < existing.row.getPos()) {
+            nodes[slot] = node;
+        }
+    }
+
+    /**
+     * Called before a node is removed from the index. If the node is the
+     * entry for its key, it is replaced with an adjacent node with the same
+     * key, if any.
+     */
+    void remove(Session session, NodeAVL node, NodeAVL next, NodeAVL last) {
+
+        Object[] rowData = node.row.getData();
+
+        if (!isHashable(rowData, colIndex)) {
+            return;
+        }
+
+        int slot = find(session, rowData, colIndex,
+                        getHash(rowData, colIndex));
+
+        if (nodes[slot] != node) {
+            return;
+        }
+
+        if (next != null
+                && index.compareRowNonUnique(
+                    session, next.row.getData(), rowData,
+                    colIndex) == 0) {
+            nodes[slot] = next;
+
+            return;
+        }
+
+        if (last != null
+                && index.compareRowNonUnique(
+                    session, last.row.getData(), rowData,
+                    colIndex) == 0) {
+            nodes[slot] = last;
+
+            return;
+        }
+
+        removeSlot(slot);
+    }
+
+    private int find(Session session, Object[] rowData, int[] rowColMap,
+                     int hash) {
+
+        int slot = hash & mask;
+
+        while (true) {
+            NodeAVL node = nodes[slot];
+
+            if (node == null) {
+                return slot;
+            }
+
+            if (hashes[slot] == hash
+                    && index.compareRowNonUnique(
+                        session, node.row.getData(), rowData, rowColMap,
+                        colIndex.length) == 0) {
+                return slot;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void removeSlot(int slot) {
+
+        int next = slot;
+
+        while (true) {
+            next = (next + 1) & mask;
+
+            if (nodes[next] == null) {
+                break;
+            }
+
+            int home = hashes[next] & mask;
+
+            // entry stays if its home slot is cyclically in (slot, next]
+            boolean stays = slot <= next ? slot < home && home <= next
+                                         : slot < home || home <= next;
+
+            if (stays) {
+                continue;
+            }
+
+            hashes[slot] = hashes[next];
+            nodes[slot]  = nodes[next];
+            slot         = next;
+        }
+
+        hashes[slot] = 0;
+        nodes[slot]  = null;
+
+        size--;
+    }
+
+    private void resize(int capacity) {
+
+        int[]     oldHashes = hashes;
+        NodeAVL[] oldNodes  = nodes;
+
+        hashes = new int[capacity];
+        nodes  = new NodeAVL[capacity];
+        mask   = capacity - 1;
+
+        for (int i = 0; i < oldNodes.length; i++) {
+            if (oldNodes[i] == null) {
+                continue;
+            }
+
+            int slot = oldHashes[i] & mask;
+
+            while (nodes[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+
+            hashes[slot] = oldHashes[i];
+            nodes[slot]  = oldNodes[i];
+        }
+    }
+
+    boolean isHashable(Object[] rowData, int[] rowColMap) {
+
+        for (int i = 0; i < colTypes.length; i++) {
+            Object value = rowData[rowColMap[i]];
+
+            if (value == null) {
+                return false;
+            }
+
+            switch (colTypes[i].typeCode) {
+
+                case Types.TINYINT :
+                case Types.SQL_SMALLINT :
+                case Types.SQL_INTEGER :
+                case Types.SQL_BIGINT :
+                    if (!(value instanceof Integer || value instanceof Long)) {
+                        return false;
+                    }
+                    break;
+
+                case Types.SQL_BOOLEAN :
+                    if (!(value instanceof Boolean)) {
+                        return false;
+                    }
+                    break;
+
+                case Types.SQL_CHAR :
+                case Types.SQL_VARCHAR :
+                    if (!(value instanceof String)) {
+                        return false;
+                    }
+                    break;
+
+                case Types.SQL_BINARY :
+                case Types.SQL_VARBINARY :
+                    if (!(value instanceof BinaryData)) {
+                        return false;
+                    }
+                    break;
+
+                default :
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Values that compare as equal have the same hash: integral values by
+     * their long value, strings without trailing spaces and, for case
+     * insensitive collations, by case folded characters, and binary values
+     * without trailing zero bytes.
+     */
+    private int getHash(Object[] rowData, int[] rowColMap) {
+
+        int hash = 0;
+
+        for (int i = 0; i < colTypes.length; i++) {
+            Object value = rowData[rowColMap[i]];
+            int    h;
+
+            switch (colTypes[i].typeCode) {
+
+                case Types.TINYINT :
+                case Types.SQL_SMALLINT :
+                case Types.SQL_INTEGER :
+                case Types.SQL_BIGINT : {
+                    long v = ((Number) value).longValue();
+
+                    h = (int) (v ^ (v >>> 32));
+
+                    break;
+                }
+                case Types.SQL_BOOLEAN :
+                    h = ((Boolean) value).booleanValue() ? 1231
+                                                         : 1237;
+                    break;
+
+                case Types.SQL_CHAR :
+                case Types.SQL_VARCHAR : {
+                    String s    = (String) value;
+                    boolean fold =
+                        !colTypes[i].getCollation().isUnicodeSimple();
+                    int end = s.length();
+
+                    while (end > 0 && s.charAt(end - 1) == ' ') {
+                        end--;
+                    }
+
+                    h = 0;
+
+                    for (int j = 0; j < end; j++) {
+                        char c = s.charAt(j);
+
+                        if (fold) {
+                            c = Character.toLowerCase(Character.toUpperCase(c));
+                        }
+
+                        h = 31 * h + c;
+                    }
+
+                    break;
+                }
+                case Types.SQL_BINARY :
+                case Types.SQL_VARBINARY : {
+                    byte[] bytes = ((BinaryData) value).getBytes();
+                    int    end   = bytes.length;
+
+                    while (end > 0 && bytes[end - 1] == 0) {
+                        end--;
+                    }
+
+                    h = 0;
+
+                    for (int j = 0; j < end; j++) {
+                        h = 31 * h + bytes[j];
+                    }
+
+                    break;
+                }
+                default :
+                    throw Error.runtimeError(ErrorCode.U_S0500,
+                                             "NodeHashTable");
+            }
+
+            hash = 31 * hash + h;
+        }
+
+        // spread the high bits as the table index uses the low bits
+        return hash ^ (hash >>> 16);
+    }
+}
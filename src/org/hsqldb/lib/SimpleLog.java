@@ -46,7 +46,7 @@ import org.hsqldb.HsqlDateTime;
  * and minor errors.
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.0
+ * @version 2.3.5
  * @since 1.8.0
  */
 public class SimpleLog {
@@ -66,6 +66,10 @@ public class SimpleLog {
         "", "BASIC ", "NORMAL", "DETAIL", "RESULT"
     };
 
+    //
+    private static final String lineSeparator =
+        System.getProperty("line.separator");
+
     //
     private PrintWriter  writer;
     private int          level;
@@ -122,7 +126,7 @@ public class SimpleLog {
         return level;
     }
 
-    public void setLevel(int level) {
+    public synchronized void setLevel(int level) {
 
         this.level = level;
 
@@ -134,6 +138,24 @@ public class SimpleLog {
     }
 
     public synchronized void logContext(int atLevel, String message) {
+        logContext(atLevel, System.currentTimeMillis(), null, message, null,
+                   true);
+    }
+
+    public synchronized void logContext(int atLevel, String prefix,
+                                        String message, String suffix) {
+        logContext(atLevel, System.currentTimeMillis(), prefix, message,
+                   suffix, true);
+    }
+
+    /**
+     * Writes an event that took place at the given time. The prefix and
+     * suffix are used only when not null. When flush is false, the caller
+     * flushes the log after writing a batch of events.
+     */
+    public synchronized void logContext(int atLevel, long millis,
+                                        String prefix, String message,
+                                        String suffix, boolean flush) {
 
         if (level < atLevel) {
             return;
@@ -143,44 +165,45 @@ public class SimpleLog {
             return;
         }
 
-        sb.append(HsqlDateTime.getSystemTimeString()).append(' ');
+        sb.append(HsqlDateTime.getSystemTimeString(millis)).append(' ');
 
         if (!isSQL) {
             sb.append(logTypeNames[atLevel]).append(' ');
         }
 
-        sb.append(message);
-        writer.println(sb.toString());
-        sb.setLength(0);
-        writer.flush();
-    }
+        if (prefix != null) {
+            sb.append(prefix).append(' ');
+        }
 
-    public synchronized void logContext(int atLevel, String prefix,
-                                        String message, String suffix) {
+        sb.append(message);
 
-        if (level < atLevel) {
-            return;
+        if (suffix != null) {
+            sb.append(' ').append(suffix);
         }
 
-        if (writer == null) {
-            return;
-        }
+        writeLine(flush);
+    }
 
-        sb.append(HsqlDateTime.getSystemTimeString()).append(' ');
+    public synchronized void logContext(Throwable t, String message,
+                                        int atLevel) {
 
-        if (!isSQL) {
-            sb.append(logTypeNames[atLevel]).append(' ');
-        }
+        Throwable           temp     = new Throwable();
+        StackTraceElement[] elements = temp.getStackTrace();
+        StackTraceElement   caller   = elements.length > 1 ? elements[1]
+                                                           : null;
 
-        sb.append(prefix).append(' ');
-        sb.append(message).append(' ').append(suffix);
-        writer.println(sb.toString());
-        sb.setLength(0);
-        writer.flush();
+        logContext(t, message, atLevel, System.currentTimeMillis(), caller,
+                   true);
     }
 
+    /**
+     * Writes an error that took place at the given time, reported by the
+     * given caller.
+     */
     public synchronized void logContext(Throwable t, String message,
-                                        int atLevel) {
+                                        int atLevel, long millis,
+                                        StackTraceElement caller,
+                                        boolean flush) {
 
         if (level == LOG_NONE) {
             return;
@@ -190,7 +213,7 @@ public class SimpleLog {
             return;
         }
 
-        sb.append(HsqlDateTime.getSystemTimeString()).append(' ');
+        sb.append(HsqlDateTime.getSystemTimeString(millis)).append(' ');
 
         if (!isSQL) {
             sb.append(logTypeNames[atLevel]).append(' ');
@@ -198,16 +221,13 @@ public class SimpleLog {
 
         sb.append(message);
 
-        Throwable           temp     = new Throwable();
-        StackTraceElement[] elements = temp.getStackTrace();
-
-        if (elements.length > 1) {
+        if (caller != null) {
             sb.append(' ');
-            sb.append(elements[1].getClassName()).append('.');
-            sb.append(elements[1].getMethodName());
+            sb.append(caller.getClassName()).append('.');
+            sb.append(caller.getMethodName());
         }
 
-        elements = t.getStackTrace();
+        StackTraceElement[] elements = t.getStackTrace();
 
         if (elements.length > 0) {
             sb.append(' ');
@@ -216,19 +236,30 @@ public class SimpleLog {
         }
 
         sb.append(' ').append(t.toString());
-        writer.println(sb.toString());
+        writeLine(flush);
+    }
+
+    private void writeLine(boolean flush) {
+
+        if (flush) {
+            writer.println(sb.toString());
+            writer.flush();
+        } else {
+            writer.write(sb.toString());
+            writer.write(lineSeparator);
+        }
+
         sb.setLength(0);
-        writer.flush();
     }
 
-    public void flush() {
+    public synchronized void flush() {
 
         if (writer != null) {
             writer.flush();
         }
     }
 
-    public void close() {
+    public synchronized void close() {
 
         if (writer != null && !isSystem) {
             writer.flush();
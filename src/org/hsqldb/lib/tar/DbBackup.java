@@ -64,7 +64,7 @@ import org.hsqldb.lib.InputStreamWrapper;
  * @see #setAbortUponModify(boolean)
  * @author Blaine Simpson (blaine dot simpson at admc dot com)
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.0
+ * @version 2.3.5
  * @since 2.0.0
  */
 public class DbBackup {
@@ -117,8 +117,10 @@ public class DbBackup {
 
         dbDir        = dbPathFile.getAbsoluteFile().getParentFile();
         instanceName = dbPathFile.getName();
-        componentFiles = new File[]{
-            new File(dbDir, instanceName + ".script"), };
+        componentFiles = new File[] {
+            new File(dbDir, instanceName + ".script"),
+            new File(dbDir, instanceName + ".lobs")
+        };
         componentStreams = new InputStreamInterface[componentFiles.length];
         existList        = new boolean[componentFiles.length];
         ignoreList       = new boolean[componentFiles.length];
@@ -243,7 +245,7 @@ public class DbBackup {
                 continue;
             }
 
-            if (!componentFiles[i].exists()) {
+            if (componentStreams[i] == null && !componentFiles[i].exists()) {
                 continue;
             }
 
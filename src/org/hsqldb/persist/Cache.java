@@ -31,6 +31,9 @@
 
 package org.hsqldb.persist;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hsqldb.DatabaseMetrics;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
 import org.hsqldb.lib.ArraySort;
@@ -49,7 +52,7 @@ import org.hsqldb.map.BaseHashMap;
  * to DataFileCache.<p>
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.3
+ * @version 2.3.5
  * @since 1.8.0
  */
 public class Cache extends BaseHashMap {
@@ -62,6 +65,10 @@ public class Cache extends BaseHashMap {
     private final BaseHashMap.BaseHashIterator objectIterator;
     private boolean                            updateAccess;
 
+    // number of changed rows, excluding space manager blocks
+    private final AtomicInteger changedCount;
+    private final boolean       countChanged;
+
     //
     private CachedObject[] rowTable;
     private long           cacheBytesLength;
@@ -89,6 +96,8 @@ public class Cache extends BaseHashMap {
         reserveCount = dfc instanceof TextCache
                        || dfc instanceof DataFileCacheSession ? 0
                                                               : 8;
+        changedCount = new AtomicInteger();
+        countChanged = reserveCount != 0;
     }
 
     long getTotalCachedBlockSize() {
@@ -221,6 +230,10 @@ public class Cache extends BaseHashMap {
         row.setInMemory(true);
 
         cacheBytesLength += row.getStorageSize();
+
+        if (isChangedRow(row)) {
+            changedCount.incrementAndGet();
+        }
     }
 
     /**
@@ -239,6 +252,10 @@ public class Cache extends BaseHashMap {
 
         r.setInMemory(false);
 
+        if (isChangedRow(r)) {
+            changedCount.decrementAndGet();
+        }
+
         return r;
     }
 
@@ -257,6 +274,10 @@ public class Cache extends BaseHashMap {
                 objectIterator.remove();
 
                 cacheBytesLength -= o.getStorageSize();
+
+                if (isChangedRow(o)) {
+                    changedCount.decrementAndGet();
+                }
             }
         }
     }
@@ -274,6 +295,10 @@ public class Cache extends BaseHashMap {
                 objectIterator.remove();
 
                 cacheBytesLength -= o.getStorageSize();
+
+                if (isChangedRow(o)) {
+                    changedCount.decrementAndGet();
+                }
             }
         }
     }
@@ -331,6 +356,7 @@ public class Cache extends BaseHashMap {
         updateAccessCounts();
 
         int savecount    = 0;
+        int evictCount   = 0;
         int removeCount  = size() / 2;
         int accessTarget = all ? accessCount + 1
                                : getAccessCountCeiling(removeCount,
@@ -362,6 +388,8 @@ public class Cache extends BaseHashMap {
                     objectIterator.remove();
 
                     cacheBytesLength -= row.getStorageSize();
+
+                    evictCount++;
                 }
             }
 
@@ -376,10 +404,15 @@ public class Cache extends BaseHashMap {
         setAccessCountFloor(accessTarget);
 
         accessCount++;
+
+        dataFileCache.database.metrics.add(DatabaseMetrics.CACHE_EVICTIONS,
+                                           evictCount);
     }
 
     void clearUnchanged() {
 
+        int evictCount = 0;
+
         objectIterator.reset();
 
         for (; objectIterator.hasNext(); ) {
@@ -391,9 +424,14 @@ public class Cache extends BaseHashMap {
                     objectIterator.remove();
 
                     cacheBytesLength -= row.getStorageSize();
+
+                    evictCount++;
                 }
             }
         }
+
+        dataFileCache.database.metrics.add(DatabaseMetrics.CACHE_EVICTIONS,
+                                           evictCount);
     }
 
     private synchronized void saveRows(int count) {
@@ -409,6 +447,82 @@ public class Cache extends BaseHashMap {
         saveRowCount += count;
     }
 
+    private boolean isChangedRow(CachedObject row) {
+        return countChanged && !row.isBlock() && row.hasChanged();
+    }
+
+    /**
+     * Counts a row in the cache that has changed since it was read or
+     * saved. Rows that are added to the cache with changes are counted by
+     * put().
+     */
+    void setRowChanged() {
+
+        if (countChanged) {
+            changedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Marks a row as saved and removes it from the count of changed rows.
+     */
+    void setRowSaved(CachedObject row) {
+
+        synchronized (row) {
+            if (isChangedRow(row)) {
+                changedCount.decrementAndGet();
+            }
+
+            row.setChanged(false);
+        }
+    }
+
+    /**
+     * Returns the number of modified rows held in the cache. The count is
+     * kept as rows change and are saved, so no rows are visited.
+     */
+    int getChangedCount() {
+        return changedCount.get();
+    }
+
+    /**
+     * Fills the array with modified rows that are not in use and have an
+     * access count in the lower half of the cache, sorted by file position.
+     * The rows are not removed from the cache. Used by the background writer
+     * so that later cleanUp() calls mostly evict unchanged rows. All the
+     * rows are visited once.
+     */
+    int getColdChangedRows(CachedObject[] rows, int limit) {
+
+        updateAccessCounts();
+
+        int count        = 0;
+        int removeCount  = size() / 2;
+        int accessTarget = getAccessCountCeiling(removeCount,
+            removeCount / 8);
+
+        objectIterator.reset();
+
+        for (; objectIterator.hasNext() && count < limit; ) {
+            CachedObject row = (CachedObject) objectIterator.next();
+
+            if (objectIterator.getAccessCount() >= accessTarget) {
+                continue;
+            }
+
+            synchronized (row) {
+                if (row.hasChanged() && !row.isKeepInMemory()) {
+                    rows[count++] = row;
+                }
+            }
+        }
+
+        rowComparator.setType(CachedObjectComparator.COMPARE_POSITION);
+        ArraySort.sort(rows, 0, count, rowComparator);
+
+        return count;
+    }
+
     /**
      * Writes out all modified cached Rows.
      */
@@ -465,6 +579,8 @@ public class Cache extends BaseHashMap {
         super.clear();
 
         cacheBytesLength = 0;
+
+        changedCount.set(0);
     }
 
     public Iterator getIterator() {
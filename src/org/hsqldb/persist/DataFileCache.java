@@ -35,17 +35,27 @@ import java.io.IOException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
 
 import org.hsqldb.Database;
+import org.hsqldb.DatabaseManager;
+import org.hsqldb.DatabaseMetrics;
 import org.hsqldb.HsqlException;
+import org.hsqldb.RowAVLDisk;
+import org.hsqldb.Table;
+import org.hsqldb.TableBase;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
 import org.hsqldb.lib.FileAccess;
 import org.hsqldb.lib.FileArchiver;
 import org.hsqldb.lib.FileUtil;
+import org.hsqldb.lib.HsqlArrayList;
+import org.hsqldb.lib.HsqlByteArrayOutputStream;
+import org.hsqldb.lib.HsqlTimer;
 import org.hsqldb.lib.IntIndex;
 import org.hsqldb.lib.Iterator;
 import org.hsqldb.map.BitMap;
+import org.hsqldb.navigator.RowIterator;
 import org.hsqldb.rowio.RowInputBinary180;
 import org.hsqldb.rowio.RowInputBinaryDecode;
 import org.hsqldb.rowio.RowInputInterface;
@@ -76,6 +86,7 @@ public class DataFileCache {
     public static final int FLAG_ROWINFO    = 3;
     public static final int FLAG_190        = 4;
     public static final int FLAG_HX         = 5;
+    public static final int FLAG_CHECKSUM   = 6;
 
     // file format fields
     static final int LONG_EMPTY_SIZE      = 4;        // empty space size
@@ -94,7 +105,8 @@ public class DataFileCache {
     protected String   dataFileName;
     protected String   backupFileName;
     protected Database database;
-    protected boolean  logEvents = true;
+    protected boolean  logEvents    = true;
+    protected boolean  useReadAhead = true;
 
     /**
      * this flag is used externally to determine if a backup is required
@@ -115,6 +127,7 @@ public class DataFileCache {
     protected long    spaceManagerPosition;
     protected long    fileStartFreePosition;
     protected boolean hasRowInfo = false;
+    protected boolean hasRowChecksum;
     protected int     storeCount;
 
     // reusable input / output streams
@@ -142,6 +155,32 @@ public class DataFileCache {
     Lock          readLock  = lock.readLock();
     Lock          writeLock = lock.writeLock();
 
+    // background writer of modified rows
+    static final int         writerPeriod    = 100;
+    static final int         writerChunkSize = 1024;
+    private ChangedRowWriter writer;
+    private CachedObject[]   writerRowTable;
+    private int              writerLimit = -1;
+
+    // background scrubber of rows with checksums
+    private Object           scrubTask;
+    private volatile boolean scrubStopped;
+
+    // buffer for coalescing adjacent rows in saveRows()
+    private HsqlByteArrayOutputStream rowWriteBuffer;
+
+    // read-ahead of rows for sequential reads, all positions in bytes
+    private byte[] readAheadBuffer;
+    private long   readAheadStart;
+    private int    readAheadLength;
+    private long   lastReadLimit;
+    private int    sequentialReadCount;
+
+    // counts of row space releases and row writes, checked by readers of
+    // the mapped file
+    private long releaseCount;
+    private long rowWriteCount;
+
     public DataFileCache(Database db, String baseFileName) {
 
         initParams(db, baseFileName, false);
@@ -224,6 +263,8 @@ public class DataFileCache {
      */
     public void open(boolean readonly) {
 
+        resetReadAhead();
+
         if (database.logger.isStoredFileAccess()) {
             openStoredFileAccess(readonly);
 
@@ -252,7 +293,8 @@ public class DataFileCache {
 
                 int flags = getFlags();
 
-                is180 = !BitMap.isSet(flags, FLAG_190);
+                is180          = !BitMap.isSet(flags, FLAG_190);
+                hasRowChecksum = BitMap.isSet(flags, FLAG_CHECKSUM);
 
                 if (BitMap.isSet(flags, FLAG_HX)) {
                     throw Error.error(ErrorCode.WRONG_DATABASE_FILE_VERSION);
@@ -362,7 +404,8 @@ public class DataFileCache {
             if (preexists) {
                 int flags = getFlags();
 
-                is180 = !BitMap.isSet(flags, FLAG_190);
+                is180          = !BitMap.isSet(flags, FLAG_190);
+                hasRowChecksum = BitMap.isSet(flags, FLAG_CHECKSUM);
 
                 dataFile.seek(LONG_EMPTY_SIZE);
 
@@ -380,6 +423,8 @@ public class DataFileCache {
 
                 openShadowFile();
             } else {
+                hasRowChecksum = database.logger.propCacheChecksum;
+
                 initNewFile();
             }
 
@@ -454,7 +499,8 @@ public class DataFileCache {
 
                 int flags = dataFile.readInt();
 
-                is180 = !BitMap.isSet(flags, FLAG_190);
+                is180          = !BitMap.isSet(flags, FLAG_190);
+                hasRowChecksum = BitMap.isSet(flags, FLAG_CHECKSUM);
 
                 dataFile.seek(LONG_FREE_POS_POS);
 
@@ -496,10 +542,13 @@ public class DataFileCache {
 
                 int flags = dataFile.readInt();
 
-                is180 = !BitMap.isSet(flags, FLAG_190);
+                is180          = !BitMap.isSet(flags, FLAG_190);
+                hasRowChecksum = BitMap.isSet(flags, FLAG_CHECKSUM);
 
                 openShadowFile();
             } else {
+                hasRowChecksum = database.logger.propCacheChecksum;
+
                 initNewFile();
             }
 
@@ -547,6 +596,10 @@ public class DataFileCache {
             flags = BitMap.set(flags, FLAG_ISSAVED);
             flags = BitMap.set(flags, FLAG_190);
 
+            if (hasRowChecksum) {
+                flags = BitMap.set(flags, FLAG_CHECKSUM);
+            }
+
             setFlags(flags);
 
             is180 = false;
@@ -717,6 +770,7 @@ public class DataFileCache {
         writeLock.lock();
 
         try {
+            releaseCount++;
             cache.clear();
         } finally {
             writeLock.unlock();
@@ -935,6 +989,8 @@ public class DataFileCache {
                     object.keepInMemory(true);
                 }
 
+                database.metrics.add(DatabaseMetrics.CACHE_HITS);
+
                 return object;
             }
 
@@ -951,12 +1007,16 @@ public class DataFileCache {
                     object.keepInMemory(true);
                 }
 
+                database.metrics.add(DatabaseMetrics.CACHE_HITS);
+
                 return object;
             }
         } finally {
             readLock.unlock();
         }
 
+        database.metrics.add(DatabaseMetrics.CACHE_MISSES);
+
         return getFromFile(pos, store, keep);
     }
 
@@ -979,12 +1039,16 @@ public class DataFileCache {
                     object.keepInMemory(true);
                 }
 
+                database.metrics.add(DatabaseMetrics.CACHE_HITS);
+
                 return object;
             }
         } finally {
             readLock.unlock();
         }
 
+        database.metrics.add(DatabaseMetrics.CACHE_MISSES);
+
         return getFromFile(pos, size, store, keep);
     }
 
@@ -1006,19 +1070,27 @@ public class DataFileCache {
                     object.keepInMemory(true);
                 }
 
+                database.metrics.add(DatabaseMetrics.CACHE_HITS);
+
                 return object;
             }
         } finally {
             readLock.unlock();
         }
 
+        database.metrics.add(DatabaseMetrics.CACHE_MISSES);
+
         return getFromFile(pos, store, keep);
     }
 
     private CachedObject getFromFile(long pos, PersistentStore store,
                                      boolean keep) {
 
-        CachedObject object = null;
+        CachedObject object = getFromMappedFile(pos, store, keep);
+
+        if (object != null) {
+            return object;
+        }
 
         writeLock.lock();
 
@@ -1153,6 +1225,113 @@ public class DataFileCache {
         }
     }
 
+    /**
+     * Reads the row directly from the memory mapped .data file under the read
+     * lock, so cache misses of concurrent readers do not wait for each other.
+     * The row is decoded from its own buffer and added to the cache only if
+     * no space has been released and no row has been written in the
+     * meantime, as a row may have been loaded by another session, changed
+     * and written back to the file while this copy was decoded. Returns null
+     * if the file is not mapped or the row must be read with the write lock.
+     */
+    private CachedObject getFromMappedFile(long pos, PersistentStore store,
+                                           boolean keep) {
+
+        if (is180 || !(dataFile instanceof RAFileHybrid)) {
+            return null;
+        }
+
+        RowInputBinaryDecode in;
+        RandomAccessInterface file;
+        long                  count;
+        long                  writeCount;
+
+        readLock.lock();
+
+        try {
+            RAFileNIO mappedFile = ((RAFileHybrid) dataFile).getMappedFile();
+
+            if (mappedFile == null) {
+                return null;
+            }
+
+            CachedObject object = cache.get(pos);
+
+            if (object != null) {
+                if (keep) {
+                    object.keepInMemory(true);
+                }
+
+                return object;
+            }
+
+            long filePos = pos * dataFileScale;
+            int  size    = mappedFile.readInt(filePos);
+
+            if (size <= 4 || filePos + size > fileFreePosition) {
+                return null;
+            }
+
+            byte[] buffer = new byte[size];
+
+            mappedFile.read(filePos + 4, buffer, 4, size - 4);
+            database.metrics.add(DatabaseMetrics.CACHE_BYTES_READ, size);
+
+            in = new RowInputBinaryDecode(database.logger.getCrypto(),
+                                          buffer);
+
+            in.resetRow(pos, size);
+
+            if (hasRowChecksum) {
+                checkRowChecksum(buffer, size, pos);
+            }
+
+            file       = dataFile;
+            count      = releaseCount;
+            writeCount = rowWriteCount;
+        } catch (Throwable t) {
+            return null;
+        } finally {
+            readLock.unlock();
+        }
+
+        CachedObject object;
+
+        try {
+            object = store.get(in);
+        } catch (Throwable t) {
+            return null;
+        }
+
+        if (object == null) {
+            return null;
+        }
+
+        writeLock.lock();
+
+        try {
+            CachedObject current = cache.get(pos);
+
+            if (current != null) {
+                object = current;
+            } else if (file != dataFile || count != releaseCount
+                       || writeCount != rowWriteCount) {
+                return null;
+            } else {
+                cache.put(object);
+                store.set(object);
+            }
+
+            if (keep) {
+                object.keepInMemory(true);
+            }
+
+            return object;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
     RowInputInterface getRaw(long pos) {
 
         writeLock.lock();
@@ -1169,12 +1348,28 @@ public class DataFileCache {
     private void readObject(long pos) {
 
         try {
+            if (readObjectAhead(pos)) {
+                return;
+            }
+
             dataFile.seek(pos * dataFileScale);
 
             int size = dataFile.readInt();
 
+            if (hasRowChecksum && size <= 4) {
+                throw Error.error(ErrorCode.DATA_FILE_ERROR,
+                                  "row size at position " + pos);
+            }
+
             rowIn.resetRow(pos, size);
             dataFile.read(rowIn.getBuffer(), 4, size - 4);
+            database.metrics.add(DatabaseMetrics.CACHE_BYTES_READ, size);
+
+            lastReadLimit = pos * dataFileScale + size;
+
+            if (hasRowChecksum) {
+                checkRowChecksum(rowIn.getBuffer(), size, pos);
+            }
         } catch (Throwable t) {
             logSevereEvent("DataFileCache.readObject", t, pos);
 
@@ -1190,12 +1385,111 @@ public class DataFileCache {
         }
     }
 
+    /**
+     * Reads the row from the read-ahead buffer. When the recent reads
+     * have been at ascending, nearly adjacent positions, the buffer is filled
+     * from the file with one read starting at the row. Returns false if
+     * the row has to be read from the file directly.
+     */
+    private boolean readObjectAhead(long pos) throws IOException {
+
+        int readAheadSize = database.logger.propCacheReadAheadSize;
+
+        if (readAheadSize == 0 || !useReadAhead) {
+            return false;
+        }
+
+        long filePos = pos * dataFileScale;
+
+        if (filePos >= lastReadLimit
+                && filePos - lastReadLimit < readAheadSize / 4) {
+            sequentialReadCount++;
+        } else {
+            sequentialReadCount = 0;
+        }
+
+        if (!isInReadAhead(filePos, 4)) {
+            if (sequentialReadCount < 2) {
+                return false;
+            }
+
+            long limit = fileFreePosition;
+
+            if (limit > dataFile.length()) {
+                limit = dataFile.length();
+            }
+
+            if (limit - filePos < readAheadSize) {
+                readAheadSize = (int) (limit - filePos);
+            }
+
+            if (readAheadSize <= 4) {
+                return false;
+            }
+
+            if (readAheadBuffer == null
+                    || readAheadBuffer.length
+                       < database.logger.propCacheReadAheadSize) {
+                readAheadBuffer =
+                    new byte[database.logger.propCacheReadAheadSize];
+            }
+
+            readAheadLength = 0;
+
+            dataFile.seek(filePos);
+            dataFile.read(readAheadBuffer, 0, readAheadSize);
+            database.metrics.add(DatabaseMetrics.CACHE_BYTES_READ,
+                                 readAheadSize);
+
+            readAheadStart  = filePos;
+            readAheadLength = readAheadSize;
+        }
+
+        int offset = (int) (filePos - readAheadStart);
+        int size   = ((readAheadBuffer[offset] & 0xff) << 24)
+                     + ((readAheadBuffer[offset + 1] & 0xff) << 16)
+                     + ((readAheadBuffer[offset + 2] & 0xff) << 8)
+                     + (readAheadBuffer[offset + 3] & 0xff);
+
+        if (size <= 4 || !isInReadAhead(filePos, size)) {
+            return false;
+        }
+
+        rowIn.resetRow(pos, size);
+        System.arraycopy(readAheadBuffer, offset + 4, rowIn.getBuffer(), 4,
+                         size - 4);
+
+        lastReadLimit = filePos + size;
+
+        if (hasRowChecksum) {
+            checkRowChecksum(rowIn.getBuffer(), size, pos);
+        }
+
+        return true;
+    }
+
+    private boolean isInReadAhead(long filePos, int size) {
+        return filePos >= readAheadStart
+               && filePos + size <= readAheadStart + readAheadLength;
+    }
+
+    /**
+     * Called when the file is written to or reopened.
+     */
+    private void resetReadAhead() {
+
+        readAheadLength     = 0;
+        lastReadLimit       = 0;
+        sequentialReadCount = 0;
+    }
+
     protected void readObject(long pos, int size) {
 
         try {
             rowIn.resetBlock(pos, size);
             dataFile.seek(pos * dataFileScale);
             dataFile.read(rowIn.getBuffer(), 0, size);
+            database.metrics.add(DatabaseMetrics.CACHE_BYTES_READ, size);
         } catch (Throwable t) {
             logSevereEvent("DataFileCache.readObject", t, pos);
 
@@ -1214,6 +1508,7 @@ public class DataFileCache {
         try {
             cacheModified = true;
 
+            releaseCount++;
             cache.releaseRange(startPos, limitPos);
         } finally {
             writeLock.unlock();
@@ -1227,6 +1522,7 @@ public class DataFileCache {
         try {
             cacheModified = true;
 
+            releaseCount++;
             cache.releaseRange(list, fileBlockItemCount);
         } finally {
             writeLock.unlock();
@@ -1240,6 +1536,8 @@ public class DataFileCache {
         try {
             cacheModified = true;
 
+            releaseCount++;
+
             return cache.release(pos);
         } finally {
             writeLock.unlock();
@@ -1254,6 +1552,7 @@ public class DataFileCache {
 
         int  pageCount   = copyShadow(rows, offset, count);
         long startTime   = cache.saveAllTimer.elapsedTime();
+        long startNanos  = System.nanoTime();
         long storageSize = 0;
 
         cache.saveAllTimer.start();
@@ -1262,17 +1561,262 @@ public class DataFileCache {
             setFileModified();
         }
 
-        for (int i = offset; i < offset + count; i++) {
-            CachedObject r = rows[i];
+        // rows are sorted by position; adjacent rows are written together
+        HsqlByteArrayOutputStream out   = getRowWriteBuffer();
+        long                      start = 0;
+        int                       first = offset;
+
+        try {
+            out.reset();
+
+            for (int i = offset; i < offset + count; i++) {
+                CachedObject r = rows[i];
+
+                writeRowOutput(r);
+
+                long pos  = r.getPos() * dataFileScale;
+                int  size = rowOut.getOutputStream().size();
+
+                if (out.size() > 0) {
+                    if (pos != start + out.size()
+                            || out.size() + size
+                               > database.logger.propCacheWriteSize) {
+                        saveRowWriteBuffer(rows, first, i, start);
+
+                        first = i;
+                    }
+                }
+
+                if (out.size() == 0) {
+                    start = pos;
+                }
 
-            saveRowNoLock(r);
+                out.write(rowOut.getOutputStream().getBuffer(), 0, size);
 
-            rows[i]     = null;
-            storageSize += r.getStorageSize();
+                storageSize += r.getStorageSize();
+            }
+
+            saveRowWriteBuffer(rows, first, offset + count, start);
+        } catch (HsqlException e) {
+            throw e;
+        } catch (Throwable t) {
+            logSevereEvent("DataFileCache.saveRows", t, start);
+
+            throw Error.error(ErrorCode.DATA_FILE_ERROR, t);
         }
 
         cache.saveAllTimer.stop();
         cache.logSaveRowsEvent(count, storageSize, startTime);
+        database.metrics.add(DatabaseMetrics.CACHE_BYTES_WRITTEN, storageSize);
+        database.metrics.addTime(DatabaseMetrics.CACHE_SAVE_TIME,
+                                 System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Called by a row in the cache when it changes after it was read or
+     * saved.
+     */
+    public void setRowChanged() {
+        cache.setRowChanged();
+    }
+
+    /**
+     * Starts the thread that writes modified rows when the
+     * hsqldb.cache_dirty_ratio property is set.
+     */
+    void startChangedRowWriter() {
+
+        if (cacheReadonly || database.logger.propCacheDirtyRatio == 0
+                || writer != null) {
+            return;
+        }
+
+        writerRowTable = new CachedObject[writerChunkSize];
+        writerLimit    = -1;
+        writer         = new ChangedRowWriter();
+
+        Thread thread = new Thread(writer,
+                                   "HSQLDB Cache Writer "
+                                   + database.getPath());
+
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the writer thread. The thread is not interrupted, as an
+     * interrupt closes the channel of an nio data file. A write in progress
+     * completes under the write lock, before the file is closed.
+     */
+    void stopChangedRowWriter() {
+
+        if (writer != null) {
+            writer.stop();
+
+            writer = null;
+        }
+    }
+
+    /**
+     * Starts the periodic scrubber of rows when the file has row checksums
+     * and the hsqldb.cache_scrub_interval property is set.
+     */
+    void startRowScrubber() {
+
+        int interval = database.logger.propCacheScrubInterval;
+
+        if (!hasRowChecksum || interval == 0 || scrubTask != null) {
+            return;
+        }
+
+        scrubStopped = false;
+        scrubTask = DatabaseManager.getTimer().schedulePeriodicallyAfter(
+            interval * 1000L, interval * 1000L, new RowScrubber(), false);
+    }
+
+    void stopRowScrubber() {
+
+        scrubStopped = true;
+
+        if (scrubTask != null) {
+            HsqlTimer.cancel(scrubTask);
+
+            scrubTask = null;
+        }
+    }
+
+    /**
+     * Reads all the rows of CACHED tables. The rows that are not in the
+     * cache are read from the file and their checksums are verified, so
+     * damaged rows are reported before they are needed by a query.
+     */
+    void scrubRows() {
+
+        HsqlArrayList allTables = database.schemaManager.getAllTables(true);
+        long          count     = 0;
+
+        for (int i = 0, size = allTables.size(); i < size; i++) {
+            Table table = (Table) allTables.get(i);
+
+            if (table.getTableType() != TableBase.CACHED_TABLE) {
+                continue;
+            }
+
+            try {
+                PersistentStore store =
+                    database.persistentStoreCollection.getStore(table);
+                RowIterator it = store.rowIterator();
+
+                while (it.next()) {
+                    if (scrubStopped) {
+                        return;
+                    }
+
+                    count++;
+                }
+            } catch (HsqlException e) {
+                if (scrubStopped || table.isDropped()) {
+                    return;
+                }
+
+                logSevereEvent("DataFileCache.scrubRows "
+                               + table.getName().name, e);
+            } catch (Throwable t) {
+
+                // closed or changed while scrubbing
+                return;
+            }
+        }
+
+        logDetailEvent("dataFileCache scrub rows " + count);
+    }
+
+    /**
+     * Writes one chunk of modified rows that have not been accessed recently,
+     * sorted by file position, once the proportion of modified rows in the
+     * cache exceeds the dirty ratio, and then until it falls to half the
+     * dirty ratio. The count of modified rows is kept by the cache, so the
+     * rows are visited only when a chunk is collected. Returns true if more
+     * rows should be written without waiting for the next period.
+     */
+    boolean saveChangedRows() {
+
+        int  ratio   = database.logger.propCacheDirtyRatio;
+        long size    = cache.size();
+        long changed = cache.getChangedCount();
+
+        if (writerLimit == -1) {
+            if (changed * 100 < size * ratio) {
+                return false;
+            }
+
+            writerLimit = (int) (size * ratio / 200);
+        }
+
+        if (changed <= writerLimit) {
+            writerLimit = -1;
+
+            return false;
+        }
+
+        writeLock.lock();
+
+        try {
+            if (dataFile == null || cacheReadonly || writer == null) {
+                return false;
+            }
+
+            int limit = (int) Math.min(changed - writerLimit,
+                                       writerRowTable.length);
+            int count = cache.getColdChangedRows(writerRowTable, limit);
+
+            if (count == 0) {
+                writerLimit = -1;
+
+                return false;
+            }
+
+            saveRows(writerRowTable, 0, count);
+        } finally {
+            writeLock.unlock();
+        }
+
+        return true;
+    }
+
+    private HsqlByteArrayOutputStream getRowWriteBuffer() {
+
+        if (rowWriteBuffer == null) {
+            rowWriteBuffer = new HsqlByteArrayOutputStream(initIOBufferSize);
+        }
+
+        return rowWriteBuffer;
+    }
+
+    /**
+     * Writes the contiguous serialized rows in the write buffer with a single
+     * call and marks the rows saved.
+     */
+    private void saveRowWriteBuffer(CachedObject[] rows, int from, int limit,
+                                    long start) throws IOException {
+
+        if (from == limit) {
+            return;
+        }
+
+        resetReadAhead();
+
+        rowWriteCount++;
+
+        dataFile.seek(start);
+        dataFile.write(rowWriteBuffer.getBuffer(), 0, rowWriteBuffer.size());
+        rowWriteBuffer.reset();
+
+        for (int i = from; i < limit; i++) {
+            cache.setRowSaved(rows[i]);
+
+            rows[i] = null;
+        }
     }
 
     /**
@@ -1295,6 +1839,14 @@ public class DataFileCache {
     public void saveRowOutput(long pos) {
 
         try {
+            if (hasRowChecksum) {
+                setRowOutputChecksum();
+            }
+
+            resetReadAhead();
+
+            rowWriteCount++;
+
             dataFile.seek(pos * dataFileScale);
             dataFile.write(rowOut.getOutputStream().getBuffer(), 0,
                            rowOut.getOutputStream().size());
@@ -1308,12 +1860,15 @@ public class DataFileCache {
     protected void saveRowNoLock(CachedObject row) {
 
         try {
-            rowOut.reset();
-            row.write(rowOut);
+            resetReadAhead();
+
+            rowWriteCount++;
+
+            writeRowOutput(row);
             dataFile.seek(row.getPos() * dataFileScale);
             dataFile.write(rowOut.getOutputStream().getBuffer(), 0,
                            rowOut.getOutputStream().size());
-            row.setChanged(false);
+            cache.setRowSaved(row);
         } catch (Throwable t) {
             logSevereEvent("DataFileCache.saveRowNoLock", t, row.getPos());
 
@@ -1321,6 +1876,60 @@ public class DataFileCache {
         }
     }
 
+    /**
+     * Writes the object to rowOut. When the file has row checksums, rows are
+     * always written whole, with the checksum in the last four bytes.
+     */
+    private void writeRowOutput(CachedObject object) {
+
+        rowOut.reset();
+
+        if (hasRowChecksum && object instanceof RowAVLDisk) {
+            object.write(rowOut, null);
+            setRowOutputChecksum();
+        } else {
+            object.write(rowOut);
+        }
+    }
+
+    private void setRowOutputChecksum() {
+
+        byte[] buffer = rowOut.getBuffer();
+        int    size   = rowOut.size();
+        int    value  = getChecksum(buffer, size);
+
+        buffer[size - 4] = (byte) (value >>> 24);
+        buffer[size - 3] = (byte) (value >>> 16);
+        buffer[size - 2] = (byte) (value >>> 8);
+        buffer[size - 1] = (byte) value;
+    }
+
+    /**
+     * Throws if the checksum in the last four bytes of the row does not
+     * match the rest of the row, as after a torn or corrupted write.
+     */
+    private void checkRowChecksum(byte[] buffer, int size, long pos) {
+
+        int stored = ((buffer[size - 4] & 0xff) << 24)
+                     + ((buffer[size - 3] & 0xff) << 16)
+                     + ((buffer[size - 2] & 0xff) << 8)
+                     + (buffer[size - 1] & 0xff);
+
+        if (stored != getChecksum(buffer, size)) {
+            throw Error.error(ErrorCode.DATA_FILE_ERROR,
+                              "row checksum mismatch at position " + pos);
+        }
+    }
+
+    private static int getChecksum(byte[] buffer, int size) {
+
+        CRC32 crc = new CRC32();
+
+        crc.update(buffer, 0, size - 4);
+
+        return (int) crc.getValue();
+    }
+
     protected int copyShadow(CachedObject[] rows, int offset, int count) {
 
         int pageCount = 0;
@@ -1332,12 +1941,41 @@ public class DataFileCache {
             cache.shadowTimer.start();
 
             try {
+
+                // rows are sorted by position; the ranges of rows that fall in
+                // the same or consecutive pages are copied together
+                long limitpos = 0;
+                int  pageSize = shadowFile.pageSize;
+
                 for (int i = offset; i < offset + count; i++) {
-                    CachedObject row = rows[i];
+                    CachedObject row   = rows[i];
+                    long         pos   = row.getPos() * dataFileScale;
+                    long         limit = pos + row.getStorageSize();
+
+                    if (i > offset
+                            && pos / pageSize <= limitpos / pageSize + 1
+                            && limit - seekpos
+                               <= database.logger.propCacheWriteSize) {
+                        if (limit > limitpos) {
+                            limitpos = limit;
+                        }
+
+                        continue;
+                    }
 
-                    seekpos = row.getPos() * dataFileScale;
+                    if (i > offset) {
+                        pageCount += shadowFile.copy(seekpos,
+                                                     (int) (limitpos
+                                                         - seekpos));
+                    }
+
+                    seekpos  = pos;
+                    limitpos = limit;
+                }
+
+                if (count > 0) {
                     pageCount += shadowFile.copy(seekpos,
-                                                 row.getStorageSize());
+                                                 (int) (limitpos - seekpos));
                 }
 
                 if (pageCount > 0) {
@@ -1583,6 +2221,30 @@ public class DataFileCache {
         return hasRowInfo;
     }
 
+    public boolean hasRowChecksum() {
+        return hasRowChecksum;
+    }
+
+    /**
+     * Used for the new file created by defrag, which must have the same row
+     * format as the source file.
+     */
+    void setRowChecksum(boolean value) {
+
+        try {
+            int flags = getFlags();
+
+            flags = value ? BitMap.set(flags, FLAG_CHECKSUM)
+                          : BitMap.unset(flags, FLAG_CHECKSUM);
+
+            setFlags(flags);
+
+            hasRowChecksum = value;
+        } catch (Throwable t) {
+            throw Error.error(ErrorCode.FILE_IO_ERROR, t);
+        }
+    }
+
     public boolean isFileModified() {
         return fileModified;
     }
@@ -1674,4 +2336,54 @@ public class DataFileCache {
             database.logger.logDetailEvent(message);
         }
     }
+
+    private class RowScrubber implements Runnable {
+
+        public void run() {
+            scrubRows();
+        }
+    }
+
+    private class ChangedRowWriter implements Runnable {
+
+        private boolean isStopped;
+
+        public void run() {
+
+            while (true) {
+                boolean more;
+
+                try {
+                    more = saveChangedRows();
+                } catch (Throwable t) {
+                    logSevereEvent("DataFileCache.saveChangedRows", t);
+
+                    more = false;
+                }
+
+                synchronized (this) {
+                    if (isStopped) {
+                        return;
+                    }
+
+                    if (!more) {
+                        try {
+                            wait(writerPeriod);
+                        } catch (InterruptedException e) {}
+                    }
+
+                    if (isStopped) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        synchronized void stop() {
+
+            isStopped = true;
+
+            notifyAll();
+        }
+    }
 }
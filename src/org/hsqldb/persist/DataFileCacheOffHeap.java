@@ -0,0 +1,150 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.persist;
+
+import org.hsqldb.Database;
+import org.hsqldb.error.Error;
+import org.hsqldb.error.ErrorCode;
+import org.hsqldb.lib.FileUtil;
+import org.hsqldb.lib.Iterator;
+
+/**
+ * A row store for OFFHEAP tables that keeps the serialized rows in memory
+ * outside the Java heap.<p>
+ *
+ * Rows are written in the same binary format as for CACHED tables, including
+ * the index nodes, and decoded into row objects when they are read into the
+ * cache. The cache limits the number of decoded rows on the heap. The stored
+ * data does not persist; OFFHEAP table rows are written to the .script and
+ * .log files in the same way as MEMORY table rows.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public class DataFileCacheOffHeap extends DataFileCache {
+
+    public DataFileCacheOffHeap(Database db, String baseFileName) {
+
+        super(db, baseFileName);
+
+        logEvents    = false;
+        useReadAhead = false;
+    }
+
+    /**
+     * Initial external parameters are set here. The cache size settings are
+     * the same as for CACHED tables.
+     */
+    protected void initParams(Database database, String baseFileName,
+                              boolean defrag) {
+
+        this.dataFileName = baseFileName + ".offheap";
+        this.database     = database;
+        fa                = FileUtil.getFileUtil();
+        dataFileScale     = database.logger.getDataFileScale();
+        cachedRowPadding  = 8;
+
+        if (dataFileScale > 8) {
+            cachedRowPadding = dataFileScale;
+        }
+
+        initialFreePos  = dataFileScale;
+        maxCacheRows    = database.logger.getCacheMaxRows();
+        maxCacheBytes   = database.logger.getCacheSize();
+        maxDataFileSize = (long) Integer.MAX_VALUE * dataFileScale
+                          * database.logger.getDataFileFactor();
+    }
+
+    /**
+     * Allocates the off-heap storage for this cache.
+     */
+    public void open(boolean readonly) {
+
+        try {
+            dataFile         = new RAOffHeap(maxDataFileSize);
+            fileFreePosition = initialFreePos;
+
+            initBuffers();
+
+            spaceManager = new DataSpaceManagerSimple(this, false);
+        } catch (Throwable t) {
+            database.logger.logWarningEvent("Failed to open offheap store",
+                                            t);
+            release();
+
+            throw Error.error(t, ErrorCode.FILE_IO_ERROR,
+                              ErrorCode.M_DataFileCache_open, new Object[] {
+                t.toString(), dataFileName
+            });
+        }
+    }
+
+    protected void setFileModified() {}
+
+    /**
+     * Parameter write is always false. The storage is simply released.
+     */
+    public void close() {
+
+        writeLock.lock();
+
+        try {
+            clear();
+
+            if (dataFile != null) {
+                dataFile.close();
+
+                dataFile = null;
+            }
+        } catch (Throwable t) {
+            database.logger.logWarningEvent("Failed to close offheap store",
+                                            t);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    protected void clear() {
+
+        Iterator it = cache.getIterator();
+
+        while (it.hasNext()) {
+            CachedObject row = (CachedObject) it.next();
+
+            row.setInMemory(false);
+            row.destroy();
+        }
+
+        cache.clear();
+    }
+}
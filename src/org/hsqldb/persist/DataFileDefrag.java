@@ -53,7 +53,7 @@ import org.hsqldb.lib.StringUtil;
  *  image after translating the old pointers to the new.
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version    2.3.4
+ * @version    2.3.5
  * @since      1.7.2
  */
 final class DataFileDefrag {
@@ -111,6 +111,8 @@ final class DataFileDefrag {
             pointerLookup = new DoubleIntIndex((int) maxSize, false);
             dataFileOut   = new DataFileCache(database, baseFileName, true);
 
+            dataFileOut.setRowChecksum(dataCache.hasRowChecksum);
+
             pointerLookup.setKeysSearchTarget();
 
             for (int i = 0, tSize = allTables.size(); i < tSize; i++) {
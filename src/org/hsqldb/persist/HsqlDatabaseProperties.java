@@ -176,6 +176,8 @@ public class HsqlDatabaseProperties extends HsqlProperties {
         "hsqldb.lockfile_poll_retries";
     public static final String system_max_char_or_varchar_display_size =
         "hsqldb.max_char_or_varchar_display_size";
+    public static final String system_collation_key_cache =
+        "hsqldb.collation_key_cache";
 
     //
     public static final String hsqldb_inc_backup = "hsqldb.inc_backup";
@@ -233,6 +235,16 @@ public class HsqlDatabaseProperties extends HsqlProperties {
     public static final String hsqldb_cache_free_count =
         "hsqldb.cache_free_count";
     public static final String hsqldb_cache_rows = "hsqldb.cache_rows";
+    public static final String hsqldb_cache_dirty_ratio =
+        "hsqldb.cache_dirty_ratio";
+    public static final String hsqldb_cache_write_size =
+        "hsqldb.cache_write_size";
+    public static final String hsqldb_cache_read_ahead =
+        "hsqldb.cache_read_ahead";
+    public static final String hsqldb_cache_checksum =
+        "hsqldb.cache_checksum";
+    public static final String hsqldb_cache_scrub_interval =
+        "hsqldb.cache_scrub_interval";
     public static final String hsqldb_cache_size = "hsqldb.cache_size";
     public static final String hsqldb_default_table_type =
         "hsqldb.default_table_type";
@@ -241,6 +253,16 @@ public class HsqlDatabaseProperties extends HsqlProperties {
     public static final String hsqldb_lock_file      = "hsqldb.lock_file";
     public static final String hsqldb_log_data       = "hsqldb.log_data";
     public static final String hsqldb_log_size       = "hsqldb.log_size";
+    public static final String hsqldb_log_size_ratio =
+        "hsqldb.log_size_ratio";
+    public static final String hsqldb_log_queue_size =
+        "hsqldb.log_queue_size";
+    public static final String hsqldb_log_queue_drop =
+        "hsqldb.log_queue_drop";
+    public static final String hsqldb_metrics_jmx =
+        "hsqldb.metrics_jmx";
+    public static final String hsqldb_statement_stats =
+        "hsqldb.statement_stats";
     public static final String hsqldb_nio_data_file  = "hsqldb.nio_data_file";
     public static final String hsqldb_nio_max_size   = "hsqldb.nio_max_size";
     public static final String hsqldb_script_format  = "hsqldb.script_format";
@@ -255,6 +277,10 @@ public class HsqlDatabaseProperties extends HsqlProperties {
     public static final String hsqldb_large_data  = "hsqldb.large_data";
     public static final String hsqldb_files_space = "hsqldb.files_space";
     public static final String hsqldb_digest      = "hsqldb.digest";
+    public static final String hsqldb_compile_expressions =
+        "hsqldb.compile_expressions";
+    public static final String hsqldb_batch_execution =
+        "hsqldb.batch_execution";
 
     //
     public static final String jdbc_translate_tti_types =
@@ -306,6 +332,9 @@ public class HsqlDatabaseProperties extends HsqlProperties {
     public static final String textdb_vs           = "textdb.vs";
     public static final String textdb_lvs          = "textdb.lvs";
     public static final String textdb_qc           = "textdb.qc";
+    public static final String textdb_load_threads = "textdb.load_threads";
+    public static final String textdb_lazy_load    = "textdb.lazy_load";
+    public static final String textdb_memory_mapped = "textdb.memory_mapped";
 
     //
     public static final String hsqldb_min_reuse = "hsqldb.min_reuse";
@@ -348,6 +377,15 @@ public class HsqlDatabaseProperties extends HsqlProperties {
         textMeta.put(textdb_cache_size,
                      HsqlProperties.getMeta(textdb_cache_size, SQL_PROPERTY,
                                             100, 10, 1000000));
+        textMeta.put(textdb_load_threads,
+                     HsqlProperties.getMeta(textdb_load_threads, SQL_PROPERTY,
+                                            1, 1, 64));
+        textMeta.put(textdb_lazy_load,
+                     HsqlProperties.getMeta(textdb_lazy_load, SQL_PROPERTY,
+                                            false));
+        textMeta.put(textdb_memory_mapped,
+                     HsqlProperties.getMeta(textdb_memory_mapped,
+                                            SQL_PROPERTY, false));
         dbMeta.putAll(textMeta);
 
         // string defaults for protected props
@@ -497,6 +535,12 @@ public class HsqlDatabaseProperties extends HsqlProperties {
         dbMeta.put(hsqldb_large_data,
                    HsqlProperties.getMeta(hsqldb_large_data, SQL_PROPERTY,
                                           false));
+        dbMeta.put(hsqldb_compile_expressions,
+                   HsqlProperties.getMeta(hsqldb_compile_expressions,
+                                          SQL_PROPERTY, false));
+        dbMeta.put(hsqldb_batch_execution,
+                   HsqlProperties.getMeta(hsqldb_batch_execution, SQL_PROPERTY,
+                                          false));
         dbMeta.put(hsqldb_files_space,
                    HsqlProperties.getMeta(hsqldb_files_space, SQL_PROPERTY, 0,
                                           new int[] {
@@ -526,6 +570,18 @@ public class HsqlDatabaseProperties extends HsqlProperties {
         dbMeta.put(hsqldb_lob_file_compressed,
                    HsqlProperties.getMeta(hsqldb_lob_file_compressed,
                                           SQL_PROPERTY, false));
+        dbMeta.put(hsqldb_cache_checksum,
+                   HsqlProperties.getMeta(hsqldb_cache_checksum,
+                                          SQL_PROPERTY, false));
+        dbMeta.put(hsqldb_log_queue_drop,
+                   HsqlProperties.getMeta(hsqldb_log_queue_drop,
+                                          SQL_PROPERTY, false));
+        dbMeta.put(hsqldb_metrics_jmx,
+                   HsqlProperties.getMeta(hsqldb_metrics_jmx, SQL_PROPERTY,
+                                          false));
+        dbMeta.put(hsqldb_statement_stats,
+                   HsqlProperties.getMeta(hsqldb_statement_stats,
+                                          SQL_PROPERTY, false));
 
         // this property is normally 8 - or 1 for old databases from early versions
         dbMeta.put(hsqldb_cache_file_scale,
@@ -538,6 +594,12 @@ public class HsqlDatabaseProperties extends HsqlProperties {
         dbMeta.put(hsqldb_log_size,
                    HsqlProperties.getMeta(hsqldb_log_size, SQL_PROPERTY, 50,
                                           0, 4 * 1024));
+        dbMeta.put(hsqldb_log_size_ratio,
+                   HsqlProperties.getMeta(hsqldb_log_size_ratio,
+                                          SQL_PROPERTY, 0, 0, 1000));
+        dbMeta.put(hsqldb_log_queue_size,
+                   HsqlProperties.getMeta(hsqldb_log_queue_size,
+                                          SQL_PROPERTY, 0, 0, 1024 * 1024));
         dbMeta.put(hsqldb_defrag_limit,
                    HsqlProperties.getMeta(hsqldb_defrag_limit, SQL_PROPERTY,
                                           0, 0, 100));
@@ -553,6 +615,18 @@ public class HsqlDatabaseProperties extends HsqlProperties {
         dbMeta.put(hsqldb_cache_free_count,
                    HsqlProperties.getMeta(hsqldb_cache_free_count,
                                           SQL_PROPERTY, 512, 0, 4096));
+        dbMeta.put(hsqldb_cache_dirty_ratio,
+                   HsqlProperties.getMeta(hsqldb_cache_dirty_ratio,
+                                          SQL_PROPERTY, 0, 0, 100));
+        dbMeta.put(hsqldb_cache_write_size,
+                   HsqlProperties.getMeta(hsqldb_cache_write_size,
+                                          SQL_PROPERTY, 256, 4, 16 * 1024));
+        dbMeta.put(hsqldb_cache_read_ahead,
+                   HsqlProperties.getMeta(hsqldb_cache_read_ahead,
+                                          SQL_PROPERTY, 128, 0, 16 * 1024));
+        dbMeta.put(hsqldb_cache_scrub_interval,
+                   HsqlProperties.getMeta(hsqldb_cache_scrub_interval,
+                                          SQL_PROPERTY, 0, 0, 1000000));
         dbMeta.put(hsqldb_result_max_memory_rows,
                    HsqlProperties.getMeta(hsqldb_result_max_memory_rows,
                                           SQL_PROPERTY, 0, 0,
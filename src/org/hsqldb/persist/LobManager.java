@@ -60,6 +60,7 @@ import org.hsqldb.lib.ArrayUtil;
 import org.hsqldb.lib.HashMappedList;
 import org.hsqldb.lib.HsqlByteArrayInputStream;
 import org.hsqldb.lib.LineGroupReader;
+import org.hsqldb.lib.LongKeyHashMap;
 import org.hsqldb.map.ValuePool;
 import org.hsqldb.navigator.RowSetNavigator;
 import org.hsqldb.result.Result;
@@ -75,7 +76,7 @@ import org.hsqldb.types.Types;
 
 /**
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.4
+ * @version 2.3.5
  * @since 1.9.0
  */
 public class LobManager {
@@ -129,6 +130,35 @@ public class LobManager {
     //
     ReadWriteLock lock      = new ReentrantReadWriteLock();
     Lock          writeLock = lock.writeLock();
+    Lock          readLock  = lock.readLock();
+
+    // lob id -> LobEntry, modified only with the write lock
+    LongKeyHashMap   lobEntries    = new LongKeyHashMap();
+    static final int maxLobEntries = 64 * 1024;
+
+    // requests of at least this size are streamed to network clients
+    static final int streamMinLength = 64 * 1024;
+
+    /**
+     * The LOB_IDS row of a LOB and the list of its LOBS blocks ordered by
+     * BLOCK_OFFSET. The blocks are loaded when first needed.<p>
+     *
+     * Entries are created and changed only while the write lock is held. The
+     * bytes of a LOB with a cached entry can then be read with the read lock,
+     * without executing statements on the sysLobSession, which allows
+     * concurrent reads.
+     */
+    static class LobEntry {
+
+        long    length;
+        int     type;
+        int[][] blocks;
+
+        LobEntry(long length, int type) {
+            this.length = length;
+            this.type   = type;
+        }
+    }
 
     // LOBS columns
     private interface LOBS {
@@ -361,6 +391,8 @@ public class LobManager {
 
     public void open() {
 
+        lobEntries.clear();
+
         lobBlockSize = database.logger.getLobBlockSize();
         cryptLobs    = database.logger.cryptLobs;
         compressLobs = database.logger.propCompressLobs;
@@ -398,6 +430,8 @@ public class LobManager {
         }
 
         lobStore = null;
+
+        lobEntries.clear();
     }
 
     public LobStore getLobStore() {
@@ -464,14 +498,77 @@ public class LobManager {
         return data;
     }
 
+    /**
+     * Returns the cached entry, or reads the LOB_IDS row and caches it.
+     * Requires the write lock when the entry may not be cached.
+     */
+    private LobEntry getLobEntry(long lobID) {
+
+        LobEntry entry = (LobEntry) lobEntries.get(lobID);
+
+        if (entry != null) {
+            return entry;
+        }
+
+        Object[] data = getLobHeader(lobID);
+
+        if (data == null) {
+            return null;
+        }
+
+        entry = new LobEntry(((Long) data[LOB_IDS.LOB_LENGTH]).longValue(),
+                             ((Integer) data[LOB_IDS.LOB_TYPE]).intValue());
+
+        addLobEntry(lobID, entry);
+
+        return entry;
+    }
+
+    private void addLobEntry(long lobID, LobEntry entry) {
+
+        if (lobEntries.size() >= maxLobEntries) {
+            lobEntries.clear();
+        }
+
+        lobEntries.put(lobID, entry);
+    }
+
+    private void clearBlockEntries(long lobID) {
+
+        LobEntry entry = (LobEntry) lobEntries.get(lobID);
+
+        if (entry != null) {
+            entry.blocks = null;
+        }
+    }
+
+    /**
+     * Returns the cached entry if its blocks are already loaded. Can be used
+     * with the read lock.
+     */
+    private LobEntry getCachedLobEntry(long lobID) {
+
+        LobEntry entry = (LobEntry) lobEntries.get(lobID);
+
+        if (entry == null || entry.blocks == null) {
+            return null;
+        }
+
+        return entry;
+    }
+
     public BlobData getBlob(long lobID) {
 
+        if (lobEntries.get(lobID) != null) {
+            return new BlobDataID(lobID);
+        }
+
         writeLock.lock();
 
         try {
-            Object[] data = getLobHeader(lobID);
+            LobEntry entry = getLobEntry(lobID);
 
-            if (data == null) {
+            if (entry == null) {
                 return null;
             }
 
@@ -485,12 +582,16 @@ public class LobManager {
 
     public ClobData getClob(long lobID) {
 
+        if (lobEntries.get(lobID) != null) {
+            return new ClobDataID(lobID);
+        }
+
         writeLock.lock();
 
         try {
-            Object[] data = getLobHeader(lobID);
+            LobEntry entry = getLobEntry(lobID);
 
-            if (data == null) {
+            if (entry == null) {
                 return null;
             }
 
@@ -519,6 +620,14 @@ public class LobManager {
             Result result = sysLobSession.executeCompiledStatement(createLob,
                 params, 0);
 
+            if (!result.isError()) {
+                LobEntry entry = new LobEntry(length, Types.SQL_BLOB);
+
+                entry.blocks = new int[0][];
+
+                addLobEntry(lobID.longValue(), entry);
+            }
+
             usageChanged = true;
 
             return lobID.longValue();
@@ -544,6 +653,14 @@ public class LobManager {
             Result result = sysLobSession.executeCompiledStatement(createLob,
                 params, 0);
 
+            if (!result.isError()) {
+                LobEntry entry = new LobEntry(length, Types.SQL_CLOB);
+
+                entry.blocks = new int[0][];
+
+                addLobEntry(lobID.longValue(), entry);
+            }
+
             usageChanged = true;
 
             return lobID.longValue();
@@ -567,6 +684,8 @@ public class LobManager {
                 sysLobSession.executeCompiledStatement(deleteLobCall, params,
                     0);
 
+            lobEntries.remove(lobID);
+
             usageChanged = true;
 
             return result;
@@ -612,6 +731,8 @@ public class LobManager {
                 sysLobSession.executeCompiledStatement(deleteUnusedLobs,
                     params, 0);
 
+            lobEntries.clear();
+
             if (result.isError()) {
                 return result;
             }
@@ -680,17 +801,29 @@ public class LobManager {
 
     public Result getLength(long lobID) {
 
+        readLock.lock();
+
+        try {
+            LobEntry cached = (LobEntry) lobEntries.get(lobID);
+
+            if (cached != null) {
+                return ResultLob.newLobSetResponse(lobID, cached.length);
+            }
+        } finally {
+            readLock.unlock();
+        }
+
         writeLock.lock();
 
         try {
-            Object[] data = getLobHeader(lobID);
+            LobEntry entry = getLobEntry(lobID);
 
-            if (data == null) {
+            if (entry == null) {
                 throw Error.error(ErrorCode.X_0F502);
             }
 
-            long length = ((Long) data[LOB_IDS.LOB_LENGTH]).longValue();
-            int  type   = ((Integer) data[LOB_IDS.LOB_TYPE]).intValue();
+            long length = entry.length;
+            int  type   = entry.type;
 
             return ResultLob.newLobSetResponse(lobID, length);
         } catch (HsqlException e) {
@@ -705,8 +838,8 @@ public class LobManager {
         writeLock.lock();
 
         try {
-            Object[] data    = getLobHeader(a.getId());
-            long     aLength = ((Long) data[LOB_IDS.LOB_LENGTH]).longValue();
+            LobEntry entry   = getLobEntry(a.getId());
+            long     aLength = entry.length;
             int[][] aAddresses = getBlockAddresses(a.getId(), 0,
                                                    Integer.MAX_VALUE);
             int aIndex  = 0;
@@ -800,8 +933,8 @@ public class LobManager {
         writeLock.lock();
 
         try {
-            Object[] data    = getLobHeader(a.getId());
-            long     aLength = ((Long) data[LOB_IDS.LOB_LENGTH]).longValue();
+            LobEntry entry   = getLobEntry(a.getId());
+            long     aLength = entry.length;
             int[][] aAddresses = getBlockAddresses(a.getId(), 0,
                                                    Integer.MAX_VALUE);
             int aIndex  = 0;
@@ -896,12 +1029,12 @@ public class LobManager {
 
     private int compareBytesNormal(long aID, long bID) {
 
-        Object[] data    = getLobHeader(aID);
-        long     aLength = ((Long) data[LOB_IDS.LOB_LENGTH]).longValue();
+        LobEntry entry   = getLobEntry(aID);
+        long     aLength = entry.length;
 
-        data = getLobHeader(bID);
+        entry = getLobEntry(bID);
 
-        long    bLength    = ((Long) data[LOB_IDS.LOB_LENGTH]).longValue();
+        long    bLength    = entry.length;
         int[][] aAddresses = getBlockAddresses(aID, 0, Integer.MAX_VALUE);
         int[][] bAddresses = getBlockAddresses(bID, 0, Integer.MAX_VALUE);
         int     aIndex     = 0;
@@ -964,12 +1097,12 @@ public class LobManager {
     /** @todo - word-separator and end block zero issues */
     private int compareTextNormal(Collation collation, long aID, long bID) {
 
-        Object[] data    = getLobHeader(aID);
-        long     aLength = ((Long) data[LOB_IDS.LOB_LENGTH]).longValue();
+        LobEntry entry   = getLobEntry(aID);
+        long     aLength = entry.length;
 
-        data = getLobHeader(bID);
+        entry = getLobEntry(bID);
 
-        long    bLength    = ((Long) data[LOB_IDS.LOB_LENGTH]).longValue();
+        long    bLength    = entry.length;
         int[][] aAddresses = getBlockAddresses(aID, 0, Integer.MAX_VALUE);
         int[][] bAddresses = getBlockAddresses(bID, 0, Integer.MAX_VALUE);
         int     aIndex     = 0;
@@ -1084,19 +1217,20 @@ public class LobManager {
         writeLock.lock();
 
         try {
-            Object[] data = getLobHeader(lobID);
+            LobEntry entry = getLobEntry(lobID);
 
-            if (data == null) {
+            if (entry == null) {
                 return Result.newErrorResult(Error.error(ErrorCode.X_0F502));
             }
 
-            Long     newLobID = getNewLobID();
-            Object[] params   = new Object[data.length];
+            Long           newLobID = getNewLobID();
+            ResultMetaData meta     = createLob.getParametersMetaData();
+            Object[]       params   = new Object[meta.getColumnCount()];
 
             params[LOB_IDS.LOB_ID]          = newLobID;
             params[LOB_IDS.LOB_LENGTH]      = Long.valueOf(newLength);
             params[LOB_IDS.LOB_USAGE_COUNT] = ValuePool.INTEGER_0;
-            params[LOB_IDS.LOB_TYPE]        = data[LOB_IDS.LOB_TYPE];
+            params[LOB_IDS.LOB_TYPE]        = ValuePool.getInt(entry.type);
 
             Result result = sysLobSession.executeCompiledStatement(createLob,
                 params, 0);
@@ -1113,7 +1247,7 @@ public class LobManager {
             }
 
             long byteLength = newLength;
-            int  lobType    = ((Integer) data[LOB_IDS.LOB_TYPE]).intValue();
+            int  lobType    = entry.type;
 
             if (lobType == Types.SQL_CLOB) {
                 byteLength *= 2;
@@ -1167,14 +1301,14 @@ public class LobManager {
         writeLock.lock();
 
         try {
-            Object[] data = getLobHeader(lobID);
+            LobEntry entry = getLobEntry(lobID);
 
-            if (data == null) {
+            if (entry == null) {
                 throw Error.error(ErrorCode.X_0F502);
             }
 
-            long length = ((Long) data[LOB_IDS.LOB_LENGTH]).longValue();
-            int  type   = ((Integer) data[LOB_IDS.LOB_TYPE]).intValue();
+            long length = entry.length;
+            int  type   = entry.type;
 
             return ResultLob.newLobSetResponse(lobID, length);
         } finally {
@@ -1228,17 +1362,17 @@ public class LobManager {
 
         Result result;
 
-        writeLock.lock();
+        if (compressLobs || cryptLobs) {
+            writeLock.lock();
 
-        try {
-            if (compressLobs || cryptLobs) {
+            try {
                 result = getBytesCompressed(lobID, offset * 2, length * 2,
                                             true);
-            } else {
-                result = getBytesNormal(lobID, offset * 2, length * 2);
+            } finally {
+                writeLock.unlock();
             }
-        } finally {
-            writeLock.unlock();
+        } else {
+            result = getBytesShared(lobID, offset * 2, length * 2);
         }
 
         if (result.isError()) {
@@ -1253,114 +1387,237 @@ public class LobManager {
 
     public Result getBytes(long lobID, long offset, int length) {
 
-        writeLock.lock();
+        if (compressLobs || cryptLobs) {
+            writeLock.lock();
 
-        try {
-            if (compressLobs || cryptLobs) {
+            try {
                 return getBytesCompressed(lobID, offset, length, false);
-            } else {
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        return getBytesShared(lobID, offset, length);
+    }
+
+    /**
+     * Reads with the read lock when the blocks of the LOB are cached,
+     * otherwise with the write lock, which loads the blocks.
+     */
+    private Result getBytesShared(long lobID, long offset, int length) {
+
+        readLock.lock();
+
+        try {
+            if (getCachedLobEntry(lobID) != null) {
                 return getBytesNormal(lobID, offset, length);
             }
+        } finally {
+            readLock.unlock();
+        }
+
+        writeLock.lock();
+
+        try {
+            return getBytesNormal(lobID, offset, length);
         } finally {
             writeLock.unlock();
         }
     }
 
-    private Result getBytesNormal(long lobID, long offset, int length) {
+    /**
+     * Variant of readBytesNormal() that chooses the lock the same way as
+     * getBytesShared().
+     */
+    private void readBytesShared(long lobID, long offset, byte[] dataBytes,
+                                 int dataOffset, int length) {
 
-        int blockOffset     = (int) (offset / lobBlockSize);
-        int byteBlockOffset = (int) (offset % lobBlockSize);
-        int blockLimit      = (int) ((offset + length) / lobBlockSize);
-        int byteLimitOffset = (int) ((offset + length) % lobBlockSize);
+        readLock.lock();
 
-        if (byteLimitOffset == 0) {
-            byteLimitOffset = lobBlockSize;
-        } else {
-            blockLimit++;
-        }
+        try {
+            if (getCachedLobEntry(lobID) != null) {
+                readBytesNormal(lobID, offset, dataBytes, dataOffset,
+                                length);
 
-        if (length == 0) {
-            return ResultLob.newLobGetBytesResponse(lobID, offset,
-                    BinaryData.zeroLengthBytes);
+                return;
+            }
+        } finally {
+            readLock.unlock();
         }
 
-        int    dataBytesPosition = 0;
-        byte[] dataBytes         = new byte[length];
-        int[][] blockAddresses = getBlockAddresses(lobID, blockOffset,
-            blockLimit);
+        writeLock.lock();
 
-        if (blockAddresses.length == 0) {
-            return Result.newErrorResult(Error.error(ErrorCode.X_0F502));
+        try {
+            readBytesNormal(lobID, offset, dataBytes, dataOffset, length);
+        } finally {
+            writeLock.unlock();
         }
+    }
 
-        //
-        int i = 0;
-        int blockCount = blockAddresses[i][LOBS.BLOCK_COUNT]
-                         + blockAddresses[i][LOBS.BLOCK_OFFSET] - blockOffset;
+    /**
+     * Used for network clients. For a large request on an uncompressed LOB,
+     * returns a response that reads the bytes in chunks from the LOB store
+     * while it is written to the connection, instead of materialising all
+     * the bytes in one array. The lock is held only for each chunk.
+     */
+    public Result getBytesStream(long lobID, long offset, int length) {
 
-        if (blockAddresses[i][LOBS.BLOCK_COUNT]
-                + blockAddresses[i][LOBS.BLOCK_OFFSET] > blockLimit) {
-            blockCount -= (blockAddresses[i][LOBS.BLOCK_COUNT]
-                           + blockAddresses[i][LOBS.BLOCK_OFFSET]
-                           - blockLimit);
+        if (compressLobs || cryptLobs || length < streamMinLength) {
+            return getBytes(lobID, offset, length);
         }
 
-        byte[] bytes;
+        Result result = getLength(lobID);
 
-        try {
-            bytes = getLobStore().getBlockBytes(
-                blockAddresses[i][LOBS.BLOCK_ADDR]
-                - blockAddresses[i][LOBS.BLOCK_OFFSET]
-                + blockOffset, blockCount);
-        } catch (HsqlException e) {
-            return Result.newErrorResult(e);
+        if (result.isError()) {
+            return result;
         }
 
-        int subLength = lobBlockSize * blockCount - byteBlockOffset;
+        if (offset + length > ((ResultLob) result).getBlockLength()) {
+            return getBytes(lobID, offset, length);
+        }
+
+        InputStream stream = new LobInputStream(lobID, offset, length);
+
+        return ResultLob.newLobGetBytesStreamResponse(lobID, offset, length,
+                stream);
+    }
+
+    /**
+     * Stream over the bytes of an uncompressed LOB, used by
+     * getBytesStream().
+     */
+    class LobInputStream extends InputStream {
+
+        final long lobID;
+        long       position;
+        long       limit;
+
+        LobInputStream(long lobID, long offset, int length) {
 
-        if (subLength > length) {
-            subLength = length;
+            this.lobID = lobID;
+            position   = offset;
+            limit      = offset + length;
         }
 
-        System.arraycopy(bytes, byteBlockOffset, dataBytes, dataBytesPosition,
-                         subLength);
+        public int read() throws IOException {
 
-        dataBytesPosition += subLength;
+            byte[] oneByte = new byte[1];
+            int    count   = read(oneByte, 0, 1);
 
-        i++;
+            return count < 0 ? -1
+                             : oneByte[0] & 0xff;
+        }
 
-        for (; i < blockAddresses.length && dataBytesPosition < length; i++) {
-            blockCount = blockAddresses[i][LOBS.BLOCK_COUNT];
+        public int read(byte[] b, int off,
+                        int len) throws IOException {
 
-            if (blockAddresses[i][LOBS.BLOCK_COUNT]
-                    + blockAddresses[i][LOBS.BLOCK_OFFSET] > blockLimit) {
-                blockCount -= (blockAddresses[i][LOBS.BLOCK_COUNT]
-                               + blockAddresses[i][LOBS.BLOCK_OFFSET]
-                               - blockLimit);
+            if (position >= limit) {
+                return -1;
+            }
+
+            if (len > limit - position) {
+                len = (int) (limit - position);
             }
 
             try {
-                bytes = getLobStore().getBlockBytes(
-                    blockAddresses[i][LOBS.BLOCK_ADDR], blockCount);
+                readBytesShared(lobID, position, b, off, len);
             } catch (HsqlException e) {
-                return Result.newErrorResult(e);
+                throw new IOException(e.getMessage());
             }
 
-            subLength = lobBlockSize * blockCount;
+            position += len;
 
-            if (subLength > length - dataBytesPosition) {
-                subLength = length - dataBytesPosition;
-            }
+            return len;
+        }
+
+        public int available() {
+            return (int) Math.min(limit - position, Integer.MAX_VALUE);
+        }
+    }
+
+    private Result getBytesNormal(long lobID, long offset, int length) {
 
-            System.arraycopy(bytes, 0, dataBytes, dataBytesPosition,
-                             subLength);
+        if (length == 0) {
+            return ResultLob.newLobGetBytesResponse(lobID, offset,
+                    BinaryData.zeroLengthBytes);
+        }
 
-            dataBytesPosition += subLength;
+        byte[] dataBytes = new byte[length];
+
+        try {
+            readBytesNormal(lobID, offset, dataBytes, 0, length);
+        } catch (HsqlException e) {
+            return Result.newErrorResult(e);
         }
 
         return ResultLob.newLobGetBytesResponse(lobID, offset, dataBytes);
     }
 
+    /**
+     * Reads length bytes of an uncompressed LOB from the given offset into
+     * dataBytes. Each range of blocks is read from the LOB store directly
+     * into the array. Must be called with the read or write lock.
+     */
+    private void readBytesNormal(long lobID, long offset, byte[] dataBytes,
+                                 int dataOffset, int length) {
+
+        int blockOffset = (int) (offset / lobBlockSize);
+        int blockLimit = (int) ((offset + length + lobBlockSize - 1)
+                                / lobBlockSize);
+        int[][] blockAddresses = getBlockAddresses(lobID, blockOffset,
+            blockLimit);
+
+        if (blockAddresses.length == 0) {
+            throw Error.error(ErrorCode.X_0F502);
+        }
+
+        long position = offset;
+        long limit    = offset + length;
+
+        for (int i = 0; i < blockAddresses.length && position < limit; i++) {
+            long blockStart = (long) blockAddresses[i][LOBS.BLOCK_OFFSET]
+                              * lobBlockSize;
+            long blockEnd = blockStart
+                            + (long) blockAddresses[i][LOBS.BLOCK_COUNT]
+                              * lobBlockSize;
+
+            if (blockEnd <= position) {
+                continue;
+            }
+
+            if (blockStart > position) {
+                long gapEnd = Math.min(blockStart, limit);
+
+                ArrayUtil.clearArray(ArrayUtil.CLASS_CODE_BYTE, dataBytes,
+                                     dataOffset + (int) (position - offset),
+                                     dataOffset + (int) (gapEnd - offset));
+
+                position = gapEnd;
+
+                if (position == limit) {
+                    break;
+                }
+            }
+
+            int count = (int) (Math.min(blockEnd, limit) - position);
+            long storePosition =
+                (long) blockAddresses[i][LOBS.BLOCK_ADDR] * lobBlockSize
+                + position - blockStart;
+
+            getLobStore().getBlockBytes(dataBytes, storePosition,
+                                        dataOffset + (int) (position
+                                            - offset), count);
+
+            position += count;
+        }
+
+        if (position < limit) {
+            ArrayUtil.clearArray(ArrayUtil.CLASS_CODE_BYTE, dataBytes,
+                                 dataOffset + (int) (position - offset),
+                                 dataOffset + length);
+        }
+    }
+
     private Result setBytesBA(long lobID, long offset, byte[] dataBytes,
                               int dataLength, boolean isClob) {
 
@@ -1564,13 +1821,13 @@ public class LobManager {
         writeLock.lock();
 
         try {
-            Object[] data = getLobHeader(lobID);
+            LobEntry entry = getLobEntry(lobID);
 
-            if (data == null) {
+            if (entry == null) {
                 return Result.newErrorResult(Error.error(ErrorCode.X_0F502));
             }
 
-            long length = ((Long) data[LOB_IDS.LOB_LENGTH]).longValue();
+            long length = entry.length;
 
             if (dataLength == 0) {
                 return ResultLob.newLobSetResponse(lobID, length);
@@ -1633,13 +1890,13 @@ public class LobManager {
         writeLock.lock();
 
         try {
-            Object[] data = getLobHeader(lobID);
+            LobEntry entry = getLobEntry(lobID);
 
-            if (data == null) {
+            if (entry == null) {
                 return Result.newErrorResult(Error.error(ErrorCode.X_0F502));
             }
 
-            long length = ((Long) data[LOB_IDS.LOB_LENGTH]).longValue();
+            long length = entry.length;
 
             if (dataLength == 0) {
                 return ResultLob.newLobSetResponse(lobID, length);
@@ -1709,17 +1966,16 @@ public class LobManager {
         writeLock.lock();
 
         try {
-            Object[] data = getLobHeader(lobID);
+            LobEntry entry = getLobEntry(lobID);
 
-            if (data == null) {
+            if (entry == null) {
                 return Result.newErrorResult(Error.error(ErrorCode.X_0F502));
             }
 
-            long length     = ((Long) data[LOB_IDS.LOB_LENGTH]).longValue();
+            long length     = entry.length;
             long byteLength = offset;
 
-            if (((Integer) data[LOB_IDS.LOB_TYPE]).intValue()
-                    == Types.SQL_CLOB) {
+            if (entry.type == Types.SQL_CLOB) {
                 byteLength *= 2;
             }
 
@@ -1738,6 +1994,7 @@ public class LobManager {
                 sysLobSession.executeCompiledStatement(deleteLobPartCall,
                     params, 0);
 
+            clearBlockEntries(lobID);
             setLength(lobID, offset);
 
             return ResultLob.newLobTruncateResponse(lobID, offset);
@@ -1757,6 +2014,16 @@ public class LobManager {
         Result result = sysLobSession.executeCompiledStatement(updateLobLength,
             params, 0);
 
+        if (result.isError()) {
+            lobEntries.remove(lobID);
+        } else {
+            LobEntry entry = (LobEntry) lobEntries.get(lobID);
+
+            if (entry != null) {
+                entry.length = length;
+            }
+        }
+
         return result;
     }
 
@@ -1782,14 +2049,55 @@ public class LobManager {
         return result;
     }
 
+    /**
+     * Returns the blocks that overlap the range of block offsets, from the
+     * cached list of blocks of the LOB.
+     */
     private int[][] getBlockAddresses(long lobID, int offset, int limit) {
 
+        LobEntry entry = getLobEntry(lobID);
+
+        if (entry == null) {
+            return new int[0][];
+        }
+
+        if (entry.blocks == null) {
+            entry.blocks = readBlockAddresses(lobID);
+        }
+
+        int[][] blocks = entry.blocks;
+        int     first  = 0;
+        int     last   = blocks.length;
+
+        while (first < last
+                && blocks[first][LOBS.BLOCK_OFFSET]
+                   + blocks[first][LOBS.BLOCK_COUNT] <= offset) {
+            first++;
+        }
+
+        while (last > first && blocks[last - 1][LOBS.BLOCK_OFFSET] >= limit) {
+            last--;
+        }
+
+        if (first == 0 && last == blocks.length) {
+            return blocks;
+        }
+
+        int[][] result = new int[last - first][];
+
+        System.arraycopy(blocks, first, result, 0, last - first);
+
+        return result;
+    }
+
+    private int[][] readBlockAddresses(long lobID) {
+
         ResultMetaData meta   = getSpanningBlocks.getParametersMetaData();
         Object[]       params = new Object[meta.getColumnCount()];
 
         params[GET_LOB_PART.LOB_ID]       = ValuePool.getLong(lobID);
-        params[GET_LOB_PART.BLOCK_OFFSET] = ValuePool.getInt(offset);
-        params[GET_LOB_PART.BLOCK_LIMIT]  = ValuePool.getInt(limit);
+        params[GET_LOB_PART.BLOCK_OFFSET] = ValuePool.INTEGER_0;
+        params[GET_LOB_PART.BLOCK_LIMIT]  = ValuePool.INTEGER_MAX;
 
         sysLobSession.sessionContext.pushDynamicArguments(params);
 
@@ -1833,6 +2141,8 @@ public class LobManager {
         Result result =
             sysLobSession.executeCompiledStatement(deleteLobPartCall, params,
                 0);
+
+        clearBlockEntries(lobID);
     }
 
     private void divideBlockAddresses(long lobID, int offset) {
@@ -1846,6 +2156,8 @@ public class LobManager {
         Result result =
             sysLobSession.executeCompiledStatement(divideLobPartCall, params,
                 0);
+
+        clearBlockEntries(lobID);
     }
 
     private Result createBlockAddresses(long lobID, int offset, int count) {
@@ -1861,6 +2173,8 @@ public class LobManager {
             sysLobSession.executeCompiledStatement(createLobPartCall, params,
                 0);
 
+        clearBlockEntries(lobID);
+
         return result;
     }
 
@@ -1878,6 +2192,8 @@ public class LobManager {
             sysLobSession.executeCompiledStatement(createSingleLobPartCall,
                 params, 0);
 
+        clearBlockEntries(lobID);
+
         return result;
     }
 
@@ -33,13 +33,16 @@ package org.hsqldb.persist;
 
 /**
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.0
+ * @version 2.3.5
  * @since 1.9.0
  */
 public interface LobStore {
 
     byte[] getBlockBytes(int blockAddress, int blockCount);
 
+    void getBlockBytes(byte[] dataBytes, long position, int offset,
+                       int length);
+
     void setBlockBytes(byte[] dataBytes, int blockAddress, int blockCount);
 
     void setBlockBytes(byte[] dataBytes, long position, int offset,
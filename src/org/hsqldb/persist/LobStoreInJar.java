@@ -42,7 +42,7 @@ import org.hsqldb.error.ErrorCode;
 
 /**
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.0
+ * @version 2.3.5
  * @since 1.9.0
  */
 public class LobStoreInJar implements LobStore {
@@ -67,7 +67,8 @@ public class LobStoreInJar implements LobStore {
         }
     }
 
-    public byte[] getBlockBytes(int blockAddress, int blockCount) {
+    public synchronized byte[] getBlockBytes(int blockAddress,
+            int blockCount) {
 
         try {
             long   address   = (long) blockAddress * lobBlockSize;
@@ -85,6 +86,19 @@ public class LobStoreInJar implements LobStore {
         }
     }
 
+    public synchronized void getBlockBytes(byte[] dataBytes, long position,
+                                           int offset, int length) {
+
+        try {
+            fileSeek(position);
+            dataInput.readFully(dataBytes, offset, length);
+
+            realPosition = position + length;
+        } catch (Throwable t) {
+            throw Error.error(ErrorCode.DATA_FILE_ERROR, t);
+        }
+    }
+
     public void setBlockBytes(byte[] dataBytes, int blockAddress,
                               int blockCount) {}
 
@@ -35,7 +35,7 @@ import org.hsqldb.lib.HsqlArrayList;
 
 /**
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.0
+ * @version 2.3.5
  * @since 1.9.0
  */
 public class LobStoreMem implements LobStore {
@@ -109,6 +109,28 @@ public class LobStoreMem implements LobStore {
         }
     }
 
+    public void getBlockBytes(byte[] dataBytes, long position, int offset,
+                              int length) {
+
+        while (length > 0) {
+            int    largeBlockIndex = (int) (position / largeBlockSize);
+            byte[] largeBlock = (byte[]) byteStoreList.get(largeBlockIndex);
+            int    offsetInLargeBlock = (int) (position % largeBlockSize);
+            int    currentLength      = length;
+
+            if ((offsetInLargeBlock + currentLength) > largeBlockSize) {
+                currentLength = largeBlockSize - offsetInLargeBlock;
+            }
+
+            System.arraycopy(largeBlock, offsetInLargeBlock, dataBytes,
+                             offset, currentLength);
+
+            position += currentLength;
+            offset   += currentLength;
+            length   -= currentLength;
+        }
+    }
+
     public void setBlockBytes(byte[] dataBytes, long position, int offset,
                               int length) {
 
@@ -37,7 +37,7 @@ import org.hsqldb.error.ErrorCode;
 
 /**
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.3
+ * @version 2.3.5
  * @since 1.9.0
  */
 public class LobStoreRAFile implements LobStore {
@@ -83,7 +83,11 @@ public class LobStoreRAFile implements LobStore {
         }
     }
 
-    public byte[] getBlockBytes(int blockAddress, int blockCount) {
+    /**
+     * Synchronized as LobManager allows concurrent reads
+     */
+    public synchronized byte[] getBlockBytes(int blockAddress,
+            int blockCount) {
 
         if (file == null) {
             throw Error.error(ErrorCode.FILE_IO_ERROR);
@@ -103,8 +107,24 @@ public class LobStoreRAFile implements LobStore {
         }
     }
 
-    public void setBlockBytes(byte[] dataBytes, int blockAddress,
-                              int blockCount) {
+    public synchronized void getBlockBytes(byte[] dataBytes, long position,
+                                           int offset, int length) {
+
+        if (file == null) {
+            throw Error.error(ErrorCode.FILE_IO_ERROR);
+        }
+
+        try {
+            file.seek(position);
+            file.read(dataBytes, offset, length);
+        } catch (Throwable t) {
+            throw Error.error(ErrorCode.DATA_FILE_ERROR, t);
+        }
+    }
+
+    public synchronized void setBlockBytes(byte[] dataBytes,
+                                           int blockAddress,
+                                           int blockCount) {
 
         if (file == null) {
             openFile();
@@ -121,8 +141,8 @@ public class LobStoreRAFile implements LobStore {
         }
     }
 
-    public void setBlockBytes(byte[] dataBytes, long position, int offset,
-                              int length) {
+    public synchronized void setBlockBytes(byte[] dataBytes, long position,
+                                           int offset, int length) {
 
         if (length == 0) {
             return;
@@ -33,8 +33,11 @@ package org.hsqldb.persist;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 import org.hsqldb.Database;
+import org.hsqldb.DatabaseMetrics;
 import org.hsqldb.HsqlException;
 import org.hsqldb.HsqlNameManager.HsqlName;
 import org.hsqldb.NumberSequence;
@@ -45,6 +48,7 @@ import org.hsqldb.Table;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
 import org.hsqldb.lib.FileAccess;
+import org.hsqldb.lib.InOutUtil;
 import org.hsqldb.scriptio.ScriptReaderBase;
 import org.hsqldb.scriptio.ScriptReaderDecode;
 import org.hsqldb.scriptio.ScriptReaderText;
@@ -70,7 +74,7 @@ import org.hsqldb.scriptio.ScriptWriterText;
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
  * @author Bob Preston (sqlbob@users dot sourceforge.net) - text table support
- * @version 2.3.4
+ * @version 2.3.5
  * @since 1.8.0
  */
 public class Log {
@@ -84,9 +88,11 @@ public class Log {
     private String                 logFileName;
     private boolean                filesReadOnly;
     private long                   maxLogSize;
+    private long                   scriptFileSize;
     private int                    writeDelay;
     private DataFileCache          cache;
     private boolean                isModified;
+    private long                   logSplitPosition;
 
     Log(Database db) {
 
@@ -124,6 +130,7 @@ public class Log {
 
             case HsqlDatabaseProperties.FILES_MODIFIED :
                 database.logger.logInfoEvent("open start - state modified");
+                renameNewLog();
                 deleteNewAndOldFiles();
                 deleteOldTempFiles();
 
@@ -153,6 +160,18 @@ public class Log {
                 renameNewDataFile();
                 renameNewScript();
                 deleteLog();
+
+                // .log.new written by a non-blocking checkpoint
+                if (renameNewLog()) {
+                    properties.setDBModified(
+                        HsqlDatabaseProperties.FILES_MODIFIED);
+                    processScript();
+                    processLog();
+                    checkpoint();
+
+                    break;
+                }
+
                 backupData();
                 properties.setDBModified(
                     HsqlDatabaseProperties.FILES_NOT_MODIFIED);
@@ -181,6 +200,7 @@ public class Log {
         }
 
         if (!filesReadOnly) {
+            setScriptFileSize();
             openLog();
         }
     }
@@ -202,6 +222,8 @@ public class Log {
         database.logger.textTableManager.closeAllTextCaches(script);
 
         if (cache != null) {
+            cache.stopChangedRowWriter();
+            cache.stopRowScrubber();
             cache.close();
         }
 
@@ -256,6 +278,8 @@ public class Log {
     void shutdown() {
 
         if (cache != null) {
+            cache.stopChangedRowWriter();
+            cache.stopRowScrubber();
             cache.release();
         }
 
@@ -336,6 +360,30 @@ public class Log {
         fa.removeElement(logFileName);
     }
 
+    /**
+     * Renames the .log.new file written by a non-blocking checkpoint. When
+     * a .log file exists, the .log.new file is an incomplete copy and is
+     * deleted.
+     */
+    boolean renameNewLog() {
+
+        String newLogFileName = logFileName + Logger.newFileExtension;
+
+        if (!fa.isStreamElement(newLogFileName)) {
+            return false;
+        }
+
+        if (fa.isStreamElement(logFileName)) {
+            fa.removeElement(newLogFileName);
+
+            return false;
+        }
+
+        fa.renameElement(newLogFileName, logFileName);
+
+        return true;
+    }
+
     /**
      * Checks all the caches and returns true if the modified flag is set for any
      */
@@ -375,6 +423,8 @@ public class Log {
             return;
         }
 
+        long startTime = System.nanoTime();
+
         if (cache == null) {
             defrag = false;
         } else if (forceDefrag()) {
@@ -386,6 +436,9 @@ public class Log {
         } else {
             checkpoint();
         }
+
+        database.metrics.addTime(DatabaseMetrics.CHECKPOINT_TIME,
+                                 System.nanoTime() - startTime);
     }
 
     /**
@@ -431,6 +484,7 @@ public class Log {
         deleteLog();
         renameNewScript();
         renameNewBackup();
+        setScriptFileSize();
 
         try {
             properties.setDBModified(
@@ -445,6 +499,170 @@ public class Log {
         return true;
     }
 
+    /**
+     * Performs a checkpoint while other sessions continue to commit. The
+     * .log file is split while no transaction can commit and the session is
+     * given a snapshot at the same point. The .script.new file is written
+     * from this snapshot and the part of the .log file written after the
+     * split is copied to .log.new, which replaces the .log file when the
+     * .script.new file replaces the .script file.
+     */
+    void checkpointNonBlocking(Session session) {
+
+        if (filesReadOnly) {
+            return;
+        }
+
+        long startTime = System.nanoTime();
+
+        database.logger.logInfoEvent("checkpointNonBlocking start");
+        database.txManager.beginSnapshot(session, new Runnable() {
+
+            public void run() {
+
+                synchronized (database.logger) {
+                    splitLog();
+                }
+            }
+        });
+
+        try {
+            writeScript(false, session);
+            database.logger.logInfoEvent(
+                "checkpointNonBlocking script done");
+        } catch (Throwable t) {
+            deleteNewScript();
+
+            if (!session.isClosed()) {
+                database.logger.logSevereEvent(
+                    "checkpoint failed - recovered", t);
+            }
+
+            return;
+        }
+
+        // the snapshot is lost when the session is closed by a shutdown
+        synchronized (session) {
+            if (session.isClosed()) {
+                deleteNewScript();
+
+                return;
+            }
+        }
+
+        synchronized (database.logger) {
+            boolean hasTail;
+
+            try {
+                synchLog();
+                database.lobManager.synch();
+
+                hasTail = copyLogTail(logSplitPosition);
+
+                properties.setProperty(
+                    HsqlDatabaseProperties.hsqldb_script_format,
+                    database.logger.propScriptFormat);
+                properties.setDBModified(
+                    HsqlDatabaseProperties.FILES_MODIFIED_NEW);
+            } catch (Throwable t) {
+                deleteNewScript();
+                fa.removeElement(logFileName + Logger.newFileExtension);
+                database.logger.logSevereEvent(
+                    "checkpoint failed - recovered", t);
+
+                return;
+            }
+
+            closeLog();
+            deleteLog();
+            renameNewScript();
+            setScriptFileSize();
+
+            try {
+                properties.setDBModified(
+                    hasTail ? HsqlDatabaseProperties.FILES_MODIFIED
+                            : HsqlDatabaseProperties.FILES_NOT_MODIFIED);
+            } catch (Throwable e) {
+                database.logger.logSevereEvent(
+                    "logger.checkpointNonBlocking properties file save failed",
+                    e);
+            }
+
+            renameNewLog();
+            database.sessionManager.resetLoggedSchemas();
+            openLog();
+
+            isModified = hasTail;
+        }
+
+        database.logger.logInfoEvent("checkpointNonBlocking end");
+        database.metrics.addTime(DatabaseMetrics.CHECKPOINT_TIME,
+                                 System.nanoTime() - startTime);
+    }
+
+    /**
+     * Reopens the .log file, so that the statements logged after this point
+     * can be replayed without the statements logged before it, and records
+     * the size of the file at this point.
+     */
+    private void splitLog() {
+
+        boolean modified = isModified;
+
+        closeLog();
+
+        logSplitPosition = new File(logFileName).length();
+
+        database.sessionManager.resetLoggedSchemas();
+        openLog();
+
+        isModified = modified;
+    }
+
+    /**
+     * Copies the part of the .log file after the given position to the
+     * .log.new file. Returns false if there is nothing to copy.
+     */
+    private boolean copyLogTail(long position) throws IOException {
+
+        String newLogFileName = logFileName + Logger.newFileExtension;
+
+        fa.removeElement(newLogFileName);
+
+        if (new File(logFileName).length() <= position) {
+            return false;
+        }
+
+        InputStream  in  = fa.openInputStreamElement(logFileName);
+        OutputStream out = null;
+
+        try {
+            while (position > 0) {
+                long skipped = in.skip(position);
+
+                if (skipped <= 0) {
+                    throw new IOException(logFileName);
+                }
+
+                position -= skipped;
+            }
+
+            out = fa.openOutputStreamElement(newLogFileName);
+
+            InOutUtil.copy(in, out);
+            out.flush();
+            fa.getFileSync(out).sync();
+        } finally {
+            in.close();
+
+            if (out != null) {
+                out.close();
+            }
+        }
+
+        return true;
+    }
+
     boolean checkpointReopen() {
 
         if (filesReadOnly) {
@@ -548,6 +766,8 @@ public class Log {
             cache = new DataFileCache(database, baseFileName);
 
             cache.open(filesReadOnly);
+            cache.startChangedRowWriter();
+            cache.startRowScrubber();
         }
 
         return cache;
@@ -595,7 +815,9 @@ public class Log {
             throw Error.error(ErrorCode.FILE_IO_ERROR, getLogFileName());
         }
 
-        if (maxLogSize > 0 && dbLogWriter.size() > maxLogSize) {
+        database.metrics.add(DatabaseMetrics.LOG_WRITES);
+
+        if (isLogSizeExceeded()) {
             database.logger.setCheckpointRequired();
         }
 
@@ -609,6 +831,8 @@ public class Log {
         } catch (IOException e) {
             throw Error.error(ErrorCode.FILE_IO_ERROR, getLogFileName());
         }
+
+        database.metrics.add(DatabaseMetrics.LOG_WRITES);
     }
 
     void writeDeleteStatement(Session session, Table t, Object[] row) {
@@ -618,6 +842,8 @@ public class Log {
         } catch (IOException e) {
             throw Error.error(ErrorCode.FILE_IO_ERROR, getLogFileName());
         }
+
+        database.metrics.add(DatabaseMetrics.LOG_WRITES);
     }
 
     void writeSequenceStatement(Session session, NumberSequence s) {
@@ -628,6 +854,8 @@ public class Log {
             throw Error.error(ErrorCode.FILE_IO_ERROR, getLogFileName());
         }
 
+        database.metrics.add(DatabaseMetrics.LOG_WRITES);
+
         setModified();
     }
 
@@ -639,13 +867,54 @@ public class Log {
             throw Error.error(ErrorCode.FILE_IO_ERROR, getLogFileName());
         }
 
-        if (maxLogSize > 0 && dbLogWriter.size() > maxLogSize) {
+        database.metrics.add(DatabaseMetrics.LOG_WRITES);
+
+        if (isLogSizeExceeded()) {
             database.logger.setCheckpointRequired();
         }
 
         setModified();
     }
 
+    /**
+     * Returns true when an automatic checkpoint is due. With a non-zero
+     * hsqldb.log_size_ratio, the checkpoint is deferred until the .log file
+     * also exceeds the given percentage of the .script file size. The cost
+     * of rewriting MEMORY table data is then proportional to the amount of
+     * logged change instead of the size of the database.
+     */
+    private boolean isLogSizeExceeded() {
+
+        if (maxLogSize == 0) {
+            return false;
+        }
+
+        long size = dbLogWriter.size();
+
+        if (size <= maxLogSize) {
+            return false;
+        }
+
+        long ratio = database.logger.propLogSizeRatio;
+
+        return size > scriptFileSize * ratio / 100;
+    }
+
+    /**
+     * Records the size of the current .script file. The size is not
+     * available with stored file access.
+     */
+    private void setScriptFileSize() {
+
+        if (database.logger.isStoredFileAccess()) {
+            scriptFileSize = 0;
+
+            return;
+        }
+
+        scriptFileSize = new File(scriptFileName).length();
+    }
+
     private void setModified() {
 
         if (!isModified) {
@@ -706,6 +975,14 @@ public class Log {
      * Write the .script file as .script.new.
      */
     void writeScript(boolean full) {
+        writeScript(full, null);
+    }
+
+    /**
+     * Write the .script file as .script.new, with the table rows that are
+     * visible to the given session, or to the system session if it is null.
+     */
+    void writeScript(boolean full, Session session) {
 
         deleteNewScript();
 
@@ -726,6 +1003,7 @@ public class Log {
                                              crypto);
         }
 
+        scw.setRowSession(session);
         scw.writeAll();
         scw.close();
 
@@ -762,6 +1040,8 @@ public class Log {
                 scr.close();
 
                 if (cache != null) {
+                    cache.stopChangedRowWriter();
+                    cache.stopRowScrubber();
                     cache.release();
                 }
 
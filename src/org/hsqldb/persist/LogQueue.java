@@ -0,0 +1,357 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.persist;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.hsqldb.lib.SimpleLog;
+import org.hsqldb.types.RowType;
+import org.hsqldb.types.Type;
+
+/**
+ * Bounded queue of events for the application and SQL logs, written by a
+ * background thread.<p>
+ *
+ * Sessions store the raw values of each event in a preallocated slot of a
+ * ring buffer. The SQL text and parameter values are formatted by the
+ * writer thread, which flushes the logs once for each batch of events.
+ * When the queue is full, a session either waits for a free slot or drops
+ * the event. The count of dropped events, including those that could not
+ * be written, is recorded in the application log.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public class LogQueue implements Runnable {
+
+    static final int EVENT_APP = 0;
+    static final int EVENT_SQL = 1;
+
+    //
+    private final SimpleLog     appLog;
+    private final SimpleLog     sqlLog;
+    private final Entry[]       entries;
+    private final boolean       dropWhenFull;
+    private final ReentrantLock lock     = new ReentrantLock();
+    private final Condition     notEmpty = lock.newCondition();
+    private final Condition     notFull  = lock.newCondition();
+    private final Thread        writerThread;
+    private int                 head;
+    private int                 count;
+    private long                droppedCount;
+    private boolean             isClosed;
+
+    LogQueue(String name, SimpleLog appLog, SimpleLog sqlLog, int size,
+             boolean dropWhenFull) {
+
+        this.appLog       = appLog;
+        this.sqlLog       = sqlLog;
+        this.dropWhenFull = dropWhenFull;
+        entries           = new Entry[size];
+
+        for (int i = 0; i < size; i++) {
+            entries[i] = new Entry();
+        }
+
+        writerThread = new Thread(this, "HSQLDB Log Writer " + name);
+
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Adds an event for the application log. For errors, the caller is the
+     * method that reported the error.
+     */
+    void addEvent(int level, String message, Throwable t,
+                  StackTraceElement caller) {
+
+        lock.lock();
+
+        try {
+            Entry entry = getFreeEntry();
+
+            if (entry == null) {
+                return;
+            }
+
+            entry.type      = EVENT_APP;
+            entry.level     = level;
+            entry.millis    = System.currentTimeMillis();
+            entry.message   = message;
+            entry.throwable = t;
+            entry.caller    = caller;
+
+            addEntry();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds an executed statement for the SQL log. The parameter values are
+     * copied, the rest are references to values that do not change.
+     */
+    void addStatementEvent(int level, int logLevel, long sessionId,
+                           String sql, Object[] values, Type[] types,
+                           boolean hasResult, long resultValue) {
+
+        if (values != null) {
+            values = values.clone();
+        }
+
+        lock.lock();
+
+        try {
+            Entry entry = getFreeEntry();
+
+            if (entry == null) {
+                return;
+            }
+
+            entry.type        = EVENT_SQL;
+            entry.level       = level;
+            entry.logLevel    = logLevel;
+            entry.millis      = System.currentTimeMillis();
+            entry.sessionId   = sessionId;
+            entry.message     = sql;
+            entry.values      = values;
+            entry.types       = types;
+            entry.hasResult   = hasResult;
+            entry.resultValue = resultValue;
+
+            addEntry();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the next free slot, waiting for one if required. Returns null
+     * if the event is dropped or the queue is closed, as the writer thread
+     * stops once the events queued before close() are written. Called with
+     * the lock held.
+     */
+    private Entry getFreeEntry() {
+
+        while (!isClosed) {
+            if (count < entries.length) {
+                return entries[(head + count) % entries.length];
+            }
+
+            if (dropWhenFull) {
+                droppedCount++;
+
+                return null;
+            }
+
+            notFull.awaitUninterruptibly();
+        }
+
+        return null;
+    }
+
+    private void addEntry() {
+
+        count++;
+
+        if (count == 1) {
+            notEmpty.signal();
+        }
+    }
+
+    /**
+     * Writes all the queued events and stops the writer thread. Events added
+     * after this call are rejected.
+     */
+    void close() {
+
+        lock.lock();
+
+        try {
+            isClosed = true;
+
+            notEmpty.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {}
+    }
+
+    public void run() {
+
+        while (true) {
+            int  first;
+            int  size;
+            long dropped;
+
+            lock.lock();
+
+            try {
+                while (count == 0 && !isClosed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+
+                if (count == 0) {
+                    break;
+                }
+
+                first        = head;
+                size         = count;
+                dropped      = droppedCount;
+                droppedCount = 0;
+            } finally {
+                lock.unlock();
+            }
+
+            // slots from first to first + size are not used by sessions
+            // until they are released
+            for (int i = 0; i < size; i++) {
+                Entry entry = entries[(first + i) % entries.length];
+
+                try {
+                    write(entry);
+                } catch (Throwable t) {
+
+                    // the event is lost
+                    dropped++;
+                }
+
+                entry.clear();
+            }
+
+            if (dropped > 0) {
+                appLog.logContext(SimpleLog.LOG_ERROR,
+                                  System.currentTimeMillis(), null,
+                                  "log events dropped: " + dropped, null,
+                                  false);
+            }
+
+            appLog.flush();
+            sqlLog.flush();
+            lock.lock();
+
+            try {
+                head  = (head + size) % entries.length;
+                count -= size;
+
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void write(Entry entry) {
+
+        if (entry.type == EVENT_APP) {
+            if (entry.throwable == null) {
+                appLog.logContext(entry.level, entry.millis, null,
+                                  entry.message, null, false);
+            } else {
+                appLog.logContext(entry.throwable, entry.message,
+                                  entry.level, entry.millis, entry.caller,
+                                  false);
+            }
+
+            return;
+        }
+
+        String sql         = entry.message;
+        String values      = "";
+        int    paramLength = 0;
+
+        if (entry.logLevel < SimpleLog.LOG_DETAIL) {
+            if (sql.length() > 256) {
+                sql = sql.substring(0, 256);
+            }
+
+            paramLength = 32;
+        }
+
+        if (entry.values != null && entry.values.length > 0) {
+            values = RowType.convertToSQLString(entry.values, entry.types,
+                                                paramLength);
+        }
+
+        if (entry.logLevel == SimpleLog.LOG_RESULT) {
+            StringBuffer sb = new StringBuffer(values);
+
+            sb.append(' ').append('[');
+
+            if (entry.hasResult) {
+                sb.append(entry.resultValue);
+            }
+
+            sb.append(']');
+
+            values = sb.toString();
+        }
+
+        sqlLog.logContext(entry.level, entry.millis,
+                          Long.toString(entry.sessionId), sql, values,
+                          false);
+    }
+
+    /**
+     * A slot of the ring buffer.
+     */
+    static class Entry {
+
+        int               type;
+        int               level;
+        int               logLevel;
+        long              millis;
+        long              sessionId;
+        String            message;
+        Object[]          values;
+        Type[]            types;
+        boolean           hasResult;
+        long              resultValue;
+        Throwable         throwable;
+        StackTraceElement caller;
+
+        void clear() {
+            message   = null;
+            values    = null;
+            types     = null;
+            throwable = null;
+            caller    = null;
+        }
+    }
+}
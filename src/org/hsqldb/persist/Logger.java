@@ -95,6 +95,7 @@ public class Logger implements EventLogInterface {
 
     public SimpleLog appLog;
     public SimpleLog sqlLog;
+    LogQueue         logQueue;
 
     //
     FrameworkLogger fwLogger;
@@ -116,14 +117,24 @@ public class Logger implements EventLogInterface {
     private int     propCacheMaxRows;
     private long    propCacheMaxSize;
     int             propCacheDefragLimit;
+    int             propCacheDirtyRatio;
+    int             propCacheWriteSize;
+    int             propCacheReadAheadSize;
+    boolean         propCacheChecksum;
+    int             propCacheScrubInterval;
     private int     propDataFileScale;
     String          propTextSourceDefault = "";
     boolean         propTextAllowFullPath;
     private int     propWriteDelay;
     private int     propLogSize;
+    int             propLogSizeRatio;
     private boolean propLogData = true;
     private int     propEventLogLevel;
     int             propSqlLogLevel;
+    int             propLogQueueSize;
+    boolean         propLogQueueDrop;
+    boolean         propMetricsJmx;
+    boolean         propStatementStats;
     int             propGC;
     int             propTxMode       = TransactionManager.LOCKS;
     boolean         propRefIntegrity = true;
@@ -135,8 +146,9 @@ public class Logger implements EventLogInterface {
     long            propFileTimestamp;
 
     //
-    Log               log;
-    private LockFile  lockFile;
+    Log                          log;
+    private DataFileCacheOffHeap offHeapCache;
+    private LockFile             lockFile;
     private Crypto    crypto;
     boolean           cryptLobs;
     public FileAccess fileAccess;
@@ -352,9 +364,16 @@ public class Logger implements EventLogInterface {
             sqlLogPath = database.getPath() + sqlLogFileExtension;
         }
 
+        closeLogQueue();
+
         appLog = new SimpleLog(appLogPath, propEventLogLevel, false);
         sqlLog = new SimpleLog(sqlLogPath, propSqlLogLevel, true);
 
+        if (propLogQueueSize > 0) {
+            logQueue = new LogQueue(database.getPath(), appLog, sqlLog,
+                                    propLogQueueSize, propLogQueueDrop);
+        }
+
         database.setReferentialIntegrity(propRefIntegrity);
 
         if (!isFileDatabase()) {
@@ -471,6 +490,76 @@ public class Logger implements EventLogInterface {
             propLargeData = true;
         }
 
+        // URL property overrides .properties file setting
+        database.compileExpressions = database.urlProperties.isPropertyTrue(
+            HsqlDatabaseProperties.hsqldb_compile_expressions,
+            database.databaseProperties.isPropertyTrue(
+                HsqlDatabaseProperties.hsqldb_compile_expressions));
+        database.batchExecution = database.urlProperties.isPropertyTrue(
+            HsqlDatabaseProperties.hsqldb_batch_execution,
+            database.databaseProperties.isPropertyTrue(
+                HsqlDatabaseProperties.hsqldb_batch_execution));
+        propCacheDirtyRatio = database.urlProperties.getIntegerProperty(
+            HsqlDatabaseProperties.hsqldb_cache_dirty_ratio,
+            database.databaseProperties.getIntegerProperty(
+                HsqlDatabaseProperties.hsqldb_cache_dirty_ratio));
+
+        if (propCacheDirtyRatio < 0 || propCacheDirtyRatio > 100) {
+            propCacheDirtyRatio = 0;
+        }
+
+        propCacheWriteSize = database.urlProperties.getIntegerProperty(
+            HsqlDatabaseProperties.hsqldb_cache_write_size,
+            database.databaseProperties.getIntegerProperty(
+                HsqlDatabaseProperties.hsqldb_cache_write_size));
+
+        if (propCacheWriteSize < 4 || propCacheWriteSize > 16 * 1024) {
+            propCacheWriteSize = 256;
+        }
+
+        propCacheWriteSize *= 1024;
+
+        propCacheReadAheadSize = database.urlProperties.getIntegerProperty(
+            HsqlDatabaseProperties.hsqldb_cache_read_ahead,
+            database.databaseProperties.getIntegerProperty(
+                HsqlDatabaseProperties.hsqldb_cache_read_ahead));
+
+        if (propCacheReadAheadSize < 0
+                || propCacheReadAheadSize > 16 * 1024) {
+            propCacheReadAheadSize = 128;
+        }
+
+        propCacheReadAheadSize *= 1024;
+        propCacheChecksum      = database.urlProperties.isPropertyTrue(
+            HsqlDatabaseProperties.hsqldb_cache_checksum,
+            database.databaseProperties.isPropertyTrue(
+                HsqlDatabaseProperties.hsqldb_cache_checksum));
+        propCacheScrubInterval = database.urlProperties.getIntegerProperty(
+            HsqlDatabaseProperties.hsqldb_cache_scrub_interval,
+            database.databaseProperties.getIntegerProperty(
+                HsqlDatabaseProperties.hsqldb_cache_scrub_interval));
+
+        if (propCacheScrubInterval < 0) {
+            propCacheScrubInterval = 0;
+        }
+
+        propLogQueueSize = database.urlProperties.getIntegerProperty(
+            HsqlDatabaseProperties.hsqldb_log_queue_size,
+            database.databaseProperties.getIntegerProperty(
+                HsqlDatabaseProperties.hsqldb_log_queue_size));
+        propLogQueueDrop = database.urlProperties.isPropertyTrue(
+            HsqlDatabaseProperties.hsqldb_log_queue_drop,
+            database.databaseProperties.isPropertyTrue(
+                HsqlDatabaseProperties.hsqldb_log_queue_drop));
+        propMetricsJmx = database.urlProperties.isPropertyTrue(
+            HsqlDatabaseProperties.hsqldb_metrics_jmx,
+            database.databaseProperties.isPropertyTrue(
+                HsqlDatabaseProperties.hsqldb_metrics_jmx));
+        propStatementStats = database.urlProperties.isPropertyTrue(
+            HsqlDatabaseProperties.hsqldb_statement_stats,
+            database.databaseProperties.isPropertyTrue(
+                HsqlDatabaseProperties.hsqldb_statement_stats));
+
         if (!database.databaseProperties.isPropertyTrue(
                 HsqlDatabaseProperties.sql_pad_space, true)) {
             database.collation.setPadding(false);
@@ -663,6 +752,15 @@ public class Logger implements EventLogInterface {
 
         propLogSize = database.databaseProperties.getIntegerProperty(
             HsqlDatabaseProperties.hsqldb_log_size);
+        propLogSizeRatio = database.urlProperties.getIntegerProperty(
+            HsqlDatabaseProperties.hsqldb_log_size_ratio,
+            database.databaseProperties.getIntegerProperty(
+                HsqlDatabaseProperties.hsqldb_log_size_ratio));
+
+        if (propLogSizeRatio < 0) {
+            propLogSizeRatio = 0;
+        }
+
         propLogData = database.databaseProperties.isPropertyTrue(
             HsqlDatabaseProperties.hsqldb_log_data);
         propGC = database.databaseProperties.getIntegerProperty(
@@ -704,41 +802,52 @@ public class Logger implements EventLogInterface {
 
         if (log == null) {
             textTableManager.closeAllTextCaches(false);
+            closeOffHeapCache();
+            closeLogQueue();
 
             return true;
         }
 
-        log.synchLog();
-        database.lobManager.synch();
+        // a non-blocking checkpoint holds the lock until it ends
+        database.lobManager.lock();
 
         try {
-            switch (closemode) {
+            log.synchLog();
+            database.lobManager.synch();
 
-                case Database.CLOSEMODE_IMMEDIATELY :
-                    log.shutdown();
-                    break;
+            try {
+                switch (closemode) {
 
-                case Database.CLOSEMODE_NORMAL :
-                    log.close(false);
-                    break;
+                    case Database.CLOSEMODE_IMMEDIATELY :
+                        log.shutdown();
+                        break;
 
-                case Database.CLOSEMODE_COMPACT :
-                case Database.CLOSEMODE_SCRIPT :
-                    log.close(true);
-                    break;
-            }
+                    case Database.CLOSEMODE_NORMAL :
+                        log.close(false);
+                        break;
 
-            database.persistentStoreCollection.release();
-        } catch (Throwable e) {
-            database.logger.logSevereEvent("error closing log", e);
+                    case Database.CLOSEMODE_COMPACT :
+                    case Database.CLOSEMODE_SCRIPT :
+                        log.close(true);
+                        break;
+                }
 
-            result = false;
+                database.persistentStoreCollection.release();
+                closeOffHeapCache();
+            } catch (Throwable e) {
+                database.logger.logSevereEvent("error closing log", e);
+
+                result = false;
+            }
+        } finally {
+            database.lobManager.unlock();
         }
 
         logInfoEvent("Database closed");
 
         log = null;
 
+        closeLogQueue();
         appLog.close();
         sqlLog.close();
 
@@ -849,7 +958,9 @@ public class Logger implements EventLogInterface {
         }
 
         if (appLog != null) {
-            if (t == null) {
+            if (logQueue != null) {
+                queueEvent(SimpleLog.LOG_ERROR, message, t);
+            } else if (t == null) {
                 appLog.logContext(SimpleLog.LOG_ERROR, message);
             } else {
                 appLog.logContext(t, message, SimpleLog.LOG_ERROR);
@@ -865,7 +976,11 @@ public class Logger implements EventLogInterface {
             fwLogger.warning(message, t);
         }
 
-        appLog.logContext(t, message, SimpleLog.LOG_ERROR);
+        if (logQueue != null) {
+            queueEvent(SimpleLog.LOG_ERROR, message, t);
+        } else {
+            appLog.logContext(t, message, SimpleLog.LOG_ERROR);
+        }
     }
 
     public void logInfoEvent(String message) {
@@ -876,7 +991,11 @@ public class Logger implements EventLogInterface {
             fwLogger.info(message);
         }
 
-        appLog.logContext(SimpleLog.LOG_NORMAL, message);
+        if (logQueue != null) {
+            queueEvent(SimpleLog.LOG_NORMAL, message, null);
+        } else {
+            appLog.logContext(SimpleLog.LOG_NORMAL, message);
+        }
     }
 
     public void logDetailEvent(String message) {
@@ -888,7 +1007,49 @@ public class Logger implements EventLogInterface {
         }
 
         if (appLog != null) {
-            appLog.logContext(SimpleLog.LOG_DETAIL, message);
+            if (logQueue != null) {
+                queueEvent(SimpleLog.LOG_DETAIL, message, null);
+            } else {
+                appLog.logContext(SimpleLog.LOG_DETAIL, message);
+            }
+        }
+    }
+
+    /**
+     * Events above the current level are not queued.
+     */
+    private void queueEvent(int level, String message, Throwable t) {
+
+        int logLevel = appLog.getLevel();
+
+        if (logLevel == SimpleLog.LOG_NONE
+                || (t == null && logLevel < level)) {
+            return;
+        }
+
+        StackTraceElement caller = null;
+
+        if (t != null) {
+            StackTraceElement[] elements = new Throwable().getStackTrace();
+
+            if (elements.length > 1) {
+                caller = elements[1];
+            }
+        }
+
+        LogQueue queue = logQueue;
+
+        if (queue != null) {
+            queue.addEvent(level, message, t, caller);
+        }
+    }
+
+    private void closeLogQueue() {
+
+        if (logQueue != null) {
+            logQueue.close();
+
+            logQueue = null;
         }
     }
 
@@ -897,6 +1058,35 @@ public class Logger implements EventLogInterface {
                                   int level) {
 
         if (sqlLog != null && level <= propSqlLogLevel) {
+            LogQueue queue = logQueue;
+
+            if (queue != null) {
+                boolean hasResult   = false;
+                long    resultValue = 0;
+
+                if (propSqlLogLevel == SimpleLog.LOG_RESULT) {
+                    hasResult = true;
+
+                    if (result.isError()) {
+                        resultValue = result.getErrorCode();
+                    } else if (result.isData()) {
+                        resultValue = result.getNavigator().getSize();
+                    } else if (result.isUpdateCount()) {
+                        resultValue = result.getUpdateCount();
+                    } else {
+                        hasResult = false;
+                    }
+                }
+
+                queue.addStatementEvent(
+                    level, propSqlLogLevel, session.getId(),
+                    statement.getSQL(), paramValues,
+                    statement.getParametersMetaData().getParameterTypes(),
+                    hasResult, resultValue);
+
+                return;
+            }
+
             String sessionId   = Long.toString(session.getId());
             String sql         = statement.getSQL();
             String values      = "";
@@ -955,6 +1145,30 @@ public class Logger implements EventLogInterface {
         }
     }
 
+    /**
+     * Returns the cache for OFFHEAP tables, creating it when first used.
+     */
+    public synchronized DataFileCache getOffHeapCache() {
+
+        if (offHeapCache == null) {
+            offHeapCache = new DataFileCacheOffHeap(database,
+                    database.getPath());
+
+            offHeapCache.open(false);
+        }
+
+        return offHeapCache;
+    }
+
+    private synchronized void closeOffHeapCache() {
+
+        if (offHeapCache != null) {
+            offHeapCache.close();
+
+            offHeapCache = null;
+        }
+    }
+
     /**
      * Returns true if Cache object exists.
      */
@@ -1066,6 +1280,55 @@ public class Logger implements EventLogInterface {
         }
     }
 
+    /**
+     * Returns true if an automatic checkpoint can write the .script file
+     * while other sessions continue to commit. This requires MVCC and
+     * that all the table data is in the .script file, which is the case
+     * when there are no CACHED tables.
+     */
+    public boolean isNonBlockingCheckpoint() {
+
+        if (!logsStatements || log == null || database.isFilesReadOnly()
+                || isStoredFileAccess) {
+            return false;
+        }
+
+        return database.txManager.getTransactionControl()
+               == TransactionManager.MVCC && !log.hasCache();
+    }
+
+    /**
+     * Performs an automatic checkpoint without blocking other sessions. The
+     * session is in a transaction but does not lock the catalog. LOB
+     * operations wait until the checkpoint ends and LOBs that are no longer
+     * used are deleted by the next blocking checkpoint. If the database no
+     * longer qualifies, the checkpoint remains required and is performed
+     * by the next automatic checkpoint statement.
+     */
+    public void checkpointNonBlocking(Session session) {
+
+        if (!backupState.compareAndSet(stateNormal, stateCheckpoint)) {
+            throw Error.error(ErrorCode.ACCESS_IS_DENIED);
+        }
+
+        database.lobManager.lock();
+
+        try {
+            if (isNonBlockingCheckpoint()) {
+                logInfoEvent("Checkpoint start - not blocking");
+                log.checkpointNonBlocking(session);
+                logInfoEvent("Checkpoint end - txts: "
+                             + database.txManager.getGlobalChangeTimestamp());
+                checkpointState.set(stateCheckpointNormal);
+            } else {
+                checkpointState.set(stateCheckpointRequired);
+            }
+        } finally {
+            backupState.set(stateNormal);
+            database.lobManager.unlock();
+        }
+    }
+
     private void checkpointInternal(Session session, boolean defrag) {
 
         if (logsStatements) {
@@ -1386,6 +1649,14 @@ public class Logger implements EventLogInterface {
         return propIsFileDatabase;
     }
 
+    public boolean isMetricsJmx() {
+        return propMetricsJmx;
+    }
+
+    public boolean isStatementStats() {
+        return propStatementStats;
+    }
+
     public String getTempDirectoryPath() {
         return tempDirectoryPath;
     }
@@ -1446,6 +1717,10 @@ public class Logger implements EventLogInterface {
 
                 return new RowStoreAVLDisk(cache, (Table) table);
 
+            case TableBase.OFFHEAP_TABLE :
+                return new RowStoreAVLOffHeap(getOffHeapCache(),
+                                              (Table) table);
+
             case TableBase.MEMORY_TABLE :
             case TableBase.SYSTEM_TABLE :
                 return new RowStoreAVLMemory((Table) table);
@@ -1493,6 +1768,7 @@ public class Logger implements EventLogInterface {
                                           unique, constraint, forward);
 
             case TableBase.CACHED_TABLE :
+            case TableBase.OFFHEAP_TABLE :
             case TableBase.CHANGE_SET_TABLE :
             case TableBase.FUNCTION_TABLE :
             case TableBase.TEXT_TABLE :
@@ -1580,6 +1856,26 @@ public class Logger implements EventLogInterface {
             return String.valueOf(propCacheMaxSize / 1024);
         }
 
+        if (HsqlDatabaseProperties.hsqldb_cache_dirty_ratio.equals(name)) {
+            return String.valueOf(propCacheDirtyRatio);
+        }
+
+        if (HsqlDatabaseProperties.hsqldb_cache_write_size.equals(name)) {
+            return String.valueOf(propCacheWriteSize / 1024);
+        }
+
+        if (HsqlDatabaseProperties.hsqldb_cache_read_ahead.equals(name)) {
+            return String.valueOf(propCacheReadAheadSize / 1024);
+        }
+
+        if (HsqlDatabaseProperties.hsqldb_cache_checksum.equals(name)) {
+            return String.valueOf(propCacheChecksum);
+        }
+
+        if (HsqlDatabaseProperties.hsqldb_cache_scrub_interval.equals(name)) {
+            return String.valueOf(propCacheScrubInterval);
+        }
+
         if (HsqlDatabaseProperties.hsqldb_default_table_type.equals(name)) {
             return database.schemaManager.getDefaultTableType()
                    == TableBase.CACHED_TABLE ? Tokens.T_CACHED
@@ -1624,6 +1920,26 @@ public class Logger implements EventLogInterface {
             return String.valueOf(propLogSize);
         }
 
+        if (HsqlDatabaseProperties.hsqldb_log_size_ratio.equals(name)) {
+            return String.valueOf(propLogSizeRatio);
+        }
+
+        if (HsqlDatabaseProperties.hsqldb_log_queue_size.equals(name)) {
+            return String.valueOf(propLogQueueSize);
+        }
+
+        if (HsqlDatabaseProperties.hsqldb_log_queue_drop.equals(name)) {
+            return String.valueOf(propLogQueueDrop);
+        }
+
+        if (HsqlDatabaseProperties.hsqldb_metrics_jmx.equals(name)) {
+            return String.valueOf(propMetricsJmx);
+        }
+
+        if (HsqlDatabaseProperties.hsqldb_statement_stats.equals(name)) {
+            return String.valueOf(propStatementStats);
+        }
+
         if (HsqlDatabaseProperties.hsqldb_nio_data_file.equals(name)) {
             return String.valueOf(propNioDataFile);
         }
@@ -1770,6 +2086,14 @@ public class Logger implements EventLogInterface {
             return String.valueOf(this.propMinReuse);
         }
 
+        if (HsqlDatabaseProperties.hsqldb_compile_expressions.equals(name)) {
+            return String.valueOf(database.compileExpressions);
+        }
+
+        if (HsqlDatabaseProperties.hsqldb_batch_execution.equals(name)) {
+            return String.valueOf(database.batchExecution);
+        }
+
         if (HsqlDatabaseProperties.sql_sys_index_names.equals(name)) {
             return String.valueOf(database.sqlSysIndexNames);
         }
@@ -2246,8 +2570,20 @@ public class Logger implements EventLogInterface {
         return array;
     }
 
-    public void backup(String destPath, boolean script, boolean blocking,
-                       boolean compressed, boolean files) {
+    /**
+     * A non-blocking SCRIPT backup requires MVCC. The rows of all tables are
+     * then written as visible to the session, which is a consistent snapshot
+     * while other sessions continue to commit.
+     */
+    public void backup(Session session, String destPath, boolean script,
+                       boolean blocking, boolean compressed, boolean files) {
+
+        if (script && !blocking
+                && database.txManager.getTransactionControl()
+                   != TransactionManager.MVCC) {
+            throw Error.error(ErrorCode.BACKUP_ERROR,
+                              "SCRIPT NOT BLOCKING requires MVCC");
+        }
 
         if (!backupState.compareAndSet(stateNormal, stateBackup)) {
             throw Error.error(ErrorCode.BACKUP_ERROR, "backup in progress");
@@ -2258,8 +2594,8 @@ public class Logger implements EventLogInterface {
 
             try {
                 synchronized (this) {
-                    backupInternal(destPath, script, blocking, compressed,
-                                   files);
+                    backupInternal(session, destPath, script, blocking,
+                                   compressed, files);
                 }
             } finally {
                 backupState.set(stateNormal);
@@ -2267,7 +2603,8 @@ public class Logger implements EventLogInterface {
             }
         } else {
             try {
-                backupInternal(destPath, script, blocking, compressed, files);
+                backupInternal(session, destPath, script, blocking,
+                               compressed, files);
             } finally {
                 backupState.set(stateNormal);
             }
@@ -2280,8 +2617,9 @@ public class Logger implements EventLogInterface {
         System.getProperty("file.separator").charAt(0);
     DbBackup backup;
 
-    void backupInternal(String destPath, boolean script, boolean blocking,
-                        boolean compressed, boolean asFiles) {
+    void backupInternal(Session session, String destPath, boolean script,
+                        boolean blocking, boolean compressed,
+                        boolean asFiles) {
 
         String scriptName = null;
         String dbPath     = database.getPath();
@@ -2383,12 +2721,33 @@ public class Logger implements EventLogInterface {
                 ScriptWriterText dsw = new ScriptWriterText(database,
                     scriptName, true, true, true);
 
+                if (!blocking) {
+                    dsw.setRowSession(session);
+                }
+
                 dsw.writeAll();
                 dsw.close();
 
                 backup = new DbBackup(archiveFile, path, true);
 
-                backup.write();
+                // lob data referenced by the script
+                database.lobManager.synch();
+
+                File file = new File(dbPath + lobsFileExtension);
+
+                if (file.exists()) {
+                    InputStreamWrapper isw =
+                        new InputStreamWrapper(new FileInputStream(file));
+
+                    isw.setSizeLimit(file.length());
+                    backup.setStream(lobsFileExtension, isw);
+                }
+
+                if (asFiles) {
+                    backup.writeAsFiles();
+                } else {
+                    backup.write();
+                }
             } else {
                 backup = new DbBackup(archiveFile, dbPath);
 
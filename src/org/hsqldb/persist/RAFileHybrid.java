@@ -45,7 +45,7 @@ import org.hsqldb.Database;
  * closed and a new one opened, up to the maximum size.
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.3
+ * @version 2.3.5
  * @since 1.7.2
  */
 public final class RAFileHybrid implements RandomAccessInterface {
@@ -150,6 +150,14 @@ public final class RAFileHybrid implements RandomAccessInterface {
         return null;
     }
 
+    /**
+     * Returns the memory mapped file, or null if the file is not mapped.
+     */
+    RAFileNIO getMappedFile() {
+        return isNio ? (RAFileNIO) store
+                     : null;
+    }
+
     public void synch() {
         store.synch();
     }
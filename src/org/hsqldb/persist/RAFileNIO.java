@@ -36,6 +36,7 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
@@ -54,7 +55,7 @@ import org.hsqldb.lib.java.JavaSystem;
  * ScaledRAFile is used for data access.
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version  2.3.3
+ * @version  2.3.5
  * @since 1.8.0.5
  */
 final class RAFileNIO implements RandomAccessInterface {
@@ -257,6 +258,69 @@ final class RAFileNIO implements RandomAccessInterface {
         }
     }
 
+    /**
+     * Reads from the mapped buffers at the given position without using or
+     * changing the current position or buffer. Can be called concurrently by
+     * several readers while no write or enlargement of the file takes place.
+     */
+    void read(long position, byte[] b, int offset,
+              int length) throws IOException {
+
+        try {
+            MappedByteBuffer[] list = buffers;
+
+            while (length > 0) {
+                int  bufferIndex = 0;
+                long start       = 0;
+
+                if (!readOnly) {
+                    bufferIndex = (int) (position >> largeBufferScale);
+                    start       = position & largeBufferMask;
+                }
+
+                ByteBuffer view     = list[bufferIndex].duplicate();
+                int        relative = (int) (position - start);
+                int        count    = view.limit() - relative;
+
+                if (count <= 0) {
+                    throw new IOException("read beyond end of mapped file");
+                }
+
+                if (count > length) {
+                    count = length;
+                }
+
+                view.position(relative);
+                view.get(b, offset, count);
+
+                position += count;
+                offset   += count;
+                length   -= count;
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Throwable t) {
+            logger.logWarningEvent(JVM_ERROR, t);
+
+            IOException io = JavaSystem.toIOException(t);
+
+            throw io;
+        }
+    }
+
+    /**
+     * Reads an int at the given position. See read(long, byte[], int, int).
+     */
+    int readInt(long position) throws IOException {
+
+        byte[] b = new byte[4];
+
+        read(position, b, 0, 4);
+
+        return ((b[0] & 0xff) << 24) + ((b[1] & 0xff) << 16)
+               + ((b[2] & 0xff) << 8) + (b[3] & 0xff);
+    }
+
     public void write(byte[] b, int offset, int length) throws IOException {
 
         long transferLength;
@@ -0,0 +1,236 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.persist;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.hsqldb.lib.ArrayUtil;
+
+/**
+ * Storage for the rows of OFFHEAP tables in direct ByteBuffer arenas outside
+ * the Java heap. Used in place of a .data file by DataFileCacheOffHeap.<p>
+ *
+ * The storage is extended one arena at a time and released as a whole when
+ * closed.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+final class RAOffHeap implements RandomAccessInterface {
+
+    static final int  arenaScale = 24;
+    static final int  arenaSize  = 1 << arenaScale;
+    static final long arenaMask  = arenaSize - 1;
+
+    //
+    private final long   maxLength;
+    private ByteBuffer[] arenas = new ByteBuffer[0];
+    private long         position;
+    private final byte[] numberBuffer = new byte[8];
+
+    RAOffHeap(long maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    public long length() throws IOException {
+        return capacity();
+    }
+
+    private long capacity() {
+        return (long) arenas.length * arenaSize;
+    }
+
+    public void seek(long position) throws IOException {
+        this.position = position;
+    }
+
+    public long getFilePointer() throws IOException {
+        return position;
+    }
+
+    public int read() throws IOException {
+
+        if (position >= length()) {
+            return -1;
+        }
+
+        ByteBuffer arena = arenas[(int) (position >> arenaScale)];
+        int        value = arena.get((int) (position & arenaMask)) & 0xff;
+
+        position++;
+
+        return value;
+    }
+
+    public void read(byte[] b, int offset, int length) throws IOException {
+
+        if (position + length > length()) {
+            throw new IOException("offheap read beyond end");
+        }
+
+        while (length > 0) {
+            ByteBuffer arena = arenas[(int) (position >> arenaScale)];
+            int        start = (int) (position & arenaMask);
+            int        count = arenaSize - start;
+
+            if (count > length) {
+                count = length;
+            }
+
+            arena.position(start);
+            arena.get(b, offset, count);
+
+            position += count;
+            offset   += count;
+            length   -= count;
+        }
+    }
+
+    public void write(byte[] b, int offset, int length) throws IOException {
+
+        if (!ensureLength(position + length)) {
+            throw new IOException("offheap allocation failed");
+        }
+
+        while (length > 0) {
+            ByteBuffer arena = arenas[(int) (position >> arenaScale)];
+            int        start = (int) (position & arenaMask);
+            int        count = arenaSize - start;
+
+            if (count > length) {
+                count = length;
+            }
+
+            arena.position(start);
+            arena.put(b, offset, count);
+
+            position += count;
+            offset   += count;
+            length   -= count;
+        }
+    }
+
+    public int readInt() throws IOException {
+
+        read(numberBuffer, 0, 4);
+
+        return ((numberBuffer[0] & 0xff) << 24)
+               + ((numberBuffer[1] & 0xff) << 16)
+               + ((numberBuffer[2] & 0xff) << 8) + (numberBuffer[3] & 0xff);
+    }
+
+    public void writeInt(int i) throws IOException {
+
+        numberBuffer[0] = (byte) (i >>> 24);
+        numberBuffer[1] = (byte) (i >>> 16);
+        numberBuffer[2] = (byte) (i >>> 8);
+        numberBuffer[3] = (byte) i;
+
+        write(numberBuffer, 0, 4);
+    }
+
+    public long readLong() throws IOException {
+
+        read(numberBuffer, 0, 8);
+
+        return ArrayUtil.byteSequenceToLong(numberBuffer, 0);
+    }
+
+    public void writeLong(long i) throws IOException {
+
+        for (int j = 7; j >= 0; j--) {
+            numberBuffer[j] = (byte) i;
+            i               >>>= 8;
+        }
+
+        write(numberBuffer, 0, 8);
+    }
+
+    /**
+     * The arenas are freed when the buffers are garbage collected.
+     */
+    public void close() throws IOException {
+
+        arenas   = new ByteBuffer[0];
+        position = 0;
+    }
+
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    public void synch() {}
+
+    public boolean ensureLength(long newLength) {
+
+        if (newLength <= capacity()) {
+            return true;
+        }
+
+        if (newLength > maxLength) {
+            return false;
+        }
+
+        int count = (int) ((newLength + arenaSize - 1) >> arenaScale);
+
+        try {
+            ByteBuffer[] newArenas = new ByteBuffer[count];
+
+            System.arraycopy(arenas, 0, newArenas, 0, arenas.length);
+
+            for (int i = arenas.length; i < count; i++) {
+                newArenas[i] = ByteBuffer.allocateDirect(arenaSize);
+            }
+
+            arenas = newArenas;
+
+            return true;
+        } catch (OutOfMemoryError e) {
+            return false;
+        }
+    }
+
+    public boolean setLength(long newLength) {
+
+        if (newLength <= capacity()) {
+            int count = (int) ((newLength + arenaSize - 1) >> arenaScale);
+
+            arenas = (ByteBuffer[]) ArrayUtil.resizeArray(arenas, count);
+
+            return true;
+        }
+
+        return ensureLength(newLength);
+    }
+}
@@ -45,7 +45,7 @@ import org.hsqldb.map.BitMap;
  * Wrapper for random access file for incremental backup of the .data file.
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.0
+ * @version 2.3.5
  * @since 1.9.0
  */
 public class RAShadowFile {
@@ -63,6 +63,9 @@ public class RAShadowFile {
     long                        synchLength;
     byte[]                      buffer;
     HsqlByteArrayOutputStream   byteArrayOutputStream;
+    final int                   maxRunPages;
+    byte[]                      runBuffer;
+    HsqlByteArrayOutputStream   runOutputStream;
 
     RAShadowFile(Database database, RandomAccessInterface source,
                  String pathName, long maxSize, int pageSize) {
@@ -82,6 +85,11 @@ public class RAShadowFile {
         bitMap                = new BitMap(bitSize, false);
         buffer                = new byte[pageSize + headerSize];
         byteArrayOutputStream = new HsqlByteArrayOutputStream(buffer);
+
+        int runPages = database.logger.propCacheWriteSize / pageSize;
+
+        maxRunPages = runPages < 1 ? 1
+                                   : runPages;
     }
 
     int copy(long fileOffset, int size) throws IOException {
@@ -114,13 +122,101 @@ public class RAShadowFile {
             endPageOffset--;
         }
 
-        for (; startPageOffset <= endPageOffset; startPageOffset++) {
-            pageCount += copy(startPageOffset);
+        // runs of pages not yet copied are read and written with one call
+        while (startPageOffset <= endPageOffset) {
+            if (bitMap.isSet(startPageOffset)) {
+                startPageOffset++;
+
+                continue;
+            }
+
+            int runCount = 1;
+
+            while (startPageOffset + runCount <= endPageOffset
+                    && runCount < maxRunPages
+                    && !bitMap.isSet(startPageOffset + runCount)) {
+                runCount++;
+            }
+
+            if (runCount == 1) {
+                pageCount += copy(startPageOffset);
+            } else {
+                pageCount += copy(startPageOffset, runCount);
+            }
+
+            startPageOffset += runCount;
         }
 
         return pageCount;
     }
 
+    /**
+     * Copies a run of consecutive pages that are not yet in the shadow file.
+     * Each page is written with its own header, in the same format as
+     * copy(int), so that restoreFile() is not affected.
+     */
+    private int copy(int pageOffset, int pageCount) throws IOException {
+
+        long position   = (long) pageOffset * pageSize;
+        int  recordSize = pageSize + headerSize;
+        int  readSize   = pageSize * pageCount;
+        int  writeSize  = recordSize * pageCount;
+
+        if (maxSize - position < readSize) {
+            readSize = (int) (maxSize - position);
+        }
+
+        if (runBuffer == null) {
+            runBuffer       = new byte[pageSize * maxRunPages];
+            runOutputStream = new HsqlByteArrayOutputStream(recordSize
+                    * maxRunPages);
+        }
+
+        if (dest == null) {
+            open();
+        }
+
+        bitMap.setRange(pageOffset, pageCount);
+
+        long writePos = dest.length();
+
+        try {
+            source.seek(position);
+            source.read(runBuffer, 0, readSize);
+            runOutputStream.reset();
+
+            for (int i = 0; i < pageCount; i++) {
+                int readStart = i * pageSize;
+                int size      = readSize - readStart;
+
+                if (size > pageSize) {
+                    size = pageSize;
+                }
+
+                runOutputStream.writeInt(pageSize);
+                runOutputStream.writeLong(position + readStart);
+                runOutputStream.write(runBuffer, readStart, size);
+                runOutputStream.fill(0, pageSize - size);
+            }
+
+            dest.seek(writePos);
+            dest.write(runOutputStream.getBuffer(), 0, writeSize);
+
+            savedLength = writePos + writeSize;
+
+            return pageCount;
+        } catch (Throwable t) {
+            bitMap.unsetRange(pageOffset, pageCount);
+            dest.seek(0);
+            dest.setLength(writePos);
+            close();
+            database.logger.logSevereEvent("shadow backup failure pos "
+                                           + position + " " + readSize, t);
+
+            throw JavaSystem.toIOException(t);
+        }
+    }
+
     private int copy(int pageOffset) throws IOException {
 
         if (bitMap.set(pageOffset) == 1) {
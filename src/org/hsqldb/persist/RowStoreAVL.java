@@ -478,6 +478,7 @@ public abstract class RowStoreAVL implements PersistentStore {
 
                     case TableBase.MEMORY_TABLE :
                     case TableBase.CACHED_TABLE :
+                    case TableBase.OFFHEAP_TABLE :
                     case TableBase.TEXT_TABLE :
                         readLock();
 
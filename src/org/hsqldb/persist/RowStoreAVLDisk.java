@@ -126,6 +126,11 @@ public class RowStoreAVLDisk extends RowStoreAVL implements PersistentStore {
         int size = object.getRealSize(rowOut);
 
         size += indexList.length * NodeAVLDisk.SIZE_IN_BYTE;
+
+        if (cache.hasRowChecksum) {
+            size += PersistentStore.INT_STORE_SIZE;
+        }
+
         size = rowOut.getStorageSize(size);
 
         object.setStorageSize(size);
@@ -53,7 +53,7 @@ import org.hsqldb.rowio.RowOutputInterface;
  * Implementation of PersistentStore for TEXT tables.
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.4
+ * @version 2.3.5
  * @since 1.9.0
  */
 public class RowStoreAVLDiskData extends RowStoreAVL {
@@ -138,6 +138,21 @@ public class RowStoreAVLDiskData extends RowStoreAVL {
         }
     }
 
+    /**
+     * Returns a row for a line of the source. The row is added to the cache
+     * only if the data has been parsed.
+     */
+    public CachedObject get(long pos, int size, Object[] data) {
+
+        RowAVLDiskData row = new RowAVLDiskData(this, table, pos, size, data);
+
+        if (data != null) {
+            ((TextCache) cache).addInit(row);
+        }
+
+        return row;
+    }
+
     public CachedObject get(CachedObject object, RowInputInterface in) {
 
         Object[] rowData = in.readData(table.getColumnTypes());
@@ -161,6 +176,22 @@ public class RowStoreAVLDiskData extends RowStoreAVL {
         super.indexRow(session, row);
     }
 
+    /**
+     * Inserts a row loaded from the source into the primary index only. The
+     * other indexes are built afterwards with indexRows(Session).
+     */
+    public void indexRowPrimary(Session session, Row row) {
+
+        writeLock();
+
+        try {
+            indexList[0].insert(session, this, row);
+            elementCount.incrementAndGet();
+        } finally {
+            writeUnlock();
+        }
+    }
+
     public boolean isMemory() {
         return false;
     }
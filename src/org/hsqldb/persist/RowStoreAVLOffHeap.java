@@ -0,0 +1,113 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.persist;
+
+import org.hsqldb.Row;
+import org.hsqldb.RowAction;
+import org.hsqldb.Session;
+import org.hsqldb.Table;
+import org.hsqldb.lib.LongDeque;
+import org.hsqldb.navigator.RowIterator;
+
+/*
+ * Implementation of PersistentStore for OFFHEAP tables.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public class RowStoreAVLOffHeap extends RowStoreAVLDisk {
+
+    /**
+     * flag added to the row position for the key in the rowActionMap of the
+     * transaction manager
+     */
+    public static final long rowActionKeyFlag = 1L << 62;
+
+    public RowStoreAVLOffHeap(DataFileCache cache, Table table) {
+        super(cache, table);
+    }
+
+    /**
+     * The cache is shared by all OFFHEAP tables, therefore the space used by
+     * each row is released individually.
+     */
+    public void removeAll() {
+
+        writeLock();
+
+        try {
+            if (cache != null && accessorList.length > 0
+                    && accessorList[0] != null) {
+                releaseRows();
+            }
+
+            super.removeAll();
+        } finally {
+            writeUnlock();
+        }
+    }
+
+    private void releaseRows() {
+
+        // pairs of position and size
+        LongDeque   spaceList = new LongDeque();
+        RowIterator it        = rowIterator();
+
+        while (it.next()) {
+            Row row = it.getCurrentRow();
+
+            spaceList.add(row.getPos());
+            spaceList.add(row.getStorageSize());
+        }
+
+        for (int i = 0; i < spaceList.size(); i += 2) {
+            long pos  = spaceList.get(i);
+            int  size = (int) spaceList.get(i + 1);
+
+            cache.release(pos);
+            tableSpace.release(pos, size);
+        }
+
+        storageSize = 0;
+    }
+
+    public void postCommitAction(Session session, RowAction action) {
+
+        if (action.getType() == RowAction.ACTION_NONE) {
+            database.txManager.removeTransactionInfo(action.getPos()
+                    | rowActionKeyFlag);
+        } else {
+            super.postCommitAction(session, action);
+        }
+    }
+}
@@ -66,7 +66,7 @@ import org.hsqldb.rowio.RowOutputTextQuoted;
  *
  * @author Bob Preston (sqlbob@users dot sourceforge.net)
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.3
+ * @version 2.3.5
  * @since 1.7.0
  */
 public class TextCache extends DataFileCache {
@@ -122,15 +122,28 @@ public class TextCache extends DataFileCache {
 
     protected void initBuffers() {
 
+        rowIn = getRowInputInstance();
+
         if (textFileSettings.isQuoted || textFileSettings.isAllQuoted) {
-            rowIn  = new RowInputTextQuoted(textFileSettings);
             rowOut = new RowOutputTextQuoted(textFileSettings);
         } else {
-            rowIn  = new RowInputText(textFileSettings);
             rowOut = new RowOutputText(textFileSettings);
         }
     }
 
+    /**
+     *  Returns a new row parser for the settings of this cache. Used by
+     *  threads that parse the source lines when the table is loaded.
+     */
+    public RowInputText getRowInputInstance() {
+
+        if (textFileSettings.isQuoted || textFileSettings.isAllQuoted) {
+            return new RowInputTextQuoted(textFileSettings);
+        } else {
+            return new RowInputText(textFileSettings);
+        }
+    }
+
     /**
      *  Opens a data source file.
      */
@@ -356,7 +369,12 @@ public class TextCache extends DataFileCache {
                 cache.clearUnchanged();
                 System.gc();
 
-                return object;
+                // rows of a lazy loaded source are parsed only here
+                if (t instanceof HsqlException) {
+                    throw (HsqlException) t;
+                }
+
+                throw Error.error(ErrorCode.TEXT_FILE_IO, t);
             }
         } finally {
             writeLock.unlock();
@@ -459,7 +477,13 @@ public class TextCache extends DataFileCache {
     }
 
     public TextFileReader getTextFileReader() {
-        return TextFileReader8.newTextFileReader(dataFile, textFileSettings,
-                rowIn, cacheReadonly);
+        String fileName = null;
+
+        if (database.getType() != DatabaseType.DB_RES) {
+            fileName = dataFileName;
+        }
+
+        return TextFileReader8.newTextFileReader(dataFile, fileName,
+                textFileSettings, rowIn, cacheReadonly);
     }
 }
@@ -48,7 +48,7 @@ import org.hsqldb.rowio.RowInputText;
  *
  * @author Bob Preston (sqlbob@users dot sourceforge.net)
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.4
+ * @version 2.3.5
  * @since 2.2.7
 */
 public class TextFileReader8 implements TextFileReader {
@@ -78,12 +78,16 @@ public class TextFileReader8 implements TextFileReader {
     }
 
     static TextFileReader newTextFileReader(RandomAccessInterface dataFile,
-            TextFileSettings textFileSettings, RowInputInterface rowIn,
-            boolean isReadOnly) {
+            String fileName, TextFileSettings textFileSettings,
+            RowInputInterface rowIn, boolean isReadOnly) {
 
         if (textFileSettings.isUTF16) {
             return new TextFileReader16(dataFile, textFileSettings, rowIn,
                                         isReadOnly);
+        } else if (textFileSettings.isMemoryMapped && fileName != null) {
+            return new TextFileReaderMapped(dataFile, fileName,
+                                            textFileSettings, rowIn,
+                                            isReadOnly);
         } else {
             return new TextFileReader8(dataFile, textFileSettings, rowIn,
                                        isReadOnly);
@@ -125,7 +129,7 @@ public class TextFileReader8 implements TextFileReader {
         }
 
         try {
-            dataFile.seek(position);
+            seek(position);
 
             currentPos = 0;
             fieldPos   = 0;
@@ -147,9 +151,7 @@ public class TextFileReader8 implements TextFileReader {
                     }
 
                     if (!isReadOnly) {
-                        dataFile.write(
-                            textFileSettings.bytesForLineEnd, 0,
-                            textFileSettings.bytesForLineEnd.length);
+                        writeLineEnd();
 
                         for (int i = 0;
                                 i < textFileSettings.bytesForLineEnd.length;
@@ -245,7 +247,7 @@ public class TextFileReader8 implements TextFileReader {
         buffer.reset();
 
         try {
-            dataFile.seek(position);
+            seek(position);
         } catch (IOException e) {
             throw Error.error(ErrorCode.TEXT_FILE_IO, e);
         }
@@ -266,9 +268,7 @@ public class TextFileReader8 implements TextFileReader {
                     complete = true;
 
                     if (!isReadOnly) {
-                        dataFile.write(
-                            textFileSettings.bytesForLineEnd, 0,
-                            textFileSettings.bytesForLineEnd.length);
+                        writeLineEnd();
 
                         for (int i = 0;
                                 i < textFileSettings.bytesForLineEnd.length;
@@ -333,7 +333,7 @@ public class TextFileReader8 implements TextFileReader {
             long    currentPos = position;
             boolean wasCR      = false;
 
-            dataFile.seek(position);
+            seek(position);
 
             while (true) {
                 int c = readChar();
@@ -384,6 +384,18 @@ public class TextFileReader8 implements TextFileReader {
         return 1;
     }
 
+    void seek(long pos) throws IOException {
+        dataFile.seek(pos);
+    }
+
+    /**
+     * Adds the missing line end to the last line of the file.
+     */
+    void writeLineEnd() throws IOException {
+        dataFile.write(textFileSettings.bytesForLineEnd, 0,
+                       textFileSettings.bytesForLineEnd.length);
+    }
+
     int readChar() {
 
         try {
@@ -0,0 +1,141 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.persist;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.hsqldb.error.Error;
+import org.hsqldb.error.ErrorCode;
+import org.hsqldb.rowio.RowInputInterface;
+
+/**
+ * Reader for 8-bit text files that reads the source through read-only
+ * memory-mapped windows of the file instead of the RandomAccessInterface.
+ * Used when the textdb.memory_mapped property is true.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+*/
+public class TextFileReaderMapped extends TextFileReader8
+implements TextFileReader {
+
+    static final int windowSize = 1 << 26;
+
+    //
+    String           fileName;
+    long             fileLength;
+    long             filePosition;
+    MappedByteBuffer window;
+    long             windowStart;
+    int              windowLength;
+
+    TextFileReaderMapped(RandomAccessInterface dataFile, String fileName,
+                         TextFileSettings textFileSettings,
+                         RowInputInterface rowIn, boolean isReadOnly) {
+
+        super(dataFile, textFileSettings, rowIn, isReadOnly);
+
+        this.fileName = fileName;
+
+        try {
+            fileLength = dataFile.length();
+        } catch (IOException e) {
+            throw Error.error(ErrorCode.TEXT_FILE_IO, e);
+        }
+    }
+
+    void seek(long pos) throws IOException {
+        filePosition = pos;
+    }
+
+    void writeLineEnd() throws IOException {
+
+        dataFile.seek(fileLength);
+        super.writeLineEnd();
+
+        fileLength = dataFile.length();
+        window     = null;
+    }
+
+    int readChar() {
+
+        if (filePosition >= fileLength) {
+            return -1;
+        }
+
+        if (window == null || filePosition < windowStart
+                || filePosition >= windowStart + windowLength) {
+            map(filePosition);
+        }
+
+        int c = window.get((int) (filePosition - windowStart)) & 0xff;
+
+        filePosition++;
+
+        return c;
+    }
+
+    /**
+     * Maps the part of the file starting at pos. The channel is not needed
+     * once the mapping has been made.
+     */
+    private void map(long pos) {
+
+        RandomAccessFile file = null;
+
+        try {
+            long length = fileLength - pos;
+
+            if (length > windowSize) {
+                length = windowSize;
+            }
+
+            file = new RandomAccessFile(fileName, "r");
+            window = file.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                                           pos, length);
+            windowStart  = pos;
+            windowLength = (int) length;
+        } catch (IOException e) {
+            throw Error.error(ErrorCode.TEXT_FILE_IO, e);
+        } finally {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {}
+            }
+        }
+    }
+}
@@ -63,6 +63,9 @@ public class TextFileSettings {
     public boolean             isUTF16;
     public boolean             hasUTF16BOM;
     public boolean             isLittleEndian;
+    public int                 loadThreads;
+    public boolean             isLazyLoad;
+    public boolean             isMemoryMapped;
 
     //
     private static final byte[] BYTES_NL = NL.getBytes();
@@ -168,6 +171,27 @@ public class TextFileSettings {
             tableprops.isPropertyTrue(HsqlDatabaseProperties.textdb_all_quoted,
                                       isAllQuoted);
 
+        isLazyLoad =
+            dbProps.isPropertyTrue(HsqlDatabaseProperties.textdb_lazy_load);
+        isLazyLoad =
+            tableprops.isPropertyTrue(HsqlDatabaseProperties.textdb_lazy_load,
+                                      isLazyLoad);
+
+        isMemoryMapped = dbProps.isPropertyTrue(
+            HsqlDatabaseProperties.textdb_memory_mapped);
+        isMemoryMapped = tableprops.isPropertyTrue(
+            HsqlDatabaseProperties.textdb_memory_mapped, isMemoryMapped);
+
+        //-- get number of threads used for parsing the source when loading
+        loadThreads = dbProps.getIntegerProperty(
+            HsqlDatabaseProperties.textdb_load_threads);
+        loadThreads = tableprops.getIntegerProperty(
+            HsqlDatabaseProperties.textdb_load_threads, loadThreads);
+
+        if (loadThreads < 1) {
+            loadThreads = 1;
+        }
+
         //-- get string
         stringEncoding =
             dbProps.getStringProperty(HsqlDatabaseProperties.textdb_encoding);
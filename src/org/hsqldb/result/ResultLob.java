@@ -47,7 +47,7 @@ import org.hsqldb.rowio.RowOutputInterface;
  * Sub-class of Result for communicating Blob and Clob operations.<p>
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.0.1
+ * @version 2.3.5
  * @since 1.9.0
  */
 public final class ResultLob extends Result {
@@ -183,6 +183,23 @@ public final class ResultLob extends Result {
         return result;
     }
 
+    /**
+     * Response with the bytes read from the stream while it is written.
+     */
+    public static ResultLob newLobGetBytesStreamResponse(long id,
+            long offset, int length, InputStream stream) {
+
+        ResultLob result = new ResultLob();
+
+        result.subType     = LobResultTypes.RESPONSE_GET_BYTES;
+        result.lobID       = id;
+        result.blockOffset = offset;
+        result.blockLength = length;
+        result.stream      = stream;
+
+        return result;
+    }
+
     public static ResultLob newLobGetCharsResponse(long id, long offset,
             char[] chars) {
 
@@ -522,7 +539,12 @@ public final class ResultLob extends Result {
             case LobResultTypes.RESPONSE_GET_BYTES :
                 dataOut.writeLong(blockOffset);
                 dataOut.writeLong(blockLength);
-                dataOut.write(byteBlock);
+
+                if (byteBlock == null) {
+                    writeByteStream(session, dataOut);
+                } else {
+                    dataOut.write(byteBlock);
+                }
                 break;
 
             case LobResultTypes.RESPONSE_GET_CHARS :
@@ -571,6 +593,43 @@ public final class ResultLob extends Result {
         }
     }
 
+    /**
+     * Writes the blockLength bytes of a streamed RESPONSE_GET_BYTES. The
+     * length has already been written, so a short stream is an error that
+     * ends the connection.
+     */
+    private void writeByteStream(SessionInterface session,
+                                 DataOutputStream dataOut)
+                                 throws IOException {
+
+        int bufferLength = session.getStreamBlockSize();
+
+        if (bufferLength > blockLength) {
+            bufferLength = (int) blockLength;
+        }
+
+        byte[] buffer    = new byte[bufferLength];
+        long   remaining = blockLength;
+
+        while (remaining > 0) {
+            int count = buffer.length;
+
+            if (count > remaining) {
+                count = (int) remaining;
+            }
+
+            count = stream.read(buffer, 0, count);
+
+            if (count < 0) {
+                throw new IOException("LOB stream ended early");
+            }
+
+            dataOut.write(buffer, 0, count);
+
+            remaining -= count;
+        }
+    }
+
     private void writeCreateByteSegments(SessionInterface session,
                                          DataOutputStream dataOut)
                                          throws IOException {
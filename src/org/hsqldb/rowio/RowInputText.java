@@ -83,6 +83,17 @@ public class RowInputText extends RowInputBase implements RowInputInterface {
     //
     private int maxPooledStringLength = ValuePool.getMaxStringLength();
 
+    // integral fields parsed without creating a String
+    private static final int INTEGRAL_NONE  = 0;
+    private static final int INTEGRAL_NULL  = 1;
+    private static final int INTEGRAL_VALUE = 2;
+    private long             integralValue;
+
+    // bounds of the field parsed in place, set by findField()
+    private int fieldStart;
+    private int fieldLimit;
+    private int fieldEnd;
+
     /**
      * fredt@users - comment - in future may use a custom subclasse of
      * InputStream to read the data.
@@ -131,6 +142,10 @@ public class RowInputText extends RowInputBase implements RowInputInterface {
         field = 0;
     }
 
+    public String getSource() {
+        return text;
+    }
+
     protected String getField(String sep, int sepLen, boolean isEnd) {
 
         String s = null;
@@ -189,6 +204,277 @@ public class RowInputText extends RowInputBase implements RowInputInterface {
         return getField(fieldSep, fieldSepLen, fieldSepEnd);
     }
 
+    /**
+     * Finds the bounds of the current field in the source line, without
+     * leading and trailing spaces, so that it can be parsed in place.
+     * Returns false if the field must be read as a String.
+     */
+    private boolean findField() {
+
+        if (fieldSepEnd || next >= textLen) {
+            return false;
+        }
+
+        int end = text.indexOf(fieldSep, next);
+
+        if (end == -1) {
+            end = textLen;
+        }
+
+        int start = next;
+        int limit = end;
+
+        while (start < limit && text.charAt(start) <= ' ') {
+            start++;
+        }
+
+        while (limit > start && text.charAt(limit - 1) <= ' ') {
+            limit--;
+        }
+
+        fieldStart = start;
+        fieldLimit = limit;
+        fieldEnd   = end;
+
+        return true;
+    }
+
+    /**
+     * Moves to the field after the one found by findField().
+     */
+    private void skipField() {
+
+        field++;
+
+        next = fieldEnd + fieldSepLen;
+    }
+
+    /**
+     * Parses a field that holds an integral number directly from the source
+     * line. Returns INTEGRAL_NONE without moving to the next field if the
+     * field is not a plain decimal number in the given range, in which case
+     * the field is read as a String.
+     */
+    private int readIntegral(long min, long max) {
+
+        if (!findField()) {
+            return INTEGRAL_NONE;
+        }
+
+        if (fieldStart == fieldLimit) {
+            skipField();
+
+            return INTEGRAL_NULL;
+        }
+
+        int     i        = fieldStart;
+        boolean negative = text.charAt(i) == '-';
+
+        if (negative) {
+            i++;
+        }
+
+        int  start = i;
+        long value = 0;
+
+        for (; i < fieldLimit; i++) {
+            char c = text.charAt(i);
+
+            if (c < '0' || c > '9') {
+                return INTEGRAL_NONE;
+            }
+
+            if (i - start == 18) {
+                return INTEGRAL_NONE;
+            }
+
+            value = value * 10 + (c - '0');
+        }
+
+        if (i == start) {
+            return INTEGRAL_NONE;
+        }
+
+        if (negative) {
+            value = -value;
+        }
+
+        if (value < min || value > max) {
+            return INTEGRAL_NONE;
+        }
+
+        skipField();
+
+        integralValue = value;
+
+        return INTEGRAL_VALUE;
+    }
+
+    /**
+     * Parses a field found by findField() that holds a plain decimal number
+     * of up to 18 digits, with an optional minus sign and decimal point.
+     * Returns null for other forms, which are read as a String.
+     */
+    private BigDecimal parseDecimal() {
+
+        int     i        = fieldStart;
+        boolean negative = text.charAt(i) == '-';
+
+        if (negative) {
+            i++;
+        }
+
+        long value  = 0;
+        int  digits = 0;
+        int  scale  = -1;
+
+        for (; i < fieldLimit; i++) {
+            char c = text.charAt(i);
+
+            if (c == '.' && scale < 0) {
+                scale = 0;
+
+                continue;
+            }
+
+            if (c < '0' || c > '9' || digits == 18) {
+                return null;
+            }
+
+            value = value * 10 + (c - '0');
+
+            digits++;
+
+            if (scale >= 0) {
+                scale++;
+            }
+        }
+
+        if (digits == 0) {
+            return null;
+        }
+
+        if (negative) {
+            value = -value;
+        }
+
+        return BigDecimal.valueOf(value, scale < 0 ? 0
+                                                   : scale);
+    }
+
+    /**
+     * Returns the seconds of a yyyy-mm-dd date at pos in the source line, or
+     * Long.MIN_VALUE if the date is not valid or its year is before 1583,
+     * in which case the field is read as a String. The result is the same as
+     * that of the Gregorian calendar in GMT used by HsqlDateTime.
+     */
+    private long parseDateSeconds(int pos) {
+
+        int year  = parseDigits(pos, 4);
+        int month = parseDigits(pos + 5, 2);
+        int day   = parseDigits(pos + 8, 2);
+
+        if (year < 1583 || month < 1 || month > 12 || day < 1
+                || text.charAt(pos + 4) != '-'
+                || text.charAt(pos + 7) != '-') {
+            return Long.MIN_VALUE;
+        }
+
+        boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+        int monthDays = month == 2 ? (leap ? 29
+                                           : 28)
+                                   : (month == 4 || month == 6
+                                      || month == 9 || month == 11) ? 30
+                                                                    : 31;
+
+        if (day > monthDays) {
+            return Long.MIN_VALUE;
+        }
+
+        // days since 1970-01-01, counting years from March
+        int  y         = month <= 2 ? year - 1
+                                    : year;
+        int  m         = month <= 2 ? month + 9
+                                    : month - 3;
+        long dayOfEra  = y % 400 * 365L + y % 400 / 4 - y % 400 / 100
+                         + (153 * m + 2) / 5 + day - 1;
+        long epochDays = y / 400 * 146097L + dayOfEra - 719468;
+
+        return epochDays * 24 * 60 * 60;
+    }
+
+    /**
+     * Returns the value of count decimal digits at pos in the source line,
+     * or -1 if they are not all digits.
+     */
+    private int parseDigits(int pos, int count) {
+
+        int value = 0;
+
+        for (int i = pos; i < pos + count; i++) {
+            char c = text.charAt(i);
+
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+
+            value = value * 10 + (c - '0');
+        }
+
+        return value;
+    }
+
+    /**
+     * Parses a field found by findField() that holds a timestamp in the
+     * yyyy-mm-dd hh:mm:ss form, with an optional fraction of up to nine
+     * digits. Returns null for other forms, which are read as a String.
+     */
+    private TimestampData parseTimestamp() {
+
+        int length = fieldLimit - fieldStart;
+
+        if (length < 19 || length == 20 || length > 29) {
+            return null;
+        }
+
+        int  pos     = fieldStart;
+        long seconds = parseDateSeconds(pos);
+        int  hour    = parseDigits(pos + 11, 2);
+        int  minute  = parseDigits(pos + 14, 2);
+        int  second  = parseDigits(pos + 17, 2);
+
+        if (seconds == Long.MIN_VALUE || text.charAt(pos + 10) != ' '
+                || text.charAt(pos + 13) != ':'
+                || text.charAt(pos + 16) != ':' || hour < 0 || hour > 23
+                || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+
+        int nanos = 0;
+
+        if (length > 19) {
+            if (text.charAt(pos + 19) != '.') {
+                return null;
+            }
+
+            int digits = parseDigits(pos + 20, length - 20);
+
+            if (digits < 0) {
+                return null;
+            }
+
+            nanos = digits;
+
+            for (int i = length - 20; i < 9; i++) {
+                nanos *= 10;
+            }
+        }
+
+        seconds += hour * 3600 + minute * 60 + second;
+
+        return new TimestampData(seconds, nanos, 0);
+    }
+
     private String readVarString() {
         return getField(varSep, varSepLen, varSepEnd);
     }
@@ -267,6 +553,15 @@ public class RowInputText extends RowInputBase implements RowInputInterface {
 
     protected Integer readSmallint() {
 
+        switch (readIntegral(Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+
+            case INTEGRAL_NULL :
+                return null;
+
+            case INTEGRAL_VALUE :
+                return ValuePool.getInt((int) integralValue);
+        }
+
         String s = readString();
 
         if (s == null) {
@@ -290,6 +585,15 @@ public class RowInputText extends RowInputBase implements RowInputInterface {
 
     protected Integer readInteger() {
 
+        switch (readIntegral(Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+
+            case INTEGRAL_NULL :
+                return null;
+
+            case INTEGRAL_VALUE :
+                return ValuePool.getInt((int) integralValue);
+        }
+
         String s = readString();
 
         if (s == null) {
@@ -313,6 +617,15 @@ public class RowInputText extends RowInputBase implements RowInputInterface {
 
     protected Long readBigint() {
 
+        switch (readIntegral(Long.MIN_VALUE, Long.MAX_VALUE)) {
+
+            case INTEGRAL_NULL :
+                return null;
+
+            case INTEGRAL_VALUE :
+                return ValuePool.getLong(integralValue);
+        }
+
         String s = readString();
 
         if (s == null) {
@@ -357,6 +670,22 @@ public class RowInputText extends RowInputBase implements RowInputInterface {
 
     protected BigDecimal readDecimal(Type type) {
 
+        if (findField()) {
+            if (fieldStart == fieldLimit) {
+                skipField();
+
+                return null;
+            }
+
+            BigDecimal value = parseDecimal();
+
+            if (value != null) {
+                skipField();
+
+                return value;
+            }
+        }
+
         String s = readString();
 
         if (s == null) {
@@ -395,6 +724,24 @@ public class RowInputText extends RowInputBase implements RowInputInterface {
 
     protected TimestampData readDate(Type type) {
 
+        if (findField()) {
+            if (fieldStart == fieldLimit) {
+                skipField();
+
+                return null;
+            }
+
+            long seconds = fieldLimit - fieldStart == 10
+                           ? parseDateSeconds(fieldStart)
+                           : Long.MIN_VALUE;
+
+            if (seconds != Long.MIN_VALUE) {
+                skipField();
+
+                return new TimestampData(seconds);
+            }
+        }
+
         String s = readString();
 
         if (s == null) {
@@ -412,6 +759,22 @@ public class RowInputText extends RowInputBase implements RowInputInterface {
 
     protected TimestampData readTimestamp(Type type) {
 
+        if (findField()) {
+            if (fieldStart == fieldLimit) {
+                skipField();
+
+                return null;
+            }
+
+            TimestampData value = parseTimestamp();
+
+            if (value != null) {
+                skipField();
+
+                return value;
+            }
+        }
+
         String s = readString();
 
         if (s == null) {
@@ -37,6 +37,7 @@ import java.io.OutputStream;
 
 import org.hsqldb.Database;
 import org.hsqldb.DatabaseManager;
+import org.hsqldb.DatabaseMetrics;
 import org.hsqldb.HsqlNameManager.HsqlName;
 import org.hsqldb.NumberSequence;
 import org.hsqldb.Row;
@@ -85,7 +86,7 @@ import org.hsqldb.result.Result;
  * DatabaseScriptReader and its subclasses read back the data at startup time.
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.4
+ * @version 2.3.5
  * @since 1.7.2
  */
 public abstract class ScriptWriterBase implements Runnable {
@@ -119,6 +120,9 @@ public abstract class ScriptWriterBase implements Runnable {
 
     /** the last schema for last sessionId */
     Session                      currentSession;
+
+    /** the session that determines the visibility of table rows */
+    Session                      rowSession;
     public static final String[] LIST_SCRIPT_FORMATS = new String[] {
         Tokens.T_TEXT, Tokens.T_BINARY, null, Tokens.T_COMPRESSED
     };
@@ -184,6 +188,15 @@ public abstract class ScriptWriterBase implements Runnable {
         this.includeTableInit = include;
     }
 
+    /**
+     * Table rows are read as visible to the given session. With MVCC, this
+     * is a snapshot of committed data that is not affected by concurrent
+     * commits while the script is written.
+     */
+    public void setRowSession(Session session) {
+        this.rowSession = session;
+    }
+
     protected abstract void initBuffers();
 
     /**
@@ -210,10 +223,15 @@ public abstract class ScriptWriterBase implements Runnable {
 
         synchronized (fileStreamOut) {
             try {
+                long startTime = System.nanoTime();
+
                 fileStreamOut.flush();
                 outDescriptor.sync();
 
                 syncCount++;
+
+                database.metrics.addTime(DatabaseMetrics.LOG_SYNC_TIME,
+                                         System.nanoTime() - startTime);
 /*
                 System.out.println(
                     this.outFile + " FD.sync done at "
@@ -301,6 +319,9 @@ public abstract class ScriptWriterBase implements Runnable {
         // start with blank schema - SET SCHEMA to log
         currentSession.loggedSchema = null;
 
+        Session readSession = rowSession == null ? currentSession
+                                                 : rowSession;
+
         String[] schemas = database.schemaManager.getSchemaNamesArray();
 
         for (int i = 0; i < schemas.length; i++) {
@@ -321,6 +342,7 @@ public abstract class ScriptWriterBase implements Runnable {
                 switch (t.getTableType()) {
 
                     case TableBase.MEMORY_TABLE :
+                    case TableBase.OFFHEAP_TABLE :
                         script = true;
                         break;
 
@@ -340,7 +362,7 @@ public abstract class ScriptWriterBase implements Runnable {
                         writeTableInit(t);
 
                         RowIterator it =
-                            t.rowIteratorClustered(currentSession);
+                            t.rowIteratorClustered(readSession);
 
                         while (it.next()) {
                             Row row = it.getCurrentRow();
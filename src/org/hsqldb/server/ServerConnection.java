@@ -93,6 +93,7 @@ import org.hsqldb.persist.HsqlDatabaseProperties;
 import org.hsqldb.resources.ResourceBundleHandler;
 import org.hsqldb.result.Result;
 import org.hsqldb.result.ResultConstants;
+import org.hsqldb.result.ResultLob;
 import org.hsqldb.result.ResultMetaData;
 import org.hsqldb.result.ResultProperties;
 import org.hsqldb.rowio.RowInputBinary;
@@ -120,7 +121,7 @@ import org.hsqldb.types.Type;
  *
  * @author Blaine Simpson (unsaved@users dot sourceforge.net
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.4
+ * @version 2.3.5
  * @since 1.6.2
  */
 class ServerConnection implements Runnable {
@@ -384,6 +385,11 @@ class ServerConnection implements Runnable {
 
                 break;
             }
+            case ResultConstants.LARGE_OBJECT_OP : {
+                resultOut = session.executeLOBOperation((ResultLob) resultIn);
+
+                break;
+            }
             case ResultConstants.EXECUTE_INVALID : {
                 resultOut =
                     Result.newErrorResult(Error.error(ErrorCode.X_07502));
@@ -1525,11 +1531,20 @@ class ServerConnection implements Runnable {
                 while (keepAlive) {
                     msgType = dataInput.readByte();
 
+                    long startTime = System.nanoTime();
+
                     if (msgType < ResultConstants.MODE_UPPER_LIMIT) {
                         receiveResult(msgType);
                     } else {
                         receiveOdbcPacket((char) msgType);
                     }
+
+                    Session current = session;
+
+                    if (current != null) {
+                        current.addServerRequest(System.nanoTime()
+                                                 - startTime);
+                    }
                 }
             } catch (CleanExit ce) {
                 keepAlive = false;
@@ -46,6 +46,7 @@ public class AllTests extends TestCase {
         TestSuite suite = new TestSuite();
 
         suite.addTestSuite(org.hsqldb.test.TestCollation.class);
+        suite.addTestSuite(org.hsqldb.test.TestCollationKeyCache.class);
         suite.addTestSuite(org.hsqldb.test.TestDatabaseMetaData.class);
         suite.addTestSuite(org.hsqldb.test.TestDateTime.class);
         suite.addTestSuite(org.hsqldb.test.TestPeriodPredicates.class);
@@ -57,14 +58,17 @@ public class AllTests extends TestCase {
         suite.addTestSuite(org.hsqldb.test.TestLobs.class);
         suite.addTestSuite(org.hsqldb.test.TestMerge.class);
         suite.addTestSuite(org.hsqldb.test.TestMultiInsert.class);
+        suite.addTestSuite(org.hsqldb.test.TestBatchInsert.class);
         suite.addTestSuite(org.hsqldb.test.TestSql.class);
         suite.addTestSuite(org.hsqldb.test.TestStoredProcedure.class);
         suite.addTestSuite(org.hsqldb.test.TestTextTable.class);
         suite.addTestSuite(org.hsqldb.test.TestTextTables.class);
+        suite.addTestSuite(org.hsqldb.test.TestTextTableLoad.class);
         suite.addTestSuite(org.hsqldb.test.TestViewAsterisks.class);
         suite.addTestSuite(org.hsqldb.test.TestUpdatableResults.class);
         suite.addTestSuite(org.hsqldb.test.TestUpdatableResultSets.class);
         suite.addTestSuite(org.hsqldb.test.TestTriggers.class);
+        suite.addTestSuite(org.hsqldb.test.TestTriggerQueue.class);
 
         // Suites that extend TestCase
         suite.addTestSuite(org.hsqldb.test.TestJDBCSavepoints.class);
@@ -72,6 +76,17 @@ public class AllTests extends TestCase {
         suite.addTestSuite(org.hsqldb.test.TestPreparedSubQueries.class);
         suite.addTestSuite(org.hsqldb.test.TestSubselect.class);
         suite.addTestSuite(org.hsqldb.test.TestCascade.class);
+        suite.addTestSuite(org.hsqldb.test.TestCacheProperties.class);
+        suite.addTestSuite(org.hsqldb.test.TestHashIndex.class);
+        suite.addTestSuite(org.hsqldb.test.TestOffHeapTable.class);
+        suite.addTestSuite(org.hsqldb.test.TestLogProperties.class);
+        suite.addTestSuite(org.hsqldb.test.TestSequenceCache.class);
+        suite.addTestSuite(org.hsqldb.test.TestDatabaseMetrics.class);
+        suite.addTestSuite(org.hsqldb.test.TestStatementStatistics.class);
+        suite.addTestSuite(org.hsqldb.test.TestLobConcurrency.class);
+        suite.addTestSuite(org.hsqldb.test.TestServerLobs.class);
+        suite.addTestSuite(org.hsqldb.test.TestBatchExecution.class);
+        suite.addTestSuite(org.hsqldb.test.TestCompiledExpressions.class);
         suite.addTestSuite(org.hsqldb.test.TestGroupByHaving.class);
         suite.addTestSuite(org.hsqldb.test.TestSqlPersistent.class);     // Sometimes hangs on Connection.close after SHUTDOWN problem
 
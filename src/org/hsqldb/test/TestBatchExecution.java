@@ -0,0 +1,315 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import junit.framework.TestCase;
+
+/**
+ * Compares aggregate query results with and without
+ * hsqldb.batch_execution.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public class TestBatchExecution extends TestCase {
+
+    Connection plainConn;
+    Connection batchConn;
+
+    static final String[] queries = {
+        "SELECT COUNT(*), COUNT(I), SUM(I), AVG(I), MIN(I), MAX(I) FROM T",
+        "SELECT SUM(B), AVG(B), MIN(B), MAX(B), COUNT(B) FROM T",
+        "SELECT SUM(D), AVG(D), MIN(D), MAX(D), COUNT(D) FROM T",
+        "SELECT SUM(L) FROM T",
+        "SELECT COUNT(*), SUM(I) FROM T WHERE I > 10",
+        "SELECT MIN(D), MAX(D) FROM T WHERE D IS NOT NULL AND I < 20",
+        "SELECT COUNT(*) FROM T WHERE B IS NULL",
+        "SELECT SUM(B) FROM T WHERE I >= ? AND D < ?",
+        "SELECT G, COUNT(*), SUM(I), MAX(D) FROM T GROUP BY G ORDER BY G",
+        "SELECT G, AVG(B) FROM T WHERE I <> 5 GROUP BY G ORDER BY G",
+        "SELECT G, H, MIN(I) FROM T GROUP BY G, H ORDER BY G, H",
+        "SELECT COUNT(*), SUM(I) FROM T WHERE ID BETWEEN 100 AND 300",
+        "SELECT SUM(I) FROM T WHERE I > 1000000",
+        "SELECT MAX(I) FROM T WHERE ID = 5",
+        "SELECT COUNT(DISTINCT I) FROM T",
+        "SELECT SUM(I) FROM T LIMIT 1",
+        "SELECT G, SUM(I) FROM T GROUP BY G HAVING SUM(I) > 100 ORDER BY G",
+        "SELECT G, SUM(I) FROM T GROUP BY G ORDER BY G OFFSET 2 ROWS"
+    };
+
+    public TestBatchExecution(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+
+        plainConn = DriverManager.getConnection("jdbc:hsqldb:mem:plainbatch",
+                "SA", "");
+        batchConn = DriverManager.getConnection(
+            "jdbc:hsqldb:mem:batchexec;hsqldb.batch_execution=true", "SA",
+            "");
+
+        createData(plainConn);
+        createData(batchConn);
+    }
+
+    protected void tearDown() throws Exception {
+
+        plainConn.createStatement().execute("SHUTDOWN");
+        batchConn.createStatement().execute("SHUTDOWN");
+    }
+
+    void createData(Connection conn) throws SQLException {
+
+        Statement st = conn.createStatement();
+
+        st.execute("CREATE TABLE T (ID INT PRIMARY KEY, G INT, H VARCHAR(5),"
+                   + " I INT, B BIGINT, D DOUBLE, L BIGINT)");
+
+        PreparedStatement ps =
+            conn.prepareStatement("INSERT INTO T VALUES ?, ?, ?, ?, ?, ?, ?");
+
+        for (int id = 0; id < 5000; id++) {
+            ps.setInt(1, id);
+            ps.setInt(2, id % 7);
+            ps.setString(3, "h" + id % 3);
+
+            if (id % 11 == 0) {
+                ps.setNull(4, java.sql.Types.INTEGER);
+            } else {
+                ps.setInt(4, id % 50 - 10);
+            }
+
+            if (id % 13 == 0) {
+                ps.setNull(5, java.sql.Types.BIGINT);
+            } else {
+                ps.setLong(5, id * 1000003L);
+            }
+
+            if (id % 9 == 0) {
+                ps.setNull(6, java.sql.Types.DOUBLE);
+            } else if (id == 4001) {
+                ps.setDouble(6, Double.NaN);
+            } else {
+                ps.setDouble(6, id / 3.0 - 100);
+            }
+
+            ps.setLong(7, Long.MAX_VALUE - id);
+            ps.execute();
+        }
+
+        ps.close();
+        st.close();
+    }
+
+    public void testAggregates() throws Exception {
+
+        for (int i = 0; i < queries.length; i++) {
+            compare(queries[i]);
+        }
+    }
+
+    public void testEmptyTable() throws Exception {
+
+        plainConn.createStatement().execute("DELETE FROM T");
+        batchConn.createStatement().execute("DELETE FROM T");
+
+        for (int i = 0; i < queries.length; i++) {
+            compare(queries[i]);
+        }
+    }
+
+    /**
+     * Rows deleted by an uncommitted transaction are still counted by the
+     * other sessions with MVCC.
+     */
+    public void testMVCCVisibility() throws Exception {
+
+        batchConn.createStatement().execute(
+            "SET DATABASE TRANSACTION CONTROL MVCC");
+
+        Connection other = DriverManager.getConnection(
+            "jdbc:hsqldb:mem:batchexec", "SA", "");
+
+        other.setAutoCommit(false);
+        other.createStatement().execute("DELETE FROM T WHERE ID < 1000");
+
+        String sql = "SELECT COUNT(*), SUM(I) FROM T";
+
+        assertEquals(getResult(plainConn, sql), getResult(batchConn, sql));
+        other.rollback();
+        other.close();
+    }
+
+    public void testParallelDegree() throws Exception {
+
+        batchConn.createStatement().execute("SET SESSION PARALLEL DEGREE 4");
+
+        for (int i = 0; i < queries.length; i++) {
+            compare(queries[i]);
+        }
+
+        testMVCCVisibility();
+        batchConn.createStatement().execute("SET SESSION PARALLEL DEGREE 1");
+
+        for (int i = 0; i < queries.length; i++) {
+            compare(queries[i]);
+        }
+    }
+
+    public void testParallelDegreeClamped() throws Exception {
+
+        Statement st = batchConn.createStatement();
+
+        st.execute("SET SESSION PARALLEL DEGREE 0");
+
+        for (int i = 0; i < queries.length; i++) {
+            compare(queries[i]);
+        }
+
+        st.execute("SET SESSION PARALLEL DEGREE 1");
+    }
+
+    /**
+     * Filters on DATE and TIMESTAMP columns and MIN and MAX on a column with
+     * a language collation are computed on the worker threads, which do not
+     * use the session.
+     */
+    public void testParallelObjectTypes() throws Exception {
+
+        String[] sql = new String[] {
+            "SELECT COUNT(*), MIN(V), MAX(V) FROM U"
+            + " WHERE DT >= DATE '2000-03-01'",
+            "SELECT MIN(TS), MAX(DT) FROM U WHERE V <> 'x'",
+            "SELECT COUNT(*), MAX(V) FROM U"
+            + " WHERE TS < TIMESTAMP '2000-06-01 00:00:00'",
+            "SELECT COUNT(*) FROM U WHERE DT = DATE '2000-01-01'"
+        };
+
+        createObjectData(plainConn);
+        createObjectData(batchConn);
+        batchConn.createStatement().execute("SET SESSION PARALLEL DEGREE 4");
+
+        for (int i = 0; i < sql.length; i++) {
+            compare(sql[i]);
+        }
+
+        batchConn.createStatement().execute("SET SESSION PARALLEL DEGREE 1");
+    }
+
+    void createObjectData(Connection conn) throws SQLException {
+
+        Statement st = conn.createStatement();
+
+        st.execute("CREATE TABLE U (ID INT PRIMARY KEY, DT DATE,"
+                   + " TS TIMESTAMP, V VARCHAR(10) COLLATE \"German\")");
+
+        PreparedStatement ps =
+            conn.prepareStatement("INSERT INTO U VALUES ?, ?, ?, ?");
+        String[] words = new String[] {
+            "\u00c4pfel", "apfel", "Zebra", "\u00fcber", "Ufer", "stra\u00dfe"
+        };
+
+        for (int id = 0; id < 5000; id++) {
+            ps.setInt(1, id);
+            ps.setDate(2, java.sql.Date.valueOf("2000-01-01"));
+            ps.setString(4, words[id % words.length] + id % 17);
+
+            if (id % 10 == 0) {
+                ps.setNull(3, java.sql.Types.TIMESTAMP);
+            } else {
+                ps.setTimestamp(3, java.sql.Timestamp.valueOf(
+                    "2000-" + (1 + id % 12) + "-" + (1 + id % 28)
+                    + " 10:00:00"));
+            }
+
+            if (id % 3 != 0) {
+                ps.setDate(2, java.sql.Date.valueOf(
+                    "2000-" + (1 + id % 12) + "-" + (1 + id % 28)));
+            }
+
+            ps.execute();
+        }
+
+        ps.close();
+        st.close();
+    }
+
+    void compare(String sql) throws SQLException {
+
+        String expected = getResult(plainConn, sql);
+        String actual   = getResult(batchConn, sql);
+
+        assertEquals(sql, expected, actual);
+    }
+
+    static String getResult(Connection conn, String sql) {
+
+        StringBuffer sb = new StringBuffer();
+
+        try {
+            PreparedStatement ps = conn.prepareStatement(sql);
+            int count = ps.getParameterMetaData().getParameterCount();
+
+            for (int i = 0; i < count; i++) {
+                ps.setInt(i + 1, 7 + i * 1000);
+            }
+
+            ResultSet rs      = ps.executeQuery();
+            int       columns = rs.getMetaData().getColumnCount();
+
+            while (rs.next()) {
+                for (int i = 0; i < columns; i++) {
+                    sb.append(rs.getString(i + 1)).append(',');
+                }
+
+                sb.append('\n');
+            }
+
+            ps.close();
+        } catch (SQLException e) {
+            sb.append("error ").append(e.getSQLState());
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,309 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+package org.hsqldb.test;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+/**
+ * Tests for JDBC batches of INSERT statements executed as a single action
+ * and for the execution of a failed batch one row at a time.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public class TestBatchInsert extends TestBase {
+
+    Connection conn;
+    Statement  st;
+
+    public TestBatchInsert(String name) {
+        super(name, "jdbc:hsqldb:mem:batchinsert", false, false);
+    }
+
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        conn = newConnection();
+        st   = conn.createStatement();
+    }
+
+    protected void tearDown() {
+
+        try {
+            st.execute("SHUTDOWN");
+            conn.close();
+        } catch (SQLException e) {}
+
+        super.tearDown();
+    }
+
+    public void testBatch() throws Exception {
+
+        st.execute("CREATE TABLE TB (ID INT PRIMARY KEY, V VARCHAR(10))");
+
+        PreparedStatement ps =
+            conn.prepareStatement("INSERT INTO TB VALUES (?, ?)");
+        int[] keys = new int[] {
+            5, 3, 9, 1, 7
+        };
+
+        for (int i = 0; i < keys.length; i++) {
+            ps.setInt(1, keys[i]);
+            ps.setString(2, "v" + keys[i]);
+            ps.addBatch();
+        }
+
+        int[] counts = ps.executeBatch();
+
+        assertEquals(keys.length, counts.length);
+
+        for (int i = 0; i < counts.length; i++) {
+            assertEquals(1, counts[i]);
+        }
+
+        assertEquals("1,3,5,7,9", getValues("SELECT ID FROM TB ORDER BY ID"));
+        assertEquals("v1,v3,v5,v7,v9",
+                     getValues("SELECT V FROM TB ORDER BY ID"));
+    }
+
+    /**
+     * The failed batch is executed one row at a time with the identity
+     * values generated for the batch, which are not generated again.
+     */
+    public void testFallbackIdentity() throws Exception {
+
+        st.execute("CREATE TABLE TI (ID INT GENERATED BY DEFAULT AS IDENTITY"
+                   + " PRIMARY KEY, V VARCHAR(10) UNIQUE)");
+
+        PreparedStatement ps =
+            conn.prepareStatement("INSERT INTO TI (V) VALUES (?)");
+        String[] values = new String[] {
+            "a", "b", "c", "a", "d"
+        };
+
+        for (int i = 0; i < values.length; i++) {
+            ps.setString(1, values[i]);
+            ps.addBatch();
+        }
+
+        try {
+            ps.executeBatch();
+            fail("batch with duplicate value");
+        } catch (BatchUpdateException e) {
+            assertEquals(3, e.getUpdateCounts().length);
+        }
+
+        assertEquals("0,1,2", getValues("SELECT ID FROM TI ORDER BY ID"));
+        assertEquals("a,b,c", getValues("SELECT V FROM TI ORDER BY ID"));
+    }
+
+    /**
+     * The NEXT VALUE FOR expressions of the failed batch are not evaluated
+     * again.
+     */
+    public void testFallbackSequence() throws Exception {
+
+        st.execute("CREATE SEQUENCE SQ START WITH 100");
+        st.execute("CREATE TABLE TS (ID INT PRIMARY KEY, V INT NOT NULL)");
+
+        PreparedStatement ps = conn.prepareStatement(
+            "INSERT INTO TS VALUES (NEXT VALUE FOR SQ, ?)");
+
+        for (int i = 0; i < 5; i++) {
+            if (i == 3) {
+                ps.setNull(1, Types.INTEGER);
+            } else {
+                ps.setInt(1, i);
+            }
+
+            ps.addBatch();
+        }
+
+        try {
+            ps.executeBatch();
+            fail("batch with null value");
+        } catch (BatchUpdateException e) {
+            assertEquals(3, e.getUpdateCounts().length);
+        }
+
+        assertEquals("100,101,102", getValues("SELECT ID FROM TS ORDER BY ID"));
+        assertEquals("0,1,2", getValues("SELECT V FROM TS ORDER BY ID"));
+    }
+
+    /**
+     * A row in a batch cannot reference a row that comes later in the same
+     * batch, as the foreign key is checked when each row is inserted.
+     */
+    public void testForwardReference() throws Exception {
+
+        st.execute("CREATE TABLE FK (ID INT PRIMARY KEY,"
+                   + " PARENT INT REFERENCES FK(ID))");
+
+        PreparedStatement ps =
+            conn.prepareStatement("INSERT INTO FK VALUES (?, ?)");
+
+        ps.setInt(1, 1);
+        ps.setInt(2, 2);
+        ps.addBatch();
+        ps.setInt(1, 2);
+        ps.setNull(2, Types.INTEGER);
+        ps.addBatch();
+
+        try {
+            ps.executeBatch();
+            fail("batch with forward reference");
+        } catch (BatchUpdateException e) {
+            assertEquals("23503", e.getSQLState());
+        }
+
+        ps.clearBatch();
+        ps.setInt(1, 2);
+        ps.setNull(2, Types.INTEGER);
+        ps.addBatch();
+        ps.setInt(1, 1);
+        ps.setInt(2, 2);
+        ps.addBatch();
+
+        int[] counts = ps.executeBatch();
+
+        assertEquals(2, counts.length);
+        assertEquals("1,2", getValues("SELECT ID FROM FK ORDER BY ID"));
+    }
+
+    /**
+     * A transaction rollback in a batch returns the update counts up to the
+     * conflicting row, in the order of the batch, and the earlier work of
+     * the transaction is rolled back.
+     */
+    public void testTransactionRollback() throws Exception {
+
+        Connection other = prepareConflict();
+
+        conn.setAutoCommit(false);
+        st.execute("INSERT INTO TX VALUES 100");
+
+        try {
+            executeConflictBatch();
+            fail("batch with conflicting row");
+        } catch (BatchUpdateException e) {
+            assertEquals("40001", e.getSQLState());
+            assertEquals(3, e.getUpdateCounts().length);
+        }
+
+        other.rollback();
+        other.close();
+        assertEquals("", getValues("SELECT ID FROM TX"));
+        conn.setAutoCommit(true);
+    }
+
+    /**
+     * In autocommit mode the rows before the conflicting row are committed,
+     * as they are when the rows are inserted one at a time.
+     */
+    public void testTransactionRollbackAutoCommit() throws Exception {
+
+        Connection other = prepareConflict();
+
+        try {
+            executeConflictBatch();
+            fail("batch with conflicting row");
+        } catch (BatchUpdateException e) {
+            assertEquals("40001", e.getSQLState());
+            assertEquals(3, e.getUpdateCounts().length);
+        }
+
+        other.rollback();
+        other.close();
+        assertEquals("1,2,3", getValues("SELECT ID FROM TX ORDER BY ID"));
+    }
+
+    /**
+     * Returns a connection with an uncommitted row that conflicts with the
+     * fourth row of the batch.
+     */
+    private Connection prepareConflict() throws SQLException {
+
+        st.execute("SET DATABASE TRANSACTION CONTROL MVCC");
+        st.execute("CREATE TABLE TX (ID INT PRIMARY KEY)");
+
+        Connection other = newConnection();
+
+        other.setAutoCommit(false);
+        other.createStatement().execute("INSERT INTO TX VALUES 5");
+        conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+
+        return other;
+    }
+
+    private void executeConflictBatch() throws SQLException {
+
+        PreparedStatement ps =
+            conn.prepareStatement("INSERT INTO TX VALUES (?)");
+        int[] keys = new int[] {
+            3, 1, 2, 5, 4
+        };
+
+        for (int i = 0; i < keys.length; i++) {
+            ps.setInt(1, keys[i]);
+            ps.addBatch();
+        }
+
+        ps.executeBatch();
+    }
+
+    private String getValues(String sql) throws SQLException {
+
+        ResultSet    rs = st.executeQuery(sql);
+        StringBuffer sb = new StringBuffer();
+
+        while (rs.next()) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+
+            sb.append(rs.getString(1));
+        }
+
+        rs.close();
+
+        return sb.toString();
+    }
+}
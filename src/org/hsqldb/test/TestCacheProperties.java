@@ -0,0 +1,826 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+package org.hsqldb.test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the properties of the data file cache. The same changes are
+ * made to CACHED tables in a file database with a small cache and to a
+ * memory database, and the contents are compared, including after the file
+ * database is shut down without a checkpoint and opened again.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public class TestCacheProperties extends TestCase {
+
+    static final String dbPath         = "/hsql/testcacheprops/test";
+    static final String referenceUrl   = "jdbc:hsqldb:mem:cachereference";
+    static final int    rowCount       = 8000;
+    static final int    mappedRowCount = 12000;
+    static final int    hotRowCount    = 200;
+    static final int    hotValueCount  = 20;
+    Connection          referenceConn;
+    Connection          conn;
+
+    public TestCacheProperties(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+        TestUtil.deleteDatabase(dbPath);
+
+        referenceConn = DriverManager.getConnection(referenceUrl, "SA", "");
+
+        createData(referenceConn);
+    }
+
+    protected void tearDown() throws Exception {
+
+        if (conn != null) {
+            try {
+                conn.createStatement().execute("SHUTDOWN");
+            } catch (SQLException e) {}
+        }
+
+        referenceConn.createStatement().execute("SHUTDOWN");
+        TestUtil.deleteDatabase(dbPath);
+    }
+
+    public void testDirtyRatio() throws Exception {
+
+        String properties = ";hsqldb.cache_dirty_ratio=10";
+
+        conn = openDatabase(properties);
+
+        assertEquals("10", getProperty(conn, "hsqldb.cache_dirty_ratio"));
+        createData(conn);
+        assertTrue(hasThread("HSQLDB Cache Writer " + dbPath));
+        checkData(conn);
+        conn.createStatement().execute("SHUTDOWN IMMEDIATELY");
+        waitForThreadExit("HSQLDB Cache Writer " + dbPath);
+
+        conn = openDatabase(properties);
+
+        checkData(conn);
+        conn.createStatement().execute("SHUTDOWN");
+        assertFalse(hasThread("HSQLDB Cache Writer " + dbPath));
+    }
+
+    public void testDirtyRatioDefault() throws Exception {
+
+        conn = openDatabase("");
+
+        assertEquals("0", getProperty(conn, "hsqldb.cache_dirty_ratio"));
+        createData(conn);
+        assertFalse(hasThread("HSQLDB Cache Writer " + dbPath));
+        checkData(conn);
+        conn.createStatement().execute("SHUTDOWN");
+    }
+
+    public void testWriteSize() throws Exception {
+
+        conn = openDatabase("");
+
+        assertEquals("256", getProperty(conn, "hsqldb.cache_write_size"));
+        conn.createStatement().execute("SHUTDOWN");
+
+        conn = openDatabase(";hsqldb.cache_write_size=1");
+
+        assertEquals("256", getProperty(conn, "hsqldb.cache_write_size"));
+        conn.createStatement().execute("SHUTDOWN");
+        checkRecovery(";hsqldb.cache_write_size=4");
+    }
+
+    public void testWriteSizeLarge() throws Exception {
+        checkRecovery(";hsqldb.cache_write_size=16384");
+    }
+
+    public void testReadAhead() throws Exception {
+
+        conn = openDatabase("");
+
+        assertEquals("128", getProperty(conn, "hsqldb.cache_read_ahead"));
+        createData(conn);
+        conn.createStatement().execute("CHECKPOINT DEFRAG");
+        conn.createStatement().execute("SHUTDOWN");
+        checkScan(";hsqldb.cache_read_ahead=4");
+        checkScan(";hsqldb.cache_read_ahead=16384");
+        checkScan(";hsqldb.cache_read_ahead=0");
+    }
+
+    public void testChecksum() throws Exception {
+
+        conn = openDatabase("");
+
+        assertEquals("false", getProperty(conn, "hsqldb.cache_checksum"));
+        conn.createStatement().execute("SHUTDOWN");
+        checkRecovery(";hsqldb.cache_checksum=true");
+
+        conn = openDatabase(";hsqldb.cache_checksum=true");
+
+        assertEquals("true", getProperty(conn, "hsqldb.cache_checksum"));
+        conn.createStatement().execute("CHECKPOINT DEFRAG");
+        checkData(conn);
+        conn.createStatement().execute("SHUTDOWN");
+
+        // the file keeps its checksums when the property is not set
+        corruptDataFile();
+
+        conn = openDatabase("");
+
+        try {
+            getResult(conn, "SELECT * FROM T");
+            fail("checksum mismatch not reported");
+        } catch (SQLException e) {
+            assertTrue(e.getMessage(),
+                       e.getMessage().indexOf("checksum") >= 0);
+        }
+    }
+
+    public void testScrubInterval() throws Exception {
+
+        String properties = ";hsqldb.cache_checksum=true";
+
+        conn = openDatabase(properties);
+
+        assertEquals("0", getProperty(conn, "hsqldb.cache_scrub_interval"));
+        createData(conn);
+        conn.createStatement().execute("CHECKPOINT DEFRAG");
+        conn.createStatement().execute("SHUTDOWN");
+
+        // a scrubber that reads undamaged rows reports nothing
+        conn = openDatabase(properties
+                            + ";hsqldb.cache_scrub_interval=1;hsqldb.applog=1");
+
+        assertEquals("1", getProperty(conn, "hsqldb.cache_scrub_interval"));
+        Thread.sleep(2500);
+        assertFalse(hasScrubError());
+        checkData(conn);
+        conn.createStatement().execute("SHUTDOWN");
+        corruptDataFile();
+
+        conn = openDatabase(properties
+                            + ";hsqldb.cache_scrub_interval=1;hsqldb.applog=1");
+
+        for (int i = 0; i < 100 && !hasScrubError(); i++) {
+            Thread.sleep(50);
+        }
+
+        assertTrue(hasScrubError());
+        conn.createStatement().execute("SHUTDOWN IMMEDIATELY");
+
+        conn = null;
+    }
+
+    /**
+     * Changes the last byte of the last row in the .data file, which is part
+     * of the row checksum. The free position is stored at byte 12 of the
+     * file.
+     */
+    void corruptDataFile() throws IOException {
+
+        RandomAccessFile file = new RandomAccessFile(dbPath + ".data", "rw");
+
+        file.seek(12);
+
+        long pos = file.readLong() - 1;
+
+        file.seek(pos);
+
+        int value = file.read();
+
+        file.seek(pos);
+        file.write(value ^ 0x10);
+        file.close();
+    }
+
+    boolean hasScrubError() throws IOException {
+
+        File file = new File(dbPath + ".app.log");
+
+        if (!file.exists()) {
+            return false;
+        }
+
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+
+        try {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (line.indexOf("checksum mismatch") >= 0) {
+                    return true;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return false;
+    }
+
+    /**
+     * Sessions read rows concurrently from a .data file that is larger than
+     * the size at which it is memory mapped, while another session updates
+     * rows and adds rows to grow the file. Each row holds a value derived
+     * from its other columns, which is checked when it is read.
+     */
+    public void testMappedReads() throws Exception {
+
+        final String properties = ";hsqldb.nio_data_file=true";
+
+        conn = openDatabase(properties);
+
+        Statement st = conn.createStatement();
+
+        st.execute("SET DATABASE TRANSACTION CONTROL MVCC");
+        st.execute("CREATE CACHED TABLE B (ID INT PRIMARY KEY, W INT,"
+                   + " V VARCHAR(4000))");
+
+        PreparedStatement insert =
+            conn.prepareStatement("INSERT INTO B VALUES (?, ?, ?)");
+
+        for (int i = 0; i < mappedRowCount; i++) {
+            insert.setInt(1, i);
+            insert.setInt(2, 0);
+            insert.setString(3, getMappedValue(i, 0));
+            insert.execute();
+        }
+
+        st.execute("CHECKPOINT");
+
+        final Throwable[] errors   = new Throwable[1];
+        Thread[]          threads  = new Thread[5];
+        final int         addCount = mappedRowCount / 2;
+
+        threads[0] = new Thread() {
+
+            public void run() {
+
+                try {
+                    Connection c = openDatabase(properties);
+                    PreparedStatement update = c.prepareStatement(
+                        "UPDATE B SET W = ?, V = ? WHERE ID = ?");
+                    PreparedStatement insert = c.prepareStatement(
+                        "INSERT INTO B VALUES (?, ?, ?)");
+                    Random random = new Random(19);
+
+                    for (int i = 0; i < addCount; i++) {
+                        int id = random.nextInt(mappedRowCount);
+                        int w  = 1 + random.nextInt(1000);
+
+                        update.setInt(1, w);
+                        update.setString(2, getMappedValue(id, w));
+                        update.setInt(3, id);
+                        update.execute();
+                        insert.setInt(1, mappedRowCount + i);
+                        insert.setInt(2, w);
+                        insert.setString(3,
+                                         getMappedValue(mappedRowCount + i,
+                                                        w));
+                        insert.execute();
+                    }
+
+                    c.close();
+                } catch (Throwable t) {
+                    errors[0] = t;
+                }
+            }
+        };
+
+        for (int j = 1; j < threads.length; j++) {
+            final int seed = j;
+
+            threads[j] = new Thread() {
+
+                public void run() {
+
+                    try {
+                        Connection c = openDatabase(properties);
+                        PreparedStatement select = c.prepareStatement(
+                            "SELECT ID, W, V FROM B WHERE ID >= ? AND ID < ?");
+                        Random random = new Random(seed);
+
+                        for (int i = 0; i < 200 && errors[0] == null; i++) {
+                            int start = random.nextInt(mappedRowCount - 100);
+
+                            select.setInt(1, start);
+                            select.setInt(2, start + 100);
+
+                            ResultSet rs    = select.executeQuery();
+                            int       count = 0;
+
+                            while (rs.next()) {
+                                int id = rs.getInt(1);
+
+                                assertTrue("row " + id,
+                                           getMappedValue(id, rs.getInt(2))
+                                               .equals(rs.getString(3)));
+
+                                count++;
+                            }
+
+                            rs.close();
+                            assertEquals(100, count);
+                        }
+
+                        c.close();
+                    } catch (Throwable t) {
+                        errors[0] = t;
+                    }
+                }
+            };
+        }
+
+        for (int j = 0; j < threads.length; j++) {
+            threads[j].start();
+        }
+
+        for (int j = 0; j < threads.length; j++) {
+            threads[j].join();
+        }
+
+        if (errors[0] != null) {
+            throw new RuntimeException(errors[0]);
+        }
+
+        checkMappedData(conn, mappedRowCount + addCount);
+        st.execute("SHUTDOWN IMMEDIATELY");
+
+        conn = openDatabase(properties);
+
+        checkMappedData(conn, mappedRowCount + addCount);
+        conn.createStatement().execute("SHUTDOWN");
+    }
+
+    /**
+     * Sessions read rows concurrently from the memory mapped .data file
+     * through two indexes, while another session updates the indexed column
+     * and the small cache evicts and writes back the changed rows and index
+     * nodes. A copy of a row decoded before it was written back must not be
+     * added to the cache, so both indexes must hold all the rows afterwards.
+     */
+    public void testMappedReadsEviction() throws Exception {
+
+        final String properties =
+            ";hsqldb.nio_data_file=true;hsqldb.cache_rows=100";
+
+        conn = openDatabase(properties);
+
+        Statement st = conn.createStatement();
+
+        st.execute("SET DATABASE TRANSACTION CONTROL MVCC");
+        st.execute("CREATE CACHED TABLE B (ID INT PRIMARY KEY, W INT,"
+                   + " V VARCHAR(4000))");
+        st.execute("CREATE INDEX IDX_B_W ON B (W)");
+
+        PreparedStatement insert =
+            conn.prepareStatement("INSERT INTO B VALUES (?, ?, ?)");
+
+        for (int i = 0; i < mappedRowCount; i++) {
+            insert.setInt(1, i);
+            insert.setInt(2, i % 1000);
+            insert.setString(3, getMappedValue(i, i % 1000));
+            insert.execute();
+        }
+
+        st.execute("CHECKPOINT");
+
+        final Throwable[]   errors  = new Throwable[1];
+        final AtomicBoolean stopped = new AtomicBoolean();
+        Thread[]            threads = new Thread[5];
+
+        threads[0] = new Thread() {
+
+            public void run() {
+
+                try {
+                    Connection c = openDatabase(properties);
+                    PreparedStatement update = c.prepareStatement(
+                        "UPDATE B SET W = ?, V = ? WHERE ID = ?");
+                    Random random = new Random(23);
+
+                    for (int i = 0; i < mappedRowCount / 2; i++) {
+                        int id = random.nextInt(hotRowCount);
+                        int w  = random.nextInt(hotValueCount);
+
+                        update.setInt(1, w);
+                        update.setString(2, getMappedValue(id, w));
+                        update.setInt(3, id);
+                        update.execute();
+                    }
+
+                    c.close();
+                } catch (Throwable t) {
+                    errors[0] = t;
+                }
+
+                stopped.set(true);
+            }
+        };
+
+        for (int j = 1; j < threads.length; j++) {
+            final String sql = j % 2 == 0
+                               ? "SELECT ID, W, V FROM B WHERE ID >= ?"
+                                 + " AND ID < ?"
+                               : "SELECT ID, W, V FROM B WHERE W >= ?"
+                                 + " AND W < ?";
+            final int limit = j % 2 == 0 ? hotRowCount
+                                         : hotValueCount;
+            final int seed = j;
+
+            threads[j] = new Thread() {
+
+                public void run() {
+
+                    try {
+                        Connection c = openDatabase(properties);
+                        PreparedStatement select = c.prepareStatement(sql);
+                        Random random = new Random(seed);
+
+                        while (errors[0] == null && !stopped.get()) {
+                            int start = random.nextInt(limit / 2);
+
+                            select.setInt(1, start);
+                            select.setInt(2, start + limit / 2);
+
+                            ResultSet rs = select.executeQuery();
+
+                            while (rs.next()) {
+                                int id = rs.getInt(1);
+
+                                assertTrue("row " + id,
+                                           getMappedValue(id, rs.getInt(2))
+                                               .equals(rs.getString(3)));
+                            }
+
+                            rs.close();
+                        }
+
+                        c.close();
+                    } catch (Throwable t) {
+                        errors[0] = t;
+                    }
+                }
+            };
+        }
+
+        for (int j = 0; j < threads.length; j++) {
+            threads[j].start();
+        }
+
+        for (int j = 0; j < threads.length; j++) {
+            threads[j].join();
+        }
+
+        if (errors[0] != null) {
+            throw new RuntimeException(errors[0]);
+        }
+
+        checkMappedData(conn, mappedRowCount);
+        checkMappedIndex(conn, mappedRowCount);
+        st.execute("SHUTDOWN IMMEDIATELY");
+
+        conn = openDatabase(properties);
+
+        checkMappedData(conn, mappedRowCount);
+        checkMappedIndex(conn, mappedRowCount);
+        conn.createStatement().execute("SHUTDOWN");
+    }
+
+    static String getMappedValue(int id, int w) {
+
+        StringBuffer sb = new StringBuffer();
+
+        while (sb.length() < 1800) {
+            sb.append(id).append(':').append(w).append(';');
+        }
+
+        return sb.toString();
+    }
+
+    static void checkMappedData(Connection conn,
+                                int count) throws SQLException {
+
+        ResultSet rs = conn.createStatement().executeQuery(
+            "SELECT ID, W, V FROM B ORDER BY ID");
+        int i = 0;
+
+        for (; rs.next(); i++) {
+            assertEquals(i, rs.getInt(1));
+            assertTrue("row " + i, getMappedValue(i, rs.getInt(2))
+                .equals(rs.getString(3)));
+        }
+
+        rs.close();
+        assertEquals(count, i);
+    }
+
+    /**
+     * Checks that a scan of the index on W returns each row once, in the
+     * order of the index.
+     */
+    static void checkMappedIndex(Connection conn,
+                                 int count) throws SQLException {
+
+        ResultSet rs = conn.createStatement().executeQuery(
+            "SELECT ID, W, V FROM B WHERE W >= 0 ORDER BY W");
+        boolean[] found = new boolean[count];
+        int       last  = 0;
+        int       i     = 0;
+
+        for (; rs.next(); i++) {
+            int id = rs.getInt(1);
+            int w  = rs.getInt(2);
+
+            assertTrue("row " + id, w >= last);
+            assertFalse("row " + id, found[id]);
+            assertTrue("row " + id,
+                       getMappedValue(id, w).equals(rs.getString(3)));
+
+            found[id] = true;
+            last      = w;
+        }
+
+        rs.close();
+        assertEquals(count, i);
+    }
+
+    /**
+     * Reads the rows in primary key order from a cold cache, in ranges. The
+     * rows of the next range are updated before it is read, so that rows
+     * are written to the file between sequential reads.
+     */
+    void checkScan(String properties) throws Exception {
+
+        conn = openDatabase(properties);
+
+        String sql = "SELECT ID, V, W FROM T WHERE ID >= ? AND ID < ?"
+                     + " ORDER BY ID";
+        String updateSql =
+            "UPDATE T SET V = UPPER(V), W = W + 1 WHERE ID >= ? AND ID < ?"
+            + " AND MOD(ID, 3) = 0";
+
+        for (int i = 0; i < rowCount; i += 1000) {
+            if (i > 0) {
+                executeRange(conn, updateSql, i, i + 1000);
+                executeRange(referenceConn, updateSql, i, i + 1000);
+            }
+
+            assertEquals(getRangeResult(referenceConn, sql, i, i + 1000),
+                         getRangeResult(conn, sql, i, i + 1000));
+        }
+
+        checkData(conn);
+        conn.createStatement().execute("SHUTDOWN");
+    }
+
+    static void executeRange(Connection conn, String sql, int start,
+                             int limit) throws SQLException {
+
+        PreparedStatement ps = conn.prepareStatement(sql);
+
+        ps.setInt(1, start);
+        ps.setInt(2, limit);
+        ps.execute();
+        ps.close();
+    }
+
+    static String getRangeResult(Connection conn, String sql, int start,
+                                 int limit) throws SQLException {
+
+        PreparedStatement ps = conn.prepareStatement(sql);
+
+        ps.setInt(1, start);
+        ps.setInt(2, limit);
+
+        ResultSet    rs = ps.executeQuery();
+        StringBuffer sb = new StringBuffer();
+
+        while (rs.next()) {
+            sb.append(rs.getInt(1)).append(',').append(rs.getString(2));
+            sb.append(',').append(rs.getInt(3)).append('\n');
+        }
+
+        ps.close();
+
+        return sb.toString();
+    }
+
+    /**
+     * Changes the data after a checkpoint and shuts down without a
+     * checkpoint, so that the .data file is restored from the .backup file
+     * and the log is replayed when the database is opened.
+     */
+    void checkRecovery(String properties) throws Exception {
+
+        conn = openDatabase(properties);
+
+        createData(conn);
+        conn.createStatement().execute("CHECKPOINT");
+        updateData(conn, 13);
+        updateData(referenceConn, 13);
+        checkData(conn);
+        conn.createStatement().execute("SHUTDOWN IMMEDIATELY");
+
+        conn = openDatabase(properties);
+
+        checkData(conn);
+        updateData(conn, 17);
+        updateData(referenceConn, 17);
+        conn.createStatement().execute("SHUTDOWN");
+
+        conn = openDatabase(properties);
+
+        checkData(conn);
+        conn.createStatement().execute("SHUTDOWN");
+    }
+
+    Connection openDatabase(String properties) throws SQLException {
+
+        return DriverManager.getConnection("jdbc:hsqldb:file:" + dbPath
+                                           + ";hsqldb.cache_rows=1000"
+                                           + properties, "SA", "");
+    }
+
+    /**
+     * Inserts, updates and deletes rows in the same order for each
+     * database.
+     */
+    static void createData(Connection conn) throws SQLException {
+
+        Statement st = conn.createStatement();
+
+        st.execute("CREATE CACHED TABLE T (ID INT PRIMARY KEY,"
+                   + " V VARCHAR(200), W INT)");
+        st.execute("CREATE INDEX T_W ON T (W)");
+
+        PreparedStatement insert =
+            conn.prepareStatement("INSERT INTO T VALUES (?, ?, ?)");
+        Random random = new Random(7);
+
+        for (int i = 0; i < rowCount; i++) {
+            insert.setInt(1, i);
+            insert.setString(2, getString(random));
+            insert.setInt(3, random.nextInt(1000));
+            insert.execute();
+        }
+
+        updateData(conn, 11);
+    }
+
+    static void updateData(Connection conn, int seed) throws SQLException {
+
+        PreparedStatement update =
+            conn.prepareStatement("UPDATE T SET V = ?, W = ? WHERE ID = ?");
+        PreparedStatement delete =
+            conn.prepareStatement("DELETE FROM T WHERE ID = ?");
+        Random random = new Random(seed);
+
+        for (int i = 0; i < rowCount; i++) {
+            update.setString(1, getString(random));
+            update.setInt(2, random.nextInt(1000));
+            update.setInt(3, random.nextInt(rowCount));
+            update.execute();
+
+            if (i % 4 == 0) {
+                delete.setInt(1, random.nextInt(rowCount));
+                delete.execute();
+            }
+        }
+    }
+
+    static String getString(Random random) {
+
+        StringBuffer sb     = new StringBuffer();
+        int          length = random.nextInt(200);
+
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(26)));
+        }
+
+        return sb.toString();
+    }
+
+    void checkData(Connection conn) throws SQLException {
+
+        String[] queries = new String[] {
+            "SELECT COUNT(*), SUM(W), SUM(CHAR_LENGTH(V)) FROM T",
+            "SELECT ID, W FROM T WHERE W BETWEEN 100 AND 120 ORDER BY W, ID",
+            "SELECT ID, V FROM T WHERE ID BETWEEN 2000 AND 2100 ORDER BY ID",
+            "SELECT COUNT(*) FROM T WHERE W >= 0",
+            "SELECT MIN(ID), MAX(ID), MIN(W), MAX(W) FROM T"
+        };
+
+        for (int i = 0; i < queries.length; i++) {
+            assertEquals(queries[i], getResult(referenceConn, queries[i]),
+                         getResult(conn, queries[i]));
+        }
+    }
+
+    static String getResult(Connection conn, String sql) throws SQLException {
+
+        ResultSet    rs          = conn.createStatement().executeQuery(sql);
+        int          columnCount = rs.getMetaData().getColumnCount();
+        StringBuffer sb          = new StringBuffer();
+
+        while (rs.next()) {
+            for (int i = 1; i <= columnCount; i++) {
+                sb.append(rs.getString(i)).append(',');
+            }
+
+            sb.append('\n');
+        }
+
+        rs.close();
+
+        return sb.toString();
+    }
+
+    static String getProperty(Connection conn,
+                              String name) throws SQLException {
+
+        PreparedStatement ps = conn.prepareStatement(
+            "SELECT PROPERTY_VALUE FROM INFORMATION_SCHEMA.SYSTEM_PROPERTIES"
+            + " WHERE PROPERTY_NAME = ?");
+
+        ps.setString(1, name);
+
+        ResultSet rs = ps.executeQuery();
+
+        return rs.next() ? rs.getString(1)
+                         : null;
+    }
+
+    static boolean hasThread(String name) {
+
+        Thread[] threads = new Thread[Thread.activeCount() + 16];
+        int      count   = Thread.enumerate(threads);
+
+        for (int i = 0; i < count; i++) {
+            if (name.equals(threads[i].getName())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    static void waitForThreadExit(String name) throws InterruptedException {
+
+        for (int i = 0; i < 100 && hasThread(name); i++) {
+            Thread.sleep(10);
+        }
+
+        assertFalse(name, hasThread(name));
+    }
+}
@@ -0,0 +1,238 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Random;
+
+import org.hsqldb.persist.HsqlDatabaseProperties;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests language collations with the default collation key cache and with
+ * the size set with the hsqldb.collation_key_cache system property. Results
+ * are compared with a java.text.Collator. Collations are shared in the JVM
+ * and the property is read when a collation is first used, so each test
+ * uses a collation name that is not used elsewhere.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public class TestCollationKeyCache extends TestCase {
+
+    static final String url      = "jdbc:hsqldb:mem:collationkeycache";
+    static final String alphabet = "aAbBeEvVwWz-\u00e5\u00c5\u00e4\u00c4"
+                                   + "\u00f6\u00d6\u00e9\u00c9";
+    static final int    rowCount = 3000;
+
+    //
+    Connection conn;
+    String[]   values;
+
+    public TestCollationKeyCache(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+
+        conn = DriverManager.getConnection(url, "SA", "");
+
+        Random random = new Random(5);
+
+        values = new String[rowCount];
+
+        for (int i = 0; i < rowCount; i++) {
+            int          length = 1 + random.nextInt(6);
+            StringBuffer sb     = new StringBuffer();
+
+            for (int j = 0; j < length; j++) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+
+            values[i] = sb.toString();
+        }
+    }
+
+    protected void tearDown() throws Exception {
+
+        System.clearProperty(HsqlDatabaseProperties.system_collation_key_cache);
+
+        try {
+            conn.createStatement().execute("SHUTDOWN");
+        } catch (SQLException e) {}
+    }
+
+    public void testDefaultCache() throws Exception {
+        checkCollation("Swedish 1 0", null, Collator.SECONDARY, false);
+    }
+
+    public void testNoCache() throws Exception {
+        checkCollation("Swedish 2 0", "0", Collator.TERTIARY, false);
+    }
+
+    public void testSmallCache() throws Exception {
+        checkCollation("Swedish 2 1", "16", Collator.TERTIARY, false);
+    }
+
+    public void testCache() throws Exception {
+        checkCollation("Swedish 1 1", "8192", Collator.SECONDARY, false);
+    }
+
+    public void testCacheUpperCaseCompare() throws Exception {
+        checkCollation("Swedish 2 1 UCC", "100", Collator.TERTIARY, true);
+    }
+
+    public void testInvalidSize() throws Exception {
+        checkCollation("Swedish 0 1", "-1", Collator.PRIMARY, false);
+    }
+
+    /**
+     * Sets the property, then compares ORDER BY and equality results on an
+     * indexed column with the collation against the Collator.
+     */
+    void checkCollation(String collationName, String cacheSize,
+                        int strength, final boolean ucc) throws Exception {
+
+        if (cacheSize != null) {
+            System.setProperty(
+                HsqlDatabaseProperties.system_collation_key_cache, cacheSize);
+        }
+
+        Statement st = conn.createStatement();
+
+        st.execute("CREATE TABLE T (ID INT PRIMARY KEY, V VARCHAR(20) COLLATE \""
+                   + collationName + "\")");
+        st.execute("CREATE INDEX T_V ON T (V)");
+
+        PreparedStatement ps =
+            conn.prepareStatement("INSERT INTO T VALUES (?, ?)");
+
+        for (int i = 0; i < rowCount; i++) {
+            ps.setInt(1, i);
+            ps.setString(2, values[i]);
+            ps.executeUpdate();
+        }
+
+        final Collator collator =
+            Collator.getInstance(new Locale("sv", "SE"));
+
+        collator.setStrength(strength);
+        collator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+
+        if (collationName.endsWith(" 0")) {
+            collator.setDecomposition(Collator.NO_DECOMPOSITION);
+        }
+
+        final Locale locale = new Locale("sv", "SE");
+        Integer[]    ids    = new Integer[rowCount];
+
+        for (int i = 0; i < rowCount; i++) {
+            ids[i] = Integer.valueOf(i);
+        }
+
+        Arrays.sort(ids, new Comparator<Integer>() {
+
+            public int compare(Integer a, Integer b) {
+
+                String x = values[a.intValue()];
+                String y = values[b.intValue()];
+
+                if (ucc) {
+                    x = x.toUpperCase(locale);
+                    y = y.toUpperCase(locale);
+                }
+
+                int i = collator.compare(x, y);
+
+                return i == 0 ? a.compareTo(b)
+                              : i;
+            }
+        });
+
+        ResultSet rs = st.executeQuery("SELECT ID FROM T ORDER BY V, ID");
+
+        for (int i = 0; i < rowCount; i++) {
+            assertTrue(rs.next());
+            assertEquals("row " + i, ids[i].intValue(), rs.getInt(1));
+        }
+
+        assertFalse(rs.next());
+        rs.close();
+
+        // index lookups
+        ps = conn.prepareStatement("SELECT COUNT(*) FROM T WHERE V = ?");
+
+        for (int i = 0; i < rowCount; i += 7) {
+            String value = values[i];
+            int    count = 0;
+
+            for (int j = 0; j < rowCount; j++) {
+                String x = value;
+                String y = values[j];
+
+                if (ucc) {
+                    x = x.toUpperCase(locale);
+                    y = y.toUpperCase(locale);
+                }
+
+                if (collator.compare(x, y) == 0) {
+                    count++;
+                }
+            }
+
+            ps.setString(1, value);
+
+            rs = ps.executeQuery();
+
+            rs.next();
+            assertEquals(value, count, rs.getInt(1));
+            rs.close();
+        }
+
+        st.execute("DROP TABLE T");
+    }
+}
@@ -0,0 +1,210 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import junit.framework.TestCase;
+
+/**
+ * Compares query results with and without hsqldb.compile_expressions.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public class TestCompiledExpressions extends TestCase {
+
+    Connection plainConn;
+    Connection compiledConn;
+
+    static final String[] conditions = {
+        "i > 10", "i >= -5 AND i < 50", "i = b", "i <> d", "b * 2 > i + 3",
+        "d < 0.5", "d = d", "d > i - 1.5", "i IS NULL", "b IS NOT NULL",
+        "NOT (i > 0)", "i > 0 OR d < 0", "NOT (i > 0 OR b IS NULL)",
+        "i + b - 1 = 0", "i * i > 100", "b - i < 5", "i BETWEEN 3 AND 8",
+        "(i > 5 AND d IS NULL) OR b = 7", "v = 'x3' AND i < 5",
+        "i = ?", "b > ? AND d < ?", "i * 2147483647 > 0",
+        "b * 9223372036854775807 > 0", "b + 9223372036854775807 > 0",
+        "i - 2147483647 < 0", "d * 1e308 > 1e308"
+    };
+    static final String[] selectLists = {
+        "i + 1", "i - b", "b * 3", "d + i", "d * d - 1", "i * i * i",
+        "i + 2147483647", "b * 1000000000000", "-i + b", "i * ?"
+    };
+
+    public TestCompiledExpressions(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+
+        plainConn = DriverManager.getConnection("jdbc:hsqldb:mem:plainexpr",
+                "SA", "");
+        compiledConn = DriverManager.getConnection(
+            "jdbc:hsqldb:mem:compiledexpr;hsqldb.compile_expressions=true",
+            "SA", "");
+
+        createData(plainConn);
+        createData(compiledConn);
+    }
+
+    protected void tearDown() throws Exception {
+
+        plainConn.createStatement().execute("SHUTDOWN");
+        compiledConn.createStatement().execute("SHUTDOWN");
+    }
+
+    void createData(Connection conn) throws SQLException {
+
+        Statement st = conn.createStatement();
+
+        st.execute("CREATE TABLE T (ID INT PRIMARY KEY, I INT, B BIGINT,"
+                   + " D DOUBLE, V VARCHAR(10))");
+
+        PreparedStatement ps =
+            conn.prepareStatement("INSERT INTO T VALUES ?, ?, ?, ?, ?");
+
+        for (int id = 0; id < 200; id++) {
+            ps.setInt(1, id);
+
+            if (id % 11 == 0) {
+                ps.setNull(2, java.sql.Types.INTEGER);
+            } else {
+                ps.setInt(2, id % 50 - 10);
+            }
+
+            if (id % 13 == 0) {
+                ps.setNull(3, java.sql.Types.BIGINT);
+            } else {
+                ps.setLong(3, (id * 7L) % 40 - 5);
+            }
+
+            if (id % 7 == 0) {
+                ps.setNull(4, java.sql.Types.DOUBLE);
+            } else if (id % 17 == 0) {
+                ps.setDouble(4, Double.NaN);
+            } else {
+                ps.setDouble(4, (id % 20) / 8.0 - 1);
+            }
+
+            ps.setString(5, "x" + id % 5);
+            ps.execute();
+        }
+
+        ps.setInt(1, 1000);
+        ps.setInt(2, Integer.MAX_VALUE);
+        ps.setLong(3, Long.MAX_VALUE);
+        ps.setDouble(4, Double.MAX_VALUE);
+        ps.setString(5, "max");
+        ps.execute();
+        ps.setInt(1, 1001);
+        ps.setInt(2, Integer.MIN_VALUE);
+        ps.setLong(3, Long.MIN_VALUE);
+        ps.setDouble(4, -Double.MAX_VALUE);
+        ps.setString(5, "min");
+        ps.execute();
+        ps.close();
+        st.close();
+    }
+
+    public void testConditions() throws Exception {
+
+        for (int i = 0; i < conditions.length; i++) {
+            compare("SELECT ID FROM T WHERE " + conditions[i]
+                    + " ORDER BY ID");
+        }
+    }
+
+    public void testSelectList() throws Exception {
+
+        for (int i = 0; i < selectLists.length; i++) {
+            compare("SELECT ID, " + selectLists[i]
+                    + " FROM T WHERE ID < 1000 ORDER BY ID");
+            compare("SELECT ID, " + selectLists[i] + " FROM T ORDER BY ID");
+        }
+    }
+
+    public void testJoin() throws Exception {
+
+        compare("SELECT A.ID, B.ID FROM T A JOIN T B ON A.I = B.B + 1"
+                + " WHERE A.D > B.D AND A.ID < 100 ORDER BY 1, 2");
+        compare("SELECT A.ID, B.ID FROM T A LEFT JOIN T B ON A.I = B.I * 2"
+                + " AND B.ID < 50 ORDER BY 1, 2");
+    }
+
+    void compare(String sql) throws SQLException {
+
+        String expected = getResult(plainConn, sql);
+        String actual   = getResult(compiledConn, sql);
+
+        assertEquals(sql, expected, actual);
+    }
+
+    static String getResult(Connection conn, String sql) {
+
+        StringBuffer sb = new StringBuffer();
+
+        try {
+            PreparedStatement ps = conn.prepareStatement(sql);
+            int count = ps.getParameterMetaData().getParameterCount();
+
+            for (int i = 0; i < count; i++) {
+                ps.setInt(i + 1, 7 - i);
+            }
+
+            ResultSet rs      = ps.executeQuery();
+            int       columns = rs.getMetaData().getColumnCount();
+
+            while (rs.next()) {
+                for (int i = 0; i < columns; i++) {
+                    sb.append(rs.getString(i + 1)).append(',');
+                }
+
+                sb.append('\n');
+            }
+
+            ps.close();
+        } catch (SQLException e) {
+            sb.append("error ").append(e.getSQLState());
+        }
+
+        return sb.toString();
+    }
+}
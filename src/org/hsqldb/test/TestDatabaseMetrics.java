@@ -0,0 +1,412 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+package org.hsqldb.test;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.hsqldb.server.Server;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the INFORMATION_SCHEMA.SYSTEM_METRICS table and the metrics MBean
+ * registered when the hsqldb.metrics_jmx property is true.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public class TestDatabaseMetrics extends TestCase {
+
+    static final String dbPath   = "/hsql/testmetrics/test";
+    static final String url      = "jdbc:hsqldb:file:" + dbPath;
+    static final int    rowCount = 2000;
+    Connection          conn;
+
+    public TestDatabaseMetrics(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+        TestUtil.deleteDatabase(dbPath);
+    }
+
+    protected void tearDown() throws Exception {
+
+        if (conn != null) {
+            try {
+                conn.createStatement().execute("SHUTDOWN");
+            } catch (SQLException e) {}
+        }
+
+        TestUtil.deleteDatabase(dbPath);
+    }
+
+    /**
+     * Transaction and statement cache counters follow the statements.
+     */
+    public void testTransactionCounters() throws Exception {
+
+        conn = openDatabase("");
+
+        Statement st = conn.createStatement();
+
+        st.execute("CREATE TABLE T (ID INT PRIMARY KEY, V INT)");
+        st.execute("SET DATABASE TRANSACTION CONTROL MVCC");
+        conn.setAutoCommit(false);
+
+        long commits   = getValue(conn, "TX_COMMITS");
+        long rollbacks = getValue(conn, "TX_ROLLBACKS");
+
+        for (int i = 0; i < 5; i++) {
+            st.execute("INSERT INTO T VALUES (" + i + ", 0)");
+            conn.commit();
+        }
+
+        for (int i = 5; i < 8; i++) {
+            st.execute("INSERT INTO T VALUES (" + i + ", 0)");
+            conn.rollback();
+        }
+
+        // a commit or rollback without changes is not counted
+        conn.commit();
+        conn.rollback();
+        assertEquals(commits + 5, getValue(conn, "TX_COMMITS"));
+        assertEquals(rollbacks + 3, getValue(conn, "TX_ROLLBACKS"));
+
+        // a session that waits for a row changed by another transaction
+        long conflicts = getValue(conn, "TX_CONFLICTS");
+        long waits     = getValue(conn, "LOCK_WAIT_TIME");
+
+        st.execute("UPDATE T SET V = 1 WHERE ID = 1");
+
+        final Connection     conn2  = DriverManager.getConnection(url, "SA",
+            "");
+        final SQLException[] error  = new SQLException[1];
+        Thread               thread = new Thread() {
+
+            public void run() {
+
+                try {
+                    conn2.createStatement().execute(
+                        "UPDATE T SET V = 2 WHERE ID = 1");
+                } catch (SQLException e) {
+                    error[0] = e;
+                }
+            }
+        };
+
+        thread.start();
+        Thread.sleep(200);
+        conn.commit();
+        thread.join();
+        assertNull(error[0]);
+        assertEquals(commits + 7, getValue(conn, "TX_COMMITS"));
+        assertEquals(waits + 1, getValue(conn, "LOCK_WAIT_TIME"));
+
+        // a serializable transaction cannot change the same row
+        st.execute("UPDATE T SET V = 3 WHERE ID = 2");
+        conn2.setAutoCommit(false);
+        conn2.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+
+        try {
+            conn2.createStatement().execute("UPDATE T SET V = 4 WHERE ID = 2");
+            fail("serialization failure");
+        } catch (SQLException e) {
+            assertEquals("40001", e.getSQLState());
+        }
+
+        conn2.close();
+        conn.commit();
+        assertEquals(conflicts + 1, getValue(conn, "TX_CONFLICTS"));
+        assertEquals(rollbacks + 4, getValue(conn, "TX_ROLLBACKS"));
+
+        // prepared once, then found in the statement cache while in use
+        long                misses = getValue(conn, "STATEMENT_CACHE_MISSES");
+        long                hits   = getValue(conn, "STATEMENT_CACHE_HITS");
+        PreparedStatement[] ps     = new PreparedStatement[3];
+
+        for (int i = 0; i < ps.length; i++) {
+            ps[i] = conn.prepareStatement("SELECT V FROM T WHERE ID = ?");
+        }
+
+        assertEquals(misses + 1, getValue(conn, "STATEMENT_CACHE_MISSES"));
+        assertEquals(hits + 2, getValue(conn, "STATEMENT_CACHE_HITS"));
+        assertEquals(1, getValue(conn, "STATEMENT_CACHE_SIZE"));
+
+        for (int i = 0; i < ps.length; i++) {
+            ps[i].close();
+        }
+
+        assertEquals(0, getValue(conn, "STATEMENT_CACHE_SIZE"));
+        assertEquals(1, getValue(conn, "SESSIONS"));
+        assertTrue(getValue(conn, "LOG_WRITES") >= 5);
+    }
+
+    /**
+     * Cache counters, gauges and histograms of a CACHED table.
+     */
+    public void testCacheCounters() throws Exception {
+
+        conn = openDatabase(";hsqldb.cache_rows=100");
+
+        Statement st = conn.createStatement();
+
+        st.execute("CREATE CACHED TABLE T (ID INT PRIMARY KEY, V INT)");
+
+        PreparedStatement ps =
+            conn.prepareStatement("INSERT INTO T VALUES (?, ?)");
+
+        for (int i = 0; i < rowCount; i++) {
+            ps.setInt(1, i);
+            ps.setInt(2, i);
+            ps.execute();
+        }
+
+        long saves = getValue(conn, "CACHE_SAVE_TIME");
+
+        st.execute("CHECKPOINT");
+        assertTrue(getValue(conn, "CHECKPOINT_TIME") > 0);
+        assertTrue(getValue(conn, "CACHE_SAVE_TIME") > saves);
+        assertTrue(getValue(conn, "CACHE_BYTES_WRITTEN") > 0);
+        assertTrue(getValue(conn, "LOG_SYNC_TIME") > 0);
+        st.execute("SHUTDOWN");
+
+        // the counters start again with the database
+        conn = openDatabase("");
+        st   = conn.createStatement();
+
+        long misses = getValue(conn, "CACHE_MISSES");
+
+        assertTrue(misses < rowCount / 10);
+
+        ResultSet rs = st.executeQuery("SELECT COUNT(*), SUM(V) FROM T");
+
+        rs.next();
+        assertEquals(rowCount, rs.getInt(1));
+        assertEquals(rowCount * (rowCount - 1L) / 2, rs.getLong(2));
+        assertTrue(getValue(conn, "CACHE_MISSES") >= misses + rowCount);
+        assertTrue(getValue(conn, "CACHE_BYTES_READ") > 0);
+        assertTrue(getValue(conn, "CACHE_EVICTIONS") > 0);
+        assertTrue(getValue(conn, "CACHE_ROWS") > 0);
+        assertTrue(getValue(conn, "CACHE_ROWS") <= 100);
+        assertTrue(getValue(conn, "CACHE_BYTES") > 0);
+
+        long hits = getValue(conn, "CACHE_HITS");
+
+        st.executeQuery("SELECT V FROM T WHERE ID = 1999").next();
+        st.executeQuery("SELECT V FROM T WHERE ID = 1999").next();
+        assertTrue(getValue(conn, "CACHE_HITS") > hits);
+
+        // histogram columns
+        rs = st.executeQuery(
+            "SELECT METRIC_TYPE, METRIC_VALUE, TOTAL_MICROS, MAX_MICROS,"
+            + " P50_MICROS, P99_MICROS FROM INFORMATION_SCHEMA.SYSTEM_METRICS"
+            + " WHERE METRIC_NAME = 'CHECKPOINT_TIME'");
+
+        assertTrue(rs.next());
+        assertEquals("HISTOGRAM", rs.getString(1));
+        assertEquals(0, rs.getLong(2));
+        assertEquals(0, rs.getLong(3));
+        st.execute("CHECKPOINT");
+
+        rs = st.executeQuery(
+            "SELECT METRIC_VALUE, TOTAL_MICROS, MAX_MICROS, P50_MICROS,"
+            + " P99_MICROS FROM INFORMATION_SCHEMA.SYSTEM_METRICS"
+            + " WHERE METRIC_NAME = 'CHECKPOINT_TIME'");
+
+        assertTrue(rs.next());
+        assertEquals(1, rs.getLong(1));
+        assertTrue(rs.getLong(2) > 0);
+        assertEquals(rs.getLong(2), rs.getLong(3));
+        assertTrue(rs.getLong(4) <= rs.getLong(5));
+        assertTrue(rs.getLong(5) <= rs.getLong(3) * 2);
+    }
+
+    /**
+     * Only users with the DBA role see the rows.
+     */
+    public void testAccess() throws Exception {
+
+        conn = openDatabase("");
+
+        conn.createStatement().execute("CREATE USER U PASSWORD 'p'");
+        conn.createStatement().execute("GRANT CHANGE_AUTHORIZATION TO U");
+
+        Connection conn2 = DriverManager.getConnection(url, "U", "p");
+
+        assertTrue(getCount(conn) > 0);
+        assertEquals(0, getCount(conn2));
+        conn2.close();
+    }
+
+    /**
+     * Server sessions report their requests in rows with the session scope.
+     */
+    public void testServerRequests() throws Exception {
+
+        Server server = new Server();
+
+        server.putPropertiesFromString("database.0=mem:testmetrics;dbname.0="
+                                       + ";silent=true;trace=false");
+        server.start();
+
+        try {
+            Connection conn1 = DriverManager.getConnection(
+                "jdbc:hsqldb:hsql://localhost", "SA", "");
+            Connection conn2 = DriverManager.getConnection(
+                "jdbc:hsqldb:hsql://localhost", "SA", "");
+            Statement st = conn1.createStatement();
+
+            for (int i = 0; i < 10; i++) {
+                st.executeQuery("VALUES " + i).close();
+            }
+
+            conn2.createStatement().executeQuery("VALUES 0").close();
+
+            ResultSet rs = st.executeQuery(
+                "SELECT METRIC_SCOPE, METRIC_VALUE, TOTAL_MICROS"
+                + " FROM INFORMATION_SCHEMA.SYSTEM_METRICS"
+                + " WHERE METRIC_NAME = 'SERVER_REQUESTS'"
+                + " AND METRIC_SCOPE LIKE 'SESSION %'"
+                + " ORDER BY METRIC_VALUE DESC");
+            long total = 0;
+
+            assertTrue(rs.next());
+            assertTrue(rs.getLong(2) >= 10);
+            assertTrue(rs.getLong(3) > 0);
+
+            total += rs.getLong(2);
+
+            assertTrue(rs.next());
+            assertTrue(rs.getLong(2) >= 1);
+            assertTrue(rs.getLong(2) < 10);
+
+            total += rs.getLong(2);
+
+            assertFalse(rs.next());
+            assertTrue(getValue(conn1, "SERVER_REQUESTS") >= total);
+            assertTrue(getValue(conn1, "SERVER_REQUEST_TIME") >= total);
+            conn2.close();
+            st.execute("SHUTDOWN");
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * The MBean exists while the database is open and reports the same
+     * values as SYSTEM_METRICS.
+     */
+    public void testMBean() throws Exception {
+
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(
+            "org.hsqldb:type=Database,uri="
+            + ObjectName.quote("file:" + new File(dbPath).getCanonicalPath()));
+
+        conn = openDatabase("");
+
+        assertFalse(mbs.isRegistered(name));
+        conn.createStatement().execute("SHUTDOWN");
+
+        conn = openDatabase(";hsqldb.metrics_jmx=true");
+
+        assertTrue(mbs.isRegistered(name));
+
+        Statement st = conn.createStatement();
+
+        st.execute("CREATE TABLE T (ID INT)");
+        conn.setAutoCommit(false);
+        st.execute("INSERT INTO T VALUES 1");
+        conn.commit();
+        st.execute("CHECKPOINT");
+        assertEquals(new Long(getValue(conn, "TX_COMMITS")),
+                     mbs.getAttribute(name, "TX_COMMITS"));
+        assertEquals(new Long(getValue(conn, "SESSIONS")),
+                     mbs.getAttribute(name, "SESSIONS"));
+        assertEquals(new Long(1),
+                     mbs.getAttribute(name, "CHECKPOINT_TIME_COUNT"));
+        assertEquals(mbs.getAttribute(name, "CHECKPOINT_TIME_TOTAL_MICROS"),
+                     mbs.getAttribute(name, "CHECKPOINT_TIME_MAX_MICROS"));
+
+        try {
+            mbs.getAttribute(name, "NONE");
+            fail("attribute not found");
+        } catch (javax.management.AttributeNotFoundException e) {}
+
+        st.execute("SHUTDOWN");
+        assertFalse(mbs.isRegistered(name));
+    }
+
+    Connection openDatabase(String properties) throws Exception {
+        return DriverManager.getConnection(url + properties
+                                           + ";hsqldb.write_delay=false",
+                                           "SA", "");
+    }
+
+    static long getValue(Connection conn, String metric) throws Exception {
+
+        // not prepared, to leave the statement cache counters unchanged
+        ResultSet rs = conn.createStatement().executeQuery(
+            "SELECT METRIC_VALUE FROM INFORMATION_SCHEMA.SYSTEM_METRICS"
+            + " WHERE METRIC_NAME = '" + metric
+            + "' AND METRIC_SCOPE = 'DATABASE'");
+
+        assertTrue(metric, rs.next());
+
+        return rs.getLong(1);
+    }
+
+    static int getCount(Connection conn) throws Exception {
+
+        ResultSet rs = conn.createStatement().executeQuery(
+            "SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_METRICS");
+
+        rs.next();
+
+        return rs.getInt(1);
+    }
+}
@@ -36,10 +36,12 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.SimpleDateFormat;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.hsqldb.lib.tar.DbBackupMain;
 import org.hsqldb.lib.tar.TarMalformatException;
@@ -396,6 +398,174 @@ public class TestDbBackup extends TestCase {
         fail("Backup from main() did not throw even though DB is open");
     }
 
+    /**
+     * Test SCRIPT NOT BLOCKING backups. They are rejected without MVCC. With
+     * MVCC, each backup is a snapshot that includes LOB data, while another
+     * session commits rows to two tables in each transaction.
+     */
+    public void testScriptNotBlocking()
+    throws SQLException, IOException, TarMalformatException,
+           InterruptedException {
+
+        final String        path        = baseDir.getAbsolutePath();
+        final String[]      error       = new String[1];
+        final AtomicBoolean stop        = new AtomicBoolean();
+        Thread              writer      = null;
+        Connection          uncommitted = null;
+
+        try {
+            setupConn("db1");
+
+            Statement st = conn.createStatement();
+
+            try {
+                st.executeUpdate("BACKUP DATABASE TO '" + path
+                                 + "/locks.tar' SCRIPT NOT BLOCKING"
+                                 + " NOT COMPRESSED");
+                fail("SCRIPT NOT BLOCKING accepted without MVCC");
+            } catch (SQLException se) {
+                assertTrue(se.getMessage(),
+                           se.getMessage().indexOf("MVCC") >= 0);
+            }
+
+            conn.commit();
+            st.execute("SET DATABASE TRANSACTION CONTROL MVCC");
+            st.execute("CREATE TABLE a (i INT PRIMARY KEY, c CLOB)");
+            st.execute("CREATE TABLE b (i INT PRIMARY KEY)");
+            conn.commit();
+
+            uncommitted = getConnection("db1");
+
+            uncommitted.createStatement().executeUpdate(
+                "INSERT INTO t VALUES(99)");
+
+            writer = new Thread() {
+
+                public void run() {
+
+                    try {
+                        Connection c = getConnection("db1");
+                        PreparedStatement insertA = c.prepareStatement(
+                            "INSERT INTO a VALUES(?, ?)");
+                        PreparedStatement insertB = c.prepareStatement(
+                            "INSERT INTO b VALUES(?)");
+
+                        for (int i = 0; !stop.get(); i++) {
+                            insertA.setInt(1, i);
+                            insertA.setString(2, getClobValue(i));
+                            insertA.executeUpdate();
+                            insertB.setInt(1, i);
+                            insertB.executeUpdate();
+                            c.commit();
+                        }
+
+                        c.close();
+                    } catch (SQLException se) {
+                        error[0] = se.toString();
+                    }
+                }
+            };
+
+            writer.start();
+
+            for (int i = 0; i < 3; i++) {
+                Thread.sleep(200);
+                st.executeUpdate("BACKUP DATABASE TO '" + path + "/snapshot"
+                                 + i + ".tar' SCRIPT NOT BLOCKING"
+                                 + " NOT COMPRESSED");
+            }
+
+            st.executeUpdate("BACKUP DATABASE TO '" + path
+                             + "/files/' SCRIPT NOT BLOCKING AS FILES");
+
+            stop.set(true);
+
+            writer.join();
+            assertNull(error[0], error[0]);
+            uncommitted.rollback();
+            uncommitted.close();
+        } finally {
+            stop.set(true);
+
+            shutdownAndCloseConn();
+        }
+
+        int previous = -1;
+
+        for (int i = 0; i < 3; i++) {
+            File destDir = new File(baseDir, "snapshot" + i);
+
+            if (!destDir.mkdir()) {
+                throw new IOException("Failed to make new dir. to restore to: "
+                                      + destDir.getAbsolutePath());
+            }
+
+            DbBackupMain.main(new String[] {
+                "--extract", path + "/snapshot" + i + ".tar",
+                destDir.getAbsolutePath()
+            });
+
+            int count = checkSnapshot("snapshot" + i);
+
+            assertTrue(count >= previous);
+
+            previous = count;
+        }
+
+        assertTrue("no committed rows in backup", previous > 0);
+        checkSnapshot("files");
+    }
+
+    /**
+     * Checks a restored SCRIPT NOT BLOCKING backup and returns the number of
+     * rows in the tables written by the other session.
+     */
+    int checkSnapshot(String id) throws SQLException {
+
+        try {
+            setupConn(id);
+
+            Statement st = conn.createStatement();
+            ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM t");
+
+            rs.next();
+            assertEquals("uncommitted row in backup", 1, rs.getInt(1));
+
+            rs = st.executeQuery("SELECT COUNT(*) FROM a");
+
+            rs.next();
+
+            int count = rs.getInt(1);
+
+            rs = st.executeQuery("SELECT COUNT(*) FROM b");
+
+            rs.next();
+            assertEquals("inconsistent snapshot", count, rs.getInt(1));
+
+            rs = st.executeQuery("SELECT i, c FROM a ORDER BY i");
+
+            for (int i = 0; rs.next(); i++) {
+                assertEquals(i, rs.getInt(1));
+                assertEquals(getClobValue(i), rs.getString(2));
+            }
+
+            return count;
+        } finally {
+            shutdownAndCloseConn();
+        }
+    }
+
+    static String getClobValue(int i) {
+
+        StringBuffer sb = new StringBuffer();
+
+        while (sb.length() < 2000) {
+            sb.append("clob ").append(i).append(' ');
+        }
+
+        return sb.toString();
+    }
+
     /**
      * Test that bad explicit filenames are rejected for onilne backups.
      */
@@ -645,6 +815,7 @@ public class TestDbBackup extends TestCase {
         newSuite.addTest(new TestDbBackup("testOnlineBackup"));
         newSuite.addTest(new TestDbBackup("testTarFileNames"));
         newSuite.addTest(new TestDbBackup("testAutoNaming"));
+        newSuite.addTest(new TestDbBackup("testScriptNotBlocking"));
 
         return newSuite;
     }
@@ -0,0 +1,359 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests indexes created with USING HASH for transaction visibility,
+ * persistence and agreement with tree indexes.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public class TestHashIndex extends TestCase {
+
+    static final String dbPath = "/hsql/testhashindex/test";
+
+    //
+    Connection conn;
+
+    public TestHashIndex(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+        TestUtil.deleteDatabase(dbPath);
+    }
+
+    protected void tearDown() throws Exception {
+
+        if (conn != null) {
+            try {
+                conn.createStatement().execute("SHUTDOWN");
+            } catch (SQLException e) {}
+        }
+
+        TestUtil.deleteDatabase(dbPath);
+    }
+
+    Connection openDatabase() throws SQLException {
+        return DriverManager.getConnection("jdbc:hsqldb:file:" + dbPath, "SA",
+                                           "");
+    }
+
+    /**
+     * Rows inserted or deleted by an uncommitted transaction are not seen
+     * by hash lookups in another session, and rollback restores them.
+     */
+    public void testMVCC() throws Exception {
+
+        conn = DriverManager.getConnection("jdbc:hsqldb:mem:hashindexmvcc",
+                                           "SA", "");
+
+        Statement st = conn.createStatement();
+
+        st.execute("SET DATABASE TRANSACTION CONTROL MVCC");
+        st.execute("CREATE TABLE T (ID INT PRIMARY KEY, A INT)");
+        st.execute("CREATE INDEX T_A ON T (A) USING HASH");
+
+        for (int i = 0; i < 100; i++) {
+            st.execute("INSERT INTO T VALUES (" + i + ", " + (i % 10) + ")");
+        }
+
+        Connection other =
+            DriverManager.getConnection("jdbc:hsqldb:mem:hashindexmvcc", "SA",
+                                        "");
+
+        other.setAutoCommit(false);
+
+        Statement otherSt = other.createStatement();
+
+        otherSt.execute("INSERT INTO T VALUES (100, 5)");
+        otherSt.execute("INSERT INTO T VALUES (101, 10)");
+        otherSt.execute("DELETE FROM T WHERE A = 7");
+        otherSt.execute("DELETE FROM T WHERE ID = 3");
+        otherSt.execute("UPDATE T SET A = 11 WHERE ID = 4");
+        assertEquals(11, getCount(otherSt, 5));
+        assertEquals(1, getCount(otherSt, 10));
+        assertEquals(0, getCount(otherSt, 7));
+        assertEquals(9, getCount(otherSt, 3));
+        assertEquals(9, getCount(otherSt, 4));
+        assertEquals(1, getCount(otherSt, 11));
+
+        // the first rows with the keys are not visible to the other session
+        assertEquals(10, getCount(st, 5));
+        assertEquals(0, getCount(st, 10));
+        assertEquals(10, getCount(st, 7));
+        assertEquals(10, getCount(st, 3));
+        assertEquals(10, getCount(st, 4));
+        assertEquals(0, getCount(st, 11));
+        assertEquals("3", getIds(st, 3, 1));
+        other.rollback();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(10, getCount(st, i));
+            assertEquals(10, getCount(otherSt, i));
+        }
+
+        assertEquals(0, getCount(st, 10));
+        assertEquals(0, getCount(st, 11));
+        otherSt.execute("DELETE FROM T WHERE MOD(ID, 20) < 10");
+        other.commit();
+        assertEquals(5, getCount(st, 5));
+        assertEquals("15,35,55,75,95", getIds(st, 5, 5));
+        other.close();
+    }
+
+    /**
+     * The hash option is written to the script and restored from it and
+     * from the log.
+     */
+    public void testPersistence() throws Exception {
+
+        conn = openDatabase();
+
+        Statement st = conn.createStatement();
+
+        st.execute("CREATE TABLE T (ID INT PRIMARY KEY, A INT, B VARCHAR(10))");
+        st.execute("CREATE INDEX T_AB ON T (A, B) USING HASH");
+
+        for (int i = 0; i < 200; i++) {
+            st.execute("INSERT INTO T VALUES (" + i + ", " + (i % 10)
+                       + ", 'b" + (i % 3) + "')");
+        }
+
+        assertTrue(isHashedInScript(st));
+        st.execute("SHUTDOWN IMMEDIATELY");
+
+        conn = openDatabase();
+        st   = conn.createStatement();
+
+        assertTrue(isHashedInScript(st));
+        checkLookups(st);
+        st.execute("DELETE FROM T WHERE MOD(ID, 3) = 1");
+        st.execute("SHUTDOWN");
+
+        conn = openDatabase();
+        st   = conn.createStatement();
+
+        assertTrue(isHashedInScript(st));
+
+        ResultSet rs = st.executeQuery(
+            "SELECT COUNT(*) FROM T WHERE A = 4 AND B = 'b1'");
+
+        rs.next();
+        assertEquals(0, rs.getInt(1));
+        st.execute("DROP INDEX T_AB");
+        st.execute("CREATE INDEX T_AB ON T (A, B)");
+        assertFalse(isHashedInScript(st));
+    }
+
+    /**
+     * Random inserts, updates and deletes give the same lookup results on a
+     * table with hash indexes as on a table with tree indexes.
+     */
+    public void testCompareWithTree() throws Exception {
+
+        conn = DriverManager.getConnection("jdbc:hsqldb:mem:hashindexcompare",
+                                           "SA", "");
+
+        Statement st = conn.createStatement();
+
+        st.execute("CREATE TABLE H (ID INT PRIMARY KEY, A BIGINT, B CHAR(3))");
+        st.execute("CREATE TABLE R (ID INT PRIMARY KEY, A BIGINT, B CHAR(3))");
+        st.execute("CREATE INDEX H_A ON H (A) USING HASH");
+        st.execute("CREATE INDEX H_AB ON H (A, B) USING HASH");
+        st.execute("CREATE INDEX R_A ON R (A)");
+        st.execute("CREATE INDEX R_AB ON R (A, B)");
+
+        Random            random = new Random(3);
+        PreparedStatement insH   =
+            conn.prepareStatement("INSERT INTO H VALUES (?, ?, ?)");
+        PreparedStatement insR   =
+            conn.prepareStatement("INSERT INTO R VALUES (?, ?, ?)");
+
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 2000; i++) {
+                int    id = round * 2000 + i;
+                Long   a  = random.nextInt(20) == 0 ? null
+                                                    : Long.valueOf(
+                                                        random.nextInt(300));
+                String b  = "b" + random.nextInt(4);
+
+                insH.setInt(1, id);
+                insH.setObject(2, a);
+                insH.setString(3, b);
+                insH.executeUpdate();
+                insR.setInt(1, id);
+                insR.setObject(2, a);
+                insR.setString(3, b);
+                insR.executeUpdate();
+            }
+
+            int    m      = 2 + random.nextInt(5);
+            int    k      = random.nextInt(300);
+            String delete = " WHERE MOD(ID, " + m + ") = 0 OR A = " + k;
+            String update = " SET A = MOD(A + 7, 300) WHERE MOD(ID, " + (m + 1)
+                            + ") = 1";
+
+            st.execute("DELETE FROM H" + delete);
+            st.execute("DELETE FROM R" + delete);
+            st.execute("UPDATE H" + update);
+            st.execute("UPDATE R" + update);
+
+            for (int a = 0; a < 300; a++) {
+                assertEquals(getString(st, "H", "A = " + a),
+                             getString(st, "R", "A = " + a));
+                assertEquals(
+                    getString(st, "H", "A = " + a + " AND B = 'b" + (a % 4)
+                                       + "'"), getString(
+                                           st, "R",
+                                           "A = " + a + " AND B = 'b"
+                                           + (a % 4) + "'"));
+            }
+        }
+
+        st.execute("DELETE FROM H");
+
+        for (int a = 0; a < 300; a++) {
+            assertEquals("", getString(st, "H", "A = " + a));
+        }
+    }
+
+    void checkLookups(Statement st) throws SQLException {
+
+        for (int a = 0; a < 10; a++) {
+            for (int b = 0; b < 3; b++) {
+                ResultSet rs = st.executeQuery(
+                    "SELECT COUNT(*) FROM T WHERE A = " + a + " AND B = 'b"
+                    + b + "'");
+
+                rs.next();
+
+                // ids from 0 to 199 with id mod 10 = a and id mod 3 = b
+                int expected = 0;
+
+                for (int i = 0; i < 200; i++) {
+                    if (i % 10 == a && i % 3 == b) {
+                        expected++;
+                    }
+                }
+
+                assertEquals(expected, rs.getInt(1));
+                rs.close();
+            }
+        }
+    }
+
+    boolean isHashedInScript(Statement st) throws SQLException {
+
+        ResultSet rs = st.executeQuery("SCRIPT");
+
+        while (rs.next()) {
+            String line = rs.getString(1);
+
+            if (line.startsWith("CREATE INDEX")
+                    && line.indexOf("T_AB") > 0) {
+                return line.endsWith("USING HASH");
+            }
+        }
+
+        fail("index not found in script");
+
+        return false;
+    }
+
+    int getCount(Statement st, int a) throws SQLException {
+
+        ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM T WHERE A = "
+                                       + a);
+
+        rs.next();
+
+        int count = rs.getInt(1);
+
+        rs.close();
+
+        return count;
+    }
+
+    String getIds(Statement st, int a, int count) throws SQLException {
+
+        ResultSet rs = st.executeQuery("SELECT ID FROM T WHERE A = " + a
+                                       + " ORDER BY ID LIMIT " + count);
+        StringBuffer sb = new StringBuffer();
+
+        while (rs.next()) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+
+            sb.append(rs.getInt(1));
+        }
+
+        rs.close();
+
+        return sb.toString();
+    }
+
+    String getString(Statement st, String table,
+                     String condition) throws SQLException {
+
+        ResultSet rs = st.executeQuery("SELECT ID, B FROM " + table
+                                       + " WHERE " + condition
+                                       + " ORDER BY ID");
+        StringBuffer sb = new StringBuffer();
+
+        while (rs.next()) {
+            sb.append(rs.getInt(1)).append(':').append(rs.getString(2));
+            sb.append(' ');
+        }
+
+        rs.close();
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,402 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+package org.hsqldb.test;
+
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for concurrent reads of LOBs and for the LOB metadata cache of
+ * LobManager after LOBs are changed, deleted and their blocks reused.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public class TestLobConcurrency extends TestCase {
+
+    static final String dbPath      = "/hsql/testlobconcurrency/test";
+    static final String url         = "jdbc:hsqldb:file:" + dbPath;
+    static final int    lobCount    = 20;
+    static final int    readThreads = 6;
+    static final int    readRounds  = 40;
+    Connection          conn;
+
+    public TestLobConcurrency(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+        TestUtil.deleteDatabase(dbPath);
+    }
+
+    protected void tearDown() throws Exception {
+
+        if (conn != null) {
+            try {
+                conn.createStatement().execute("SHUTDOWN");
+            } catch (SQLException e) {}
+        }
+
+        TestUtil.deleteDatabase(dbPath);
+    }
+
+    /**
+     * Sessions read the same LOBs at the same time while another session
+     * creates and deletes LOBs, which frees blocks for reuse.
+     */
+    public void testConcurrentReads() throws Exception {
+
+        conn = openDatabase("");
+
+        createData(conn);
+        runReaders(true);
+        checkData(conn);
+
+        // after a restart the entries are loaded again
+        conn.createStatement().execute("SHUTDOWN");
+
+        conn = openDatabase("");
+
+        runReaders(false);
+        checkData(conn);
+    }
+
+    /**
+     * Compressed LOBs are read under the write lock.
+     */
+    public void testConcurrentReadsCompressed() throws Exception {
+
+        conn = openDatabase(";hsqldb.lob_compressed=true");
+
+        createData(conn);
+        runReaders(true);
+        checkData(conn);
+    }
+
+    /**
+     * The cached length and blocks follow the changes to a LOB.
+     */
+    public void testChanges() throws Exception {
+
+        conn = openDatabase("");
+
+        createData(conn);
+
+        Statement st     = conn.createStatement();
+        Blob      blob   = getBlob(1);
+        int       length = getLength(1);
+
+        assertEquals(length, blob.length());
+        checkBytes(1, blob.getBytes(1, length), 0);
+
+        // truncate changes the LOB in place
+        blob.truncate(length / 2);
+        checkBytes(1, blob.getBytes(1, length / 2), 0);
+
+        // an update copies the LOB with its new length, then writes to it
+        byte[] head = getBytes(4, 0, 100);
+
+        updateBlob(1, 1, head);
+
+        blob = getBlob(1);
+
+        assertEquals(length / 2, blob.length());
+        checkBytes(4, blob.getBytes(1, head.length), 0);
+        checkBytes(1, blob.getBytes(head.length + 1, length / 2 - head.length),
+                   head.length);
+
+        // an update that writes past the end of the copy
+        byte[] tail = getBytes(3, 0, 100 * 1024);
+
+        length = getLength(2);
+
+        updateBlob(2, length - 99, tail);
+
+        blob = getBlob(2);
+
+        assertEquals(length - 100 + tail.length, blob.length());
+        checkBytes(2, blob.getBytes(1, length - 100), 0);
+        checkBytes(3, blob.getBytes(length - 99, tail.length), 0);
+
+        // blocks of deleted LOBs are reused by new LOBs
+        st.execute("DELETE FROM T WHERE ID < 10");
+        st.execute("CHECKPOINT");
+        insertRows(conn, 100, 110);
+        checkData(conn);
+        conn.createStatement().execute("SHUTDOWN");
+
+        conn = openDatabase("");
+
+        checkData(conn);
+    }
+
+    Blob getBlob(int id) throws SQLException {
+
+        ResultSet rs = conn.createStatement().executeQuery(
+            "SELECT B FROM T WHERE ID = " + id);
+
+        rs.next();
+
+        return rs.getBlob(1);
+    }
+
+    void updateBlob(int id, long position,
+                    byte[] bytes) throws SQLException {
+
+        Statement st = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY,
+                                            ResultSet.CONCUR_UPDATABLE);
+        ResultSet rs = st.executeQuery("SELECT ID, B FROM T WHERE ID = "
+                                       + id);
+
+        rs.next();
+
+        Blob blob = rs.getBlob(2);
+
+        blob.setBytes(position, bytes);
+        rs.updateBlob(2, blob);
+        rs.updateRow();
+        rs.close();
+    }
+
+    void runReaders(final boolean withWriter) throws Exception {
+
+        final Throwable[] errors  = new Throwable[readThreads + 1];
+        Thread[]          threads = new Thread[readThreads + 1];
+
+        for (int i = 0; i < readThreads; i++) {
+            final int index = i;
+
+            threads[i] = new Thread() {
+
+                public void run() {
+
+                    try {
+                        readLobs(index);
+                    } catch (Throwable t) {
+                        errors[index] = t;
+                    }
+                }
+            };
+        }
+
+        threads[readThreads] = new Thread() {
+
+            public void run() {
+
+                try {
+                    if (withWriter) {
+                        writeLobs();
+                    }
+                } catch (Throwable t) {
+                    errors[readThreads] = t;
+                }
+            }
+        };
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].start();
+        }
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+
+        for (int i = 0; i < errors.length; i++) {
+            if (errors[i] != null) {
+                errors[i].printStackTrace();
+                fail(errors[i].toString());
+            }
+        }
+    }
+
+    /**
+     * Reads random parts of all the LOBs with one connection.
+     */
+    void readLobs(int seed) throws Exception {
+
+        Connection c      = DriverManager.getConnection(url, "SA", "");
+        Random     random = new Random(seed);
+
+        for (int round = 0; round < readRounds; round++) {
+            ResultSet rs = c.createStatement().executeQuery(
+                "SELECT ID, B, C FROM T WHERE ID < " + lobCount
+                + " ORDER BY ID");
+
+            while (rs.next()) {
+                int  id     = rs.getInt(1);
+                Blob blob   = rs.getBlob(2);
+                Clob clob   = rs.getClob(3);
+                int  length = getLength(id);
+
+                assertEquals(length, blob.length());
+                assertEquals(length, clob.length());
+
+                int offset = random.nextInt(length);
+                int count  = Math.min(length - offset,
+                                      random.nextInt(64 * 1024) + 1);
+
+                checkBytes(id, blob.getBytes(offset + 1, count), offset);
+                assertEquals(getString(id, offset, count),
+                             clob.getSubString(offset + 1, count));
+            }
+
+            rs.close();
+        }
+
+        c.close();
+    }
+
+    /**
+     * Creates and deletes LOBs in rows that are not read by the readers.
+     */
+    void writeLobs() throws Exception {
+
+        Connection c = DriverManager.getConnection(url, "SA", "");
+
+        for (int round = 0; round < readRounds / 4; round++) {
+            insertRows(c, 1000, 1005);
+            c.createStatement().execute("DELETE FROM T WHERE ID >= 1000");
+            c.createStatement().execute("CHECKPOINT");
+        }
+
+        c.close();
+    }
+
+    Connection openDatabase(String properties) throws SQLException {
+        return DriverManager.getConnection(url + properties, "SA", "");
+    }
+
+    static void createData(Connection conn) throws SQLException {
+
+        conn.createStatement().execute(
+            "CREATE TABLE T (ID INT PRIMARY KEY, B BLOB, C CLOB)");
+        insertRows(conn, 0, lobCount);
+    }
+
+    static void insertRows(Connection conn, int start,
+                           int end) throws SQLException {
+
+        PreparedStatement ps =
+            conn.prepareStatement("INSERT INTO T VALUES (?, ?, ?)");
+
+        for (int i = start; i < end; i++) {
+            int length = getLength(i);
+
+            ps.setInt(1, i);
+            ps.setBytes(2, getBytes(i, 0, length));
+            ps.setString(3, getString(i, 0, length));
+            ps.execute();
+        }
+
+        ps.close();
+    }
+
+    static void checkData(Connection conn) throws SQLException {
+
+        ResultSet rs = conn.createStatement().executeQuery(
+            "SELECT ID, B, C FROM T ORDER BY ID");
+
+        while (rs.next()) {
+            int  id     = rs.getInt(1);
+            Blob blob   = rs.getBlob(2);
+            int  length = (int) blob.length();
+
+            // the LOBs of some rows were truncated or extended
+            if (id > 3) {
+                assertEquals(getLength(id), length);
+                checkBytes(id, blob.getBytes(1, length), 0);
+                assertEquals(getString(id, 0, length),
+                             rs.getClob(3).getSubString(1, length));
+            }
+        }
+
+        rs.close();
+    }
+
+    /**
+     * From 1KB to a little over 256KB, so that most LOBs have several
+     * blocks and end inside a block.
+     */
+    static int getLength(int id) {
+        return 1024 + (id * 37 * 1024 + id * 101) % (256 * 1024);
+    }
+
+    static byte[] getBytes(int id, int offset, int count) {
+
+        byte[] bytes = new byte[count];
+
+        for (int i = 0; i < count; i++) {
+            bytes[i] = getByte(id, offset + i);
+        }
+
+        return bytes;
+    }
+
+    static byte getByte(int id, int position) {
+        return (byte) (id * 31 + position * 7 + position / 251);
+    }
+
+    static String getString(int id, int offset, int count) {
+
+        char[] chars = new char[count];
+
+        for (int i = 0; i < count; i++) {
+            int position = offset + i;
+
+            chars[i] = (char) ('A' + (id + position + position / 1000) % 26);
+        }
+
+        return new String(chars);
+    }
+
+    static void checkBytes(int id, byte[] bytes, int offset) {
+
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != getByte(id, offset + i)) {
+                fail("LOB " + id + " differs at " + (offset + i));
+            }
+        }
+    }
+}
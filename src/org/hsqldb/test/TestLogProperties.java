@@ -0,0 +1,722 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+
+package org.hsqldb.test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hsqldb.lib.InOutUtil;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the properties of the .log file and the event logs.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public class TestLogProperties extends TestCase {
+
+    static final String   dbPath        = "/hsql/testlogprops/test";
+    static final int      rowCount      = 3000;
+    static final int      queueThreads  = 4;
+    static final int      queueRowCount = 2000;
+    static final String[] copySuffixes  = new String[] {
+        ".script.1", ".script.12", ".log.2", ".log.3"
+    };
+    Connection            conn;
+
+    public TestLogProperties(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+        TestUtil.deleteDatabase(dbPath);
+    }
+
+    protected void tearDown() throws Exception {
+
+        if (conn != null) {
+            try {
+                conn.createStatement().execute("SHUTDOWN");
+            } catch (SQLException e) {}
+        }
+
+        TestUtil.deleteDatabase(dbPath);
+    }
+
+    /**
+     * With a ratio of 200, the automatic checkpoint waits until the .log
+     * file is larger than twice the .script file.
+     */
+    public void testLogSizeRatio() throws Exception {
+
+        conn = openDatabase(";hsqldb.log_size_ratio=200");
+
+        assertEquals("200", getProperty(conn, "hsqldb.log_size_ratio"));
+        createData(conn);
+
+        long scriptSize = new File(dbPath + ".script").length();
+
+        assertTrue(scriptSize > 2 * 1024 * 1024);
+
+        long maxLogSize = updateUntilCheckpoint(conn);
+
+        assertTrue(maxLogSize > scriptSize * 2);
+        assertTrue(maxLogSize < scriptSize * 2 + 256 * 1024);
+
+        // recovery from a large .log file
+        long length = rowCount * 1000 + 2 * 1000;
+
+        updateRows(conn, 1000, 2);
+        assertEquals(length, getLength(conn));
+        assertTrue(new File(dbPath + ".log").length() > 1024 * 1024);
+        conn.createStatement().execute("SHUTDOWN IMMEDIATELY");
+
+        conn = openDatabase(";hsqldb.log_size_ratio=200");
+
+        assertEquals(length, getLength(conn));
+    }
+
+    /**
+     * Without a ratio, the automatic checkpoint is performed once the .log
+     * file exceeds hsqldb.log_size.
+     */
+    public void testLogSizeRatioDefault() throws Exception {
+
+        conn = openDatabase("");
+
+        assertEquals("0", getProperty(conn, "hsqldb.log_size_ratio"));
+        createData(conn);
+
+        long maxLogSize = updateUntilCheckpoint(conn);
+
+        assertTrue(maxLogSize > 1024 * 1024);
+        assertTrue(maxLogSize < 1024 * 1024 + 256 * 1024);
+    }
+
+    /**
+     * With MVCC, the automatic checkpoint does not wait for an open
+     * transaction and other sessions continue to commit while the .script
+     * file is written. After a crash, the .script file holds the data
+     * committed before the checkpoint and the rest is replayed from the
+     * .log file.
+     */
+    public void testNonBlockingCheckpoint() throws Exception {
+
+        conn = openDatabase(";hsqldb.tx=mvcc");
+
+        createData(conn);
+        conn.createStatement().execute("CREATE TABLE W (ID INT PRIMARY KEY)");
+
+        final Connection other = openDatabase("");
+
+        other.setAutoCommit(false);
+        other.createStatement().execute("UPDATE T SET V = 'open' WHERE ID = "
+                                        + (rowCount - 1));
+
+        // a blocking checkpoint waits until this transaction ends
+        final AtomicBoolean committed = new AtomicBoolean();
+        Thread watchdog = new Thread() {
+
+            public void run() {
+
+                try {
+                    sleep(20000);
+                    committed.set(true);
+                    other.commit();
+                } catch (Exception e) {}
+            }
+        };
+
+        // commits of single rows during the checkpoint
+        final Connection    writer   = openDatabase("");
+        final AtomicBoolean running  = new AtomicBoolean(true);
+        final AtomicInteger inserted = new AtomicInteger();
+        final Throwable[]   errors   = new Throwable[1];
+        Thread              inserter = new Thread() {
+
+            public void run() {
+
+                try {
+                    PreparedStatement ps =
+                        writer.prepareStatement("INSERT INTO W VALUES (?)");
+
+                    while (running.get()) {
+                        ps.setInt(1, inserted.get());
+                        ps.execute();
+                        inserted.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    errors[0] = e;
+                }
+            }
+        };
+
+        watchdog.start();
+        inserter.start();
+        updateUntilCheckpoint(conn);
+        running.set(false);
+        inserter.join();
+        assertFalse(committed.get());
+        watchdog.interrupt();
+        watchdog.join();
+
+        if (errors[0] != null) {
+            throw new RuntimeException(errors[0]);
+        }
+
+        assertFalse(new File(dbPath + ".log.new").exists());
+
+        // committed after the checkpoint
+        other.commit();
+        updateRows(conn, 1000, 2);
+
+        long length = 1000 * 1002 + (rowCount - 1001) * 1000 + 4;
+
+        assertEquals(length, getLength(conn));
+        conn.createStatement().execute("SHUTDOWN IMMEDIATELY");
+
+        conn = openDatabase("");
+
+        assertEquals(length, getLength(conn));
+
+        ResultSet rs = conn.createStatement().executeQuery(
+            "SELECT COUNT(*), MIN(ID), MAX(ID) FROM W");
+
+        rs.next();
+        assertEquals(inserted.get(), rs.getInt(1));
+        assertEquals(0, rs.getInt(2));
+        assertEquals(inserted.get() - 1, rs.getInt(3));
+        rs.close();
+    }
+
+    /**
+     * A .log.new file left by an interrupted non-blocking checkpoint holds
+     * the changes committed after the .script.new file snapshot. It
+     * replaces the .log file once the .script.new file has replaced the
+     * .script file, otherwise it is incomplete and is deleted.
+     */
+    public void testNonBlockingCheckpointRecovery() throws Exception {
+
+        String scriptNew = dbPath + ".script.new";
+        String logNew    = dbPath + ".log.new";
+
+        try {
+            checkNewLogRecovery(scriptNew, logNew);
+        } finally {
+            for (int i = 0; i < copySuffixes.length; i++) {
+                new File(dbPath + copySuffixes[i]).delete();
+            }
+        }
+    }
+
+    void checkNewLogRecovery(String scriptNew,
+                             String logNew) throws Exception {
+
+        conn = openDatabase(";hsqldb.tx=mvcc");
+
+        Statement st = conn.createStatement();
+
+        st.execute("SET FILES WRITE DELAY 0");
+        st.execute("CREATE TABLE R (ID INT PRIMARY KEY)");
+        st.execute("INSERT INTO R VALUES 1");
+        st.execute("CHECKPOINT");
+        copyFile(dbPath + ".script", dbPath + ".script.1");
+        st.execute("INSERT INTO R VALUES 2");
+        st.execute("SHUTDOWN IMMEDIATELY");
+        copyFile(dbPath + ".log", dbPath + ".log.2");
+
+        conn = openDatabase("");
+
+        conn.createStatement().execute("INSERT INTO R VALUES 3");
+        conn.createStatement().execute("SHUTDOWN IMMEDIATELY");
+        copyFile(dbPath + ".script", dbPath + ".script.12");
+        copyFile(dbPath + ".log", dbPath + ".log.3");
+
+        // interrupted after the .script.new and .log.new files are complete
+        copyFile(dbPath + ".script.1", dbPath + ".script");
+        copyFile(dbPath + ".log.2", dbPath + ".log");
+        copyFile(dbPath + ".script.12", scriptNew);
+        copyFile(dbPath + ".log.3", logNew);
+        setModified("yes-new-files");
+
+        conn = openDatabase("");
+
+        assertEquals("1,2,3", getIds(conn));
+        assertFalse(new File(logNew).exists());
+        conn.createStatement().execute("SHUTDOWN IMMEDIATELY");
+
+        // interrupted after the .script.new file is renamed
+        copyFile(dbPath + ".script.12", dbPath + ".script");
+        new File(dbPath + ".log").delete();
+        copyFile(dbPath + ".log.3", logNew);
+        setModified("yes");
+
+        conn = openDatabase("");
+
+        assertEquals("1,2,3", getIds(conn));
+        conn.createStatement().execute("SHUTDOWN IMMEDIATELY");
+
+        // interrupted while the .log.new file is written
+        copyFile(dbPath + ".script.1", dbPath + ".script");
+        copyFile(dbPath + ".log.2", dbPath + ".log");
+        copyFile(dbPath + ".script.12", scriptNew);
+        copyFile(dbPath + ".log.3", logNew);
+        setModified("yes");
+
+        conn = openDatabase("");
+
+        assertEquals("1,2", getIds(conn));
+        assertFalse(new File(logNew).exists());
+        assertFalse(new File(scriptNew).exists());
+    }
+
+    /**
+     * With a queue, the SQL log is written by a separate thread. All the
+     * statements are logged, in the order executed by each session.
+     */
+    public void testLogQueue() throws Exception {
+
+        String properties = ";hsqldb.sqllog=3;hsqldb.applog=1"
+                            + ";hsqldb.log_queue_size=16";
+
+        conn = openDatabase(properties);
+
+        assertEquals("16", getProperty(conn, "hsqldb.log_queue_size"));
+        assertEquals("false", getProperty(conn, "hsqldb.log_queue_drop"));
+        assertTrue(TestCacheProperties.hasThread("HSQLDB Log Writer "
+                + dbPath));
+        insertQueueRows(properties);
+        conn.createStatement().execute("SHUTDOWN");
+
+        conn = null;
+
+        TestCacheProperties.waitForThreadExit("HSQLDB Log Writer " + dbPath);
+
+        int[] counts = readQueueRows();
+
+        for (int i = 0; i < queueThreads; i++) {
+            assertEquals(queueRowCount, counts[i]);
+        }
+
+        assertEquals(0, getDroppedCount());
+
+        // the URL property also applies to an existing database
+        conn = openDatabase(";hsqldb.log_queue_size=8");
+
+        assertEquals("8", getProperty(conn, "hsqldb.log_queue_size"));
+        assertTrue(TestCacheProperties.hasThread("HSQLDB Log Writer "
+                + dbPath));
+    }
+
+    /**
+     * When the queue is full, events are dropped and the count of dropped
+     * events is written to the application log.
+     */
+    public void testLogQueueDrop() throws Exception {
+
+        String properties = ";hsqldb.sqllog=3;hsqldb.applog=1"
+                            + ";hsqldb.log_queue_size=1"
+                            + ";hsqldb.log_queue_drop=true";
+
+        conn = openDatabase(properties);
+
+        assertEquals("1", getProperty(conn, "hsqldb.log_queue_size"));
+        assertEquals("true", getProperty(conn, "hsqldb.log_queue_drop"));
+        insertQueueRows(properties);
+        conn.createStatement().execute("SHUTDOWN");
+
+        conn = null;
+
+        int[] counts  = readQueueRows();
+        int   logged  = 0;
+        long  dropped = getDroppedCount();
+
+        for (int i = 0; i < queueThreads; i++) {
+            logged += counts[i];
+        }
+
+        // other statements may also be dropped
+        assertTrue(logged <= queueThreads * queueRowCount);
+        assertTrue(logged + dropped >= queueThreads * queueRowCount);
+    }
+
+    /**
+     * Without a queue, the logs are written by the sessions.
+     */
+    public void testLogQueueDefault() throws Exception {
+
+        conn = openDatabase(";hsqldb.sqllog=3");
+
+        assertEquals("0", getProperty(conn, "hsqldb.log_queue_size"));
+        assertFalse(TestCacheProperties.hasThread("HSQLDB Log Writer "
+                + dbPath));
+        insertQueueRows("");
+
+        int[] counts = readQueueRows();
+
+        for (int i = 0; i < queueThreads; i++) {
+            assertEquals(queueRowCount, counts[i]);
+        }
+    }
+
+    Connection openDatabase(String properties) throws SQLException {
+        return DriverManager.getConnection("jdbc:hsqldb:file:" + dbPath
+                                           + properties, "SA", "");
+    }
+
+    /**
+     * Creates a MEMORY table of about 3 MB, with a .log size limit of 1 MB
+     * and changes synced at each commit.
+     */
+    void createData(Connection conn) throws SQLException {
+
+        Statement st = conn.createStatement();
+
+        st.execute("SET FILES LOG SIZE 1");
+        st.execute("SET FILES WRITE DELAY 0");
+        st.execute("CREATE MEMORY TABLE T (ID INT PRIMARY KEY,"
+                   + " V VARCHAR(2000))");
+
+        PreparedStatement ps =
+            conn.prepareStatement("INSERT INTO T VALUES (?, ?)");
+
+        conn.setAutoCommit(false);
+
+        for (int i = 0; i < rowCount; i++) {
+            ps.setInt(1, i);
+            ps.setString(2, getValue(i, 1000));
+            ps.execute();
+        }
+
+        conn.commit();
+        conn.setAutoCommit(true);
+        st.execute("CHECKPOINT");
+    }
+
+    /**
+     * Updates rows in transactions of 100 rows until a checkpoint reduces
+     * the size of the .log file. Returns the largest size of the .log file.
+     */
+    long updateUntilCheckpoint(Connection conn) throws SQLException {
+
+        File log        = new File(dbPath + ".log");
+        long maxLogSize = 0;
+
+        for (int i = 0; i < 1000; i++) {
+            updateRows(conn, 100, i % 2);
+
+            long size = log.length();
+
+            if (size < maxLogSize) {
+                return maxLogSize;
+            }
+
+            maxLogSize = size;
+        }
+
+        fail("no checkpoint");
+
+        return 0;
+    }
+
+    void updateRows(Connection conn, int count,
+                    int extra) throws SQLException {
+
+        PreparedStatement ps =
+            conn.prepareStatement("UPDATE T SET V = ? WHERE ID = ?");
+
+        conn.setAutoCommit(false);
+
+        for (int i = 0; i < count; i++) {
+            ps.setString(1, getValue(i, 1000 + extra));
+            ps.setInt(2, i);
+            ps.execute();
+        }
+
+        conn.commit();
+        conn.setAutoCommit(true);
+        ps.close();
+    }
+
+    /**
+     * Inserts rows (ID, T) from several sessions at the same time, with ID
+     * increasing in each session T.
+     */
+    void insertQueueRows(final String properties) throws Exception {
+
+        conn.createStatement().execute(
+            "CREATE TABLE Q (ID INT PRIMARY KEY, T INT)");
+
+        final Throwable[] errors  = new Throwable[1];
+        Thread[]          threads = new Thread[queueThreads];
+
+        for (int j = 0; j < threads.length; j++) {
+            final int t = j;
+
+            threads[j] = new Thread() {
+
+                public void run() {
+
+                    try {
+                        Connection c = openDatabase(properties);
+                        PreparedStatement ps =
+                            c.prepareStatement("INSERT INTO Q VALUES (?, ?)");
+
+                        for (int i = 0; i < queueRowCount; i++) {
+                            ps.setInt(1, t * queueRowCount + i);
+                            ps.setInt(2, t);
+                            ps.execute();
+                        }
+
+                        c.close();
+                    } catch (Throwable e) {
+                        errors[0] = e;
+                    }
+                }
+            };
+        }
+
+        for (int j = 0; j < threads.length; j++) {
+            threads[j].start();
+        }
+
+        for (int j = 0; j < threads.length; j++) {
+            threads[j].join();
+        }
+
+        if (errors[0] != null) {
+            throw new RuntimeException(errors[0]);
+        }
+    }
+
+    /**
+     * Returns the count of logged inserts for each session, after checking
+     * they are logged in the order executed by the session.
+     */
+    static int[] readQueueRows() throws IOException {
+
+        String         marker = "INSERT INTO Q VALUES (?, ?) (";
+        int[]          counts = new int[queueThreads];
+        int[]          last   = new int[queueThreads];
+        BufferedReader reader = new BufferedReader(
+            new FileReader(dbPath + ".sql.log"));
+
+        for (int i = 0; i < queueThreads; i++) {
+            last[i] = -1;
+        }
+
+        try {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                int index = line.indexOf(marker);
+
+                if (index < 0) {
+                    continue;
+                }
+
+                String values = line.substring(index + marker.length(),
+                                               line.length() - 1);
+                int comma = values.indexOf(',');
+                int id    = Integer.parseInt(values.substring(0, comma));
+                int t     = Integer.parseInt(values.substring(comma + 1));
+
+                assertTrue(line, id > last[t]);
+                assertEquals(line, t, id / queueRowCount);
+
+                last[t] = id;
+
+                counts[t]++;
+            }
+        } finally {
+            reader.close();
+        }
+
+        return counts;
+    }
+
+    /**
+     * Returns the total of the dropped counts in the application log.
+     */
+    static long getDroppedCount() throws IOException {
+
+        String marker = "log events dropped: ";
+        long   count  = 0;
+        File   file   = new File(dbPath + ".app.log");
+
+        if (!file.exists()) {
+            return 0;
+        }
+
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+
+        try {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                int index = line.indexOf(marker);
+
+                if (index >= 0) {
+                    count += Long.parseLong(
+                        line.substring(index + marker.length()).trim());
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return count;
+    }
+
+    static String getIds(Connection conn) throws SQLException {
+
+        ResultSet rs = conn.createStatement().executeQuery(
+            "SELECT ID FROM R ORDER BY ID");
+        StringBuffer sb = new StringBuffer();
+
+        while (rs.next()) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+
+            sb.append(rs.getInt(1));
+        }
+
+        rs.close();
+
+        return sb.toString();
+    }
+
+    static void copyFile(String source, String dest) throws IOException {
+
+        InputStream  in  = new FileInputStream(source);
+        OutputStream out = new FileOutputStream(dest);
+
+        try {
+            InOutUtil.copy(in, out);
+        } finally {
+            in.close();
+            out.close();
+        }
+    }
+
+    /**
+     * Sets the modified state in the .properties file of the closed
+     * database.
+     */
+    static void setModified(String value) throws IOException {
+
+        String      name       = dbPath + ".properties";
+        Properties  properties = new Properties();
+        InputStream in         = new FileInputStream(name);
+
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+
+        properties.setProperty("modified", value);
+
+        OutputStream out = new FileOutputStream(name);
+
+        try {
+            properties.store(out, null);
+        } finally {
+            out.close();
+        }
+    }
+
+    static String getValue(int id, int length) {
+
+        StringBuffer sb = new StringBuffer();
+
+        while (sb.length() < length) {
+            sb.append(id).append(',');
+        }
+
+        sb.setLength(length);
+
+        return sb.toString();
+    }
+
+    static long getLength(Connection conn) throws SQLException {
+
+        ResultSet rs = conn.createStatement().executeQuery(
+            "SELECT SUM(CHAR_LENGTH(V)) FROM T");
+
+        rs.next();
+
+        long length = rs.getLong(1);
+
+        rs.close();
+
+        return length;
+    }
+
+    static String getProperty(Connection conn,
+                              String name) throws SQLException {
+
+        PreparedStatement ps = conn.prepareStatement(
+            "SELECT PROPERTY_VALUE FROM INFORMATION_SCHEMA.SYSTEM_PROPERTIES"
+            + " WHERE PROPERTY_NAME = ?");
+
+        ps.setString(1, name);
+
+        ResultSet rs = ps.executeQuery();
+
+        return rs.next() ? rs.getString(1)
+                         : null;
+    }
+}
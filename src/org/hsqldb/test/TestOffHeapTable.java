@@ -0,0 +1,317 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests OFFHEAP tables. The rows of an OFFHEAP table O are compared with
+ * the same rows in a MEMORY table M after each set of changes.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public class TestOffHeapTable extends TestCase {
+
+    static final String dbPath   = "/hsql/testoffheap/test";
+    static final String props    = ";hsqldb.cache_rows=1000";
+    static final int    rowCount = 5000;
+
+    //
+    Connection conn;
+
+    public TestOffHeapTable(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+        TestUtil.deleteDatabase(dbPath);
+    }
+
+    protected void tearDown() throws Exception {
+
+        if (conn != null) {
+            try {
+                conn.createStatement().execute("SHUTDOWN");
+            } catch (SQLException e) {}
+        }
+
+        TestUtil.deleteDatabase(dbPath);
+    }
+
+    Connection openDatabase() throws SQLException {
+        return DriverManager.getConnection("jdbc:hsqldb:file:" + dbPath
+                                           + props, "SA", "");
+    }
+
+    public void testMemDatabase() throws Exception {
+
+        conn = DriverManager.getConnection("jdbc:hsqldb:mem:offheap" + props,
+                                           "SA", "");
+
+        Statement st = conn.createStatement();
+
+        createData(st);
+        checkData(st);
+        assertEquals("OFFHEAP", getTableType(st, "O"));
+        updateData(st, 1);
+        checkData(st);
+        st.execute("CHECKPOINT");
+        checkData(st);
+    }
+
+    /**
+     * Uncommitted changes are not visible to other sessions under MVCC and
+     * rollback restores the rows. Rows of an OFFHEAP and a CACHED table at
+     * the same file positions are changed in the same transaction.
+     */
+    public void testMVCCRollback() throws Exception {
+
+        conn = openDatabase();
+
+        Statement st = conn.createStatement();
+
+        st.execute("SET DATABASE TRANSACTION CONTROL MVCC");
+        st.execute("CREATE CACHED TABLE C (ID INT PRIMARY KEY, V INT)");
+        createData(st);
+        st.execute("INSERT INTO C SELECT ID, W FROM O");
+
+        Connection other   = openDatabase();
+        Statement  otherSt = other.createStatement();
+
+        other.setAutoCommit(false);
+        otherSt.execute("UPDATE O SET W = W + 1 WHERE MOD(ID, 3) = 0");
+        otherSt.execute("DELETE FROM O WHERE MOD(ID, 5) = 0");
+        otherSt.execute("INSERT INTO O VALUES (" + (rowCount + 1)
+                        + ", 'new', 0)");
+        otherSt.execute("UPDATE C SET V = V + 1 WHERE MOD(ID, 3) = 0");
+        otherSt.execute("DELETE FROM C WHERE MOD(ID, 7) = 0");
+
+        String before = getString(st, "SELECT * FROM O ORDER BY ID");
+
+        assertEquals(getString(st, "SELECT * FROM M ORDER BY ID"), before);
+        assertFalse(before.equals(getString(otherSt,
+                                            "SELECT * FROM O ORDER BY ID")));
+        assertEquals(rowCount / 5 + ";",
+                     getString(st,
+                               "SELECT COUNT(*) FROM O WHERE MOD(ID, 5) = 0"));
+        assertEquals("0;",
+                     getString(otherSt,
+                               "SELECT COUNT(*) FROM O WHERE MOD(ID, 5) = 0"));
+
+        other.rollback();
+        assertEquals(before, getString(otherSt, "SELECT * FROM O ORDER BY ID"));
+        assertEquals(getString(st, "SELECT ID, W FROM M ORDER BY ID"),
+                     getString(st, "SELECT * FROM C ORDER BY ID"));
+
+        // savepoint
+        otherSt.execute("DELETE FROM O WHERE ID < 100");
+        otherSt.execute("SAVEPOINT A");
+        otherSt.execute("UPDATE O SET V = 'changed'");
+        otherSt.execute("ROLLBACK TO SAVEPOINT A");
+        assertEquals("0;",
+                     getString(otherSt,
+                               "SELECT COUNT(*) FROM O WHERE V = 'changed'"));
+        otherSt.execute("DELETE FROM M WHERE ID < 100");
+        other.commit();
+        checkData(st);
+        updateData(otherSt, 2);
+        other.commit();
+        checkData(st);
+        other.close();
+        st.execute("SHUTDOWN COMPACT");
+
+        conn = openDatabase();
+        st   = conn.createStatement();
+
+        checkData(st);
+    }
+
+    /**
+     * The rows are restored from the .script and .log files and the table
+     * type can be changed.
+     */
+    public void testPersistence() throws Exception {
+
+        conn = openDatabase();
+
+        Statement st = conn.createStatement();
+
+        createData(st);
+        st.execute("SHUTDOWN");
+
+        conn = openDatabase();
+        st   = conn.createStatement();
+
+        assertEquals("OFFHEAP", getTableType(st, "O"));
+        checkData(st);
+        updateData(st, 3);
+        st.execute("SHUTDOWN IMMEDIATELY");
+
+        conn = openDatabase();
+        st   = conn.createStatement();
+
+        checkData(st);
+        st.execute("SET TABLE O TYPE CACHED");
+        assertEquals("CACHED", getTableType(st, "O"));
+        checkData(st);
+        st.execute("SET TABLE O TYPE MEMORY");
+        assertEquals("MEMORY", getTableType(st, "O"));
+        checkData(st);
+        st.execute("SET TABLE O TYPE OFFHEAP");
+        assertEquals("OFFHEAP", getTableType(st, "O"));
+        checkData(st);
+        st.execute("DROP TABLE O");
+        st.execute("CREATE OFFHEAP TABLE O (ID INT PRIMARY KEY, "
+                   + "V VARCHAR(100), W INT)");
+        st.execute("INSERT INTO O SELECT * FROM M");
+        st.execute("SHUTDOWN");
+
+        conn = openDatabase();
+        st   = conn.createStatement();
+
+        checkData(st);
+    }
+
+    void createData(Statement st) throws SQLException {
+
+        st.execute("CREATE OFFHEAP TABLE O (ID INT PRIMARY KEY, "
+                   + "V VARCHAR(100), W INT)");
+        st.execute("CREATE INDEX O_W ON O (W)");
+        st.execute("CREATE MEMORY TABLE M (ID INT PRIMARY KEY, "
+                   + "V VARCHAR(100), W INT)");
+        st.execute("CREATE INDEX M_W ON M (W)");
+
+        Connection        c      = st.getConnection();
+        Random            random = new Random(11);
+        PreparedStatement psO    =
+            c.prepareStatement("INSERT INTO O VALUES (?, ?, ?)");
+        PreparedStatement psM    =
+            c.prepareStatement("INSERT INTO M VALUES (?, ?, ?)");
+
+        for (int i = 0; i < rowCount; i++) {
+            String v = "value " + random.nextLong();
+            int    w = random.nextInt(500);
+
+            psO.setInt(1, i);
+            psO.setString(2, v);
+            psO.setInt(3, w);
+            psO.executeUpdate();
+            psM.setInt(1, i);
+            psM.setString(2, v);
+            psM.setInt(3, w);
+            psM.executeUpdate();
+        }
+    }
+
+    void updateData(Statement st, int seed) throws SQLException {
+
+        Random random = new Random(seed);
+
+        for (int i = 0; i < 20; i++) {
+            int    m      = 3 + random.nextInt(20);
+            int    k      = random.nextInt(m);
+            String update = " SET V = V || '-" + i + "', W = W + " + i
+                            + " WHERE MOD(ID, " + m + ") = " + k;
+            String delete = " WHERE W = " + random.nextInt(500);
+
+            st.execute("UPDATE O" + update);
+            st.execute("UPDATE M" + update);
+            st.execute("DELETE FROM O" + delete);
+            st.execute("DELETE FROM M" + delete);
+        }
+    }
+
+    void checkData(Statement st) throws SQLException {
+
+        String[] queries = new String[] {
+            "SELECT * FROM {} ORDER BY ID",
+            "SELECT * FROM {} ORDER BY W, ID",
+            "SELECT W, COUNT(*) FROM {} GROUP BY W ORDER BY W",
+            "SELECT * FROM {} WHERE W = 100 ORDER BY ID",
+            "SELECT * FROM {} WHERE ID BETWEEN 1000 AND 1200 ORDER BY ID DESC"
+        };
+
+        for (int i = 0; i < queries.length; i++) {
+            String expected = getString(st, queries[i].replace("{}", "M"));
+            String actual   = getString(st, queries[i].replace("{}", "O"));
+
+            assertEquals(queries[i], expected, actual);
+        }
+    }
+
+    String getTableType(Statement st, String name) throws SQLException {
+
+        ResultSet rs = st.executeQuery(
+            "SELECT HSQLDB_TYPE FROM INFORMATION_SCHEMA.SYSTEM_TABLES "
+            + "WHERE TABLE_NAME = '" + name + "'");
+
+        rs.next();
+
+        String type = rs.getString(1);
+
+        rs.close();
+
+        return type;
+    }
+
+    String getString(Statement st, String sql) throws SQLException {
+
+        ResultSet    rs    = st.executeQuery(sql);
+        int          count = rs.getMetaData().getColumnCount();
+        StringBuffer sb    = new StringBuffer();
+
+        while (rs.next()) {
+            for (int i = 1; i <= count; i++) {
+                sb.append(rs.getString(i)).append(i == count ? ';'
+                                                             : ',');
+            }
+        }
+
+        rs.close();
+
+        return sb.toString();
+    }
+}
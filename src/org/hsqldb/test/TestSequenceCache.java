@@ -0,0 +1,201 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the CACHE n option of sequences and identity columns.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public class TestSequenceCache extends TestCase {
+
+    static final String dbPath = "/hsql/testseqcache/test";
+    Connection          conn1;
+    Connection          conn2;
+
+    public TestSequenceCache(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+        TestUtil.deleteDatabase(dbPath);
+        openDatabase();
+    }
+
+    protected void tearDown() throws Exception {
+
+        try {
+            conn1.createStatement().execute("SHUTDOWN");
+        } catch (SQLException e) {}
+
+        TestUtil.deleteDatabase(dbPath);
+    }
+
+    /**
+     * Each session takes identity values from its own block.
+     */
+    public void testIdentityInterleaved() throws Exception {
+
+        createTable("(START WITH 1 CACHE 10)");
+        assertEquals(1, insertRow(conn1));
+        assertEquals(11, insertRow(conn2));
+        assertEquals(2, insertRow(conn1));
+        assertEquals(12, insertRow(conn2));
+
+        // a new value for each row of a multi-row insert
+        conn1.createStatement().execute(
+            "INSERT INTO T (V) VALUES (0), (0), (0)");
+        assertEquals(3, getCount(conn1, "SELECT COUNT(*) FROM T WHERE ID IN"
+                                 + " (3, 4, 5)"));
+
+        // next block after the end of the first one
+        for (int i = 6; i <= 10; i++) {
+            assertEquals(i, insertRow(conn1));
+        }
+
+        assertEquals(21, insertRow(conn1));
+        assertEquals(13, insertRow(conn2));
+
+        // blocks are discarded after a restart of the identity
+        conn1.createStatement().execute(
+            "ALTER TABLE T ALTER COLUMN ID RESTART WITH 100");
+        assertEquals(100, insertRow(conn2));
+        assertEquals(110, insertRow(conn1));
+        assertEquals(101, insertRow(conn2));
+    }
+
+    /**
+     * Without a cache the sessions share the identity values.
+     */
+    public void testIdentityNoCache() throws Exception {
+
+        createTable("(START WITH 1)");
+        assertEquals(1, insertRow(conn1));
+        assertEquals(2, insertRow(conn2));
+        assertEquals(3, insertRow(conn1));
+        conn1.createStatement().execute(
+            "ALTER TABLE T ALTER COLUMN ID SET CACHE 10");
+        assertEquals(4, insertRow(conn2));
+        assertEquals(14, insertRow(conn1));
+        conn1.createStatement().execute(
+            "ALTER TABLE T ALTER COLUMN ID SET NO CACHE");
+        assertEquals(24, insertRow(conn2));
+        assertEquals(25, insertRow(conn1));
+    }
+
+    /**
+     * Each session takes sequence values from its own block.
+     */
+    public void testSequenceInterleaved() throws Exception {
+
+        conn1.createStatement().execute(
+            "CREATE SEQUENCE S START WITH 1 CACHE 10");
+        assertEquals(1, getCount(conn1, "CALL NEXT VALUE FOR S"));
+        assertEquals(11, getCount(conn2, "CALL NEXT VALUE FOR S"));
+        assertEquals(2, getCount(conn1, "CALL NEXT VALUE FOR S"));
+        assertEquals(12, getCount(conn2, "CALL NEXT VALUE FOR S"));
+    }
+
+    /**
+     * After a restart, new values follow all the reserved blocks.
+     */
+    public void testIdentityPersistence() throws Exception {
+
+        createTable("(START WITH 1 CACHE 10)");
+        assertEquals(1, insertRow(conn1));
+        assertEquals(11, insertRow(conn2));
+        conn1.createStatement().execute("SHUTDOWN");
+        openDatabase();
+        assertEquals(21, insertRow(conn1));
+        assertEquals(31, insertRow(conn2));
+
+        // recovery from the .log file
+        assertEquals(22, insertRow(conn1));
+        conn1.createStatement().execute("SHUTDOWN IMMEDIATELY");
+        openDatabase();
+
+        int id1 = insertRow(conn1);
+        int id2 = insertRow(conn2);
+
+        assertTrue(id1 > 31);
+        assertEquals(id1 + 10, id2);
+        assertEquals(7, getCount(conn1, "SELECT COUNT(DISTINCT ID) FROM T"));
+    }
+
+    void openDatabase() throws SQLException {
+
+        String url = "jdbc:hsqldb:file:" + dbPath + ";hsqldb.write_delay=false";
+
+        conn1 = DriverManager.getConnection(url, "SA", "");
+        conn2 = DriverManager.getConnection(url, "SA", "");
+    }
+
+    void createTable(String options) throws SQLException {
+        conn1.createStatement().execute(
+            "CREATE TABLE T (ID INT GENERATED BY DEFAULT AS IDENTITY "
+            + options + " PRIMARY KEY, V INT)");
+    }
+
+    static int insertRow(Connection conn) throws SQLException {
+
+        Statement st = conn.createStatement();
+
+        st.execute("INSERT INTO T (V) VALUES (0)");
+
+        return getCount(conn, "CALL IDENTITY()");
+    }
+
+    static int getCount(Connection conn, String sql) throws SQLException {
+
+        ResultSet rs = conn.createStatement().executeQuery(sql);
+
+        rs.next();
+
+        int value = rs.getInt(1);
+
+        rs.close();
+
+        return value;
+    }
+}
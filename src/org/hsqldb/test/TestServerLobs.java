@@ -0,0 +1,314 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+package org.hsqldb.test;
+
+import java.io.InputStream;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.hsqldb.server.Server;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for reads of LOBs over Server connections. Large reads of
+ * uncompressed LOBs are streamed from the LOB store to the connection.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public class TestServerLobs extends TestCase {
+
+    static final String dbPath      = "/hsql/testserverlobs/test";
+    static final String url         = "jdbc:hsqldb:hsql://localhost/test";
+    static final int    blobLength  = 1024 * 1024 + 12345;
+    static final int    readThreads = 4;
+    Server              server;
+
+    public TestServerLobs(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+        TestUtil.deleteDatabase(dbPath);
+    }
+
+    protected void tearDown() throws Exception {
+
+        if (server != null) {
+            server.shutdownWithCatalogs(0);
+        }
+
+        TestUtil.deleteDatabase(dbPath);
+    }
+
+    /**
+     * LOBs of a file database, read from the .lobs file.
+     */
+    public void testFileDatabase() throws Exception {
+
+        startServer("file:" + dbPath);
+        checkReads();
+    }
+
+    /**
+     * LOBs of a memory database.
+     */
+    public void testMemDatabase() throws Exception {
+
+        startServer("mem:testserverlobs");
+        checkReads();
+    }
+
+    /**
+     * Compressed LOBs are not streamed.
+     */
+    public void testCompressed() throws Exception {
+
+        startServer("file:" + dbPath + ";hsqldb.lob_compressed=true");
+
+        Connection conn = DriverManager.getConnection(url, "SA", "");
+        ResultSet  rs   = conn.createStatement().executeQuery(
+            "SELECT PROPERTY_VALUE FROM INFORMATION_SCHEMA.SYSTEM_PROPERTIES"
+            + " WHERE PROPERTY_NAME = 'hsqldb.lob_compressed'");
+
+        rs.next();
+        assertEquals("true", rs.getString(1));
+        conn.close();
+        checkReads();
+    }
+
+    /**
+     * Several connections read the same LOBs at the same time.
+     */
+    public void testConcurrentReads() throws Exception {
+
+        startServer("file:" + dbPath);
+
+        Connection conn = DriverManager.getConnection(url, "SA", "");
+
+        createData(conn);
+
+        final Throwable[] errors  = new Throwable[readThreads];
+        Thread[]          threads = new Thread[readThreads];
+
+        for (int i = 0; i < readThreads; i++) {
+            final int index = i;
+
+            threads[i] = new Thread() {
+
+                public void run() {
+
+                    try {
+                        Connection c = DriverManager.getConnection(url, "SA",
+                            "");
+
+                        for (int j = 0; j < 5; j++) {
+                            checkBlob(c, index + j);
+                        }
+
+                        c.close();
+                    } catch (Throwable t) {
+                        errors[index] = t;
+                    }
+                }
+            };
+
+            threads[i].start();
+        }
+
+        for (int i = 0; i < readThreads; i++) {
+            threads[i].join();
+        }
+
+        for (int i = 0; i < readThreads; i++) {
+            if (errors[i] != null) {
+                errors[i].printStackTrace();
+                fail(errors[i].toString());
+            }
+        }
+
+        conn.close();
+    }
+
+    void startServer(String database) {
+
+        server = new Server();
+
+        // the path can include database properties
+        server.setDatabasePath(0, database);
+        server.setDatabaseName(0, "test");
+        server.setSilent(true);
+        server.setTrace(false);
+        server.start();
+    }
+
+    void checkReads() throws Exception {
+
+        Connection conn = DriverManager.getConnection(url, "SA", "");
+
+        createData(conn);
+
+        for (int i = 0; i < readThreads; i++) {
+            checkBlob(conn, i);
+        }
+
+        ResultSet rs = conn.createStatement().executeQuery(
+            "SELECT B, C FROM T WHERE ID = 0");
+
+        rs.next();
+
+        Blob blob = rs.getBlob(1);
+
+        // streamed ranges that start and end inside blocks
+        checkBytes(0, blob.getBytes(70001, 200000), 70000);
+        checkBytes(0, blob.getBytes(blobLength - 65535, 65536),
+                   blobLength - 65536);
+
+        // small ranges are returned in one array
+        checkBytes(0, blob.getBytes(1001, 1000), 1000);
+
+        // a range past the end is not streamed
+        byte[] bytes = blob.getBytes(blobLength - 99, 100000);
+        byte[] head  = new byte[100];
+
+        System.arraycopy(bytes, 0, head, 0, head.length);
+        checkBytes(0, head, blobLength - 100);
+
+        // the connection is still in step after each response
+        checkBytes(0, blob.getBytes(1, 65536), 0);
+
+        // the stream reads the LOB in parts
+        InputStream in     = blob.getBinaryStream();
+        byte[]      buffer = new byte[blobLength];
+        int         count  = 0;
+
+        while (count < buffer.length) {
+            int read = in.read(buffer, count, buffer.length - count);
+
+            if (read < 0) {
+                break;
+            }
+
+            count += read;
+        }
+
+        assertEquals(blobLength, count);
+        assertEquals(-1, in.read());
+        in.close();
+        checkBytes(0, buffer, 0);
+
+        Clob clob = rs.getClob(2);
+
+        assertEquals(getString(blobLength / 2),
+                     clob.getSubString(1, blobLength / 2));
+        rs.close();
+        conn.createStatement().execute("SHUTDOWN");
+    }
+
+    static void createData(Connection conn) throws SQLException {
+
+        conn.createStatement().execute(
+            "CREATE TABLE T (ID INT PRIMARY KEY, B BLOB, C CLOB)");
+
+        PreparedStatement ps =
+            conn.prepareStatement("INSERT INTO T VALUES (?, ?, ?)");
+
+        for (int i = 0; i < readThreads + 5; i++) {
+            ps.setInt(1, i);
+            ps.setBytes(2, getBytes(i, 0, blobLength - i * 1000));
+            ps.setString(3, getString(blobLength / 2));
+            ps.execute();
+        }
+
+        ps.close();
+    }
+
+    static void checkBlob(Connection conn, int id) throws SQLException {
+
+        ResultSet rs = conn.createStatement().executeQuery(
+            "SELECT B FROM T WHERE ID = " + id);
+
+        rs.next();
+
+        Blob blob   = rs.getBlob(1);
+        int  length = blobLength - id * 1000;
+
+        assertEquals(length, blob.length());
+        checkBytes(id, blob.getBytes(1, length), 0);
+        rs.close();
+    }
+
+    static byte[] getBytes(int id, int offset, int count) {
+
+        byte[] bytes = new byte[count];
+
+        for (int i = 0; i < count; i++) {
+            bytes[i] = getByte(id, offset + i);
+        }
+
+        return bytes;
+    }
+
+    static byte getByte(int id, int position) {
+        return (byte) (id * 31 + position * 7 + position / 251);
+    }
+
+    static String getString(int count) {
+
+        char[] chars = new char[count];
+
+        for (int i = 0; i < count; i++) {
+            chars[i] = (char) ('A' + (i + i / 1000) % 26);
+        }
+
+        return new String(chars);
+    }
+
+    static void checkBytes(int id, byte[] bytes, int offset) {
+
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != getByte(id, offset + i)) {
+                fail("LOB " + id + " differs at " + (offset + i));
+            }
+        }
+    }
+}
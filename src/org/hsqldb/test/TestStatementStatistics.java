@@ -0,0 +1,364 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for EXPLAIN ANALYZE and the INFORMATION_SCHEMA.SYSTEM_STATEMENTSTATS
+ * table filled when the hsqldb.statement_stats property is true.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public class TestStatementStatistics extends TestCase {
+
+    static final String dbPath   = "/hsql/teststatementstats/test";
+    static final String url      = "jdbc:hsqldb:file:" + dbPath;
+    static final int    rowCount = 1000;
+    Connection          conn;
+
+    public TestStatementStatistics(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+        TestUtil.deleteDatabase(dbPath);
+    }
+
+    protected void tearDown() throws Exception {
+
+        if (conn != null) {
+            try {
+                conn.createStatement().execute("SHUTDOWN");
+            } catch (SQLException e) {}
+        }
+
+        TestUtil.deleteDatabase(dbPath);
+    }
+
+    /**
+     * The plan shows the actual counts of each range variable of a join.
+     */
+    public void testExplainAnalyze() throws Exception {
+
+        conn = openDatabase("");
+
+        createData(conn);
+
+        String plan = getPlan(conn,
+                              "EXPLAIN ANALYZE SELECT * FROM T JOIN U"
+                              + " ON T.G = U.G WHERE T.ID < 10");
+
+        // one probe of T reads the rows up to the end condition
+        assertTrue(plan, plan.indexOf(
+            "actual=[probes=1, rows read=11, rows returned=10,") > 0);
+
+        // one probe of U for each row of T
+        assertTrue(plan, plan.indexOf("actual=[probes=10,") > 0);
+        assertTrue(plan, plan.indexOf("result rows=10\n") > 0);
+        assertTrue(plan, plan.indexOf("execution time=") > 0);
+
+        // statistics are not kept after the statement
+        plan = getPlan(conn,
+                       "EXPLAIN PLAN FOR SELECT * FROM T JOIN U"
+                       + " ON T.G = U.G WHERE T.ID < 10");
+
+        assertTrue(plan, plan.indexOf("actual=") < 0);
+
+        // a data change statement is executed
+        plan = getPlan(conn,
+                       "EXPLAIN ANALYZE UPDATE T SET V = -1 WHERE ID >= "
+                       + (rowCount - 4));
+
+        assertTrue(plan, plan.indexOf("result rows=4\n") > 0);
+        assertTrue(plan, plan.indexOf(
+            "actual=[probes=1, rows read=4, rows returned=4,") > 0);
+        assertEquals(4, getInt(conn,
+                               "SELECT COUNT(*) FROM T WHERE V = -1"));
+
+        // parameters cannot be used
+        try {
+            conn.createStatement().executeQuery(
+                "EXPLAIN ANALYZE SELECT * FROM T WHERE ID = ?");
+            fail("parameter accepted");
+        } catch (SQLException e) {}
+
+        // execution errors are returned
+        try {
+            conn.createStatement().executeQuery(
+                "EXPLAIN ANALYZE INSERT INTO T VALUES (1, 1, 1)");
+            fail("duplicate key accepted");
+        } catch (SQLException e) {}
+    }
+
+    /**
+     * The cache figures show the rows read from the .data file.
+     */
+    public void testExplainAnalyzeCache() throws Exception {
+
+        conn = openDatabase("");
+
+        createData(conn);
+        conn.createStatement().execute("SHUTDOWN");
+
+        conn = openDatabase("");
+
+        String plan = getPlan(conn, "EXPLAIN ANALYZE SELECT SUM(V) FROM T");
+
+        assertTrue(plan, getPlanValue(plan, "cache misses=") > rowCount / 2);
+        assertTrue(plan, getPlanValue(plan, "bytes read=") > 0);
+
+        plan = getPlan(conn, "EXPLAIN ANALYZE SELECT SUM(V) FROM T");
+
+        assertEquals(plan, 0, getPlanValue(plan, "cache misses="));
+        assertTrue(plan, getPlanValue(plan, "cache hits=") >= rowCount);
+        assertTrue(plan, plan.indexOf("result rows=1\n") > 0);
+    }
+
+    /**
+     * Calls, rows, errors and times are aggregated on the statement text.
+     */
+    public void testStatementStats() throws Exception {
+
+        conn = openDatabase(";hsqldb.statement_stats=true");
+
+        assertEquals("true", getProperty(conn, "hsqldb.statement_stats"));
+        createData(conn);
+
+        String            sql = "SELECT * FROM T WHERE ID < ?";
+        PreparedStatement ps  = conn.prepareStatement(sql);
+
+        for (int i = 1; i <= 5; i++) {
+            ps.setInt(1, i);
+            ps.executeQuery().close();
+        }
+
+        Statement st = conn.createStatement();
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                st.execute("INSERT INTO T VALUES (1, 1, 1)");
+                fail("duplicate key accepted");
+            } catch (SQLException e) {}
+        }
+
+        st.execute("UPDATE T SET V = 0 WHERE ID < 7");
+
+        ResultSet rs = getStats(conn, sql);
+
+        assertTrue(rs.next());
+        assertEquals(5, rs.getLong("CALLS"));
+        assertEquals(1 + 2 + 3 + 4 + 5, rs.getLong("ROWS"));
+        assertEquals(0, rs.getLong("ERRORS"));
+        assertTrue(rs.getLong("MIN_MICROS") <= rs.getLong("MEAN_MICROS"));
+        assertTrue(rs.getLong("MEAN_MICROS") <= rs.getLong("MAX_MICROS"));
+        assertTrue(rs.getLong("MAX_MICROS") <= rs.getLong("TOTAL_MICROS"));
+        assertEquals(rs.getLong("TOTAL_MICROS") / 5,
+                     rs.getLong("MEAN_MICROS"));
+
+        rs = getStats(conn, "INSERT INTO T VALUES (1, 1, 1)");
+
+        assertTrue(rs.next());
+        assertEquals(3, rs.getLong("CALLS"));
+        assertEquals(3, rs.getLong("ERRORS"));
+
+        rs = getStats(conn, "UPDATE T SET V = 0 WHERE ID < 7");
+
+        assertTrue(rs.next());
+        assertEquals(1, rs.getLong("CALLS"));
+        assertEquals(7, rs.getLong("ROWS"));
+
+        // only users with the DBA role see the rows
+        st.execute("CREATE USER U PASSWORD 'p'");
+
+        Connection conn2 = DriverManager.getConnection(url, "U", "p");
+
+        assertEquals(0, getInt(conn2,
+                               "SELECT COUNT(*) FROM"
+                               + " INFORMATION_SCHEMA.SYSTEM_STATEMENTSTATS"));
+        conn2.close();
+
+        // the URL property also applies to an existing database
+        st.execute("SHUTDOWN");
+
+        conn = openDatabase("");
+
+        assertEquals("false", getProperty(conn, "hsqldb.statement_stats"));
+        conn.createStatement().executeQuery(sql.replace('?', '5')).close();
+        assertEquals(0, getInt(conn,
+                               "SELECT COUNT(*) FROM"
+                               + " INFORMATION_SCHEMA.SYSTEM_STATEMENTSTATS"));
+        conn.createStatement().execute("SHUTDOWN");
+
+        conn = openDatabase(";hsqldb.statement_stats=true");
+
+        conn.createStatement().executeQuery(sql.replace('?', '5')).close();
+
+        rs = getStats(conn, sql.replace('?', '5'));
+
+        assertTrue(rs.next());
+        assertEquals(1, rs.getLong("CALLS"));
+        assertEquals(5, rs.getLong("ROWS"));
+    }
+
+    /**
+     * The least called statements are discarded when the limit is reached.
+     */
+    public void testStatementStatsLimit() throws Exception {
+
+        conn = openDatabase(";hsqldb.statement_stats=true");
+
+        Statement st = conn.createStatement();
+
+        for (int i = 0; i < 3; i++) {
+            st.executeQuery("VALUES -1").close();
+        }
+
+        for (int i = 0; i < 1500; i++) {
+            st.executeQuery("VALUES " + i).close();
+        }
+
+        int count = getInt(conn,
+                           "SELECT COUNT(*) FROM"
+                           + " INFORMATION_SCHEMA.SYSTEM_STATEMENTSTATS");
+
+        assertEquals(1000, count);
+
+        ResultSet rs = getStats(conn, "VALUES -1");
+
+        assertTrue(rs.next());
+        assertEquals(3, rs.getLong("CALLS"));
+
+        // of statements with one call, the oldest are discarded
+        rs = getStats(conn, "VALUES 1499");
+
+        assertTrue(rs.next());
+        assertEquals(1, rs.getLong("CALLS"));
+
+        rs = getStats(conn, "VALUES 0");
+
+        assertFalse(rs.next());
+    }
+
+    Connection openDatabase(String properties) throws SQLException {
+        return DriverManager.getConnection(url + properties, "SA", "");
+    }
+
+    static void createData(Connection conn) throws SQLException {
+
+        Statement st = conn.createStatement();
+
+        st.execute("CREATE CACHED TABLE T (ID INT PRIMARY KEY, G INT, V INT)");
+        st.execute("CREATE TABLE U (G INT PRIMARY KEY, N VARCHAR(10))");
+        st.execute("INSERT INTO U VALUES (0, 'a'), (1, 'b'), (2, 'c')");
+
+        PreparedStatement ps =
+            conn.prepareStatement("INSERT INTO T VALUES (?, ?, ?)");
+
+        for (int i = 0; i < rowCount; i++) {
+            ps.setInt(1, i);
+            ps.setInt(2, i % 3);
+            ps.setInt(3, i);
+            ps.execute();
+        }
+
+        ps.close();
+    }
+
+    static String getPlan(Connection conn, String sql) throws SQLException {
+
+        ResultSet    rs = conn.createStatement().executeQuery(sql);
+        StringBuffer sb = new StringBuffer();
+
+        while (rs.next()) {
+            sb.append(rs.getString(1)).append('\n');
+        }
+
+        return sb.toString();
+    }
+
+    static long getPlanValue(String plan, String name) {
+
+        int start = plan.indexOf(name) + name.length();
+        int end   = plan.indexOf('\n', start);
+
+        return Long.parseLong(plan.substring(start, end));
+    }
+
+    static ResultSet getStats(Connection conn,
+                              String sql) throws SQLException {
+
+        PreparedStatement ps = conn.prepareStatement(
+            "SELECT * FROM INFORMATION_SCHEMA.SYSTEM_STATEMENTSTATS"
+            + " WHERE SQL = ?");
+
+        ps.setString(1, sql);
+
+        return ps.executeQuery();
+    }
+
+    static String getProperty(Connection conn,
+                              String name) throws SQLException {
+
+        PreparedStatement ps = conn.prepareStatement(
+            "SELECT PROPERTY_VALUE FROM INFORMATION_SCHEMA.SYSTEM_PROPERTIES"
+            + " WHERE PROPERTY_NAME = ?");
+
+        ps.setString(1, name);
+
+        ResultSet rs = ps.executeQuery();
+
+        return rs.next() ? rs.getString(1)
+                         : null;
+    }
+
+    static int getInt(Connection conn, String sql) throws SQLException {
+
+        ResultSet rs = conn.createStatement().executeQuery(sql);
+
+        rs.next();
+
+        return rs.getInt(1);
+    }
+}
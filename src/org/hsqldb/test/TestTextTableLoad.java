@@ -0,0 +1,570 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+import org.hsqldb.lib.HsqlArrayList;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the settings used when the source of a text table is loaded.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public class TestTextTableLoad extends TestCase {
+
+    static final String dirPath  = "/hsql/testtextload/";
+    static final String dbPath   = dirPath + "test";
+    static final int    rowCount = 5000;
+    Connection          conn;
+
+    public TestTextTableLoad(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+        TestUtil.deleteDatabase(dbPath);
+
+        conn = openDatabase("");
+    }
+
+    protected void tearDown() throws Exception {
+
+        try {
+            conn.createStatement().execute("SHUTDOWN");
+        } catch (SQLException e) {}
+
+        TestUtil.deleteDatabase(dbPath);
+        new File(dirPath + "t.csv").delete();
+        new File(dirPath + "t8.csv").delete();
+    }
+
+    /**
+     * A source parsed by several threads gives the same rows, in source
+     * order, as a source read sequentially.
+     */
+    public void testLoadThreads() throws Exception {
+
+        writeSource(-1);
+
+        Statement st = conn.createStatement();
+
+        createTable(st, "t.csv;load_threads=4");
+        checkData(st);
+
+        // rows in source order
+        ResultSet rs = st.executeQuery("SELECT ID FROM T");
+
+        for (int i = 0; i < rowCount; i++) {
+            assertTrue(rs.next());
+            assertEquals(i, rs.getInt(1));
+        }
+
+        rs.close();
+
+        // loaded again when the database is opened
+        st.execute("SHUTDOWN");
+
+        conn = openDatabase("");
+        st   = conn.createStatement();
+
+        checkData(st);
+
+        // same results when read sequentially
+        st.execute("DROP TABLE T");
+        createTable(st, "t.csv;load_threads=1");
+        checkData(st);
+
+        // a database property applies to all text tables
+        st.execute("SHUTDOWN");
+        TestUtil.deleteDatabase(dbPath);
+
+        conn = openDatabase(";textdb.load_threads=3");
+        st   = conn.createStatement();
+
+        assertEquals("3", getProperty(st, "textdb.load_threads"));
+        createTable(st, "t.csv");
+        checkData(st);
+    }
+
+    /**
+     * An error found while loading in parallel reports the source line.
+     */
+    public void testLoadThreadsError() throws Exception {
+
+        writeSource(3001);
+
+        Statement st = conn.createStatement();
+
+        st.execute("CREATE TEXT TABLE T (ID INT PRIMARY KEY, NAME VARCHAR(20),"
+                   + " V INT)");
+
+        try {
+            st.execute("SET TABLE T SOURCE 't.csv;load_threads=4'");
+            fail("load error not reported");
+        } catch (SQLException e) {
+            assertTrue(e.getMessage(), e.getMessage().indexOf("3001") >= 0);
+        }
+
+        // a load with a duplicate key fails and leaves the table empty
+        writeSource(-1);
+        appendLine("10,duplicate,0");
+
+        try {
+            st.execute("SET TABLE T SOURCE 't.csv;load_threads=4'");
+            fail("duplicate key not reported");
+        } catch (SQLException e) {}
+
+        assertEquals(0, getInt(st, "SELECT COUNT(*) FROM T"));
+    }
+
+    /**
+     * Rows of a lazily loaded table are parsed when accessed. A row that
+     * cannot be parsed is reported only when it is read.
+     */
+    public void testLazyLoad() throws Exception {
+
+        writeSource(3001);
+
+        Statement st = conn.createStatement();
+
+        createLazyTable(st, "t.csv;lazy_load=true");
+        assertEquals(rowCount, getInt(st, "SELECT COUNT(*) FROM T"));
+        assertEquals(3, getInt(st, "SELECT V FROM T OFFSET 1 ROWS"
+                                + " FETCH 1 ROWS ONLY"));
+
+        try {
+            getInt(st, "SELECT SUM(V) FROM T");
+            fail("parse error not reported");
+        } catch (SQLException e) {}
+
+        // the same source cannot be loaded fully
+        st.execute("DROP TABLE T");
+
+        try {
+            createLazyTable(st, "t.csv;lazy_load=false");
+            fail("parse error not reported");
+        } catch (SQLException e) {}
+
+        writeSource(-1);
+        st.execute("DROP TABLE T");
+        createLazyTable(st, "t.csv;lazy_load=true");
+        checkData(st);
+
+        // changes to lazily loaded rows
+        assertEquals(11, st.executeUpdate("UPDATE T SET V = -1 WHERE ID < 10"
+                                          + " OR ID = 4999"));
+        assertEquals(1, st.executeUpdate("DELETE FROM T WHERE ID = 2000"));
+        st.execute("INSERT INTO T VALUES (5000, 'new', 7)");
+        st.execute("SHUTDOWN");
+
+        conn = openDatabase("");
+        st   = conn.createStatement();
+
+        assertEquals(rowCount, getInt(st, "SELECT COUNT(*) FROM T"));
+        assertEquals(11, getInt(st, "SELECT COUNT(*) FROM T WHERE V = -1"));
+        assertEquals(0, getInt(st, "SELECT COUNT(*) FROM T WHERE ID = 2000"));
+        assertEquals(7, getInt(st, "SELECT V FROM T WHERE ID = 5000"));
+    }
+
+    /**
+     * Tables with a primary key or other indexes are loaded fully.
+     */
+    public void testLazyLoadWithIndex() throws Exception {
+
+        writeSource(3001);
+
+        Statement st = conn.createStatement();
+
+        st.execute("CREATE TEXT TABLE T (ID INT PRIMARY KEY, NAME VARCHAR(20),"
+                   + " V INT)");
+
+        try {
+            st.execute("SET TABLE T SOURCE 't.csv;lazy_load=true'");
+            fail("parse error not reported");
+        } catch (SQLException e) {}
+
+        writeSource(-1);
+        st.execute("SET TABLE T SOURCE 't.csv;lazy_load=true'");
+        checkData(st);
+    }
+
+    static void createTable(Statement st,
+                            String source) throws SQLException {
+
+        st.execute("CREATE TEXT TABLE T (ID INT PRIMARY KEY, NAME VARCHAR(20),"
+                   + " V INT)");
+        st.execute("CREATE INDEX T_V ON T (V)");
+        st.execute("SET TABLE T SOURCE '" + source + "'");
+    }
+
+    static void createLazyTable(Statement st,
+                                String source) throws SQLException {
+
+        st.execute("CREATE TEXT TABLE T (ID INT, NAME VARCHAR(20), V INT)");
+        st.execute("SET TABLE T SOURCE '" + source + "'");
+    }
+
+    /**
+     * A source read through mapped windows of the file gives the same rows
+     * as a source read by the default reader.
+     */
+    public void testMemoryMapped() throws Exception {
+
+        writeSource(-1);
+
+        Statement st = conn.createStatement();
+
+        createTable(st, "t.csv;memory_mapped=true");
+        checkData(st);
+
+        // lines written after the source is read
+        st.execute("INSERT INTO T VALUES (5000, 'new', 15000)");
+        st.execute("UPDATE T SET NAME = 'changed' WHERE ID = 2500");
+        st.execute("SHUTDOWN");
+
+        conn = openDatabase("");
+        st   = conn.createStatement();
+
+        assertEquals(rowCount + 1, getInt(st, "SELECT COUNT(*) FROM T"));
+        assertEquals("changed", getString(st, "SELECT NAME FROM T"
+                                          + " WHERE ID = 2500"));
+        assertEquals(15000, getInt(st, "SELECT V FROM T WHERE ID = 5000"));
+
+        // with parallel parsing
+        st.execute("DROP TABLE T");
+        writeSource(-1);
+        createTable(st, "t.csv;memory_mapped=true;load_threads=4");
+        checkData(st);
+
+        // an UTF-8 source that starts with a byte order mark and a header
+        Writer out = new OutputStreamWriter(
+            new FileOutputStream(dirPath + "t8.csv"), "UTF-8");
+
+        out.write("\ufeffID,NAME,V\n1,\u00e9t\u00e9,3\n2,\u20ac,6\n");
+        out.close();
+        st.execute("CREATE TEXT TABLE T8 (ID INT, NAME VARCHAR(20), V INT)");
+        st.execute("SET TABLE T8 SOURCE 't8.csv;encoding=UTF-8;"
+                   + "ignore_first=true;memory_mapped=true'");
+        assertEquals(2, getInt(st, "SELECT COUNT(*) FROM T8"));
+        assertEquals("\u00e9t\u00e9", getString(st, "SELECT NAME FROM T8"
+                + " WHERE ID = 1"));
+        assertEquals("\u20ac", getString(st, "SELECT NAME FROM T8"
+                                        + " WHERE V = 6"));
+
+        // a database property applies to all text tables
+        st.execute("SHUTDOWN");
+        TestUtil.deleteDatabase(dbPath);
+
+        conn = openDatabase(";textdb.memory_mapped=true");
+        st   = conn.createStatement();
+
+        assertEquals("true", getProperty(st, "textdb.memory_mapped"));
+        createTable(st, "t.csv");
+        checkData(st);
+    }
+
+    /**
+     * SMALLINT, INTEGER and BIGINT fields, including the values that are
+     * not parsed in place.
+     */
+    public void testIntegralFields() throws Exception {
+
+        Statement st = conn.createStatement();
+
+        writeLines(new String[] {
+            "1, 12 , -5 ,\t7", "2,,,", "3,\"42\",\"-7\",\"8\"",
+            "4,+3,+2147483647,9223372036854775807",
+            "5,-32768,-2147483648,-9223372036854775808",
+            "6,32767,0,123456789012345678", "7,-0,007,1234567890123456789",
+            "8,0,-0000000000000000001,-999999999999999999"
+        });
+        st.execute("CREATE TEXT TABLE T (ID INT, S SMALLINT, I INT,"
+                   + " B BIGINT)");
+        st.execute("SET TABLE T SOURCE 't.csv'");
+
+        String[] expected = new String[] {
+            "1,12,-5,7", "2,null,null,null", "3,42,-7,8",
+            "4,3,2147483647,9223372036854775807",
+            "5,-32768,-2147483648,-9223372036854775808",
+            "6,32767,0,123456789012345678", "7,0,7,1234567890123456789",
+            "8,0,-1,-999999999999999999"
+        };
+        ResultSet rs = st.executeQuery("SELECT * FROM T ORDER BY ID");
+
+        for (int i = 0; i < expected.length; i++) {
+            assertTrue(rs.next());
+            assertEquals(expected[i],
+                         rs.getString(1) + "," + rs.getString(2) + ","
+                         + rs.getString(3) + "," + rs.getString(4));
+        }
+
+        assertFalse(rs.next());
+        rs.close();
+
+        // values out of range or not numbers
+        String[] invalid = new String[] {
+            "1,0,2147483648,0", "1,0,-2147483649,0", "1,0,12x,0",
+            "1,0,1 2,0", "1,0,-,0", "1,0,0,9223372036854775808",
+            "1,0,0,-9223372036854775809", "1,0,0,1.5"
+        };
+
+        for (int i = 0; i < invalid.length; i++) {
+            st.execute("DROP TABLE T");
+            writeLines(new String[]{ invalid[i] });
+            st.execute("CREATE TEXT TABLE T (ID INT, S SMALLINT, I INT,"
+                       + " B BIGINT)");
+
+            try {
+                st.execute("SET TABLE T SOURCE 't.csv'");
+                fail(invalid[i]);
+            } catch (SQLException e) {}
+        }
+    }
+
+    /**
+     * DATE, TIMESTAMP and DECIMAL fields parsed in place give the same
+     * values as the same text converted with CAST, for random values and
+     * for the forms that are read as a String.
+     */
+    public void testDateTimeDecimalFields() throws Exception {
+
+        Statement     st     = conn.createStatement();
+        Random        random = new Random(11);
+        StringBuffer  sb     = new StringBuffer();
+        HsqlArrayList lines  = new HsqlArrayList();
+        String[] fixed = new String[] {
+            "2000-02-29", "2000-01-01 00:00:00", "1.5", "1600-03-01",
+            "1583-01-01 23:59:59.999999999", "-0.00", "1582-10-15",
+            "1900-02-28 12:00:00.5", "+12.25", " 2024-12-31 ",
+            "2024-12-31 10:20:30+02:00", ".5", "9999-12-31",
+            "1970-01-01 00:00:00.000001", "1e3", "1000-06-15",
+            "2013-06-30 23:59:59.12", "123456789012345678.9", "",
+            "", ""
+        };
+
+        for (int i = 0; i < fixed.length; i += 3) {
+            lines.add(fixed[i] + "," + fixed[i + 1] + "," + fixed[i + 2]);
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            String date = (1583 + random.nextInt(8417)) + "-"
+                          + pad(1 + random.nextInt(12)) + "-"
+                          + pad(1 + random.nextInt(28));
+            String time = pad(random.nextInt(24)) + ":"
+                          + pad(random.nextInt(60)) + ":"
+                          + pad(random.nextInt(60));
+
+            if (i % 2 == 0) {
+                time += "." + (1 + random.nextInt(999999999));
+            }
+
+            sb.setLength(0);
+
+            if (random.nextBoolean()) {
+                sb.append('-');
+            }
+
+            sb.append(random.nextInt(1000000)).append('.').append(
+                random.nextInt(100000));
+            lines.add(date + "," + date + " " + time + "," + sb);
+        }
+
+        String[] source = new String[lines.size()];
+
+        for (int i = 0; i < source.length; i++) {
+            source[i] = i + "," + lines.get(i) + "," + lines.get(i);
+        }
+
+        writeLines(source);
+        st.execute("CREATE TEXT TABLE T (ID INT, D DATE, TS TIMESTAMP(9),"
+                   + " N DECIMAL(30, 10), DS VARCHAR(40), TSS VARCHAR(40),"
+                   + " NS VARCHAR(40))");
+        st.execute("SET TABLE T SOURCE 't.csv;memory_mapped=true'");
+        assertEquals(source.length, getInt(st, "SELECT COUNT(*) FROM T"));
+        assertEquals(0, getInt(st, "SELECT COUNT(*) FROM T"
+                               + " WHERE D <> CAST(TRIM(DS) AS DATE)"
+                               + " OR TS <> CAST(TSS AS TIMESTAMP(9)"
+                               + " WITH TIME ZONE)"
+                               + " OR N <> CAST(NS AS DECIMAL(30, 10))"));
+        assertEquals(0, getInt(st, "SELECT COUNT(*) FROM T"
+                               + " WHERE (D IS NULL) <> (DS IS NULL)"
+                               + " OR (TS IS NULL) <> (TSS IS NULL)"
+                               + " OR (N IS NULL) <> (NS IS NULL)"));
+        assertEquals("2000-02-29", getString(st, "SELECT D FROM T"
+                                             + " WHERE ID = 0"));
+        assertEquals("1583-01-01 23:59:59.999999999",
+                     getString(st, "SELECT TS FROM T WHERE ID = 1"));
+        assertEquals("0.00", getString(st, "SELECT N FROM T WHERE ID = 1"));
+
+        // dates that are not valid
+        String[] invalid = new String[] {
+            "2001-02-29", "2000-13-01", "2000-04-31 10:00:00",
+            "2000-01-01 24:00:00", "2000-01-01 10:60:00"
+        };
+
+        for (int i = 0; i < invalid.length; i++) {
+            st.execute("DROP TABLE T");
+            writeLines(new String[]{ invalid[i] });
+            st.execute("CREATE TEXT TABLE T (D TIMESTAMP)");
+
+            try {
+                st.execute("SET TABLE T SOURCE 't.csv;memory_mapped=true'");
+                fail(invalid[i]);
+            } catch (SQLException e) {}
+        }
+    }
+
+    static String pad(int value) {
+        return value < 10 ? "0" + value
+                          : String.valueOf(value);
+    }
+
+    Connection openDatabase(String properties) throws SQLException {
+        return DriverManager.getConnection("jdbc:hsqldb:file:" + dbPath
+                                           + properties, "SA", "");
+    }
+
+    /**
+     * Writes rows with V = ID * 3. Names contain quoted separators and line
+     * ends. The row at badLine, if any, has an invalid value.
+     */
+    void writeSource(int badLine) throws IOException {
+
+        Writer out = new FileWriter(dirPath + "t.csv");
+
+        for (int i = 0; i < rowCount; i++) {
+            if (i + 1 == badLine) {
+                out.write(i + ",bad,x" + i + "\n");
+
+                continue;
+            }
+
+            String name = i % 100 == 0 ? "\"n,\n" + i + "\""
+                                       : "n" + i;
+
+            out.write(i + "," + name + "," + (i * 3) + "\n");
+        }
+
+        out.close();
+    }
+
+    void writeLines(String[] lines) throws IOException {
+
+        Writer out = new FileWriter(dirPath + "t.csv");
+
+        for (int i = 0; i < lines.length; i++) {
+            out.write(lines[i] + "\n");
+        }
+
+        out.close();
+    }
+
+    void appendLine(String line) throws IOException {
+
+        Writer out = new FileWriter(dirPath + "t.csv", true);
+
+        out.write(line + "\n");
+        out.close();
+    }
+
+    void checkData(Statement st) throws SQLException {
+
+        long sum = 3L * rowCount * (rowCount - 1) / 2;
+
+        assertEquals(rowCount, getInt(st, "SELECT COUNT(*) FROM T"));
+        assertEquals(sum, getLong(st, "SELECT SUM(V) FROM T"));
+        assertEquals(4000, getInt(st, "SELECT ID FROM T WHERE V = 12000"));
+        assertEquals(50, getInt(st, "SELECT COUNT(*) FROM T"
+                                 + " WHERE NAME LIKE 'n,%'"));
+        assertEquals("n,\n300", getString(st, "SELECT NAME FROM T"
+                                         + " WHERE ID = 300"));
+    }
+
+    static String getProperty(Statement st,
+                              String name) throws SQLException {
+
+        ResultSet rs = st.executeQuery(
+            "SELECT PROPERTY_VALUE FROM INFORMATION_SCHEMA.SYSTEM_PROPERTIES"
+            + " WHERE PROPERTY_NAME = '" + name + "'");
+
+        return rs.next() ? rs.getString(1)
+                         : null;
+    }
+
+    static int getInt(Statement st, String sql) throws SQLException {
+        return (int) getLong(st, sql);
+    }
+
+    static long getLong(Statement st, String sql) throws SQLException {
+
+        ResultSet rs = st.executeQuery(sql);
+
+        rs.next();
+
+        long value = rs.getLong(1);
+
+        rs.close();
+
+        return value;
+    }
+
+    static String getString(Statement st, String sql) throws SQLException {
+
+        ResultSet rs = st.executeQuery(sql);
+
+        rs.next();
+
+        String value = rs.getString(1);
+
+        rs.close();
+
+        return value;
+    }
+}
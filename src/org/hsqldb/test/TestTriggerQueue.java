@@ -0,0 +1,249 @@
+/* Copyright (c) 2001-2016, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.hsqldb.TriggerBatch;
+import org.hsqldb.Trigger;
+
+/**
+ * Tests for Java triggers declared with QUEUE n.
+ *
+ * @author Fred Toussi (fredt@users dot sourceforge.net)
+ * @version 2.3.5
+ * @since 2.3.5
+ */
+public class TestTriggerQueue extends TestBase {
+
+    static Vector          firedValues = new Vector();
+    static Vector          batchSizes  = new Vector();
+    static Vector          released    = new Vector();
+    static CountDownLatch  blockingLatch;
+    Connection             conn;
+    Statement              st;
+
+    public TestTriggerQueue(String name) {
+        super(name, "jdbc:hsqldb:mem:triggerqueue", false, false);
+    }
+
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        conn = newConnection();
+        st   = conn.createStatement();
+
+        firedValues.clear();
+        batchSizes.clear();
+        released.clear();
+    }
+
+    protected void tearDown() {
+
+        try {
+            st.execute("SHUTDOWN");
+            conn.close();
+        } catch (SQLException e) {}
+
+        super.tearDown();
+    }
+
+    public void testQueuedRowsInOrder() throws Exception {
+
+        st.execute("CREATE TABLE TQ (ID INT)");
+        st.execute("CREATE TRIGGER TQ_TRIG AFTER INSERT ON TQ FOR EACH ROW"
+                   + " QUEUE 8 CALL \"" + RowTrigger.class.getName() + "\"");
+        insertRows("TQ", 1000);
+        waitForCount(firedValues, 1000);
+        checkOrder(1000);
+    }
+
+    public void testBatchTrigger() throws Exception {
+
+        st.execute("CREATE TABLE TQ (ID INT)");
+        st.execute("CREATE TRIGGER TQ_TRIG AFTER INSERT ON TQ FOR EACH ROW"
+                   + " QUEUE 16 CALL \"" + BatchTrigger.class.getName()
+                   + "\"");
+        insertRows("TQ", 1000);
+        waitForCount(firedValues, 1000);
+        checkOrder(1000);
+
+        for (int i = 0; i < batchSizes.size(); i++) {
+            int size = ((Integer) batchSizes.get(i)).intValue();
+
+            assertTrue("batch size " + size, size > 0 && size <= 16);
+        }
+    }
+
+    /**
+     * Each trigger blocks until all the triggers have started firing. This
+     * completes only if every trigger with queued rows gets a thread.
+     */
+    public void testBlockingTriggers() throws Exception {
+
+        int count = Runtime.getRuntime().availableProcessors() + 2;
+
+        blockingLatch = new CountDownLatch(count);
+
+        for (int i = 0; i < count; i++) {
+            st.execute("CREATE TABLE TB" + i + " (ID INT)");
+            st.execute("CREATE TRIGGER TB_TRIG" + i + " AFTER INSERT ON TB"
+                       + i + " FOR EACH ROW QUEUE 1 CALL \""
+                       + BlockingTrigger.class.getName() + "\"");
+        }
+
+        for (int i = 0; i < count; i++) {
+            st.execute("INSERT INTO TB" + i + " VALUES " + i);
+        }
+
+        waitForCount(released, count);
+
+        for (int i = 0; i < count; i++) {
+            assertEquals(Boolean.TRUE, released.get(i));
+        }
+    }
+
+    /**
+     * Rows after a row that fails are still fired.
+     */
+    public void testFailingTrigger() throws Exception {
+
+        st.execute("CREATE TABLE TQ (ID INT)");
+        st.execute("CREATE TRIGGER TQ_TRIG AFTER INSERT ON TQ FOR EACH ROW"
+                   + " QUEUE 4 CALL \"" + FailingTrigger.class.getName()
+                   + "\"");
+        insertRows("TQ", 100);
+        waitForCount(firedValues, 50);
+        Thread.sleep(100);
+        assertEquals(50, firedValues.size());
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(new Integer(i * 2), firedValues.get(i));
+        }
+    }
+
+    void insertRows(String table, int count) throws SQLException {
+
+        PreparedStatement ps = conn.prepareStatement("INSERT INTO " + table
+            + " VALUES ?");
+
+        for (int i = 0; i < count; i++) {
+            ps.setInt(1, i);
+            ps.execute();
+        }
+
+        ps.close();
+    }
+
+    void checkOrder(int count) {
+
+        assertEquals(count, firedValues.size());
+
+        for (int i = 0; i < count; i++) {
+            assertEquals(new Integer(i), firedValues.get(i));
+        }
+    }
+
+    static void waitForCount(Vector list, int count) throws Exception {
+
+        for (int i = 0; i < 200 && list.size() < count; i++) {
+            Thread.sleep(50);
+        }
+
+        assertTrue("trigger calls " + list.size(), list.size() >= count);
+    }
+
+    public static class RowTrigger implements Trigger {
+
+        public void fire(int type, String trigName, String tabName,
+                         Object[] oldRow, Object[] newRow) {
+            firedValues.add(newRow[0]);
+        }
+    }
+
+    public static class BatchTrigger implements TriggerBatch {
+
+        public void fire(int type, String trigName, String tabName,
+                         Object[] oldRow, Object[] newRow) {
+            firedValues.add(newRow[0]);
+        }
+
+        public void fireBatch(int type, String trigName, String tabName,
+                              Object[][] oldRows, Object[][] newRows) {
+
+            batchSizes.add(new Integer(newRows.length));
+
+            for (int i = 0; i < newRows.length; i++) {
+                firedValues.add(newRows[i][0]);
+            }
+        }
+    }
+
+    public static class BlockingTrigger implements Trigger {
+
+        public void fire(int type, String trigName, String tabName,
+                         Object[] oldRow, Object[] newRow) {
+
+            boolean done = false;
+
+            blockingLatch.countDown();
+
+            try {
+                done = blockingLatch.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {}
+
+            released.add(Boolean.valueOf(done));
+        }
+    }
+
+    public static class FailingTrigger implements Trigger {
+
+        public void fire(int type, String trigName, String tabName,
+                         Object[] oldRow, Object[] newRow) {
+
+            int value = ((Integer) newRow[0]).intValue();
+
+            if (value % 2 == 1) {
+                throw new RuntimeException("failing trigger " + value);
+            }
+
+            firedValues.add(newRow[0]);
+        }
+    }
+}
@@ -31,6 +31,7 @@
 
 package org.hsqldb.types;
 
+import java.text.CollationKey;
 import java.text.Collator;
 import java.util.Locale;
 
@@ -48,6 +49,7 @@ import org.hsqldb.lib.HashMap;
 import org.hsqldb.lib.Iterator;
 import org.hsqldb.lib.OrderedHashSet;
 import org.hsqldb.lib.StringUtil;
+import org.hsqldb.persist.HsqlDatabaseProperties;
 import org.hsqldb.rights.Grantee;
 
 /**
@@ -55,7 +57,7 @@ import org.hsqldb.rights.Grantee;
  *
  * @author Frand Schoenheit (frank.schoenheit@sun dot com)
  * @author Fred Toussi (fredt@users dot sourceforge.net)
- * @version 2.3.0
+ * @version 2.3.5
  * @since 1.8.0
  */
 public class Collation implements SchemaObject {
@@ -199,6 +201,13 @@ public class Collation implements SchemaObject {
     private Charset  charset;
     private HsqlName sourceName;
 
+    // direct mapped cache of collation keys for recently compared values,
+    // size set with the hsqldb.collation_key_cache system property
+    static final int            defaultKeyCacheSize = 4096;
+    static final int            maxKeyCacheSize     = 1 << 16;
+    private int                 keyCacheSize;
+    private CollationKeyEntry[] keyCache;
+
     private Collation(boolean simple) {
 
         String nameString = simple ? defaultCollationName
@@ -231,6 +240,7 @@ public class Collation implements SchemaObject {
                 SchemaObject.COLLATION);
         charset            = Charset.SQL_TEXT;
         isUpperCaseCompare = ucc;
+        keyCacheSize       = getKeyCacheSize();
         isFinal            = true;
     }
 
@@ -241,6 +251,7 @@ public class Collation implements SchemaObject {
         this.locale          = source.locale;
         this.collator        = source.collator;
         this.isUnicodeSimple = source.isUnicodeSimple;
+        this.keyCacheSize    = source.keyCacheSize;
         this.isFinal         = true;
 
         //
@@ -400,6 +411,8 @@ public class Collation implements SchemaObject {
         this.collator        = newCollation.collator;
         this.isUnicodeSimple = newCollation.isUnicodeSimple;
         this.padSpace        = padSpace;
+        this.keyCacheSize    = newCollation.keyCacheSize;
+        this.keyCache        = null;
     }
 
     public boolean isPadSpace() {
@@ -414,6 +427,14 @@ public class Collation implements SchemaObject {
         return isUpperCaseCompare;
     }
 
+    /**
+     * Returns true if comparison uses a language Collator, false for the
+     * Unicode code point collations.
+     */
+    public boolean isLanguageCollation() {
+        return collator != null;
+    }
+
     public boolean isCaseSensitive() {
 
         // add support for case-sensitive language collations
@@ -437,12 +458,14 @@ public class Collation implements SchemaObject {
             } else {
                 i = a.compareToIgnoreCase(b);
             }
-        } else {
+        } else if (keyCacheSize == 0) {
             if (isUpperCaseCompare) {
                 i = collator.compare(toUpperCase(a), toUpperCase(b));
             } else {
                 i = collator.compare(a, b);
             }
+        } else {
+            i = getCollationKey(a).compareTo(getCollationKey(b));
         }
 
         return (i == 0) ? 0
@@ -450,6 +473,66 @@ public class Collation implements SchemaObject {
                                  : 1);
     }
 
+    /**
+     * Returns the binary sort key for the string. Keys are cached by value, so
+     * strings held in rows and index nodes are converted once while they are
+     * being compared repeatedly during index operations and sorts.
+     */
+    private CollationKey getCollationKey(String s) {
+
+        CollationKeyEntry[] cache = keyCache;
+
+        if (cache == null) {
+            cache    = new CollationKeyEntry[keyCacheSize];
+            keyCache = cache;
+        }
+
+        int               index = s.hashCode() & (keyCacheSize - 1);
+        CollationKeyEntry entry = cache[index];
+
+        if (entry != null && (entry.value == s || entry.value.equals(s))) {
+            return entry.key;
+        }
+
+        CollationKey key = isUpperCaseCompare
+                           ? collator.getCollationKey(toUpperCase(s))
+                           : collator.getCollationKey(s);
+
+        cache[index] = new CollationKeyEntry(s, key);
+
+        return key;
+    }
+
+    /**
+     * Returns the number of entries in the collation key cache of a new
+     * language collation, from the hsqldb.collation_key_cache system
+     * property. The value is rounded down to a power of two. The default is
+     * 4096 entries and 0 disables the cache. Collations are shared by all
+     * databases in the JVM, so the setting is not a database property.
+     */
+    static int getKeyCacheSize() {
+
+        int size;
+
+        try {
+            size = Integer.getInteger(
+                HsqlDatabaseProperties.system_collation_key_cache,
+                defaultKeyCacheSize).intValue();
+        } catch (SecurityException e) {
+            return defaultKeyCacheSize;
+        }
+
+        if (size <= 0) {
+            return 0;
+        }
+
+        if (size > maxKeyCacheSize) {
+            size = maxKeyCacheSize;
+        }
+
+        return Integer.highestOneBit(size);
+    }
+
     public String toUpperCase(String s) {
         return s.toUpperCase(locale);
     }
@@ -565,4 +648,15 @@ public class Collation implements SchemaObject {
 
         return sb.toString();
     }
+
+    private static final class CollationKeyEntry {
+
+        final String       value;
+        final CollationKey key;
+
+        CollationKeyEntry(String value, CollationKey key) {
+            this.value = value;
+            this.key   = key;
+        }
+    }
 }